@@ -0,0 +1,565 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.target;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.aop.TargetSource;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.core.NamedThreadLocal;
+import org.springframework.util.Assert;
+
+/**
+ * {@link TargetSource} implementation that pools instances of a prototype
+ * bean, obtained from the containing {@link BeanFactory}. Suitable for
+ * expensive, non-thread-safe targets such as parsers, which should neither
+ * be shared between concurrent invocations nor be created for each invocation.
+ *
+ * <p>Borrowing and returning an instance does not block: Pooled instances
+ * are claimed and returned through atomic state transitions on entries held
+ * in a copy-on-write list, which only gets copied (under a short internal
+ * lock) when the pool grows or shrinks. Each thread preferably reuses
+ * the instance that it returned last, which avoids contention on the shared
+ * pool and keeps the instance's state in the thread's CPU cache. Only when
+ * that instance is busy does the thread scan the pool for another idle
+ * instance, creating a new one if none is available.
+ *
+ * <p>The number of idle instances is bounded by the "maxIdle" setting;
+ * instances beyond that limit get destroyed on release. An optional eviction
+ * run destroys instances that have been idle longer than "minEvictableIdleTimeMillis",
+ * down to "minIdle" instances, which the pool also creates on startup.
+ *
+ * <p>Usage statistics are exposed through bean properties, for example for
+ * monitoring through Spring's JMX MBeanExporter.
+ *
+ * <p>Example:
+ *
+ * <pre>
+ * &lt;bean id="parserTarget" class="example.ExpensiveParser" scope="prototype"/&gt;
+ *
+ * &lt;bean id="parserPool" class="org.springframework.aop.target.ConcurrentPoolingTargetSource"&gt;
+ *   &lt;property name="targetBeanName" value="parserTarget"/&gt;
+ *   &lt;property name="maxIdle" value="16"/&gt;
+ *   &lt;property name="timeBetweenEvictionRunsMillis" value="60000"/&gt;
+ * &lt;/bean&gt;
+ *
+ * &lt;bean id="parser" class="org.springframework.aop.framework.ProxyFactoryBean"&gt;
+ *   &lt;property name="targetSource" ref="parserPool"/&gt;
+ * &lt;/bean&gt;</pre>
+ *
+ * <p>Requires Java 5 or higher.
+ *
+ * @author agent
+ * @since 2.5.6
+ * @see #setTargetBeanName
+ * @see #setMaxIdle
+ * @see #setMinIdle
+ * @see #setTimeBetweenEvictionRunsMillis
+ */
+public class ConcurrentPoolingTargetSource
+		implements TargetSource, BeanFactoryAware, InitializingBean, DisposableBean {
+
+	private static final int STATE_IDLE = 0;
+
+	private static final int STATE_IN_USE = 1;
+
+	private static final int STATE_REMOVED = 2;
+
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private String targetBeanName;
+
+	private Class targetClass;
+
+	private int minIdle = 0;
+
+	private int maxIdle = 8;
+
+	private long timeBetweenEvictionRunsMillis = -1;
+
+	private long minEvictableIdleTimeMillis = 30 * 60 * 1000;
+
+	private BeanFactory beanFactory;
+
+	/** All live PooledEntries, whether idle or in use */
+	private final List entries = new CopyOnWriteArrayList();
+
+	/**
+	 * Weak reference to the PooledEntry that the current thread used last,
+	 * not keeping the target alive once the pool has let go of it
+	 */
+	private final ThreadLocal lastEntry = new NamedThreadLocal("Last pooled target");
+
+	private final AtomicInteger idleCount = new AtomicInteger();
+
+	private final AtomicLong borrowCount = new AtomicLong();
+
+	private final AtomicLong affinityHitCount = new AtomicLong();
+
+	private final AtomicLong createdCount = new AtomicLong();
+
+	private final AtomicLong destroyedCount = new AtomicLong();
+
+	private final AtomicLong evictedCount = new AtomicLong();
+
+	private Timer evictionTimer;
+
+	private volatile boolean closed;
+
+
+	/**
+	 * Set the name of the target bean in the factory.
+	 * <p>The target bean must be a prototype: A new instance
+	 * will be created whenever the pool needs to grow.
+	 */
+	public void setTargetBeanName(String targetBeanName) {
+		this.targetBeanName = targetBeanName;
+	}
+
+	/**
+	 * Return the name of the target bean in the factory.
+	 */
+	public String getTargetBeanName() {
+		return this.targetBeanName;
+	}
+
+	/**
+	 * Specify the target class explicitly, to avoid any kind of access to the
+	 * target bean (for example, to avoid initialization of a FactoryBean instance).
+	 * <p>Default is to detect the type automatically, through a <code>getType</code>
+	 * call on the BeanFactory.
+	 * @see org.springframework.beans.factory.BeanFactory#getType
+	 */
+	public void setTargetClass(Class targetClass) {
+		this.targetClass = targetClass;
+	}
+
+	public synchronized Class getTargetClass() {
+		if (this.targetClass == null && this.beanFactory != null) {
+			this.targetClass = this.beanFactory.getType(this.targetBeanName);
+		}
+		return this.targetClass;
+	}
+
+	/**
+	 * Set the minimum number of idle instances to keep in the pool,
+	 * created on startup and retained by eviction runs. Default is 0.
+	 */
+	public void setMinIdle(int minIdle) {
+		this.minIdle = minIdle;
+	}
+
+	/**
+	 * Return the minimum number of idle instances to keep in the pool.
+	 */
+	public int getMinIdle() {
+		return this.minIdle;
+	}
+
+	/**
+	 * Set the maximum number of idle instances to keep in the pool.
+	 * Instances released while the pool holds this number of idle
+	 * instances already will be destroyed. Default is 8.
+	 * <p>Note that this limit is checked without locking: Concurrent
+	 * releases may briefly exceed it by the number of releasing threads.
+	 */
+	public void setMaxIdle(int maxIdle) {
+		this.maxIdle = maxIdle;
+	}
+
+	/**
+	 * Return the maximum number of idle instances to keep in the pool.
+	 */
+	public int getMaxIdle() {
+		return this.maxIdle;
+	}
+
+	/**
+	 * Set the interval between eviction runs, in milliseconds.
+	 * Default is -1, not running any eviction.
+	 * @see #setMinEvictableIdleTimeMillis
+	 */
+	public void setTimeBetweenEvictionRunsMillis(long timeBetweenEvictionRunsMillis) {
+		this.timeBetweenEvictionRunsMillis = timeBetweenEvictionRunsMillis;
+	}
+
+	/**
+	 * Return the interval between eviction runs, in milliseconds.
+	 */
+	public long getTimeBetweenEvictionRunsMillis() {
+		return this.timeBetweenEvictionRunsMillis;
+	}
+
+	/**
+	 * Set the minimum time that an instance may sit idle in the pool
+	 * before it is eligible for eviction, in milliseconds.
+	 * Default is 30 minutes.
+	 * @see #setTimeBetweenEvictionRunsMillis
+	 */
+	public void setMinEvictableIdleTimeMillis(long minEvictableIdleTimeMillis) {
+		this.minEvictableIdleTimeMillis = minEvictableIdleTimeMillis;
+	}
+
+	/**
+	 * Return the minimum time that an instance may sit idle in the pool
+	 * before it is eligible for eviction, in milliseconds.
+	 */
+	public long getMinEvictableIdleTimeMillis() {
+		return this.minEvictableIdleTimeMillis;
+	}
+
+	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+		this.beanFactory = beanFactory;
+	}
+
+	public void afterPropertiesSet() throws Exception {
+		Assert.notNull(this.targetBeanName, "Property 'targetBeanName' is required");
+		Assert.notNull(this.beanFactory, "BeanFactory is required");
+		Assert.isTrue(this.minIdle <= this.maxIdle, "'minIdle' must not be larger than 'maxIdle'");
+		if (!this.beanFactory.isPrototype(this.targetBeanName)) {
+			throw new BeanDefinitionStoreException(
+					"Cannot use ConcurrentPoolingTargetSource against non-prototype bean with name '" +
+					this.targetBeanName + "': instances would not be independent");
+		}
+		ensureMinIdle();
+		if (this.timeBetweenEvictionRunsMillis > 0) {
+			this.evictionTimer = new Timer("ConcurrentPoolingTargetSource evictor for bean '" +
+					this.targetBeanName + "'", true);
+			this.evictionTimer.schedule(new TimerTask() {
+				public void run() {
+					evict();
+				}
+			}, this.timeBetweenEvictionRunsMillis, this.timeBetweenEvictionRunsMillis);
+		}
+	}
+
+
+	//---------------------------------------------------------------------
+	// Implementation of TargetSource interface
+	//---------------------------------------------------------------------
+
+	public boolean isStatic() {
+		return false;
+	}
+
+	/**
+	 * Claim an idle instance from the pool, preferably the one that the
+	 * current thread used last, or create a new instance if none is idle.
+	 * @throws IllegalStateException if the pool has been closed already
+	 */
+	public Object getTarget() throws BeansException {
+		if (this.closed) {
+			throw new IllegalStateException("ConcurrentPoolingTargetSource for bean '" +
+					this.targetBeanName + "' has been closed");
+		}
+		this.borrowCount.incrementAndGet();
+		PooledEntry entry = getLastEntry();
+		if (entry != null && claim(entry)) {
+			this.affinityHitCount.incrementAndGet();
+			return entry.target;
+		}
+		for (Iterator it = this.entries.iterator(); it.hasNext();) {
+			entry = (PooledEntry) it.next();
+			if (claim(entry)) {
+				setLastEntry(entry);
+				return entry.target;
+			}
+		}
+		entry = createEntry(STATE_IN_USE);
+		setLastEntry(entry);
+		return entry.target;
+	}
+
+	/**
+	 * Return the given instance to the pool, or destroy it if the pool
+	 * already holds "maxIdle" idle instances or has been closed.
+	 */
+	public void releaseTarget(Object target) {
+		PooledEntry entry = getLastEntry();
+		if (entry == null || entry.target != target) {
+			entry = findEntry(target);
+			if (entry == null) {
+				// Not (or no longer) managed by this pool.
+				destroyTarget(target);
+				return;
+			}
+		}
+		if (this.closed || this.idleCount.get() >= this.maxIdle) {
+			if (entry.state.compareAndSet(STATE_IN_USE, STATE_REMOVED)) {
+				if (getLastEntry() == entry) {
+					this.lastEntry.remove();
+				}
+				removeEntry(entry);
+			}
+			return;
+		}
+		entry.lastReturned = System.currentTimeMillis();
+		if (entry.state.compareAndSet(STATE_IN_USE, STATE_IDLE)) {
+			this.idleCount.incrementAndGet();
+			setLastEntry(entry);
+			if (this.closed) {
+				// Closed concurrently: destroy() may have missed this entry.
+				removeIfIdle(entry);
+			}
+		}
+	}
+
+	/**
+	 * Return the PooledEntry that the current thread used last, if still pooled.
+	 * Clears the current thread's reference to entries that have been removed.
+	 */
+	private PooledEntry getLastEntry() {
+		Reference ref = (Reference) this.lastEntry.get();
+		if (ref == null) {
+			return null;
+		}
+		PooledEntry entry = (PooledEntry) ref.get();
+		if (entry == null || entry.state.get() == STATE_REMOVED) {
+			this.lastEntry.remove();
+			return null;
+		}
+		return entry;
+	}
+
+	/**
+	 * Remember the given PooledEntry as the one that the current thread used last.
+	 */
+	private void setLastEntry(PooledEntry entry) {
+		Reference ref = (Reference) this.lastEntry.get();
+		if (ref == null || ref.get() != entry) {
+			this.lastEntry.set(new WeakReference(entry));
+		}
+	}
+
+	private boolean claim(PooledEntry entry) {
+		if (entry.state.compareAndSet(STATE_IDLE, STATE_IN_USE)) {
+			this.idleCount.decrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	private PooledEntry findEntry(Object target) {
+		for (Iterator it = this.entries.iterator(); it.hasNext();) {
+			PooledEntry entry = (PooledEntry) it.next();
+			if (entry.target == target) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	private PooledEntry createEntry(int initialState) throws BeansException {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Creating new pooled instance of bean '" + this.targetBeanName + "'");
+		}
+		PooledEntry entry = new PooledEntry(this.beanFactory.getBean(this.targetBeanName), initialState);
+		this.createdCount.incrementAndGet();
+		if (initialState == STATE_IDLE) {
+			this.idleCount.incrementAndGet();
+		}
+		this.entries.add(entry);
+		return entry;
+	}
+
+	private void removeIfIdle(PooledEntry entry) {
+		if (entry.state.compareAndSet(STATE_IDLE, STATE_REMOVED)) {
+			this.idleCount.decrementAndGet();
+			removeEntry(entry);
+		}
+	}
+
+	private void removeEntry(PooledEntry entry) {
+		this.entries.remove(entry);
+		destroyTarget(entry.target);
+	}
+
+	/**
+	 * Destroy the given target instance, applying the bean factory's
+	 * destruction callbacks for prototype beans.
+	 * @param target the target instance to destroy
+	 * @see org.springframework.beans.factory.config.ConfigurableBeanFactory#destroyBean
+	 */
+	protected void destroyTarget(Object target) {
+		this.destroyedCount.incrementAndGet();
+		if (this.beanFactory instanceof ConfigurableBeanFactory) {
+			((ConfigurableBeanFactory) this.beanFactory).destroyBean(this.targetBeanName, target);
+		}
+		else if (target instanceof DisposableBean) {
+			try {
+				((DisposableBean) target).destroy();
+			}
+			catch (Throwable ex) {
+				logger.error("Couldn't invoke destroy method of bean with name '" + this.targetBeanName + "'", ex);
+			}
+		}
+	}
+
+
+	//---------------------------------------------------------------------
+	// Eviction
+	//---------------------------------------------------------------------
+
+	/**
+	 * Destroy instances that have been idle for longer than "minEvictableIdleTimeMillis",
+	 * retaining "minIdle" idle instances. Called by the eviction timer, if any.
+	 */
+	public void evict() {
+		if (this.closed) {
+			return;
+		}
+		long threshold = System.currentTimeMillis() - this.minEvictableIdleTimeMillis;
+		for (Iterator it = this.entries.iterator(); it.hasNext();) {
+			PooledEntry entry = (PooledEntry) it.next();
+			if (this.idleCount.get() <= this.minIdle) {
+				break;
+			}
+			if (entry.lastReturned < threshold && entry.state.compareAndSet(STATE_IDLE, STATE_REMOVED)) {
+				this.idleCount.decrementAndGet();
+				this.evictedCount.incrementAndGet();
+				removeEntry(entry);
+			}
+		}
+		try {
+			ensureMinIdle();
+		}
+		catch (Throwable ex) {
+			logger.warn("Could not replenish pool for bean '" + this.targetBeanName + "'", ex);
+		}
+	}
+
+	private void ensureMinIdle() throws BeansException {
+		while (!this.closed && this.idleCount.get() < this.minIdle) {
+			createEntry(STATE_IDLE);
+		}
+	}
+
+	/**
+	 * Close the pool: stop the eviction timer and destroy all pooled instances
+	 * that are not in use at this point. Instances in use will be destroyed
+	 * when released; further <code>getTarget</code> calls will be rejected.
+	 */
+	public void destroy() {
+		this.closed = true;
+		if (this.evictionTimer != null) {
+			this.evictionTimer.cancel();
+		}
+		logger.debug("Closing ConcurrentPoolingTargetSource");
+		for (Iterator it = this.entries.iterator(); it.hasNext();) {
+			removeIfIdle((PooledEntry) it.next());
+		}
+	}
+
+
+	//---------------------------------------------------------------------
+	// Pool statistics
+	//---------------------------------------------------------------------
+
+	/**
+	 * Return the number of instances currently in use.
+	 */
+	public int getActiveCount() {
+		return Math.max(this.entries.size() - this.idleCount.get(), 0);
+	}
+
+	/**
+	 * Return the number of idle instances currently in the pool.
+	 */
+	public int getIdleCount() {
+		return this.idleCount.get();
+	}
+
+	/**
+	 * Return the total number of <code>getTarget</code> calls.
+	 */
+	public long getBorrowCount() {
+		return this.borrowCount.get();
+	}
+
+	/**
+	 * Return the number of <code>getTarget</code> calls that have been served
+	 * with the instance that the calling thread used last.
+	 */
+	public long getAffinityHitCount() {
+		return this.affinityHitCount.get();
+	}
+
+	/**
+	 * Return the number of instances created by the pool.
+	 */
+	public long getCreatedCount() {
+		return this.createdCount.get();
+	}
+
+	/**
+	 * Return the number of instances destroyed by the pool,
+	 * including evicted instances.
+	 */
+	public long getDestroyedCount() {
+		return this.destroyedCount.get();
+	}
+
+	/**
+	 * Return the number of idle instances destroyed by eviction runs.
+	 */
+	public long getEvictedCount() {
+		return this.evictedCount.get();
+	}
+
+	public String toString() {
+		return "ConcurrentPoolingTargetSource for bean '" + this.targetBeanName + "': active=" + getActiveCount() +
+				", idle=" + getIdleCount() + ", borrowed=" + getBorrowCount() + ", affinityHits=" +
+				getAffinityHitCount() + ", created=" + getCreatedCount() + ", destroyed=" + getDestroyedCount();
+	}
+
+
+	/**
+	 * Holder for a pooled instance and its state.
+	 */
+	private static class PooledEntry {
+
+		public final Object target;
+
+		public final AtomicInteger state;
+
+		public volatile long lastReturned = System.currentTimeMillis();
+
+		public PooledEntry(Object target, int initialState) {
+			this.target = target;
+			this.state = new AtomicInteger(initialState);
+		}
+	}
+
+}
@@ -20,8 +20,6 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyDescriptor;
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -416,13 +414,11 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 	 * @return a BeanWrapper for the target bean
 	 */
 	protected BeanWrapperImpl getBeanWrapperForPropertyPath(String propertyPath) {
-		int pos = PropertyAccessorUtils.getFirstNestedPropertySeparatorIndex(propertyPath);
+		String[] nestedPropertyPath = CachedIntrospectionResults.getNestedPropertyPath(propertyPath);
 		// Handle nested properties recursively.
-		if (pos > -1) {
-			String nestedProperty = propertyPath.substring(0, pos);
-			String nestedPath = propertyPath.substring(pos + 1);
-			BeanWrapperImpl nestedBw = getNestedBeanWrapper(nestedProperty);
-			return nestedBw.getBeanWrapperForPropertyPath(nestedPath);
+		if (nestedPropertyPath != null) {
+			BeanWrapperImpl nestedBw = getNestedBeanWrapper(nestedPropertyPath[0]);
+			return nestedBw.getBeanWrapperForPropertyPath(nestedPropertyPath[1]);
 		}
 		else {
 			return this;
@@ -481,12 +477,27 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 		return new BeanWrapperImpl(object, nestedPath, this);
 	}
 
+	/**
+	 * Parse the given property name into the corresponding property name tokens,
+	 * reusing a previously parsed representation if available.
+	 * @param propertyName the property name to parse
+	 * @return representation of the parsed property tokens (not to be modified)
+	 */
+	private PropertyTokenHolder getPropertyNameTokens(String propertyName) {
+		PropertyTokenHolder tokens = CachedIntrospectionResults.getPropertyNameTokens(propertyName);
+		if (tokens == null) {
+			tokens = parsePropertyNameTokens(propertyName);
+			CachedIntrospectionResults.cachePropertyNameTokens(propertyName, tokens);
+		}
+		return tokens;
+	}
+
 	/**
 	 * Parse the given property name into the corresponding property name tokens.
 	 * @param propertyName the property name to parse
 	 * @return representation of the parsed property tokens
 	 */
-	private PropertyTokenHolder getPropertyNameTokens(String propertyName) {
+	private PropertyTokenHolder parsePropertyNameTokens(String propertyName) {
 		PropertyTokenHolder tokens = new PropertyTokenHolder();
 		String actualName = null;
 		List keys = new ArrayList(2);
@@ -539,12 +550,8 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 		if (pd == null || pd.getReadMethod() == null) {
 			throw new NotReadablePropertyException(getRootClass(), this.nestedPath + propertyName);
 		}
-		Method readMethod = pd.getReadMethod();
 		try {
-			if (!Modifier.isPublic(readMethod.getDeclaringClass().getModifiers())) {
-				readMethod.setAccessible(true);
-			}
-			Object value = readMethod.invoke(this.object, (Object[]) null);
+			Object value = getCachedIntrospectionResults().invokeReadMethod(this.object, pd);
 			if (tokens.keys != null) {
 				// apply indexes and map keys
 				for (int i = 0; i < tokens.keys.length; i++) {
@@ -815,12 +822,8 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 					}
 					else {
 						if (isExtractOldValueForEditor() && pd.getReadMethod() != null) {
-							Method readMethod = pd.getReadMethod();
-							if (!Modifier.isPublic(readMethod.getDeclaringClass().getModifiers())) {
-								readMethod.setAccessible(true);
-							}
 							try {
-								oldValue = readMethod.invoke(this.object, new Object[0]);
+								oldValue = getCachedIntrospectionResults().invokeReadMethod(this.object, pd);
 							}
 							catch (Exception ex) {
 								if (logger.isDebugEnabled()) {
@@ -833,11 +836,7 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 					}
 					pv.getOriginalPropertyValue().conversionNecessary = Boolean.valueOf(valueToApply != originalValue);
 				}
-				Method writeMethod = pd.getWriteMethod();
-				if (!Modifier.isPublic(writeMethod.getDeclaringClass().getModifiers())) {
-					writeMethod.setAccessible(true);
-				}
-				writeMethod.invoke(this.object, new Object[] {valueToApply});
+				getCachedIntrospectionResults().invokeWriteMethod(this.object, pd, valueToApply);
 			}
 			catch (InvocationTargetException ex) {
 				PropertyChangeEvent propertyChangeEvent =
@@ -879,7 +878,12 @@ public class BeanWrapperImpl extends AbstractPropertyAccessor implements BeanWra
 	// Inner class for internal use
 	//---------------------------------------------------------------------
 
-	private static class PropertyTokenHolder {
+	/**
+	 * Parsed representation of a property name. Instances are shared
+	 * through the CachedIntrospectionResults token cache once created,
+	 * and must not be modified afterwards.
+	 */
+	static class PropertyTokenHolder {
 
 		public String canonicalName;
 
@@ -21,18 +21,23 @@ import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.core.CollectionFactory;
 import org.springframework.core.JdkVersion;
 import org.springframework.util.ClassUtils;
 
@@ -54,10 +59,21 @@ import org.springframework.util.ClassUtils;
  * @since 05 May 2001
  * @see #acceptClassLoader(ClassLoader)
  * @see #clearClassLoader(ClassLoader)
+ * @see #setUseGeneratedAccessors(boolean)
  * @see #forClass(Class)
  */
 public class CachedIntrospectionResults {
 
+	/** Maximum number of property paths to keep in the parsed path caches */
+	private static final int PROPERTY_PATH_CACHE_LIMIT = 256;
+
+	/** Marker for a property path cached as not nested */
+	private static final String[] NON_NESTED_PROPERTY_PATH = new String[0];
+
+	private static final boolean asmAvailable =
+			ClassUtils.isPresent("org.objectweb.asm.ClassWriter", CachedIntrospectionResults.class.getClassLoader());
+
+
 	private static final Log logger = LogFactory.getLog(CachedIntrospectionResults.class);
 
 	/**
@@ -67,11 +83,54 @@ public class CachedIntrospectionResults {
 	static final Set acceptedClassLoaders = Collections.synchronizedSet(new HashSet());
 
 	/**
-	 * Map keyed by class containing CachedIntrospectionResults.
-	 * Needs to be a WeakHashMap with WeakReferences as values to allow
-	 * for proper garbage collection in case of multiple class loaders.
+	 * Snapshot of the accepted ClassLoaders, for checks without synchronization.
+	 * Replaced on every modification of the acceptedClassLoaders Set.
+	 */
+	private static volatile ClassLoader[] acceptedClassLoaderArray = new ClassLoader[0];
+
+	/**
+	 * Map keyed by weakly referenced class containing CachedIntrospectionResults.
+	 * Needs to be a concurrent Map with weak keys and WeakReferences as values
+	 * to allow for proper garbage collection in case of multiple class loaders,
+	 * while not synchronizing lookups for already introspected classes.
 	 */
-	static final Map classCache = Collections.synchronizedMap(new WeakHashMap());
+	static final Map classCache = CollectionFactory.createConcurrentMapIfPossible(64);
+
+	/** Queue for class keys that have been garbage-collected */
+	private static final ReferenceQueue staleClassKeys = new ReferenceQueue();
+
+	/**
+	 * Map from nested property path to its split representation:
+	 * first path element plus remaining path, or the non-nested marker.
+	 */
+	private static final Map nestedPropertyPathCache = CollectionFactory.createConcurrentMapIfPossible(64);
+
+	/** Map from property name to parsed PropertyTokenHolder */
+	private static final Map propertyTokenCache = CollectionFactory.createConcurrentMapIfPossible(64);
+
+	private static volatile boolean useGeneratedAccessors = false;
+
+
+	/**
+	 * Specify whether to invoke property read and write methods through
+	 * accessor classes generated at runtime, instead of through reflection.
+	 * Requires ASM 2.2 on the classpath.
+	 * <p>Default is "false". Switching this on only affects introspection
+	 * results created afterwards; for properties that cannot be accessed
+	 * by a generated class (e.g. on non-public classes), and in case of
+	 * accessor generation failure, reflection will be used as before.
+	 * @see PropertyMethodAccessor
+	 */
+	public static void setUseGeneratedAccessors(boolean useGeneratedAccessors) {
+		CachedIntrospectionResults.useGeneratedAccessors = useGeneratedAccessors;
+	}
+
+	/**
+	 * Return whether property methods get invoked through generated accessors.
+	 */
+	public static boolean isUseGeneratedAccessors() {
+		return useGeneratedAccessors;
+	}
 
 
 	/**
@@ -88,7 +147,10 @@ public class CachedIntrospectionResults {
 	 */
 	public static void acceptClassLoader(ClassLoader classLoader) {
 		if (classLoader != null) {
-			acceptedClassLoaders.add(classLoader);
+			synchronized (acceptedClassLoaders) {
+				acceptedClassLoaders.add(classLoader);
+				refreshAcceptedClassLoaderArray();
+			}
 		}
 	}
 
@@ -105,8 +167,8 @@ public class CachedIntrospectionResults {
 		}
 		synchronized (classCache) {
 			for (Iterator it = classCache.keySet().iterator(); it.hasNext();) {
-				Class beanClass = (Class) it.next();
-				if (isUnderneathClassLoader(beanClass.getClassLoader(), classLoader)) {
+				Class beanClass = (Class) ((WeakClassKey) it.next()).get();
+				if (beanClass == null || isUnderneathClassLoader(beanClass.getClassLoader(), classLoader)) {
 					it.remove();
 				}
 			}
@@ -118,6 +180,27 @@ public class CachedIntrospectionResults {
 					it.remove();
 				}
 			}
+			refreshAcceptedClassLoaderArray();
+		}
+		expungeStaleClassKeys();
+	}
+
+	/**
+	 * Rebuild the accepted ClassLoader snapshot from the acceptedClassLoaders Set.
+	 * To be called with the acceptedClassLoaders monitor held.
+	 */
+	private static void refreshAcceptedClassLoaderArray() {
+		acceptedClassLoaderArray =
+				(ClassLoader[]) acceptedClassLoaders.toArray(new ClassLoader[acceptedClassLoaders.size()]);
+	}
+
+	/**
+	 * Remove cache entries for classes that have been garbage-collected.
+	 */
+	private static void expungeStaleClassKeys() {
+		Reference staleKey;
+		while ((staleKey = staleClassKeys.poll()) != null) {
+			classCache.remove(staleKey);
 		}
 	}
 
@@ -125,13 +208,14 @@ public class CachedIntrospectionResults {
 	 * Create CachedIntrospectionResults for the given bean class.
 	 * <P>We don't want to use synchronization here. Object references are atomic,
 	 * so we can live with doing the occasional unnecessary lookup at startup only.
+	 * Lookups for already introspected classes do not lock on a shared monitor.
 	 * @param beanClass the bean class to analyze
 	 * @return the corresponding CachedIntrospectionResults
 	 * @throws BeansException in case of introspection failure
 	 */
 	static CachedIntrospectionResults forClass(Class beanClass) throws BeansException {
 		CachedIntrospectionResults results = null;
-		Object value = classCache.get(beanClass);
+		Object value = classCache.get(new WeakClassKey(beanClass, null));
 		if (value instanceof Reference) {
 			Reference ref = (Reference) value;
 			results = (CachedIntrospectionResults) ref.get();
@@ -142,15 +226,17 @@ public class CachedIntrospectionResults {
 		if (results == null) {
 			// can throw BeansException
 			results = new CachedIntrospectionResults(beanClass);
+			expungeStaleClassKeys();
+			WeakClassKey classKey = new WeakClassKey(beanClass, staleClassKeys);
 			if (ClassUtils.isCacheSafe(beanClass, CachedIntrospectionResults.class.getClassLoader()) ||
 					isClassLoaderAccepted(beanClass.getClassLoader())) {
-				classCache.put(beanClass, results);
+				classCache.put(classKey, results);
 			}
 			else {
 				if (logger.isDebugEnabled()) {
 					logger.debug("Not strongly caching class [" + beanClass.getName() + "] because it is not cache-safe");
 				}
-				classCache.put(beanClass, new WeakReference(results));
+				classCache.put(classKey, new WeakReference(results));
 			}
 		}
 		return results;
@@ -164,11 +250,11 @@ public class CachedIntrospectionResults {
 	 * @see #acceptClassLoader
 	 */
 	private static boolean isClassLoaderAccepted(ClassLoader classLoader) {
-		// Iterate over array copy in order to avoid synchronization for the entire
+		// Iterate over array snapshot in order to avoid synchronization for the entire
 		// ClassLoader check (avoiding a synchronized acceptedClassLoaders Iterator).
-		Object[] acceptedLoaderArray = acceptedClassLoaders.toArray();
+		ClassLoader[] acceptedLoaderArray = acceptedClassLoaderArray;
 		for (int i = 0; i < acceptedLoaderArray.length; i++) {
-			ClassLoader registeredLoader = (ClassLoader) acceptedLoaderArray[i];
+			ClassLoader registeredLoader = acceptedLoaderArray[i];
 			if (isUnderneathClassLoader(classLoader, registeredLoader)) {
 				return true;
 			}
@@ -199,6 +285,48 @@ public class CachedIntrospectionResults {
 		return false;
 	}
 
+	/**
+	 * Return the split representation of the given property path.
+	 * @param propertyPath the property path, which may be nested
+	 * @return a two-element array with the first nested property and the
+	 * remaining path, or <code>null</code> if the path is not nested
+	 */
+	static String[] getNestedPropertyPath(String propertyPath) {
+		String[] split = (String[]) nestedPropertyPathCache.get(propertyPath);
+		if (split == null) {
+			int pos = PropertyAccessorUtils.getFirstNestedPropertySeparatorIndex(propertyPath);
+			split = (pos > -1 ?
+					new String[] {propertyPath.substring(0, pos), propertyPath.substring(pos + 1)} :
+					NON_NESTED_PROPERTY_PATH);
+			if (nestedPropertyPathCache.size() < PROPERTY_PATH_CACHE_LIMIT) {
+				nestedPropertyPathCache.put(propertyPath, split);
+			}
+		}
+		return (split != NON_NESTED_PROPERTY_PATH ? split : null);
+	}
+
+	/**
+	 * Return the cached tokens for the given (non-nested) property name, if any.
+	 * The returned holder is shared and must not be modified.
+	 * @param propertyName the property name
+	 * @return the cached tokens, or <code>null</code> if none
+	 */
+	static BeanWrapperImpl.PropertyTokenHolder getPropertyNameTokens(String propertyName) {
+		return (BeanWrapperImpl.PropertyTokenHolder) propertyTokenCache.get(propertyName);
+	}
+
+	/**
+	 * Cache the given tokens for the given (non-nested) property name,
+	 * unless the cache limit has been reached already.
+	 * @param propertyName the property name
+	 * @param tokens the parsed tokens (not to be modified afterwards)
+	 */
+	static void cachePropertyNameTokens(String propertyName, BeanWrapperImpl.PropertyTokenHolder tokens) {
+		if (propertyTokenCache.size() < PROPERTY_PATH_CACHE_LIMIT) {
+			propertyTokenCache.put(propertyName, tokens);
+		}
+	}
+
 
 	/** The BeanInfo object for the introspected bean class */
 	private final BeanInfo beanInfo;
@@ -206,6 +334,15 @@ public class CachedIntrospectionResults {
 	/** PropertyDescriptor objects keyed by property name String */
 	private final Map propertyDescriptorCache;
 
+	/** Generated accessor for the property methods of the bean class, if any */
+	private PropertyMethodAccessor propertyMethodAccessor;
+
+	/** Accessor indexes for directly invocable read methods, keyed by PropertyDescriptor */
+	private Map readMethodIndexes;
+
+	/** Accessor indexes for directly invocable write methods, keyed by PropertyDescriptor */
+	private Map writeMethodIndexes;
+
 
 	/**
 	 * Create a new CachedIntrospectionResults instance for the given class.
@@ -252,12 +389,56 @@ public class CachedIntrospectionResults {
 				}
 				this.propertyDescriptorCache.put(pd.getName(), pd);
 			}
+
+			if (useGeneratedAccessors && asmAvailable) {
+				initPropertyMethodAccessor(beanClass);
+			}
 		}
 		catch (IntrospectionException ex) {
 			throw new FatalBeanException("Cannot get BeanInfo for object of class [" + beanClass.getName() + "]", ex);
 		}
 	}
 
+	/**
+	 * Generate an accessor class for the directly invocable property methods
+	 * of the given bean class, falling back to reflection on failure.
+	 */
+	private void initPropertyMethodAccessor(Class beanClass) {
+		PropertyDescriptor[] pds = (PropertyDescriptor[])
+				this.propertyDescriptorCache.values().toArray(new PropertyDescriptor[this.propertyDescriptorCache.size()]);
+		Method[] readMethods = new Method[pds.length];
+		Method[] writeMethods = new Method[pds.length];
+		Map readIndexes = new IdentityHashMap();
+		Map writeIndexes = new IdentityHashMap();
+		for (int i = 0; i < pds.length; i++) {
+			Method readMethod = pds[i].getReadMethod();
+			if (PropertyMethodAccessorGenerator.isDirectlyInvocable(readMethod)) {
+				readMethods[i] = readMethod;
+				readIndexes.put(pds[i], new Integer(i));
+			}
+			Method writeMethod = pds[i].getWriteMethod();
+			if (PropertyMethodAccessorGenerator.isDirectlyInvocable(writeMethod)) {
+				writeMethods[i] = writeMethod;
+				writeIndexes.put(pds[i], new Integer(i));
+			}
+		}
+		if (readIndexes.isEmpty() && writeIndexes.isEmpty()) {
+			return;
+		}
+		try {
+			this.propertyMethodAccessor =
+					PropertyMethodAccessorGenerator.generateAccessor(beanClass, readMethods, writeMethods);
+			this.readMethodIndexes = readIndexes;
+			this.writeMethodIndexes = writeIndexes;
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Could not generate property accessor for class [" + beanClass.getName() +
+						"] - falling back to reflection", ex);
+			}
+		}
+	}
+
 	BeanInfo getBeanInfo() {
 		return this.beanInfo;
 	}
@@ -270,4 +451,90 @@ public class CachedIntrospectionResults {
 		return (PropertyDescriptor) this.propertyDescriptorCache.get(propertyName);
 	}
 
+	/**
+	 * Invoke the read method of the given property on the given target,
+	 * through the generated accessor if available or through reflection else.
+	 * @param target the target bean
+	 * @param pd the PropertyDescriptor of the property to read
+	 * @return the property value
+	 * @throws InvocationTargetException if the read method threw an exception
+	 * @throws IllegalAccessException if the read method could not be accessed
+	 */
+	Object invokeReadMethod(Object target, PropertyDescriptor pd)
+			throws InvocationTargetException, IllegalAccessException {
+
+		if (this.propertyMethodAccessor != null) {
+			Integer index = (Integer) this.readMethodIndexes.get(pd);
+			if (index != null) {
+				return this.propertyMethodAccessor.invokeReadMethod(target, index.intValue());
+			}
+		}
+		Method readMethod = pd.getReadMethod();
+		if (!Modifier.isPublic(readMethod.getDeclaringClass().getModifiers())) {
+			readMethod.setAccessible(true);
+		}
+		return readMethod.invoke(target, (Object[]) null);
+	}
+
+	/**
+	 * Invoke the write method of the given property on the given target,
+	 * through the generated accessor if available or through reflection else.
+	 * @param target the target bean
+	 * @param pd the PropertyDescriptor of the property to write
+	 * @param value the value to set
+	 * @throws InvocationTargetException if the write method threw an exception
+	 * @throws IllegalAccessException if the write method could not be accessed
+	 */
+	void invokeWriteMethod(Object target, PropertyDescriptor pd, Object value)
+			throws InvocationTargetException, IllegalAccessException {
+
+		Method writeMethod = pd.getWriteMethod();
+		if (this.propertyMethodAccessor != null) {
+			Integer index = (Integer) this.writeMethodIndexes.get(pd);
+			if (index != null) {
+				Class paramType = writeMethod.getParameterTypes()[0];
+				// Values that would need a widening conversion are left to reflection.
+				if (ClassUtils.isAssignableValue(paramType, value)) {
+					this.propertyMethodAccessor.invokeWriteMethod(target, index.intValue(), value);
+					return;
+				}
+			}
+		}
+		if (!Modifier.isPublic(writeMethod.getDeclaringClass().getModifiers())) {
+			writeMethod.setAccessible(true);
+		}
+		writeMethod.invoke(target, new Object[] {value});
+	}
+
+
+
+	/**
+	 * Weak reference to a bean class, usable as key in the class cache.
+	 * Equal to any other key that refers to the same (non-collected) class.
+	 */
+	private static final class WeakClassKey extends WeakReference {
+
+		private final int hashCode;
+
+		public WeakClassKey(Class beanClass, ReferenceQueue queue) {
+			super(beanClass, queue);
+			this.hashCode = System.identityHashCode(beanClass);
+		}
+
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof WeakClassKey)) {
+				return false;
+			}
+			Object beanClass = get();
+			return (beanClass != null && beanClass == ((WeakClassKey) other).get());
+		}
+
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
 }
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.springframework.beans.propertyeditors.CustomBooleanEditor;
+import org.springframework.core.JdkVersion;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.NumberUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.util.SystemPropertyUtils;
+
+/**
+ * Stateless counterparts of the default editors in {@link PropertyEditorRegistrySupport},
+ * with the same conversion rules as the corresponding PropertyEditor implementations.
+ * Used to populate the shared default {@link ValueConverterRegistry}.
+ *
+ * @author agent
+ * @since 2.5.6
+ * @see ValueConverterRegistry#getDefaultInstance()
+ */
+abstract class DefaultValueConverters {
+
+	private static final String UNICODE_PREFIX = "\\u";
+
+	private static final int UNICODE_LENGTH = 6;
+
+
+	/**
+	 * Register the default converters with the given registry.
+	 * @see org.springframework.beans.propertyeditors.CustomBooleanEditor
+	 * @see org.springframework.beans.propertyeditors.CustomNumberEditor
+	 * @see org.springframework.beans.propertyeditors.CharacterEditor
+	 * @see org.springframework.beans.propertyeditors.ClassEditor
+	 * @see org.springframework.beans.propertyeditors.CustomCollectionEditor
+	 * @see org.springframework.beans.propertyeditors.CustomMapEditor
+	 * @see org.springframework.core.io.ResourceEditor
+	 */
+	public static void registerDefaultConverters(ValueConverterRegistry registry) {
+		registry.addConverter(String.class, boolean.class, new StringToBooleanConverter(false));
+		registry.addConverter(String.class, Boolean.class, new StringToBooleanConverter(true));
+
+		registry.addConverter(String.class, char.class, new StringToCharacterConverter(false));
+		registry.addConverter(String.class, Character.class, new StringToCharacterConverter(true));
+
+		registerNumberConverters(registry, byte.class, Byte.class);
+		registerNumberConverters(registry, short.class, Short.class);
+		registerNumberConverters(registry, int.class, Integer.class);
+		registerNumberConverters(registry, long.class, Long.class);
+		registerNumberConverters(registry, float.class, Float.class);
+		registerNumberConverters(registry, double.class, Double.class);
+		registerNumberConverters(registry, null, BigDecimal.class);
+		registerNumberConverters(registry, null, BigInteger.class);
+
+		if (JdkVersion.isAtLeastJava15()) {
+			try {
+				Class enumClass = ClassUtils.forName("java.lang.Enum", DefaultValueConverters.class.getClassLoader());
+				registry.addConverter(String.class, enumClass, new StringToEnumConverter());
+			}
+			catch (ClassNotFoundException ex) {
+				throw new IllegalStateException("Could not load java.lang.Enum on Java 5: " + ex);
+			}
+		}
+
+		registry.addConverter(String.class, Class.class, new StringToClassConverter());
+		registry.addConverter(String.class, Resource.class, new StringToResourceConverter());
+
+		ValueConverter collectionConverter = new ObjectToCollectionConverter();
+		registry.addConverter(Object.class, Collection.class, collectionConverter);
+		registry.addConverter(Object.class, List.class, collectionConverter);
+		registry.addConverter(Object.class, Set.class, collectionConverter);
+		registry.addConverter(Object.class, SortedSet.class, collectionConverter);
+		registry.addConverter(Map.class, SortedMap.class, new MapToSortedMapConverter());
+	}
+
+	private static void registerNumberConverters(
+			ValueConverterRegistry registry, Class primitiveType, Class wrapperType) {
+
+		if (primitiveType != null) {
+			registry.addConverter(String.class, primitiveType, new StringToNumberConverter(wrapperType, false));
+			registry.addConverter(Number.class, primitiveType, new NumberToNumberConverter(wrapperType));
+		}
+		registry.addConverter(String.class, wrapperType, new StringToNumberConverter(wrapperType, true));
+		registry.addConverter(Number.class, wrapperType, new NumberToNumberConverter(wrapperType));
+	}
+
+
+	/**
+	 * Same rules as {@link CustomBooleanEditor} without custom true/false Strings.
+	 */
+	private static class StringToBooleanConverter implements ValueConverter {
+
+		private final boolean allowEmpty;
+
+		public StringToBooleanConverter(boolean allowEmpty) {
+			this.allowEmpty = allowEmpty;
+		}
+
+		public Object convert(Object value, Class targetType) {
+			String input = ((String) value).trim();
+			if (this.allowEmpty && input.length() == 0) {
+				return null;
+			}
+			if (input.equalsIgnoreCase(CustomBooleanEditor.VALUE_TRUE) ||
+					input.equalsIgnoreCase(CustomBooleanEditor.VALUE_ON) ||
+					input.equalsIgnoreCase(CustomBooleanEditor.VALUE_YES) || input.equals(CustomBooleanEditor.VALUE_1)) {
+				return Boolean.TRUE;
+			}
+			if (input.equalsIgnoreCase(CustomBooleanEditor.VALUE_FALSE) ||
+					input.equalsIgnoreCase(CustomBooleanEditor.VALUE_OFF) ||
+					input.equalsIgnoreCase(CustomBooleanEditor.VALUE_NO) || input.equals(CustomBooleanEditor.VALUE_0)) {
+				return Boolean.FALSE;
+			}
+			throw new IllegalArgumentException("Invalid boolean value [" + value + "]");
+		}
+	}
+
+
+	/**
+	 * Same rules as {@link org.springframework.beans.propertyeditors.CharacterEditor}.
+	 */
+	private static class StringToCharacterConverter implements ValueConverter {
+
+		private final boolean allowEmpty;
+
+		public StringToCharacterConverter(boolean allowEmpty) {
+			this.allowEmpty = allowEmpty;
+		}
+
+		public Object convert(Object value, Class targetType) {
+			String text = (String) value;
+			if (this.allowEmpty && text.length() == 0) {
+				return null;
+			}
+			if (text.startsWith(UNICODE_PREFIX) && text.length() == UNICODE_LENGTH) {
+				int code = Integer.parseInt(text.substring(UNICODE_PREFIX.length()), 16);
+				return new Character((char) code);
+			}
+			if (text.length() != 1) {
+				throw new IllegalArgumentException("String [" + text + "] with length " +
+						text.length() + " cannot be converted to char type");
+			}
+			return new Character(text.charAt(0));
+		}
+	}
+
+
+	/**
+	 * Same rules as {@link org.springframework.beans.propertyeditors.CustomNumberEditor}
+	 * without NumberFormat.
+	 */
+	private static class StringToNumberConverter implements ValueConverter {
+
+		private final Class numberClass;
+
+		private final boolean allowEmpty;
+
+		public StringToNumberConverter(Class numberClass, boolean allowEmpty) {
+			this.numberClass = numberClass;
+			this.allowEmpty = allowEmpty;
+		}
+
+		public Object convert(Object value, Class targetType) {
+			String text = (String) value;
+			if (this.allowEmpty && !StringUtils.hasText(text)) {
+				return null;
+			}
+			return NumberUtils.parseNumber(text, this.numberClass);
+		}
+	}
+
+
+	/**
+	 * Same rules as {@link org.springframework.beans.propertyeditors.CustomNumberEditor#setValue}.
+	 */
+	private static class NumberToNumberConverter implements ValueConverter {
+
+		private final Class numberClass;
+
+		public NumberToNumberConverter(Class numberClass) {
+			this.numberClass = numberClass;
+		}
+
+		public Object convert(Object value, Class targetType) {
+			return NumberUtils.convertNumberToTargetClass((Number) value, this.numberClass);
+		}
+	}
+
+
+	/**
+	 * Resolves JDK 1.5 enum constants by name, treating an empty String as <code>null</code>.
+	 */
+	private static class StringToEnumConverter implements ValueConverter {
+
+		public Object convert(Object value, Class targetType) {
+			String name = ((String) value).trim();
+			if (name.length() == 0) {
+				return null;
+			}
+			try {
+				Field enumField = targetType.getField(name);
+				return enumField.get(null);
+			}
+			catch (Exception ex) {
+				throw new IllegalArgumentException(
+						"No enum constant [" + name + "] on enum type [" + targetType.getName() + "]");
+			}
+		}
+	}
+
+
+	/**
+	 * Same rules as {@link org.springframework.beans.propertyeditors.ClassEditor},
+	 * using the default ClassLoader.
+	 */
+	private static class StringToClassConverter implements ValueConverter {
+
+		public Object convert(Object value, Class targetType) {
+			String text = (String) value;
+			if (!StringUtils.hasText(text)) {
+				return null;
+			}
+			return ClassUtils.resolveClassName(text.trim(), ClassUtils.getDefaultClassLoader());
+		}
+	}
+
+
+	/**
+	 * Same rules as {@link org.springframework.core.io.ResourceEditor},
+	 * using a DefaultResourceLoader.
+	 */
+	private static class StringToResourceConverter implements ValueConverter {
+
+		public Object convert(Object value, Class targetType) {
+			String text = (String) value;
+			if (!StringUtils.hasText(text)) {
+				return null;
+			}
+			String location = SystemPropertyUtils.resolvePlaceholders(text).trim();
+			return new DefaultResourceLoader().getResource(location);
+		}
+	}
+
+
+	/**
+	 * Same rules as {@link org.springframework.beans.propertyeditors.CustomCollectionEditor}
+	 * for the standard collection interfaces.
+	 */
+	private static class ObjectToCollectionConverter implements ValueConverter {
+
+		public Object convert(Object value, Class targetType) {
+			if (value instanceof Collection) {
+				Collection source = (Collection) value;
+				Collection target = createCollection(targetType, source.size());
+				target.addAll(source);
+				return target;
+			}
+			else if (value.getClass().isArray()) {
+				int length = Array.getLength(value);
+				Collection target = createCollection(targetType, length);
+				for (int i = 0; i < length; i++) {
+					target.add(Array.get(value, i));
+				}
+				return target;
+			}
+			else {
+				Collection target = createCollection(targetType, 1);
+				target.add(value);
+				return target;
+			}
+		}
+
+		private Collection createCollection(Class collectionType, int initialCapacity) {
+			if (List.class.equals(collectionType)) {
+				return new ArrayList(initialCapacity);
+			}
+			else if (SortedSet.class.equals(collectionType)) {
+				return new TreeSet();
+			}
+			else {
+				return new LinkedHashSet(initialCapacity);
+			}
+		}
+	}
+
+
+	/**
+	 * Same rules as {@link org.springframework.beans.propertyeditors.CustomMapEditor}
+	 * for the SortedMap interface.
+	 */
+	private static class MapToSortedMapConverter implements ValueConverter {
+
+		public Object convert(Object value, Class targetType) {
+			Map source = (Map) value;
+			SortedMap target = new TreeMap();
+			for (Iterator it = source.entrySet().iterator(); it.hasNext();) {
+				Map.Entry entry = (Map.Entry) it.next();
+				target.put(entry.getKey(), entry.getValue());
+			}
+			return target;
+		}
+	}
+
+}
@@ -18,6 +18,7 @@ package org.springframework.beans;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -31,6 +32,15 @@ import org.springframework.util.StringUtils;
  * Allows simple manipulation of properties, and provides constructors
  * to support deep copy and construction from a Map.
  *
+ * <p>As of Spring 2.5.6, an empty instance starts out with a shared
+ * immutable List, and a deep copy of another MutablePropertyValues
+ * instance shares the original's List until either side gets modified
+ * or exposes its PropertyValue objects, at which point that side creates
+ * its own PropertyValue objects. This keeps large numbers of merged bean
+ * definitions cheap in terms of memory footprint while they are not
+ * being used, without either side ever seeing changes made to the
+ * PropertyValue objects of the other.
+ *
  * @author Rod Johnson
  * @author Juergen Hoeller
  * @author Rob Harrop
@@ -38,8 +48,14 @@ import org.springframework.util.StringUtils;
  */
 public class MutablePropertyValues implements PropertyValues, Serializable {
 
-	/** List of PropertyValue objects */
-	private final List propertyValueList;
+	/** List of PropertyValue objects, possibly shared with other holders */
+	private volatile List propertyValueList;
+
+	/** Whether the List is shared and needs to be copied before modification */
+	private boolean copyOnWrite = false;
+
+	/** Whether the PropertyValue objects in the List are shared with another holder */
+	private volatile boolean sharedValues = false;
 
 	private Set processedProperties;
 
@@ -53,20 +69,29 @@ public class MutablePropertyValues implements PropertyValues, Serializable {
 	 * @see #addPropertyValue(String, Object)
 	 */
 	public MutablePropertyValues() {
-		this.propertyValueList = new ArrayList();
+		this.propertyValueList = Collections.EMPTY_LIST;
+		this.copyOnWrite = true;
 	}
 
 	/**
 	 * Deep copy constructor. Guarantees PropertyValue references
 	 * are independent, although it can't deep copy objects currently
 	 * referenced by individual PropertyValue objects.
+	 * <p>The copy of another MutablePropertyValues instance will only
+	 * be performed lazily, on first modification of either instance
+	 * or first access to its PropertyValue objects.
 	 * @param original the PropertyValues to copy
 	 * @see #addPropertyValues(PropertyValues)
 	 */
 	public MutablePropertyValues(PropertyValues original) {
+		if (original instanceof MutablePropertyValues) {
+			this.propertyValueList = ((MutablePropertyValues) original).shareList();
+			this.copyOnWrite = true;
+			this.sharedValues = true;
+		}
 		// We can optimize this because it's all new:
 		// There is no replacement of existing property values.
-		if (original != null) {
+		else if (original != null) {
 			PropertyValue[] pvs = original.getPropertyValues();
 			this.propertyValueList = new ArrayList(pvs.length);
 			for (int i = 0; i < pvs.length; i++) {
@@ -120,9 +145,52 @@ public class MutablePropertyValues implements PropertyValues, Serializable {
 	 * It is not intended for typical programmatic use.
 	 */
 	public List getPropertyValueList() {
+		return getWritableList();
+	}
+
+	/**
+	 * Expose the current List for sharing with a new copy of this holder,
+	 * marking it as to be copied (along with its PropertyValue objects)
+	 * before any subsequent modification or exposure of its PropertyValues.
+	 */
+	private synchronized List shareList() {
+		if (this.propertyValueList.isEmpty()) {
+			return Collections.EMPTY_LIST;
+		}
+		this.copyOnWrite = true;
+		this.sharedValues = true;
+		return this.propertyValueList;
+	}
+
+	/**
+	 * Return a List that may be modified by this holder, copying a shared List
+	 * (and the PropertyValue objects in case of shared ones) if necessary.
+	 */
+	private synchronized List getWritableList() {
+		if (this.copyOnWrite) {
+			List sharedList = this.propertyValueList;
+			List localList = new ArrayList(sharedList.size());
+			for (Iterator it = sharedList.iterator(); it.hasNext();) {
+				PropertyValue pv = (PropertyValue) it.next();
+				localList.add(this.sharedValues ? new PropertyValue(pv) : pv);
+			}
+			this.propertyValueList = localList;
+			this.copyOnWrite = false;
+			this.sharedValues = false;
+		}
 		return this.propertyValueList;
 	}
 
+	/**
+	 * Return a List whose PropertyValue objects may be exposed to callers,
+	 * that is, whose PropertyValue objects are not shared with another holder.
+	 * PropertyValue objects are mutable (source, attributes, converted value),
+	 * so a shared List needs to be copied before handing them out.
+	 */
+	private List getExposableList() {
+		return (this.sharedValues ? getWritableList() : this.propertyValueList);
+	}
+
 	/**
 	 * Copy all given PropertyValues into this object. Guarantees PropertyValue
 	 * references are independent, although it can't deep copy objects currently
@@ -177,7 +245,7 @@ public class MutablePropertyValues implements PropertyValues, Serializable {
 				return this;
 			}
 		}
-		this.propertyValueList.add(pv);
+		getWritableList().add(pv);
 		return this;
 	}
 
@@ -197,7 +265,7 @@ public class MutablePropertyValues implements PropertyValues, Serializable {
 	 * Indexed from 0.
 	 */
 	public void setPropertyValueAt(PropertyValue pv, int i) {
-		this.propertyValueList.set(i, pv);
+		getWritableList().set(i, pv);
 	}
 
 	/**
@@ -231,25 +299,34 @@ public class MutablePropertyValues implements PropertyValues, Serializable {
 	 * @param pv the PropertyValue to remove
 	 */
 	public void removePropertyValue(PropertyValue pv) {
-		this.propertyValueList.remove(pv);
+		if (pv != null && !this.propertyValueList.isEmpty()) {
+			getWritableList().remove(pv);
+		}
 	}
 
 	/**
 	 * Clear this holder, removing all PropertyValues.
 	 */
-	public void clear() {
-		this.propertyValueList.clear();
+	public synchronized void clear() {
+		if (this.copyOnWrite) {
+			this.propertyValueList = Collections.EMPTY_LIST;
+			this.sharedValues = false;
+		}
+		else {
+			this.propertyValueList.clear();
+		}
 	}
 
 
 	public PropertyValue[] getPropertyValues() {
-		return (PropertyValue[])
-				this.propertyValueList.toArray(new PropertyValue[this.propertyValueList.size()]);
+		List list = getExposableList();
+		return (PropertyValue[]) list.toArray(new PropertyValue[list.size()]);
 	}
 
 	public PropertyValue getPropertyValue(String propertyName) {
-		for (int i = 0; i < this.propertyValueList.size(); i++) {
-			PropertyValue pv = (PropertyValue) this.propertyValueList.get(i);
+		List list = getExposableList();
+		for (int i = 0; i < list.size(); i++) {
+			PropertyValue pv = (PropertyValue) list.get(i);
 			if (pv.getName().equals(propertyName)) {
 				return pv;
 			}
@@ -292,7 +369,7 @@ public class MutablePropertyValues implements PropertyValues, Serializable {
 		}
 
 		// for each property value in the new set
-		for (Iterator it = this.propertyValueList.iterator(); it.hasNext();) {
+		for (Iterator it = getExposableList().iterator(); it.hasNext();) {
 			PropertyValue newPv = (PropertyValue) it.next();
 			// if there wasn't an old one, add it
 			PropertyValue pvOld = old.getPropertyValue(newPv.getName());
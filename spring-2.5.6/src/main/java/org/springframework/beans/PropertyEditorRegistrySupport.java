@@ -89,6 +89,8 @@ public class PropertyEditorRegistrySupport implements PropertyEditorRegistry {
 
 	private Map customEditorCache;
 
+	private ValueConverterRegistry valueConverterRegistry;
+
 
 	//---------------------------------------------------------------------
 	// Management of default editors
@@ -223,6 +225,30 @@ public class PropertyEditorRegistrySupport implements PropertyEditorRegistry {
 		target.defaultEditors = this.defaultEditors;
 		target.defaultEditorsActive = this.defaultEditorsActive;
 		target.configValueEditorsActive = this.configValueEditorsActive;
+		target.valueConverterRegistry = this.valueConverterRegistry;
+	}
+
+	/**
+	 * Specify the registry of stateless {@link ValueConverter ValueConverters}
+	 * to consult for type pairs without custom editor, before falling back
+	 * to the default editors.
+	 * <p>Default is the {@link ValueConverterRegistry#getDefaultInstance() shared
+	 * default registry} if the default editors are active, else none.
+	 * @see #registerDefaultEditors()
+	 */
+	public void setValueConverterRegistry(ValueConverterRegistry valueConverterRegistry) {
+		this.valueConverterRegistry = valueConverterRegistry;
+	}
+
+	/**
+	 * Return the registry of stateless ValueConverters to use, if any.
+	 * @return the ValueConverterRegistry, or <code>null</code> if none
+	 */
+	public ValueConverterRegistry getValueConverterRegistry() {
+		if (this.valueConverterRegistry != null) {
+			return this.valueConverterRegistry;
+		}
+		return (this.defaultEditorsActive ? ValueConverterRegistry.getDefaultInstance() : null);
 	}
 
 
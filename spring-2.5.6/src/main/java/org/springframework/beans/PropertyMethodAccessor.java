@@ -0,0 +1,78 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Internal base class for property accessors that invoke the read and write
+ * methods of a specific bean class directly, without going through reflection.
+ * Subclasses are generated at runtime, with one switch branch per property
+ * index. Not intended for direct use by application code.
+ *
+ * <p>Mirrors the exception semantics of {@link java.lang.reflect.Method#invoke}:
+ * Exceptions thrown by the property methods themselves get wrapped in an
+ * {@link InvocationTargetException}. A target or value of the wrong type leads
+ * to a plain ClassCastException, an invalid index to an IllegalArgumentException.
+ *
+ * @author agent
+ * @since 2.5.6
+ * @see PropertyMethodAccessorGenerator
+ * @see CachedIntrospectionResults#setUseGeneratedAccessors
+ */
+public abstract class PropertyMethodAccessor {
+
+	/**
+	 * Invoke the read method of the property with the given index.
+	 * @param target the bean to read the property from
+	 * @param index the index of the property
+	 * @return the (boxed) property value
+	 * @throws InvocationTargetException if the read method threw an exception
+	 */
+	public final Object invokeReadMethod(Object target, int index) throws InvocationTargetException {
+		return doInvokeReadMethod(target, index);
+	}
+
+	/**
+	 * Invoke the write method of the property with the given index.
+	 * <p>The caller is responsible for passing in a value of the
+	 * correct type; a non-null value for primitive properties.
+	 * @param target the bean to write the property to
+	 * @param index the index of the property
+	 * @param value the (boxed) value to set
+	 * @throws InvocationTargetException if the write method threw an exception
+	 */
+	public final void invokeWriteMethod(Object target, int index, Object value) throws InvocationTargetException {
+		doInvokeWriteMethod(target, index, value);
+	}
+
+	/**
+	 * Invoke the read method of the property with the given index.
+	 * To be implemented by generated subclasses, wrapping exceptions
+	 * thrown by the read method in an InvocationTargetException.
+	 */
+	protected abstract Object doInvokeReadMethod(Object target, int index) throws InvocationTargetException;
+
+	/**
+	 * Invoke the write method of the property with the given index.
+	 * To be implemented by generated subclasses, wrapping exceptions
+	 * thrown by the write method in an InvocationTargetException.
+	 */
+	protected abstract void doInvokeWriteMethod(Object target, int index, Object value)
+			throws InvocationTargetException;
+
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import org.springframework.util.ClassUtils;
+
+/**
+ * Generates {@link PropertyMethodAccessor} subclasses for specific bean classes,
+ * using ObjectWeb's ASM library. Each generated class dispatches on the property
+ * index through a table switch and invokes the corresponding read or write method
+ * directly, boxing and unboxing primitive values as necessary.
+ *
+ * <p>Generated classes are defined in a dedicated ClassLoader underneath the
+ * bean's ClassLoader. Hence only public methods declared on public classes or
+ * interfaces can be invoked that way; any other property method needs to be
+ * left out (passing in <code>null</code>) and invoked through reflection instead.
+ *
+ * @author agent
+ * @since 2.5.6
+ * @see CachedIntrospectionResults
+ */
+class PropertyMethodAccessorGenerator implements Opcodes {
+
+	private static final String ACCESSOR_SUPERCLASS = Type.getInternalName(PropertyMethodAccessor.class);
+
+	private static final String INVOCATION_TARGET_EXCEPTION = Type.getInternalName(InvocationTargetException.class);
+
+	private static final String[] INVOCATION_EXCEPTIONS = new String[] {INVOCATION_TARGET_EXCEPTION};
+
+	private static final String ACCESSOR_CLASS_PREFIX = "org/springframework/beans/generated/";
+
+	private static final String ACCESSOR_CLASS_SUFFIX = "$$PropertyMethodAccessor";
+
+
+	/**
+	 * Determine whether the given property method can be invoked
+	 * by a generated accessor.
+	 * @param method the read or write method to check (may be <code>null</code>)
+	 */
+	public static boolean isDirectlyInvocable(Method method) {
+		return (method != null && Modifier.isPublic(method.getModifiers()) &&
+				!Modifier.isStatic(method.getModifiers()) &&
+				Modifier.isPublic(method.getDeclaringClass().getModifiers()));
+	}
+
+	/**
+	 * Generate and instantiate an accessor for the given property methods.
+	 * @param beanClass the bean class to generate the accessor for
+	 * @param readMethods the read methods by property index
+	 * (with <code>null</code> for properties that are not directly invocable)
+	 * @param writeMethods the write methods by property index
+	 * (with <code>null</code> for properties that are not directly invocable)
+	 * @return the accessor instance
+	 * @throws IllegalStateException if the accessor class could not be
+	 * defined in a ClassLoader underneath the bean's ClassLoader
+	 */
+	public static PropertyMethodAccessor generateAccessor(Class beanClass, Method[] readMethods, Method[] writeMethods) {
+		ClassLoader beanClassLoader = beanClass.getClassLoader();
+		if (beanClassLoader == null) {
+			beanClassLoader = ClassUtils.getDefaultClassLoader();
+		}
+		if (!ClassUtils.isPresent(PropertyMethodAccessor.class.getName(), beanClassLoader)) {
+			throw new IllegalStateException("PropertyMethodAccessor not visible from ClassLoader of bean class [" +
+					beanClass.getName() + "]");
+		}
+		String className = ACCESSOR_CLASS_PREFIX + beanClass.getName().replace('.', '/') + ACCESSOR_CLASS_SUFFIX;
+		byte[] bytes = generateAccessorClass(className, readMethods, writeMethods);
+		AccessorClassLoader classLoader = new AccessorClassLoader(beanClassLoader);
+		Class accessorClass = classLoader.defineAccessorClass(className.replace('/', '.'), bytes);
+		if (!PropertyMethodAccessor.class.isAssignableFrom(accessorClass)) {
+			throw new IllegalStateException("Generated accessor class [" + accessorClass.getName() +
+					"] does not extend the PropertyMethodAccessor class loaded by Spring");
+		}
+		try {
+			return (PropertyMethodAccessor) accessorClass.newInstance();
+		}
+		catch (Exception ex) {
+			throw new IllegalStateException("Could not instantiate generated accessor class [" +
+					accessorClass.getName() + "]: " + ex);
+		}
+	}
+
+	private static byte[] generateAccessorClass(String className, Method[] readMethods, Method[] writeMethods) {
+		ClassWriter cw = new ClassWriter(true);
+		cw.visit(V1_2, ACC_PUBLIC | ACC_SUPER, className, null, ACCESSOR_SUPERCLASS, null);
+
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKESPECIAL, ACCESSOR_SUPERCLASS, "<init>", "()V");
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		generateReadMethod(cw, readMethods);
+		generateWriteMethod(cw, writeMethods);
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	/**
+	 * Generate <code>doInvokeReadMethod(Object target, int index)</code>.
+	 */
+	private static void generateReadMethod(ClassWriter cw, Method[] readMethods) {
+		MethodVisitor mv = cw.visitMethod(ACC_PROTECTED, "doInvokeReadMethod",
+				"(Ljava/lang/Object;I)Ljava/lang/Object;", null, INVOCATION_EXCEPTIONS);
+		mv.visitCode();
+		Label defaultLabel = new Label();
+		Label[] labels = createSwitch(mv, readMethods.length, defaultLabel);
+		for (int i = 0; i < readMethods.length; i++) {
+			mv.visitLabel(labels[i]);
+			Method readMethod = readMethods[i];
+			if (readMethod == null) {
+				mv.visitJumpInsn(GOTO, defaultLabel);
+				continue;
+			}
+			Class returnType = readMethod.getReturnType();
+			String wrapperName = null;
+			if (returnType.isPrimitive()) {
+				wrapperName = getWrapperName(returnType);
+				mv.visitTypeInsn(NEW, wrapperName);
+				mv.visitInsn(DUP);
+			}
+			loadTarget(mv, readMethod);
+			Label handler = invokePropertyMethod(mv, readMethod);
+			if (wrapperName != null) {
+				mv.visitMethodInsn(INVOKESPECIAL, wrapperName, "<init>",
+						"(" + Type.getDescriptor(returnType) + ")V");
+			}
+			mv.visitInsn(ARETURN);
+			throwInvocationTargetException(mv, handler);
+		}
+		throwIllegalArgument(mv, defaultLabel);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	/**
+	 * Generate <code>doInvokeWriteMethod(Object target, int index, Object value)</code>.
+	 */
+	private static void generateWriteMethod(ClassWriter cw, Method[] writeMethods) {
+		MethodVisitor mv = cw.visitMethod(ACC_PROTECTED, "doInvokeWriteMethod",
+				"(Ljava/lang/Object;ILjava/lang/Object;)V", null, INVOCATION_EXCEPTIONS);
+		mv.visitCode();
+		Label defaultLabel = new Label();
+		Label[] labels = createSwitch(mv, writeMethods.length, defaultLabel);
+		for (int i = 0; i < writeMethods.length; i++) {
+			mv.visitLabel(labels[i]);
+			Method writeMethod = writeMethods[i];
+			if (writeMethod == null) {
+				mv.visitJumpInsn(GOTO, defaultLabel);
+				continue;
+			}
+			Class paramType = writeMethod.getParameterTypes()[0];
+			loadTarget(mv, writeMethod);
+			mv.visitVarInsn(ALOAD, 3);
+			if (paramType.isPrimitive()) {
+				String wrapperName = getWrapperName(paramType);
+				mv.visitTypeInsn(CHECKCAST, wrapperName);
+				mv.visitMethodInsn(INVOKEVIRTUAL, wrapperName, paramType.getName() + "Value",
+						"()" + Type.getDescriptor(paramType));
+			}
+			else if (!Object.class.equals(paramType)) {
+				mv.visitTypeInsn(CHECKCAST, Type.getInternalName(paramType));
+			}
+			Label handler = invokePropertyMethod(mv, writeMethod);
+			// Tolerate write methods with a return value.
+			Type returnType = Type.getReturnType(writeMethod);
+			if (returnType.getSort() != Type.VOID) {
+				mv.visitInsn(returnType.getSize() == 2 ? POP2 : POP);
+			}
+			mv.visitInsn(RETURN);
+			throwInvocationTargetException(mv, handler);
+		}
+		throwIllegalArgument(mv, defaultLabel);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	/**
+	 * Emit a table switch on the index argument (local variable 2).
+	 */
+	private static Label[] createSwitch(MethodVisitor mv, int size, Label defaultLabel) {
+		Label[] labels = new Label[size];
+		for (int i = 0; i < size; i++) {
+			labels[i] = new Label();
+		}
+		mv.visitVarInsn(ILOAD, 2);
+		if (size > 0) {
+			mv.visitTableSwitchInsn(0, size - 1, defaultLabel, labels);
+		}
+		else {
+			mv.visitInsn(POP);
+			mv.visitJumpInsn(GOTO, defaultLabel);
+		}
+		return labels;
+	}
+
+	/**
+	 * Emit loading the target argument (local variable 1),
+	 * cast to the declaring class of the given property method.
+	 */
+	private static void loadTarget(MethodVisitor mv, Method method) {
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitTypeInsn(CHECKCAST, Type.getInternalName(method.getDeclaringClass()));
+	}
+
+	/**
+	 * Emit the invocation of the given property method,
+	 * expecting the target (and the argument, if any) on the stack.
+	 * <p>Only the invocation itself is covered by the returned exception handler:
+	 * Casting the target and the argument happens outside of it, so that a type
+	 * mismatch does not look like an exception thrown by the property method.
+	 * @return the label of the exception handler, to be emitted through
+	 * {@link #throwInvocationTargetException} once the normal code path is complete
+	 */
+	private static Label invokePropertyMethod(MethodVisitor mv, Method method) {
+		Label start = new Label();
+		Label end = new Label();
+		Label handler = new Label();
+		mv.visitTryCatchBlock(start, end, handler, "java/lang/Throwable");
+		mv.visitLabel(start);
+		Class declaringClass = method.getDeclaringClass();
+		mv.visitMethodInsn((declaringClass.isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL),
+				Type.getInternalName(declaringClass), method.getName(), Type.getMethodDescriptor(method));
+		mv.visitLabel(end);
+		return handler;
+	}
+
+	/**
+	 * Emit the given exception handler, wrapping the caught exception
+	 * in an InvocationTargetException.
+	 */
+	private static void throwInvocationTargetException(MethodVisitor mv, Label handler) {
+		mv.visitLabel(handler);
+		mv.visitTypeInsn(NEW, INVOCATION_TARGET_EXCEPTION);
+		mv.visitInsn(DUP_X1);
+		mv.visitInsn(SWAP);
+		mv.visitMethodInsn(INVOKESPECIAL, INVOCATION_TARGET_EXCEPTION, "<init>", "(Ljava/lang/Throwable;)V");
+		mv.visitInsn(ATHROW);
+	}
+
+	/**
+	 * Return the internal name of the wrapper class for the given primitive type.
+	 */
+	private static String getWrapperName(Class primitiveType) {
+		switch (Type.getType(primitiveType).getSort()) {
+			case Type.BOOLEAN: return "java/lang/Boolean";
+			case Type.CHAR: return "java/lang/Character";
+			case Type.BYTE: return "java/lang/Byte";
+			case Type.SHORT: return "java/lang/Short";
+			case Type.INT: return "java/lang/Integer";
+			case Type.FLOAT: return "java/lang/Float";
+			case Type.LONG: return "java/lang/Long";
+			case Type.DOUBLE: return "java/lang/Double";
+			default: throw new IllegalArgumentException("Not a primitive value type: " + primitiveType);
+		}
+	}
+
+	private static void throwIllegalArgument(MethodVisitor mv, Label label) {
+		mv.visitLabel(label);
+		mv.visitTypeInsn(NEW, "java/lang/IllegalArgumentException");
+		mv.visitInsn(DUP);
+		mv.visitLdcInsn("No directly invocable property method for given index");
+		mv.visitMethodInsn(INVOKESPECIAL, "java/lang/IllegalArgumentException", "<init>", "(Ljava/lang/String;)V");
+		mv.visitInsn(ATHROW);
+	}
+
+
+	/**
+	 * ClassLoader for a single generated accessor class,
+	 * delegating to the bean's ClassLoader for everything else.
+	 */
+	private static class AccessorClassLoader extends ClassLoader {
+
+		public AccessorClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		public Class defineAccessorClass(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+
+}
@@ -167,10 +167,30 @@ class TypeConverterDelegate {
 
 		// Value not of required type?
 		if (editor != null || (requiredType != null && !ClassUtils.isAssignableValue(requiredType, convertedValue))) {
+			ValueConverter converter = null;
 			if (editor == null) {
-				editor = findDefaultEditor(requiredType, descriptor);
+				// Stateless converter for this type pair, taking precedence over default editors?
+				converter = findConverter(convertedValue, requiredType, descriptor);
+				ValueConverterRegistry converterRegistry = this.propertyEditorRegistry.getValueConverterRegistry();
+				if (converter != null && converterRegistry != null &&
+						converterRegistry.isInheritedConverter(convertedValue.getClass(), requiredType)) {
+					// A converter for a superclass only (e.g. for all enums) does not override
+					// an editor found by convention or through the PropertyEditorManager.
+					editor = findConventionalEditor(requiredType);
+					if (editor != null) {
+						converter = null;
+					}
+				}
+			}
+			if (converter != null) {
+				convertedValue = converter.convert(convertedValue, requiredType);
+			}
+			else {
+				if (editor == null) {
+					editor = findDefaultEditor(requiredType, descriptor);
+				}
+				convertedValue = doConvertValue(oldValue, convertedValue, requiredType, editor);
 			}
-			convertedValue = doConvertValue(oldValue, convertedValue, requiredType, editor);
 		}
 
 		if (requiredType != null) {
@@ -235,6 +255,22 @@ class TypeConverterDelegate {
 		return convertedValue;
 	}
 
+	/**
+	 * Find a ValueConverter for the given value and required type.
+	 * @param value the value to convert
+	 * @param requiredType the type to convert to
+	 * @param descriptor the JavaBeans descriptor for the property
+	 * @return the corresponding converter, or <code>null</code> if none
+	 * (in particular if the descriptor specifies its own PropertyEditor)
+	 */
+	protected ValueConverter findConverter(Object value, Class requiredType, PropertyDescriptor descriptor) {
+		if (value == null || (descriptor != null && descriptor.getPropertyEditorClass() != null)) {
+			return null;
+		}
+		ValueConverterRegistry registry = this.propertyEditorRegistry.getValueConverterRegistry();
+		return (registry != null ? registry.getConverter(value.getClass(), requiredType) : null);
+	}
+
 	/**
 	 * Find a default editor for the given type.
 	 * @param requiredType the type to find an editor for
@@ -257,22 +293,37 @@ class TypeConverterDelegate {
 		if (editor == null && requiredType != null) {
 			// No custom editor -> check BeanWrapperImpl's default editors.
 			editor = (PropertyEditor) this.propertyEditorRegistry.getDefaultEditor(requiredType);
-			if (editor == null && !String.class.equals(requiredType)) {
-				// No BeanWrapper default editor -> check standard JavaBean editor.
-				editor = BeanUtils.findEditorByConvention(requiredType);
-				if (editor == null && !unknownEditorTypes.containsKey(requiredType)) {
-					// Deprecated global PropertyEditorManager fallback...
-					editor = PropertyEditorManager.findEditor(requiredType);
-					if (editor == null) {
-						// Regular case as of Spring 2.5
-						unknownEditorTypes.put(requiredType, Boolean.TRUE);
-					}
-					else {
-						logger.warn("PropertyEditor [" + editor.getClass().getName() +
-								"] found through deprecated global PropertyEditorManager fallback - " +
-								"consider using a more isolated form of registration, e.g. on the BeanWrapper/BeanFactory!");
-					}
-				}
+			if (editor == null) {
+				editor = findConventionalEditor(requiredType);
+			}
+		}
+		return editor;
+	}
+
+	/**
+	 * Find an editor for the given type according to the JavaBeans conventions:
+	 * a "&lt;Type&gt;Editor" class next to the type itself, or an editor
+	 * registered with the global PropertyEditorManager.
+	 * @param requiredType the type to find an editor for
+	 * @return the corresponding editor, or <code>null</code> if none
+	 */
+	private PropertyEditor findConventionalEditor(Class requiredType) {
+		if (String.class.equals(requiredType)) {
+			return null;
+		}
+		// No BeanWrapper default editor -> check standard JavaBean editor.
+		PropertyEditor editor = BeanUtils.findEditorByConvention(requiredType);
+		if (editor == null && !unknownEditorTypes.containsKey(requiredType)) {
+			// Deprecated global PropertyEditorManager fallback...
+			editor = PropertyEditorManager.findEditor(requiredType);
+			if (editor == null) {
+				// Regular case as of Spring 2.5
+				unknownEditorTypes.put(requiredType, Boolean.TRUE);
+			}
+			else {
+				logger.warn("PropertyEditor [" + editor.getClass().getName() +
+						"] found through deprecated global PropertyEditorManager fallback - " +
+						"consider using a more isolated form of registration, e.g. on the BeanWrapper/BeanFactory!");
 			}
 		}
 		return editor;
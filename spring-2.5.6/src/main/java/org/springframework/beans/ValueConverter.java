@@ -0,0 +1,46 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+/**
+ * Strategy interface for converting a value of a specific source type
+ * to a specific target type. Registered with a {@link ValueConverterRegistry}.
+ *
+ * <p>As opposed to a {@link java.beans.PropertyEditor}, a ValueConverter does
+ * not hold any conversion state: Implementations are expected to be
+ * thread-safe, allowing a single instance to be shared across all
+ * BeanWrappers and threads.
+ *
+ * @author agent
+ * @since 2.5.6
+ * @see ValueConverterRegistry
+ * @see PropertyEditorRegistrySupport#setValueConverterRegistry
+ */
+public interface ValueConverter {
+
+	/**
+	 * Convert the given value to the given target type.
+	 * @param value the value to convert (never <code>null</code>),
+	 * an instance of the source type that this converter has been registered for
+	 * @param targetType the type to convert to: the target type that this converter
+	 * has been registered for, or a subclass of it
+	 * @return the converted value (may be <code>null</code>)
+	 * @throws IllegalArgumentException if the value cannot be converted
+	 */
+	Object convert(Object value, Class targetType) throws IllegalArgumentException;
+
+}
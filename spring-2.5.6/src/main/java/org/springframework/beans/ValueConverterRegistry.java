@@ -0,0 +1,241 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.util.Map;
+
+import org.springframework.core.CollectionFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Thread-safe registry of {@link ValueConverter ValueConverters},
+ * keyed by source type and target type.
+ *
+ * <p>A converter registered for a given source type applies to subclasses and
+ * implementations of that type as well. A converter registered for a given
+ * target type also applies to subclasses of that target type (for example,
+ * <code>java.lang.Enum</code> covers all specific enum types), with the
+ * specific target type passed into the converter. Exact registrations take
+ * precedence over inherited ones.
+ *
+ * <p>A registry may be based on a parent registry, typically the
+ * {@link #getDefaultInstance() shared default registry}, falling back
+ * to the parent for any type pair without local converter.
+ *
+ * @author agent
+ * @since 2.5.6
+ * @see ValueConverter
+ * @see TypeConverterDelegate
+ */
+public class ValueConverterRegistry {
+
+	/** Marker for type pairs without converter */
+	private static final ResolvedConverter NO_CONVERTER = new ResolvedConverter(null, false);
+
+	private static final ValueConverterRegistry defaultInstance = new ValueConverterRegistry();
+
+	static {
+		DefaultValueConverters.registerDefaultConverters(defaultInstance);
+		defaultInstance.frozen = true;
+	}
+
+	/**
+	 * Return the shared default registry, containing converters from String
+	 * to primitives and their wrappers, numbers, characters, enums, classes and
+	 * resources, as well as converters between number types and to collection types.
+	 * <p>The default registry cannot be modified. Create a new registry based on it
+	 * in order to register further converters.
+	 * @see #ValueConverterRegistry(ValueConverterRegistry)
+	 */
+	public static ValueConverterRegistry getDefaultInstance() {
+		return defaultInstance;
+	}
+
+
+	private final ValueConverterRegistry parent;
+
+	/** Registered converters, keyed by ConvertiblePair */
+	private final Map converters = CollectionFactory.createConcurrentMapIfPossible(32);
+
+	/** ResolvedConverters (or NO_CONVERTER markers), keyed by ConvertiblePair */
+	private final Map resolvedConverters = CollectionFactory.createConcurrentMapIfPossible(32);
+
+	private volatile boolean frozen;
+
+
+	/**
+	 * Create a new empty ValueConverterRegistry.
+	 */
+	public ValueConverterRegistry() {
+		this(null);
+	}
+
+	/**
+	 * Create a new ValueConverterRegistry with the given parent.
+	 * @param parent the registry to fall back to for type pairs without
+	 * local converter (may be <code>null</code>)
+	 */
+	public ValueConverterRegistry(ValueConverterRegistry parent) {
+		this.parent = parent;
+	}
+
+
+	/**
+	 * Register the given converter for the given type pair.
+	 * @param sourceType the type of values that the converter accepts
+	 * @param targetType the type that the converter produces
+	 * @param converter the converter to register
+	 */
+	public void addConverter(Class sourceType, Class targetType, ValueConverter converter) {
+		Assert.notNull(sourceType, "Source type must not be null");
+		Assert.notNull(targetType, "Target type must not be null");
+		Assert.notNull(converter, "ValueConverter must not be null");
+		if (this.frozen) {
+			throw new IllegalStateException("Cannot modify shared default ValueConverterRegistry");
+		}
+		this.converters.put(new ConvertiblePair(sourceType, targetType), converter);
+		this.resolvedConverters.clear();
+	}
+
+	/**
+	 * Determine the converter for the given type pair.
+	 * @param sourceType the type of the value to convert
+	 * @param targetType the type to convert to
+	 * @return the converter, or <code>null</code> if none found
+	 */
+	public ValueConverter getConverter(Class sourceType, Class targetType) {
+		return resolveConverter(sourceType, targetType).converter;
+	}
+
+	/**
+	 * Determine whether the converter for the given type pair has been
+	 * registered for a superclass of the given target type only,
+	 * as opposed to the target type itself.
+	 * @param sourceType the type of the value to convert
+	 * @param targetType the type to convert to
+	 * @return <code>true</code> if the converter applies to the target type
+	 * by inheritance; <code>false</code> if it has been registered for the
+	 * target type itself or if there is no converter for the type pair
+	 */
+	public boolean isInheritedConverter(Class sourceType, Class targetType) {
+		return resolveConverter(sourceType, targetType).inherited;
+	}
+
+	private ResolvedConverter resolveConverter(Class sourceType, Class targetType) {
+		ConvertiblePair pair = new ConvertiblePair(sourceType, targetType);
+		ResolvedConverter resolved = (ResolvedConverter) this.resolvedConverters.get(pair);
+		if (resolved == null) {
+			resolved = findConverter(sourceType, targetType);
+			if (resolved == null && this.parent != null) {
+				resolved = this.parent.resolveConverter(sourceType, targetType);
+			}
+			if (resolved == null) {
+				resolved = NO_CONVERTER;
+			}
+			if (isCacheSafe(sourceType) && isCacheSafe(targetType)) {
+				this.resolvedConverters.put(pair, resolved);
+			}
+		}
+		return resolved;
+	}
+
+	/**
+	 * Check whether the given type can be cached without keeping
+	 * a ClassLoader below this registry's ClassLoader alive.
+	 */
+	private boolean isCacheSafe(Class type) {
+		return (type.getClassLoader() == null || ClassUtils.isCacheSafe(type, getClass().getClassLoader()));
+	}
+
+	/**
+	 * Search the locally registered converters, walking up the
+	 * target type hierarchy and then the source type hierarchy.
+	 */
+	private ResolvedConverter findConverter(Class sourceType, Class targetType) {
+		if (this.converters.isEmpty()) {
+			return null;
+		}
+		Class[] interfaces = ClassUtils.getAllInterfacesForClass(sourceType);
+		for (Class target = targetType; target != null && !Object.class.equals(target);
+				target = target.getSuperclass()) {
+			for (Class source = sourceType; source != null; source = source.getSuperclass()) {
+				ValueConverter converter = (ValueConverter) this.converters.get(new ConvertiblePair(source, target));
+				if (converter != null) {
+					return new ResolvedConverter(converter, target != targetType);
+				}
+			}
+			for (int i = 0; i < interfaces.length; i++) {
+				ValueConverter converter =
+						(ValueConverter) this.converters.get(new ConvertiblePair(interfaces[i], target));
+				if (converter != null) {
+					return new ResolvedConverter(converter, target != targetType);
+				}
+			}
+		}
+		return null;
+	}
+
+
+	/**
+	 * Key for a source type / target type pair.
+	 */
+	private static final class ConvertiblePair {
+
+		private final Class sourceType;
+
+		private final Class targetType;
+
+		public ConvertiblePair(Class sourceType, Class targetType) {
+			this.sourceType = sourceType;
+			this.targetType = targetType;
+		}
+
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof ConvertiblePair)) {
+				return false;
+			}
+			ConvertiblePair otherPair = (ConvertiblePair) other;
+			return (this.sourceType == otherPair.sourceType && this.targetType == otherPair.targetType);
+		}
+
+		public int hashCode() {
+			return this.sourceType.hashCode() * 29 + this.targetType.hashCode();
+		}
+	}
+
+
+	/**
+	 * Resolution result for a type pair: the converter, if any, and whether
+	 * it has been registered for a superclass of the target type only.
+	 */
+	private static final class ResolvedConverter {
+
+		public final ValueConverter converter;
+
+		public final boolean inherited;
+
+		public ResolvedConverter(ValueConverter converter, boolean inherited) {
+			this.converter = converter;
+			this.inherited = inherited;
+		}
+	}
+
+}
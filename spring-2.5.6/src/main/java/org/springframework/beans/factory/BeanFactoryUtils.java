@@ -18,12 +18,15 @@ package org.springframework.beans.factory;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
@@ -36,6 +39,11 @@ import org.springframework.util.StringUtils;
  * (which the methods defined on the ListableBeanFactory interface don't,
  * in contrast to the methods defined on the BeanFactory interface).
  *
+ * <p>As of Spring 2.5.6, ancestor-merged by-type lookups are delegated to a
+ * {@link org.springframework.beans.factory.support.DefaultListableBeanFactory},
+ * which caches the merged result as long as its configuration is frozen.
+ * Any other factory simply leads to a recomputation of the merged result.
+ *
  * @author Rod Johnson
  * @author Juergen Hoeller
  * @since 04.07.2003
@@ -139,25 +147,7 @@ public abstract class BeanFactoryUtils {
 	 * @return the array of matching bean names, or an empty array if none
 	 */
 	public static String[] beanNamesForTypeIncludingAncestors(ListableBeanFactory lbf, Class type) {
-		Assert.notNull(lbf, "ListableBeanFactory must not be null");
-		String[] result = lbf.getBeanNamesForType(type);
-		if (lbf instanceof HierarchicalBeanFactory) {
-			HierarchicalBeanFactory hbf = (HierarchicalBeanFactory) lbf;
-			if (hbf.getParentBeanFactory() instanceof ListableBeanFactory) {
-				String[] parentResult = beanNamesForTypeIncludingAncestors(
-						(ListableBeanFactory) hbf.getParentBeanFactory(), type);
-				List resultList = new ArrayList();
-				resultList.addAll(Arrays.asList(result));
-				for (int i = 0; i < parentResult.length; i++) {
-					String beanName = parentResult[i];
-					if (!resultList.contains(beanName) && !hbf.containsLocalBean(beanName)) {
-						resultList.add(beanName);
-					}
-				}
-				result = StringUtils.toStringArray(resultList);
-			}
-		}
-		return result;
+		return beanNamesForTypeIncludingAncestors(lbf, type, true, true);
 	}
 
 	/**
@@ -184,17 +174,22 @@ public abstract class BeanFactoryUtils {
 			ListableBeanFactory lbf, Class type, boolean includeNonSingletons, boolean allowEagerInit) {
 
 		Assert.notNull(lbf, "ListableBeanFactory must not be null");
+		if (lbf instanceof DefaultListableBeanFactory) {
+			return ((DefaultListableBeanFactory) lbf).getBeanNamesForTypeIncludingAncestors(
+					type, includeNonSingletons, allowEagerInit);
+		}
 		String[] result = lbf.getBeanNamesForType(type, includeNonSingletons, allowEagerInit);
 		if (lbf instanceof HierarchicalBeanFactory) {
 			HierarchicalBeanFactory hbf = (HierarchicalBeanFactory) lbf;
 			if (hbf.getParentBeanFactory() instanceof ListableBeanFactory) {
 				String[] parentResult = beanNamesForTypeIncludingAncestors(
 						(ListableBeanFactory) hbf.getParentBeanFactory(), type, includeNonSingletons, allowEagerInit);
-				List resultList = new ArrayList();
+				List resultList = new ArrayList(result.length + parentResult.length);
 				resultList.addAll(Arrays.asList(result));
+				Set seen = new HashSet(resultList);
 				for (int i = 0; i < parentResult.length; i++) {
 					String beanName = parentResult[i];
-					if (!resultList.contains(beanName) && !hbf.containsLocalBean(beanName)) {
+					if (!seen.contains(beanName) && !hbf.containsLocalBean(beanName)) {
 						resultList.add(beanName);
 					}
 				}
@@ -219,24 +214,7 @@ public abstract class BeanFactoryUtils {
 	public static Map beansOfTypeIncludingAncestors(ListableBeanFactory lbf, Class type)
 	    throws BeansException {
 
-		Assert.notNull(lbf, "ListableBeanFactory must not be null");
-		Map result = new LinkedHashMap(4);
-		result.putAll(lbf.getBeansOfType(type));
-		if (lbf instanceof HierarchicalBeanFactory) {
-			HierarchicalBeanFactory hbf = (HierarchicalBeanFactory) lbf;
-			if (hbf.getParentBeanFactory() instanceof ListableBeanFactory) {
-				Map parentResult = beansOfTypeIncludingAncestors(
-						(ListableBeanFactory) hbf.getParentBeanFactory(), type);
-				for (Iterator it = parentResult.entrySet().iterator(); it.hasNext();) {
-					Map.Entry entry = (Map.Entry) it.next();
-					String beanName = (String) entry.getKey();
-					if (!result.containsKey(beanName) && !hbf.containsLocalBean(beanName)) {
-						result.put(beanName, entry.getValue());
-					}
-				}
-			}
-		}
-		return result;
+		return beansOfTypeIncludingAncestors(lbf, type, true, true);
 	}
 
 	/**
@@ -258,6 +236,8 @@ public abstract class BeanFactoryUtils {
 	 * "factory-bean" reference) for the type check. Note that FactoryBeans need to be
 	 * eagerly initialized to determine their type: So be aware that passing in "true"
 	 * for this flag will initialize FactoryBeans and "factory-bean" references.
+	 * <p>Ancestor factories will only be asked for their beans if they contribute
+	 * any beans that are not overridden by a descendant factory.
 	 * @return the Map of matching bean instances, or an empty Map if none
 	 * @throws BeansException if a bean could not be created
 	 */
@@ -270,7 +250,8 @@ public abstract class BeanFactoryUtils {
 		result.putAll(lbf.getBeansOfType(type, includeNonSingletons, allowEagerInit));
 		if (lbf instanceof HierarchicalBeanFactory) {
 			HierarchicalBeanFactory hbf = (HierarchicalBeanFactory) lbf;
-			if (hbf.getParentBeanFactory() instanceof ListableBeanFactory) {
+			if (hbf.getParentBeanFactory() instanceof ListableBeanFactory &&
+					!containsAll(result, beanNamesForTypeIncludingAncestors(lbf, type, includeNonSingletons, allowEagerInit))) {
 				Map parentResult = beansOfTypeIncludingAncestors(
 						(ListableBeanFactory) hbf.getParentBeanFactory(), type, includeNonSingletons, allowEagerInit);
 				for (Iterator it = parentResult.entrySet().iterator(); it.hasNext();) {
@@ -418,4 +399,17 @@ public abstract class BeanFactoryUtils {
 		}
 	}
 
+	/**
+	 * Check whether the given Map of beans contains all of the given bean names,
+	 * i.e. whether ancestor factories would not contribute any further beans.
+	 */
+	private static boolean containsAll(Map beans, String[] beanNames) {
+		for (int i = 0; i < beanNames.length; i++) {
+			if (!beans.containsKey(beanNames[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 }
@@ -42,9 +42,17 @@ import org.springframework.util.ObjectUtils;
  */
 public class ConstructorArgumentValues {
 
-	private final Map indexedArgumentValues = new HashMap();
+	/**
+	 * Map with Integer index as key and ValueHolder as value: starts out as
+	 * shared immutable empty Map, replaced on first write
+	 */
+	private Map indexedArgumentValues = Collections.EMPTY_MAP;
 
-	private final List genericArgumentValues = new LinkedList();
+	/**
+	 * List of generic ValueHolders: starts out as shared immutable
+	 * empty List, replaced on first write
+	 */
+	private List genericArgumentValues = Collections.EMPTY_LIST;
 
 
 	/**
@@ -78,7 +86,7 @@ public class ConstructorArgumentValues {
 			for (Iterator it = other.genericArgumentValues.iterator(); it.hasNext();) {
 				ValueHolder valueHolder = (ValueHolder) it.next();
 				if (!this.genericArgumentValues.contains(valueHolder)) {
-					this.genericArgumentValues.add(valueHolder.copy());
+					getWritableGenericArgumentValues().add(valueHolder.copy());
 				}
 			}
 		}
@@ -130,7 +138,7 @@ public class ConstructorArgumentValues {
 				newValue.setValue(mergeable.merge(currentValue.getValue()));
 			}
 		}
-		this.indexedArgumentValues.put(key, newValue);
+		getWritableIndexedArgumentValues().put(key, newValue);
 	}
 
 	/**
@@ -169,7 +177,7 @@ public class ConstructorArgumentValues {
 	 * @param value the argument value
 	 */
 	public void addGenericArgumentValue(Object value) {
-		this.genericArgumentValues.add(new ValueHolder(value));
+		getWritableGenericArgumentValues().add(new ValueHolder(value));
 	}
 
 	/**
@@ -180,7 +188,7 @@ public class ConstructorArgumentValues {
 	 * @param type the type of the constructor argument
 	 */
 	public void addGenericArgumentValue(Object value, String type) {
-		this.genericArgumentValues.add(new ValueHolder(value, type));
+		getWritableGenericArgumentValues().add(new ValueHolder(value, type));
 	}
 
 	/**
@@ -195,7 +203,7 @@ public class ConstructorArgumentValues {
 	public void addGenericArgumentValue(ValueHolder newValue) {
 		Assert.notNull(newValue, "ValueHolder must not be null");
 		if (!this.genericArgumentValues.contains(newValue)) {
-			this.genericArgumentValues.add(newValue);
+			getWritableGenericArgumentValues().add(newValue);
 		}
 	}
 
@@ -307,8 +315,34 @@ public class ConstructorArgumentValues {
 	 * Clear this holder, removing all argument values.
 	 */
 	public void clear() {
-		this.indexedArgumentValues.clear();
-		this.genericArgumentValues.clear();
+		if (!this.indexedArgumentValues.isEmpty()) {
+			this.indexedArgumentValues.clear();
+		}
+		if (!this.genericArgumentValues.isEmpty()) {
+			this.genericArgumentValues.clear();
+		}
+	}
+
+	/**
+	 * Return the Map of indexed argument values for modification,
+	 * replacing the shared empty Map with a local one if necessary.
+	 */
+	private Map getWritableIndexedArgumentValues() {
+		if (this.indexedArgumentValues == Collections.EMPTY_MAP) {
+			this.indexedArgumentValues = new HashMap(4);
+		}
+		return this.indexedArgumentValues;
+	}
+
+	/**
+	 * Return the List of generic argument values for modification,
+	 * replacing the shared empty List with a local one if necessary.
+	 */
+	private List getWritableGenericArgumentValues() {
+		if (this.genericArgumentValues == Collections.EMPTY_LIST) {
+			this.genericArgumentValues = new LinkedList();
+		}
+		return this.genericArgumentValues;
 	}
 
 
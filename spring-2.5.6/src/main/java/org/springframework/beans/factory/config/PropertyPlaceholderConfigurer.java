@@ -16,7 +16,11 @@
 
 package org.springframework.beans.factory.config;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
@@ -25,7 +29,10 @@ import org.springframework.beans.factory.BeanDefinitionStoreException;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.core.CollectionFactory;
 import org.springframework.core.Constants;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.support.ParallelTaskRunner;
 import org.springframework.util.StringUtils;
 import org.springframework.util.StringValueResolver;
 
@@ -80,6 +87,11 @@ import org.springframework.util.StringValueResolver;
  * the {@link #convertPropertyValue} method. For example, encrypted values can
  * be detected and decrypted accordingly before processing them.
  *
+ * <p>Resolved values get memoized for the duration of a bean factory
+ * post-processing run, both per String value and per placeholder, since
+ * large configurations tend to refer to the same placeholders over and over.
+ * Bean definitions can be processed in parallel through a "taskExecutor".
+ *
  * @author Juergen Hoeller
  * @since 02.10.2003
  * @see #setLocations
@@ -119,6 +131,12 @@ public class PropertyPlaceholderConfigurer extends PropertyResourceConfigurer
 
 	private static final Constants constants = new Constants(PropertyPlaceholderConfigurer.class);
 
+	/** Number of bean definitions to visit per task when processing in parallel */
+	private static final int BEAN_DEFINITIONS_PER_TASK = 64;
+
+	/** Marker for unresolvable placeholders in the resolution cache */
+	private static final Object UNRESOLVABLE = new Object();
+
 	private String placeholderPrefix = DEFAULT_PLACEHOLDER_PREFIX;
 
 	private String placeholderSuffix = DEFAULT_PLACEHOLDER_SUFFIX;
@@ -135,6 +153,11 @@ public class PropertyPlaceholderConfigurer extends PropertyResourceConfigurer
 
 	private BeanFactory beanFactory;
 
+	private TaskExecutor taskExecutor;
+
+	/** Cache of resolved values, only active during processProperties */
+	private volatile ResolutionCache resolutionCache;
+
 
 	/**
 	 * Set the prefix that a placeholder string starts with.
@@ -248,30 +271,100 @@ public class PropertyPlaceholderConfigurer extends PropertyResourceConfigurer
 		this.beanFactory = beanFactory;
 	}
 
+	/**
+	 * Specify a TaskExecutor to visit the bean definitions with in parallel,
+	 * in batches of independent bean definitions.
+	 * <p>Default is none, visiting all bean definitions on the calling thread.
+	 * Note that custom <code>resolvePlaceholder</code> implementations
+	 * need to be thread-safe when specifying a TaskExecutor.
+	 */
+	public void setTaskExecutor(TaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
 
 	protected void processProperties(ConfigurableListableBeanFactory beanFactoryToProcess, Properties props)
 			throws BeansException {
 
-		StringValueResolver valueResolver = new PlaceholderResolvingStringValueResolver(props);
-		BeanDefinitionVisitor visitor = new BeanDefinitionVisitor(valueResolver);
+		ResolutionCache cache = new ResolutionCache();
+		this.resolutionCache = cache;
+		try {
+			StringValueResolver valueResolver = new PlaceholderResolvingStringValueResolver(props);
+			String[] beanNames = beanFactoryToProcess.getBeanDefinitionNames();
+			if (this.taskExecutor != null && beanNames.length > BEAN_DEFINITIONS_PER_TASK) {
+				visitBeanDefinitionsInParallel(beanFactoryToProcess, beanNames, valueResolver);
+			}
+			else {
+				visitBeanDefinitions(beanFactoryToProcess, Arrays.asList(beanNames), valueResolver);
+			}
+
+			// New in Spring 2.5: resolve placeholders in alias target names and aliases as well.
+			beanFactoryToProcess.resolveAliases(valueResolver);
+
+			if (logger.isInfoEnabled()) {
+				logger.info("Resolved placeholders in " + beanNames.length + " bean definitions: " + cache);
+			}
+		}
+		finally {
+			this.resolutionCache = null;
+		}
+	}
 
-		String[] beanNames = beanFactoryToProcess.getBeanDefinitionNames();
-		for (int i = 0; i < beanNames.length; i++) {
+	/**
+	 * Visit the given bean definitions on the calling thread.
+	 */
+	private void visitBeanDefinitions(
+			ConfigurableListableBeanFactory beanFactoryToProcess, List beanNames, StringValueResolver valueResolver) {
+
+		BeanDefinitionVisitor visitor = new BeanDefinitionVisitor(valueResolver);
+		for (int i = 0; i < beanNames.size(); i++) {
+			String beanName = (String) beanNames.get(i);
 			// Check that we're not parsing our own bean definition,
 			// to avoid failing on unresolvable placeholders in properties file locations.
-			if (!(beanNames[i].equals(this.beanName) && beanFactoryToProcess.equals(this.beanFactory))) {
-				BeanDefinition bd = beanFactoryToProcess.getBeanDefinition(beanNames[i]);
+			if (!(beanName.equals(this.beanName) && beanFactoryToProcess.equals(this.beanFactory))) {
+				BeanDefinition bd = beanFactoryToProcess.getBeanDefinition(beanName);
 				try {
 					visitor.visitBeanDefinition(bd);
 				}
 				catch (BeanDefinitionStoreException ex) {
-					throw new BeanDefinitionStoreException(bd.getResourceDescription(), beanNames[i], ex.getMessage());
+					throw new BeanDefinitionStoreException(bd.getResourceDescription(), beanName, ex.getMessage());
 				}
 			}
 		}
+	}
 
-		// New in Spring 2.5: resolve placeholders in alias target names and aliases as well.
-		beanFactoryToProcess.resolveAliases(valueResolver);
+	/**
+	 * Visit the given bean definitions in batches on the TaskExecutor, waiting
+	 * for all batches to complete. Rethrows the failure of the first batch
+	 * that failed, in registration order, if any.
+	 */
+	private void visitBeanDefinitionsInParallel(final ConfigurableListableBeanFactory beanFactoryToProcess,
+			String[] beanNames, final StringValueResolver valueResolver) {
+
+		List allNames = Arrays.asList(beanNames);
+		final List batches = new ArrayList();
+		for (int i = 0; i < beanNames.length; i += BEAN_DEFINITIONS_PER_TASK) {
+			batches.add(allNames.subList(i, Math.min(i + BEAN_DEFINITIONS_PER_TASK, beanNames.length)));
+		}
+		try {
+			new ParallelTaskRunner(this.taskExecutor).run(batches.size(), new ParallelTaskRunner.IndexedTask() {
+				public Object run(int index) {
+					visitBeanDefinitions(beanFactoryToProcess, (List) batches.get(index), valueResolver);
+					return null;
+				}
+			});
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new BeanDefinitionStoreException("Interrupted while resolving placeholders");
+		}
+		catch (RuntimeException ex) {
+			throw ex;
+		}
+		catch (Exception ex) {
+			// Not expected: visiting bean definitions only throws unchecked exceptions.
+			throw new BeanDefinitionStoreException("Failed to resolve placeholders", ex);
+		}
 	}
 
 	/**
@@ -303,11 +396,25 @@ public class PropertyPlaceholderConfigurer extends PropertyResourceConfigurer
 				// Recursive invocation, parsing placeholders contained in the placeholder key.
 				placeholder = parseStringValue(placeholder, props, visitedPlaceholders);
 				// Now obtain the value for the fully resolved key...
-				String propVal = resolvePlaceholder(placeholder, props, this.systemPropertiesMode);
+				ResolutionCache cache = this.resolutionCache;
+				Object cachedVal = (cache != null ? cache.getPlaceholderValue(placeholder) : null);
+				String propVal = null;
+				if (cachedVal != null) {
+					propVal = (cachedVal != UNRESOLVABLE ? (String) cachedVal : null);
+				}
+				else {
+					propVal = resolvePlaceholder(placeholder, props, this.systemPropertiesMode);
+					if (propVal != null) {
+						// Recursive invocation, parsing placeholders contained in the
+						// previously resolved placeholder value.
+						propVal = parseStringValue(propVal, props, visitedPlaceholders);
+					}
+					if (cache != null) {
+						// A fully resolved value does not depend on the enclosing placeholders.
+						cache.putPlaceholderValue(placeholder, (propVal != null ? (Object) propVal : UNRESOLVABLE));
+					}
+				}
 				if (propVal != null) {
-					// Recursive invocation, parsing placeholders contained in the
-					// previously resolved placeholder value.
-					propVal = parseStringValue(propVal, props, visitedPlaceholders);
 					buf.replace(startIndex, endIndex + this.placeholderSuffix.length(), propVal);
 					if (logger.isTraceEnabled()) {
 						logger.trace("Resolved placeholder '" + placeholder + "'");
@@ -442,9 +549,73 @@ public class PropertyPlaceholderConfigurer extends PropertyResourceConfigurer
 		}
 
 		public String resolveStringValue(String strVal) throws BeansException {
-			String value = parseStringValue(strVal, this.props, new HashSet());
+			ResolutionCache cache = resolutionCache;
+			String value = (cache != null ? cache.getValue(strVal) : null);
+			if (value == null) {
+				value = parseStringValue(strVal, this.props, new HashSet());
+				if (cache != null) {
+					cache.putValue(strVal, value);
+				}
+			}
 			return (value.equals(nullValue) ? null : value);
 		}
 	}
 
+
+	/**
+	 * Memoizes parsed String values and resolved placeholder values
+	 * for the duration of a <code>processProperties</code> run,
+	 * counting lookups and cache hits for the summary log message.
+	 * <p>The counters are not synchronized, since they only serve
+	 * for logging: They are approximate when visiting in parallel.
+	 */
+	private static class ResolutionCache {
+
+		/** Map from original String value to parsed String value */
+		private final Map values = CollectionFactory.createConcurrentMapIfPossible(256);
+
+		/** Map from placeholder to fully resolved value (or UNRESOLVABLE) */
+		private final Map placeholderValues = CollectionFactory.createConcurrentMapIfPossible(256);
+
+		private int valueLookups;
+
+		private int valueHits;
+
+		private int placeholderLookups;
+
+		private int placeholderHits;
+
+		public String getValue(String strVal) {
+			String value = (String) this.values.get(strVal);
+			this.valueLookups++;
+			if (value != null) {
+				this.valueHits++;
+			}
+			return value;
+		}
+
+		public void putValue(String strVal, String value) {
+			this.values.put(strVal, value);
+		}
+
+		public Object getPlaceholderValue(String placeholder) {
+			Object value = this.placeholderValues.get(placeholder);
+			this.placeholderLookups++;
+			if (value != null) {
+				this.placeholderHits++;
+			}
+			return value;
+		}
+
+		public void putPlaceholderValue(String placeholder, Object value) {
+			this.placeholderValues.put(placeholder, value);
+		}
+
+		public String toString() {
+			return this.valueLookups + " String values (" + this.valueHits + " from cache, " +
+					this.values.size() + " distinct), " + this.placeholderLookups + " placeholders (" +
+					this.placeholderHits + " from cache, " + this.placeholderValues.size() + " distinct)";
+		}
+	}
+
 }
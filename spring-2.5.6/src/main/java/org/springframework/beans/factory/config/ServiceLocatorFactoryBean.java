@@ -20,6 +20,8 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
 import org.springframework.beans.BeanUtils;
@@ -198,6 +200,9 @@ public class ServiceLocatorFactoryBean implements FactoryBean, BeanFactoryAware,
 
 	private ListableBeanFactory beanFactory;
 
+	/** Map from interface Method to ServiceLocatorMethod, precomputed on initialization */
+	private Map serviceLocatorMethods;
+
 	private Object proxy;
 
 
@@ -260,6 +265,18 @@ public class ServiceLocatorFactoryBean implements FactoryBean, BeanFactoryAware,
 			throw new IllegalArgumentException("Property 'serviceLocatorInterface' is required");
 		}
 
+		// Precompute dispatch for all service locator methods.
+		Method[] methods = this.serviceLocatorInterface.getMethods();
+		Map serviceLocatorMethods = new HashMap(methods.length);
+		for (int i = 0; i < methods.length; i++) {
+			Method method = methods[i];
+			if (!ReflectionUtils.isEqualsMethod(method) && !ReflectionUtils.isHashCodeMethod(method) &&
+					!ReflectionUtils.isToStringMethod(method)) {
+				serviceLocatorMethods.put(method, new ServiceLocatorMethod(method));
+			}
+		}
+		this.serviceLocatorMethods = serviceLocatorMethods;
+
 		// Create service locator proxy.
 		this.proxy = Proxy.newProxyInstance(
 				this.serviceLocatorInterface.getClassLoader(),
@@ -343,7 +360,11 @@ public class ServiceLocatorFactoryBean implements FactoryBean, BeanFactoryAware,
 	private class ServiceLocatorInvocationHandler implements InvocationHandler {
 
 		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-			if (ReflectionUtils.isEqualsMethod(method)) {
+			ServiceLocatorMethod serviceLocatorMethod = (ServiceLocatorMethod) serviceLocatorMethods.get(method);
+			if (serviceLocatorMethod != null) {
+				return serviceLocatorMethod.invoke(args);
+			}
+			else if (ReflectionUtils.isEqualsMethod(method)) {
 				// Only consider equal when proxies are identical.
 				return (proxy == args[0] ? Boolean.TRUE : Boolean.FALSE);
 			}
@@ -355,21 +376,60 @@ public class ServiceLocatorFactoryBean implements FactoryBean, BeanFactoryAware,
 				return "Service locator: " + serviceLocatorInterface.getName();
 			}
 			else {
-				return invokeServiceLocatorMethod(method, args);
+				return new ServiceLocatorMethod(method).invoke(args);
 			}
 		}
+	}
+
 
-		private Object invokeServiceLocatorMethod(Method method, Object[] args) throws Exception {
-			Class serviceLocatorMethodReturnType = getServiceLocatorMethodReturnType(method);
+	/**
+	 * Dispatch information for a single service locator method, determined once:
+	 * the service type to look up and, for methods without service id, the name
+	 * of the target bean.
+	 */
+	private class ServiceLocatorMethod {
+
+		private final Method interfaceMethod;
+
+		private final Class serviceType;
+
+		private final boolean supported;
+
+		private final boolean hasServiceId;
+
+		private final String beanName;
+
+		public ServiceLocatorMethod(Method method) {
+			Class[] paramTypes = method.getParameterTypes();
 			try {
-				String beanName = tryGetBeanName(args);
+				this.interfaceMethod = serviceLocatorInterface.getMethod(method.getName(), paramTypes);
+			}
+			catch (NoSuchMethodException ex) {
+				throw new IllegalStateException("Service locator interface [" +
+						serviceLocatorInterface.getName() + "] does not declare method " + method);
+			}
+			this.serviceType = this.interfaceMethod.getReturnType();
+			// Check whether the method is a valid service locator.
+			this.supported = (paramTypes.length <= 1 && !void.class.equals(this.serviceType));
+			this.hasServiceId = (paramTypes.length == 1);
+			this.beanName = (this.hasServiceId ? null : tryGetBeanName(null));
+		}
+
+		public Object invoke(Object[] args) throws Exception {
+			if (!this.supported) {
+				throw new UnsupportedOperationException(
+						"May only call methods with signature '<type> xxx()' or '<type> xxx(<idtype> id)' " +
+						"on factory interface, but tried to call: " + this.interfaceMethod);
+			}
+			try {
+				String beanName = (this.hasServiceId ? tryGetBeanName(args) : this.beanName);
 				if (StringUtils.hasLength(beanName)) {
 					// Service locator for a specific bean name.
-					return beanFactory.getBean(beanName, serviceLocatorMethodReturnType);
+					return beanFactory.getBean(beanName, this.serviceType);
 				}
 				else {
 					// Service locator for a bean type.
-					return BeanFactoryUtils.beanOfTypeIncludingAncestors(beanFactory, serviceLocatorMethodReturnType);
+					return BeanFactoryUtils.beanOfTypeIncludingAncestors(beanFactory, this.serviceType);
 				}
 			}
 			catch (BeansException ex) {
@@ -397,20 +457,6 @@ public class ServiceLocatorFactoryBean implements FactoryBean, BeanFactoryAware,
 			}
 			return beanName;
 		}
-
-		private Class getServiceLocatorMethodReturnType(Method method) throws NoSuchMethodException {
-			Class[] paramTypes = method.getParameterTypes();
-			Method interfaceMethod = serviceLocatorInterface.getMethod(method.getName(), paramTypes);
-			Class serviceLocatorReturnType = interfaceMethod.getReturnType();
-
-			// Check whether the method is a valid service locator.
-			if (paramTypes.length > 1 || void.class.equals(serviceLocatorReturnType)) {
-				throw new UnsupportedOperationException(
-						"May only call methods with signature '<type> xxx()' or '<type> xxx(<idtype> id)' " +
-						"on factory interface, but tried to call: " + interfaceMethod);
-			}
-			return serviceLocatorReturnType;
-		}
 	}
 
 }
@@ -344,10 +344,20 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	public Object applyBeanPostProcessorsBeforeInitialization(Object existingBean, String beanName)
 			throws BeansException {
 
+		BeanCreationProfiler profiler = getBeanCreationProfiler();
 		Object result = existingBean;
 		for (Iterator it = getBeanPostProcessors().iterator(); it.hasNext();) {
 			BeanPostProcessor beanProcessor = (BeanPostProcessor) it.next();
-			result = beanProcessor.postProcessBeforeInitialization(result, beanName);
+			BeanCreationProfiler.PhaseRecord phase =
+					(profiler != null ? profiler.phaseStarted(BeanCreationProfiler.PHASE_BEFORE_INITIALIZATION, beanProcessor) : null);
+			try {
+				result = beanProcessor.postProcessBeforeInitialization(result, beanName);
+			}
+			finally {
+				if (phase != null) {
+					profiler.phaseFinished(phase);
+				}
+			}
 		}
 		return result;
 	}
@@ -355,10 +365,20 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	public Object applyBeanPostProcessorsAfterInitialization(Object existingBean, String beanName)
 			throws BeansException {
 
+		BeanCreationProfiler profiler = getBeanCreationProfiler();
 		Object result = existingBean;
 		for (Iterator it = getBeanPostProcessors().iterator(); it.hasNext();) {
 			BeanPostProcessor beanProcessor = (BeanPostProcessor) it.next();
-			result = beanProcessor.postProcessAfterInitialization(result, beanName);
+			BeanCreationProfiler.PhaseRecord phase =
+					(profiler != null ? profiler.phaseStarted(BeanCreationProfiler.PHASE_AFTER_INITIALIZATION, beanProcessor) : null);
+			try {
+				result = beanProcessor.postProcessAfterInitialization(result, beanName);
+			}
+			finally {
+				if (phase != null) {
+					profiler.phaseFinished(phase);
+				}
+			}
 		}
 		return result;
 	}
@@ -382,35 +402,45 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 				if (logger.isDebugEnabled()) {
 					logger.debug("Creating instance of bean '" + beanName + "'");
 				}
-				// Make sure bean class is actually resolved at this point.
-				resolveBeanClass(mbd, beanName);
-
-				// Prepare method overrides.
+				BeanCreationProfiler profiler = getBeanCreationProfiler();
+				BeanCreationProfiler.BeanCreationRecord creationRecord =
+						(profiler != null ? profiler.beanCreationStarted(beanName, mbd.getBeanClassName()) : null);
 				try {
-					mbd.prepareMethodOverrides();
-				}
-				catch (BeanDefinitionValidationException ex) {
-					throw new BeanDefinitionStoreException(mbd.getResourceDescription(),
-							beanName, "Validation of method overrides failed", ex);
-				}
+					// Make sure bean class is actually resolved at this point.
+					resolveBeanClass(mbd, beanName);
 
-				try {
-					// Give BeanPostProcessors a chance to return a proxy instead of the target bean instance.
-					Object bean = resolveBeforeInstantiation(beanName, mbd);
-					if (bean != null) {
-						return bean;
+					// Prepare method overrides.
+					try {
+						mbd.prepareMethodOverrides();
+					}
+					catch (BeanDefinitionValidationException ex) {
+						throw new BeanDefinitionStoreException(mbd.getResourceDescription(),
+								beanName, "Validation of method overrides failed", ex);
 					}
-				}
-				catch (Throwable ex) {
-					throw new BeanCreationException(mbd.getResourceDescription(), beanName,
-							"BeanPostProcessor before instantiation of bean failed", ex);
-				}
 
-				Object beanInstance = doCreateBean(beanName, mbd, args);
-				if (logger.isDebugEnabled()) {
-					logger.debug("Finished creating instance of bean '" + beanName + "'");
+					try {
+						// Give BeanPostProcessors a chance to return a proxy instead of the target bean instance.
+						Object bean = resolveBeforeInstantiation(beanName, mbd);
+						if (bean != null) {
+							return bean;
+						}
+					}
+					catch (Throwable ex) {
+						throw new BeanCreationException(mbd.getResourceDescription(), beanName,
+								"BeanPostProcessor before instantiation of bean failed", ex);
+					}
+
+					Object beanInstance = doCreateBean(beanName, mbd, args);
+					if (logger.isDebugEnabled()) {
+						logger.debug("Finished creating instance of bean '" + beanName + "'");
+					}
+					return beanInstance;
+				}
+				finally {
+					if (creationRecord != null) {
+						profiler.beanCreationFinished(creationRecord);
+					}
 				}
-				return beanInstance;
 			}
 		}, acc);
 	}
@@ -437,7 +467,13 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 			instanceWrapper = (BeanWrapper) this.factoryBeanInstanceCache.remove(beanName);
 		}
 		if (instanceWrapper == null) {
-			instanceWrapper = createBeanInstance(beanName, mbd, args);
+			BeanCreationProfiler.PhaseRecord phase = startProfilingPhase(BeanCreationProfiler.PHASE_INSTANTIATION);
+			try {
+				instanceWrapper = createBeanInstance(beanName, mbd, args);
+			}
+			finally {
+				finishProfilingPhase(phase);
+			}
 		}
 		final Object bean = (instanceWrapper != null ? instanceWrapper.getWrappedInstance() : null);
 		Class beanType = (instanceWrapper != null ? instanceWrapper.getWrappedClass() : null);
@@ -469,7 +505,13 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		// Initialize the bean instance.
 		Object exposedObject = bean;
 		try {
-			populateBean(beanName, mbd, instanceWrapper);
+			BeanCreationProfiler.PhaseRecord phase = startProfilingPhase(BeanCreationProfiler.PHASE_POPULATION);
+			try {
+				populateBean(beanName, mbd, instanceWrapper);
+			}
+			finally {
+				finishProfilingPhase(phase);
+			}
 			exposedObject = initializeBean(beanName, exposedObject, mbd);
 		}
 		catch (Throwable ex) {
@@ -515,6 +557,25 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		return exposedObject;
 	}
 
+	/**
+	 * Start recording the given creation phase for the current bean,
+	 * if a BeanCreationProfiler is active.
+	 */
+	private BeanCreationProfiler.PhaseRecord startProfilingPhase(String phaseName) {
+		BeanCreationProfiler profiler = getBeanCreationProfiler();
+		return (profiler != null ? profiler.phaseStarted(phaseName) : null);
+	}
+
+	/**
+	 * Finish recording the given creation phase, if started.
+	 */
+	private void finishProfilingPhase(BeanCreationProfiler.PhaseRecord phase) {
+		BeanCreationProfiler profiler = getBeanCreationProfiler();
+		if (phase != null && profiler != null) {
+			profiler.phaseFinished(phase);
+		}
+	}
+
 	protected Class predictBeanType(String beanName, RootBeanDefinition mbd, Class[] typesToMatch) {
 		Class beanClass = null;
 		if (mbd.getFactoryMethodName() != null) {
@@ -817,10 +878,11 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 			return instantiateUsingFactoryMethod(beanName, mbd, args);
 		}
 
-		// Shortcut when re-creating the same bean...
-		if (mbd.resolvedConstructorOrFactoryMethod != null) {
+		// Shortcut when re-creating the same bean without explicit arguments
+		// (even an empty explicit argument array asks for a no-arg constructor).
+		if (args == null && mbd.resolvedConstructorOrFactoryMethod != null) {
 			if (mbd.constructorArgumentsResolved) {
-				return autowireConstructor(beanName, mbd, null, args);
+				return autowireConstructor(beanName, mbd, null, null);
 			}
 			else {
 				return instantiateBean(beanName, mbd);
@@ -934,6 +996,7 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	 */
 	protected void populateBean(String beanName, AbstractBeanDefinition mbd, BeanWrapper bw) {
 		PropertyValues pvs = mbd.getPropertyValues();
+		BeanInstantiationPlan plan = getInstantiationPlan(mbd);
 
 		if (bw == null) {
 			if (!pvs.isEmpty()) {
@@ -952,16 +1015,27 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		boolean continueWithPropertyPopulation = true;
 
 		if (!mbd.isSynthetic() && hasInstantiationAwareBeanPostProcessors()) {
-			for (Iterator it = getBeanPostProcessors().iterator(); it.hasNext();) {
-				BeanPostProcessor beanProcessor = (BeanPostProcessor) it.next();
-				if (beanProcessor instanceof InstantiationAwareBeanPostProcessor) {
-					InstantiationAwareBeanPostProcessor ibp = (InstantiationAwareBeanPostProcessor) beanProcessor;
-					if (!ibp.postProcessAfterInstantiation(bw.getWrappedInstance(), beanName)) {
+			if (plan != null) {
+				InstantiationAwareBeanPostProcessor[] ibps = plan.getInstantiationAwareBeanPostProcessors();
+				for (int i = 0; i < ibps.length; i++) {
+					if (!ibps[i].postProcessAfterInstantiation(bw.getWrappedInstance(), beanName)) {
 						continueWithPropertyPopulation = false;
 						break;
 					}
 				}
 			}
+			else {
+				for (Iterator it = getBeanPostProcessors().iterator(); it.hasNext();) {
+					BeanPostProcessor beanProcessor = (BeanPostProcessor) it.next();
+					if (beanProcessor instanceof InstantiationAwareBeanPostProcessor) {
+						InstantiationAwareBeanPostProcessor ibp = (InstantiationAwareBeanPostProcessor) beanProcessor;
+						if (!ibp.postProcessAfterInstantiation(bw.getWrappedInstance(), beanName)) {
+							continueWithPropertyPopulation = false;
+							break;
+						}
+					}
+				}
+			}
 		}
 
 		if (!continueWithPropertyPopulation) {
@@ -989,18 +1063,39 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		boolean needsDepCheck = (mbd.getDependencyCheck() != RootBeanDefinition.DEPENDENCY_CHECK_NONE);
 
 		if (hasInstAwareBpps || needsDepCheck) {
-			PropertyDescriptor[] filteredPds = filterPropertyDescriptorsForDependencyCheck(bw);
+			PropertyDescriptor[] filteredPds = null;
+			if (plan != null) {
+				filteredPds = plan.getFilteredPropertyDescriptors(bw.getWrappedClass());
+				if (filteredPds == null) {
+					filteredPds = filterPropertyDescriptorsForDependencyCheck(bw);
+					plan.setFilteredPropertyDescriptors(bw.getWrappedClass(), filteredPds);
+				}
+			}
+			else {
+				filteredPds = filterPropertyDescriptorsForDependencyCheck(bw);
+			}
 			if (hasInstAwareBpps) {
-				for (Iterator it = getBeanPostProcessors().iterator(); it.hasNext(); ) {
-					BeanPostProcessor beanProcessor = (BeanPostProcessor) it.next();
-					if (beanProcessor instanceof InstantiationAwareBeanPostProcessor) {
-						InstantiationAwareBeanPostProcessor ibp = (InstantiationAwareBeanPostProcessor) beanProcessor;
-						pvs = ibp.postProcessPropertyValues(pvs, filteredPds, bw.getWrappedInstance(), beanName);
+				if (plan != null) {
+					InstantiationAwareBeanPostProcessor[] ibps = plan.getInstantiationAwareBeanPostProcessors();
+					for (int i = 0; i < ibps.length; i++) {
+						pvs = ibps[i].postProcessPropertyValues(pvs, filteredPds, bw.getWrappedInstance(), beanName);
 						if (pvs == null) {
 							return;
 						}
 					}
 				}
+				else {
+					for (Iterator it = getBeanPostProcessors().iterator(); it.hasNext(); ) {
+						BeanPostProcessor beanProcessor = (BeanPostProcessor) it.next();
+						if (beanProcessor instanceof InstantiationAwareBeanPostProcessor) {
+							InstantiationAwareBeanPostProcessor ibp = (InstantiationAwareBeanPostProcessor) beanProcessor;
+							pvs = ibp.postProcessPropertyValues(pvs, filteredPds, bw.getWrappedInstance(), beanName);
+							if (pvs == null) {
+								return;
+							}
+						}
+					}
+				}
 			}
 			if (needsDepCheck) {
 				checkDependencies(beanName, mbd, filteredPds, pvs);
@@ -1010,6 +1105,28 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		applyPropertyValues(beanName, mbd, bw, pvs);
 	}
 
+	/**
+	 * Obtain the instantiation plan for the given bean definition, building it
+	 * if necessary. Plans are only kept for non-singleton merged bean definitions,
+	 * which get instantiated repeatedly.
+	 * @param mbd the bean definition for the bean
+	 * @return the instantiation plan, or <code>null</code> if not applicable
+	 * @see BeanInstantiationPlan
+	 */
+	private BeanInstantiationPlan getInstantiationPlan(BeanDefinition mbd) {
+		if (!(mbd instanceof RootBeanDefinition) || mbd.isSingleton()) {
+			return null;
+		}
+		RootBeanDefinition rbd = (RootBeanDefinition) mbd;
+		List beanPostProcessors = getBeanPostProcessors();
+		BeanInstantiationPlan plan = rbd.instantiationPlan;
+		if (plan == null || !plan.isValidFor(beanPostProcessors)) {
+			plan = new BeanInstantiationPlan(beanPostProcessors);
+			rbd.instantiationPlan = plan;
+		}
+		return plan;
+	}
+
 	/**
 	 * Fill in any missing property values with references to
 	 * other beans in this factory if autowire is set to "byName".
@@ -1230,6 +1347,7 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 			converter = bw;
 		}
 		BeanDefinitionValueResolver valueResolver = new BeanDefinitionValueResolver(this, beanName, mbd, converter);
+		BeanInstantiationPlan plan = getInstantiationPlan(mbd);
 
 		// Create a deep copy, resolving any references for values.
 		List deepCopy = new ArrayList(original.size());
@@ -1244,8 +1362,7 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 				Object originalValue = pv.getValue();
 				Object resolvedValue = valueResolver.resolveValueIfNecessary(pv, originalValue);
 				Object convertedValue = resolvedValue;
-				boolean convertible = bw.isWritableProperty(propertyName) &&
-						!PropertyAccessorUtils.isNestedOrIndexedProperty(propertyName);
+				boolean convertible = isConvertibleProperty(propertyName, bw, plan);
 				if (convertible) {
 					convertedValue = convertForProperty(resolvedValue, propertyName, bw, converter);
 				}
@@ -1281,6 +1398,25 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		}
 	}
 
+	/**
+	 * Determine whether values for the given property can be converted
+	 * upfront, reusing a previous determination from the given plan.
+	 */
+	private boolean isConvertibleProperty(String propertyName, BeanWrapper bw, BeanInstantiationPlan plan) {
+		if (plan != null) {
+			Boolean convertible = plan.isConvertibleProperty(bw.getWrappedClass(), propertyName);
+			if (convertible != null) {
+				return convertible.booleanValue();
+			}
+		}
+		boolean convertible = bw.isWritableProperty(propertyName) &&
+				!PropertyAccessorUtils.isNestedOrIndexedProperty(propertyName);
+		if (plan != null) {
+			plan.setConvertibleProperty(bw.getWrappedClass(), propertyName, convertible);
+		}
+		return convertible;
+	}
+
 	/**
 	 * Convert the given value for the specified target property.
 	 */
@@ -1332,7 +1468,13 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		}
 
 		try {
-			invokeInitMethods(beanName, wrappedBean, mbd);
+			BeanCreationProfiler.PhaseRecord phase = startProfilingPhase(BeanCreationProfiler.PHASE_INIT_METHODS);
+			try {
+				invokeInitMethods(beanName, wrappedBean, mbd);
+			}
+			finally {
+				finishProfilingPhase(phase);
+			}
 		}
 		catch (Throwable ex) {
 			throw new BeanCreationException(
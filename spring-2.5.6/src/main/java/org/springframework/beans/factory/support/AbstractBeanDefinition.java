@@ -18,6 +18,7 @@ package org.springframework.beans.factory.support;
 
 import java.lang.reflect.Constructor;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -134,7 +135,8 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 
 	private boolean autowireCandidate = true;
 
-	private final Map qualifiers = new LinkedHashMap();
+	/** Shared immutable empty Map until the first qualifier gets added */
+	private Map qualifiers = Collections.EMPTY_MAP;
 
 	private boolean primary = false;
 
@@ -588,6 +590,9 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 	 * @see AutowireCandidateQualifier#getTypeName()
 	 */
 	public void addQualifier(AutowireCandidateQualifier qualifier) {
+		if (this.qualifiers == Collections.EMPTY_MAP) {
+			this.qualifiers = new LinkedHashMap(4);
+		}
 		this.qualifiers.put(qualifier.getTypeName(), qualifier);
 	}
 
@@ -595,7 +600,7 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 	 * Return whether this bean has the specified qualifier.
 	 */
 	public boolean hasQualifier(String typeName) {
-		return this.qualifiers.keySet().contains(typeName);
+		return this.qualifiers.containsKey(typeName);
 	}
 
 	/**
@@ -619,7 +624,14 @@ public abstract class AbstractBeanDefinition extends BeanMetadataAttributeAccess
 	 */
 	protected void copyQualifiersFrom(AbstractBeanDefinition source) {
 		Assert.notNull(source, "Source must not be null");
-		this.qualifiers.putAll(source.qualifiers);
+		if (!source.qualifiers.isEmpty()) {
+			if (this.qualifiers == Collections.EMPTY_MAP) {
+				this.qualifiers = new LinkedHashMap(source.qualifiers);
+			}
+			else {
+				this.qualifiers.putAll(source.qualifiers);
+			}
+		}
 	}
 
 	/**
@@ -108,6 +108,9 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 	/** Whether to cache bean metadata or rather reobtain it for every access */
 	private boolean cacheBeanMetadata = true;
 
+	/** Whether to drop merged bean definitions of fully created singletons */
+	private boolean releaseMergedSingletonDefinitions = false;
+
 	/** Custom PropertyEditorRegistrars to apply to the beans of this factory */
 	private final Set propertyEditorRegistrars = new LinkedHashSet(4);
 
@@ -120,6 +123,9 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 	/** BeanPostProcessors to apply in createBean */
 	private final List beanPostProcessors = new ArrayList();
 
+	/** Profiler to record bean creations with, if any */
+	private BeanCreationProfiler beanCreationProfiler;
+
 	/** Indicates whether any InstantiationAwareBeanPostProcessors have been registered */
 	private boolean hasInstantiationAwareBeanPostProcessors;
 
@@ -132,6 +138,9 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 	/** Map from bean name to merged RootBeanDefinition */
 	private final Map mergedBeanDefinitions = CollectionFactory.createConcurrentMapIfPossible(16);
 
+	/** Map from factory dereference name ("&name") to bean name without prefix */
+	private final Map dereferencedBeanNames = CollectionFactory.createConcurrentMapIfPossible(16);
+
 	/** Names of beans that have already been created at least once */
 	private final Set alreadyCreated = Collections.synchronizedSet(new HashSet());
 
@@ -202,6 +211,20 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 		final String beanName = transformedBeanName(name);
 		Object bean = null;
 
+		// Fast path for fully created singletons that are not FactoryBeans:
+		// no allocation, no locking and no ThreadLocal access. Only logs at trace
+		// level, since debug level is commonly enabled and would allocate per call.
+		if (args == null && !name.startsWith(FACTORY_BEAN_PREFIX)) {
+			Object singletonInstance = getCreatedSingleton(beanName);
+			if (singletonInstance != null && !(singletonInstance instanceof FactoryBean) &&
+					(requiredType == null || requiredType.isInstance(singletonInstance))) {
+				if (logger.isTraceEnabled()) {
+					logger.trace("Returning cached instance of singleton bean '" + beanName + "'");
+				}
+				return singletonInstance;
+			}
+		}
+
 		// Eagerly check singleton cache for manually registered singletons.
 		Object sharedInstance = getSingleton(beanName);
 		if (sharedInstance != null && args == null) {
@@ -246,73 +269,83 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 			final RootBeanDefinition mbd = getMergedLocalBeanDefinition(beanName);
 			checkMergedBeanDefinition(mbd, beanName, args);
 
-			// Guarantee initialization of beans that the current bean depends on.
-			String[] dependsOn = mbd.getDependsOn();
-			if (dependsOn != null) {
-				for (int i = 0; i < dependsOn.length; i++) {
-					String dependsOnBean = dependsOn[i];
-					getBean(dependsOnBean);
-					registerDependentBean(dependsOnBean, beanName);
-				}
-			}
-
-			// Create bean instance.
-			if (mbd.isSingleton()) {
-				sharedInstance = getSingleton(beanName, new ObjectFactory() {
-					public Object getObject() throws BeansException {
-						try {
-							return createBean(beanName, mbd, args);
-						}
-						catch (BeansException ex) {
-							// Explicitly remove instance from singleton cache: It might have been put there
-							// eagerly by the creation process, to allow for circular reference resolution.
-							// Also remove any beans that received a temporary reference to the bean.
-							destroySingleton(beanName);
-							throw ex;
-						}
+			BeanCreationProfiler.BeanCreationRecord creationRecord =
+					(this.beanCreationProfiler != null ? this.beanCreationProfiler.beanRequested(beanName) : null);
+			try {
+				// Guarantee initialization of beans that the current bean depends on.
+				String[] dependsOn = mbd.getDependsOn();
+				if (dependsOn != null) {
+					for (int i = 0; i < dependsOn.length; i++) {
+						String dependsOnBean = dependsOn[i];
+						getBean(dependsOnBean);
+						registerDependentBean(dependsOnBean, beanName);
 					}
-				});
-				bean = getObjectForBeanInstance(sharedInstance, name, beanName, mbd);
-			}
-
-			else if (mbd.isPrototype()) {
-				// It's a prototype -> create a new instance.
-				Object prototypeInstance = null;
-				try {
-					beforePrototypeCreation(beanName);
-					prototypeInstance = createBean(beanName, mbd, args);
-				}
-				finally {
-					afterPrototypeCreation(beanName);
 				}
-				bean = getObjectForBeanInstance(prototypeInstance, name, beanName, mbd);
-			}
 
-			else {
-				String scopeName = mbd.getScope();
-				final Scope scope = (Scope) this.scopes.get(scopeName);
-				if (scope == null) {
-					throw new IllegalStateException("No Scope registered for scope '" + scopeName + "'");
-				}
-				try {
-					Object scopedInstance = scope.get(beanName, new ObjectFactory() {
+				// Create bean instance.
+				if (mbd.isSingleton()) {
+					sharedInstance = getSingleton(beanName, new ObjectFactory() {
 						public Object getObject() throws BeansException {
-							beforePrototypeCreation(beanName);
 							try {
 								return createBean(beanName, mbd, args);
 							}
-							finally {
-								afterPrototypeCreation(beanName);
+							catch (BeansException ex) {
+								// Explicitly remove instance from singleton cache: It might have been put there
+								// eagerly by the creation process, to allow for circular reference resolution.
+								// Also remove any beans that received a temporary reference to the bean.
+								destroySingleton(beanName);
+								throw ex;
 							}
 						}
 					});
-					bean = getObjectForBeanInstance(scopedInstance, name, beanName, mbd);
+					releaseMergedBeanDefinitionIfPossible(beanName, sharedInstance);
+					bean = getObjectForBeanInstance(sharedInstance, name, beanName, mbd);
+				}
+
+				else if (mbd.isPrototype()) {
+					// It's a prototype -> create a new instance.
+					Object prototypeInstance = null;
+					try {
+						beforePrototypeCreation(beanName);
+						prototypeInstance = createBean(beanName, mbd, args);
+					}
+					finally {
+						afterPrototypeCreation(beanName);
+					}
+					bean = getObjectForBeanInstance(prototypeInstance, name, beanName, mbd);
+				}
+
+				else {
+					String scopeName = mbd.getScope();
+					final Scope scope = (Scope) this.scopes.get(scopeName);
+					if (scope == null) {
+						throw new IllegalStateException("No Scope registered for scope '" + scopeName + "'");
+					}
+					try {
+						Object scopedInstance = scope.get(beanName, new ObjectFactory() {
+							public Object getObject() throws BeansException {
+								beforePrototypeCreation(beanName);
+								try {
+									return createBean(beanName, mbd, args);
+								}
+								finally {
+									afterPrototypeCreation(beanName);
+								}
+							}
+						});
+						bean = getObjectForBeanInstance(scopedInstance, name, beanName, mbd);
+					}
+					catch (IllegalStateException ex) {
+						throw new BeanCreationException(beanName,
+								"Scope '" + scopeName + "' is not active for the current thread; " +
+								"consider defining a scoped proxy for this bean if you intend to refer to it from a singleton",
+								ex);
+					}
 				}
-				catch (IllegalStateException ex) {
-					throw new BeanCreationException(beanName,
-							"Scope '" + scopeName + "' is not active for the current thread; " +
-							"consider defining a scoped proxy for this bean if you intend to refer to it from a singleton",
-							ex);
+			}
+			finally {
+				if (creationRecord != null) {
+					this.beanCreationProfiler.beanCreationFinished(creationRecord);
 				}
 			}
 		}
@@ -580,6 +613,28 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 		return this.cacheBeanMetadata;
 	}
 
+	/**
+	 * Set whether to drop the cached merged bean definition of a singleton bean
+	 * once the singleton instance has been fully created. Default is "false".
+	 * <p>Switch this flag on to reduce the memory footprint of factories with
+	 * a large number of bean definitions. The original bean definitions remain
+	 * registered; a merged bean definition will be rebuilt on demand (without
+	 * being cached again) if requested after creation of the singleton,
+	 * e.g. for type checks. FactoryBean singletons are not affected,
+	 * since their merged bean definitions are needed for every object access.
+	 */
+	public void setReleaseMergedSingletonDefinitions(boolean releaseMergedSingletonDefinitions) {
+		this.releaseMergedSingletonDefinitions = releaseMergedSingletonDefinitions;
+	}
+
+	/**
+	 * Return whether to drop the cached merged bean definition of a singleton
+	 * bean once the singleton instance has been fully created.
+	 */
+	public boolean isReleaseMergedSingletonDefinitions() {
+		return this.releaseMergedSingletonDefinitions;
+	}
+
 	public void addPropertyEditorRegistrar(PropertyEditorRegistrar registrar) {
 		Assert.notNull(registrar, "PropertyEditorRegistrar must not be null");
 		this.propertyEditorRegistrars.add(registrar);
@@ -684,6 +739,24 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 		return this.hasDestructionAwareBeanPostProcessors;
 	}
 
+	/**
+	 * Set a profiler to record the creation of beans in this factory with:
+	 * timing and allocation per creation phase, as well as the tree of
+	 * bean creations triggered by other bean creations.
+	 * <p>Default is none, not incurring any recording overhead.
+	 * @see BeanCreationProfiler#getReport()
+	 */
+	public void setBeanCreationProfiler(BeanCreationProfiler beanCreationProfiler) {
+		this.beanCreationProfiler = beanCreationProfiler;
+	}
+
+	/**
+	 * Return the profiler to record bean creations with, if any.
+	 */
+	public BeanCreationProfiler getBeanCreationProfiler() {
+		return this.beanCreationProfiler;
+	}
+
 	public void registerScope(String scopeName, Scope scope) {
 		Assert.notNull(scopeName, "Scope identifier must not be null");
 		Assert.notNull(scope, "Scope must not be null");
@@ -708,6 +781,9 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 		setCacheBeanMetadata(otherFactory.isCacheBeanMetadata());
 		if (otherFactory instanceof AbstractBeanFactory) {
 			AbstractBeanFactory otherAbstractFactory = (AbstractBeanFactory) otherFactory;
+			this.releaseMergedSingletonDefinitions = otherAbstractFactory.releaseMergedSingletonDefinitions;
+			setDestructionExecutor(otherAbstractFactory.getDestructionExecutor());
+			setDestructionTimeout(otherAbstractFactory.getDestructionTimeout());
 			this.customEditors.putAll(otherAbstractFactory.customEditors);
 			this.propertyEditorRegistrars.addAll(otherAbstractFactory.propertyEditorRegistrars);
 			this.beanPostProcessors.addAll(otherAbstractFactory.beanPostProcessors);
@@ -716,6 +792,7 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 			this.hasDestructionAwareBeanPostProcessors = this.hasDestructionAwareBeanPostProcessors ||
 					otherAbstractFactory.hasDestructionAwareBeanPostProcessors;
 			this.scopes.putAll(otherAbstractFactory.scopes);
+			this.beanCreationProfiler = otherAbstractFactory.beanCreationProfiler;
 		}
 	}
 
@@ -860,7 +937,19 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 	 * @return the transformed bean name
 	 */
 	protected String transformedBeanName(String name) {
-		return canonicalName(BeanFactoryUtils.transformedBeanName(name));
+		Assert.notNull(name, "'name' must not be null");
+		if (!name.startsWith(FACTORY_BEAN_PREFIX)) {
+			return canonicalName(name);
+		}
+		String beanName = (String) this.dereferencedBeanNames.get(name);
+		if (beanName == null) {
+			beanName = BeanFactoryUtils.transformedBeanName(name);
+			// Only remember names known to this factory, keeping the cache bounded.
+			if (containsBeanDefinition(beanName) || containsSingleton(beanName) || isAlias(beanName)) {
+				this.dereferencedBeanNames.put(name, beanName);
+			}
+		}
+		return canonicalName(beanName);
 	}
 
 	/**
@@ -1050,7 +1139,8 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 
 				// Only cache the merged bean definition if we're already about to create an
 				// instance of the bean, or at least have already created an instance before.
-				if (containingBd == null && isCacheBeanMetadata() && isBeanEligibleForMetadataCaching(beanName)) {
+				if (containingBd == null && isCacheBeanMetadata() && isBeanEligibleForMetadataCaching(beanName) &&
+						!isMergedBeanDefinitionReleasable(beanName)) {
 					this.mergedBeanDefinitions.put(beanName, mbd);
 				}
 			}
@@ -1233,6 +1323,39 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 		return this.alreadyCreated.contains(beanName);
 	}
 
+	/**
+	 * Determine whether the merged bean definition for the specified bean
+	 * may be dropped from the cache, according to the
+	 * {@link #setReleaseMergedSingletonDefinitions "releaseMergedSingletonDefinitions"}
+	 * flag: that is, whether the bean is a fully created singleton which
+	 * does not need its merged bean definition anymore.
+	 * @param beanName the name of the bean
+	 * @return <code>true</code> if the merged bean definition does not
+	 * need to be cached
+	 */
+	protected boolean isMergedBeanDefinitionReleasable(String beanName) {
+		if (!this.releaseMergedSingletonDefinitions) {
+			return false;
+		}
+		Object singletonInstance = getSingleton(beanName, false);
+		return (singletonInstance != null && !isSingletonCurrentlyInCreation(beanName) &&
+				!(singletonInstance instanceof FactoryBean));
+	}
+
+	/**
+	 * Drop the cached merged bean definition for the given singleton,
+	 * if possible after its creation.
+	 * @param beanName the name of the bean
+	 * @param singletonInstance the fully created singleton instance
+	 * @see #setReleaseMergedSingletonDefinitions
+	 */
+	private void releaseMergedBeanDefinitionIfPossible(String beanName, Object singletonInstance) {
+		if (this.releaseMergedSingletonDefinitions && !(singletonInstance instanceof FactoryBean) &&
+				!isSingletonCurrentlyInCreation(beanName)) {
+			this.mergedBeanDefinitions.remove(beanName);
+		}
+	}
+
 	/**
 	 * Remove the singleton instance (if any) for the given bean name,
 	 * but only if it hasn't been used for other purposes than type checking.
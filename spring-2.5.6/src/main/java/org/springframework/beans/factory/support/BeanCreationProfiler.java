@@ -0,0 +1,634 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.springframework.util.ClassUtils;
+
+/**
+ * Records wall time and allocated bytes for bean creations in an
+ * {@link AbstractBeanFactory}, broken down into the individual creation
+ * phases: instantiation, property population, each BeanPostProcessor
+ * and the init methods. Bean creations triggered by another bean's
+ * creation get recorded as children of the triggering phase, resulting
+ * in a dependency tree per top-level bean.
+ *
+ * <p>Activated through {@link AbstractBeanFactory#setBeanCreationProfiler}
+ * or {@link org.springframework.context.support.AbstractApplicationContext#setBeanCreationProfiler}.
+ * A bean factory without profiler does not pay any recording overhead.
+ *
+ * <p>The recorded data is available as XML report via {@link #writeReport},
+ * and through the {@link BeanCreationProfilerMBean} management interface.
+ * Only the most recent top-level records are retained (see {@link #setRecordLimit}),
+ * so that a profiler left enabled for a long-running application - e.g. one
+ * creating prototypes on every request - does not grow without bounds.
+ * Allocated bytes are only measured on JVMs which expose per-thread allocation
+ * counters (Sun JDK 1.6.0_25 and higher); they will be reported as -1 otherwise.
+ *
+ * <p>Requires Java 5 or higher.
+ *
+ * @author agent
+ * @since 2.5.6
+ */
+public class BeanCreationProfiler implements BeanCreationProfilerMBean {
+
+	/** Phase name for the instantiation of a bean */
+	public static final String PHASE_INSTANTIATION = "instantiation";
+
+	/** Phase name for the population of a bean's properties */
+	public static final String PHASE_POPULATION = "populateBean";
+
+	/** Phase name for the invocation of a bean's init methods */
+	public static final String PHASE_INIT_METHODS = "initMethods";
+
+	/** Phase name prefix for BeanPostProcessor callbacks before initialization */
+	public static final String PHASE_BEFORE_INITIALIZATION = "postProcessBeforeInitialization";
+
+	/** Phase name prefix for BeanPostProcessor callbacks after initialization */
+	public static final String PHASE_AFTER_INITIALIZATION = "postProcessAfterInitialization";
+
+
+	/** Default maximum number of top-level records to retain */
+	public static final int DEFAULT_RECORD_LIMIT = 1024;
+
+
+	private static final AllocationCounter allocationCounter = new AllocationCounter();
+
+
+	/** Record for the bean currently in creation in the current thread */
+	private final ThreadLocal currentRecord = new ThreadLocal();
+
+	/** Finished top-level records, oldest first */
+	private final LinkedList records = new LinkedList();
+
+	private int recordLimit = DEFAULT_RECORD_LIMIT;
+
+	private int recordedBeanCount;
+
+	private int discardedRecordCount;
+
+	private volatile boolean enabled = true;
+
+
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Set the maximum number of top-level bean creation records to retain.
+	 * Once exceeded, the oldest records (including their nested bean creations)
+	 * will be discarded; they still count towards {@link #getRecordedBeanCount()}.
+	 * <p>Default is 1024. Records beyond a lowered limit will be discarded
+	 * on the next bean creation.
+	 */
+	public void setRecordLimit(int recordLimit) {
+		synchronized (this.records) {
+			this.recordLimit = recordLimit;
+		}
+	}
+
+	/**
+	 * Return the maximum number of top-level bean creation records to retain.
+	 */
+	public int getRecordLimit() {
+		synchronized (this.records) {
+			return this.recordLimit;
+		}
+	}
+
+	/**
+	 * Return the number of top-level bean creation records that have been
+	 * discarded because of the record limit.
+	 * @see #setRecordLimit
+	 */
+	public int getDiscardedRecordCount() {
+		synchronized (this.records) {
+			return this.discardedRecordCount;
+		}
+	}
+
+	public int getRecordedBeanCount() {
+		synchronized (this.records) {
+			return this.recordedBeanCount;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Only takes the retained records into account.
+	 * @see #setRecordLimit
+	 */
+	public long getTotalTimeMillis() {
+		long totalTime = 0;
+		synchronized (this.records) {
+			for (Iterator it = this.records.iterator(); it.hasNext();) {
+				totalTime += ((BeanCreationRecord) it.next()).getElapsedNanos();
+			}
+		}
+		return totalTime / 1000000;
+	}
+
+	/**
+	 * Return the retained top-level bean creation records, oldest first.
+	 * @return a List of {@link BeanCreationRecord} objects
+	 */
+	public List getBeanCreationRecords() {
+		synchronized (this.records) {
+			return new ArrayList(this.records);
+		}
+	}
+
+	public void reset() {
+		synchronized (this.records) {
+			this.records.clear();
+			this.recordedBeanCount = 0;
+			this.discardedRecordCount = 0;
+		}
+	}
+
+
+	//---------------------------------------------------------------------
+	// Callbacks from AbstractBeanFactory
+	//---------------------------------------------------------------------
+
+	/**
+	 * Start a record for the given bean being requested for creation.
+	 * The record will be discarded if no bean gets created in the process.
+	 * @param beanName the name of the bean
+	 * @return the new record, or <code>null</code> if not recording
+	 */
+	BeanCreationRecord beanRequested(String beanName) {
+		if (!this.enabled) {
+			return null;
+		}
+		return startRecord(beanName, false);
+	}
+
+	/**
+	 * Start a record for the given bean being created, unless the bean
+	 * has already been recorded as requested by the current thread.
+	 * @param beanName the name of the bean
+	 * @param beanClassName the name of the bean class (may be <code>null</code>)
+	 * @return the new record, or <code>null</code> if none has been started
+	 */
+	BeanCreationRecord beanCreationStarted(String beanName, String beanClassName) {
+		if (!this.enabled) {
+			return null;
+		}
+		BeanCreationRecord current = (BeanCreationRecord) this.currentRecord.get();
+		if (current != null && current.beanName.equals(beanName) && !current.created) {
+			current.created = true;
+			current.beanClassName = beanClassName;
+			return null;
+		}
+		BeanCreationRecord record = startRecord(beanName, true);
+		record.beanClassName = beanClassName;
+		return record;
+	}
+
+	private BeanCreationRecord startRecord(String beanName, boolean created) {
+		BeanCreationRecord parent = (BeanCreationRecord) this.currentRecord.get();
+		BeanCreationRecord record = new BeanCreationRecord(beanName, parent,
+				Thread.currentThread().getName(), System.nanoTime(), allocationCounter.getAllocatedBytes());
+		record.created = created;
+		this.currentRecord.set(record);
+		return record;
+	}
+
+	/**
+	 * Finish the given record, attaching it to its parent record
+	 * or to the top-level records.
+	 * @param record the record returned from <code>beanRequested</code>
+	 * or <code>beanCreationStarted</code> (may be <code>null</code>)
+	 */
+	void beanCreationFinished(BeanCreationRecord record) {
+		if (record == null) {
+			return;
+		}
+		record.finish(System.nanoTime(), allocationCounter.getAllocatedBytes());
+		BeanCreationRecord parent = record.parent;
+		this.currentRecord.set(parent);
+		if (!record.created && record.children.isEmpty()) {
+			// Existing instance returned: nothing to report.
+			return;
+		}
+		if (parent != null) {
+			// Parent not finished yet, hence only visible to the current thread.
+			if (parent.currentPhase != null) {
+				parent.currentPhase.children.add(record);
+			}
+			else {
+				parent.children.add(record);
+			}
+		}
+		synchronized (this.records) {
+			if (parent == null) {
+				this.records.add(record);
+				while (this.records.size() > this.recordLimit) {
+					this.records.removeFirst();
+					this.discardedRecordCount++;
+				}
+			}
+			this.recordedBeanCount++;
+		}
+	}
+
+	/**
+	 * Start the given phase for the bean currently in creation.
+	 * @param phaseName the name of the phase
+	 * @return the phase record, or <code>null</code> if not recording
+	 */
+	PhaseRecord phaseStarted(String phaseName) {
+		BeanCreationRecord current = (BeanCreationRecord) this.currentRecord.get();
+		if (current == null || !this.enabled) {
+			return null;
+		}
+		PhaseRecord phase = new PhaseRecord(phaseName, current, current.currentPhase,
+				System.nanoTime(), allocationCounter.getAllocatedBytes());
+		current.currentPhase = phase;
+		return phase;
+	}
+
+	/**
+	 * Start the given BeanPostProcessor phase for the bean currently in creation.
+	 * @param phasePrefix the phase name prefix
+	 * @param beanPostProcessor the BeanPostProcessor to be invoked
+	 * @return the phase record, or <code>null</code> if not recording
+	 */
+	PhaseRecord phaseStarted(String phasePrefix, Object beanPostProcessor) {
+		if (this.currentRecord.get() == null || !this.enabled) {
+			return null;
+		}
+		return phaseStarted(phasePrefix + "[" + beanPostProcessor.getClass().getName() + "]");
+	}
+
+	/**
+	 * Finish the given phase.
+	 * @param phase the record returned from <code>phaseStarted</code>
+	 * (may be <code>null</code>)
+	 */
+	void phaseFinished(PhaseRecord phase) {
+		if (phase == null) {
+			return;
+		}
+		phase.finish(System.nanoTime(), allocationCounter.getAllocatedBytes());
+		BeanCreationRecord owner = phase.owner;
+		owner.currentPhase = phase.enclosingPhase;
+		if (phase.enclosingPhase != null) {
+			phase.enclosingPhase.children.add(phase);
+		}
+		else {
+			owner.children.add(phase);
+		}
+	}
+
+
+	//---------------------------------------------------------------------
+	// Report generation
+	//---------------------------------------------------------------------
+
+	public String getReport() {
+		StringWriter writer = new StringWriter();
+		try {
+			writeReport(writer);
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Could not write bean creation report: " + ex);
+		}
+		return writer.toString();
+	}
+
+	/**
+	 * Write an XML report of the retained bean creation records to the given Writer.
+	 * <p>The root element carries the number of bean creations recorded so far
+	 * and, if any, the number of top-level records discarded because of the
+	 * {@link #setRecordLimit record limit}.
+	 * <p>Each top-level <code>bean</code> element carries the bean name, the bean
+	 * class, the creating thread, the wall time in nanoseconds (total and excluding
+	 * nested bean creations) and the allocated bytes. Nested <code>phase</code>
+	 * elements carry the same measurements per creation phase, with the bean
+	 * creations triggered by that phase as child elements.
+	 * @param writer the Writer to write to
+	 * @throws IOException if thrown by the Writer
+	 */
+	public void writeReport(Writer writer) throws IOException {
+		List records;
+		int recordedBeanCount;
+		int discardedRecordCount;
+		synchronized (this.records) {
+			records = new ArrayList(this.records);
+			recordedBeanCount = this.recordedBeanCount;
+			discardedRecordCount = this.discardedRecordCount;
+		}
+		writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		writer.write("<bean-creation-report beans=\"" + recordedBeanCount + "\"");
+		if (discardedRecordCount > 0) {
+			writer.write(" discarded-records=\"" + discardedRecordCount + "\"");
+		}
+		writer.write(" allocation-tracking=\"" + allocationCounter.isSupported() + "\">\n");
+		for (Iterator it = records.iterator(); it.hasNext();) {
+			writeRecord((BeanCreationRecord) it.next(), writer, 1);
+		}
+		writer.write("</bean-creation-report>\n");
+	}
+
+	private void writeRecord(BeanCreationRecord record, Writer writer, int depth) throws IOException {
+		indent(writer, depth);
+		writer.write("<bean name=\"" + escape(record.getBeanName()) + "\"");
+		if (record.getBeanClassName() != null) {
+			writer.write(" class=\"" + escape(record.getBeanClassName()) + "\"");
+		}
+		if (record.parent == null) {
+			writer.write(" thread=\"" + escape(record.getThreadName()) + "\"");
+		}
+		writer.write(" time-ns=\"" + record.getElapsedNanos() + "\"");
+		writer.write(" self-time-ns=\"" + record.getSelfNanos() + "\"");
+		writer.write(" allocated-bytes=\"" + record.getAllocatedBytes() + "\"");
+		writeChildren(record.children, writer, depth);
+		if (!record.children.isEmpty()) {
+			indent(writer, depth);
+			writer.write("</bean>\n");
+		}
+	}
+
+	private void writePhase(PhaseRecord phase, Writer writer, int depth) throws IOException {
+		indent(writer, depth);
+		writer.write("<phase name=\"" + escape(phase.getPhaseName()) + "\"");
+		writer.write(" time-ns=\"" + phase.getElapsedNanos() + "\"");
+		writer.write(" allocated-bytes=\"" + phase.getAllocatedBytes() + "\"");
+		writeChildren(phase.children, writer, depth);
+		if (!phase.children.isEmpty()) {
+			indent(writer, depth);
+			writer.write("</phase>\n");
+		}
+	}
+
+	private void writeChildren(List children, Writer writer, int depth) throws IOException {
+		if (children.isEmpty()) {
+			writer.write("/>\n");
+			return;
+		}
+		writer.write(">\n");
+		for (Iterator it = children.iterator(); it.hasNext();) {
+			Object child = it.next();
+			if (child instanceof PhaseRecord) {
+				writePhase((PhaseRecord) child, writer, depth + 1);
+			}
+			else {
+				writeRecord((BeanCreationRecord) child, writer, depth + 1);
+			}
+		}
+	}
+
+	private void indent(Writer writer, int depth) throws IOException {
+		for (int i = 0; i < depth; i++) {
+			writer.write('\t');
+		}
+	}
+
+	private String escape(String value) {
+		StringBuffer sb = new StringBuffer(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '<': sb.append("&lt;"); break;
+				case '>': sb.append("&gt;"); break;
+				case '&': sb.append("&amp;"); break;
+				case '"': sb.append("&quot;"); break;
+				default: sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * Common base class for bean creation records and phase records.
+	 */
+	public static abstract class ProfilingRecord {
+
+		private final long startNanos;
+
+		private final long startBytes;
+
+		private long elapsedNanos;
+
+		private long allocatedBytes = -1;
+
+		/** Nested records, in order of completion */
+		final List children = new ArrayList(4);
+
+		ProfilingRecord(long startNanos, long startBytes) {
+			this.startNanos = startNanos;
+			this.startBytes = startBytes;
+		}
+
+		void finish(long endNanos, long endBytes) {
+			this.elapsedNanos = endNanos - this.startNanos;
+			if (this.startBytes >= 0 && endBytes >= 0) {
+				this.allocatedBytes = endBytes - this.startBytes;
+			}
+		}
+
+		/**
+		 * Return the wall time spent, in nanoseconds.
+		 */
+		public long getElapsedNanos() {
+			return this.elapsedNanos;
+		}
+
+		/**
+		 * Return the number of bytes allocated by the creating thread,
+		 * or -1 if not measured.
+		 */
+		public long getAllocatedBytes() {
+			return this.allocatedBytes;
+		}
+
+		/**
+		 * Return the nested records: {@link PhaseRecord PhaseRecords} as well as
+		 * {@link BeanCreationRecord BeanCreationRecords} for the beans created
+		 * in the course of this record.
+		 */
+		public List getChildren() {
+			return Collections.unmodifiableList(this.children);
+		}
+	}
+
+
+	/**
+	 * Record for the creation of a single bean.
+	 */
+	public static class BeanCreationRecord extends ProfilingRecord {
+
+		private final String beanName;
+
+		private final BeanCreationRecord parent;
+
+		private final String threadName;
+
+		private String beanClassName;
+
+		private boolean created;
+
+		private PhaseRecord currentPhase;
+
+		BeanCreationRecord(String beanName, BeanCreationRecord parent, String threadName,
+				long startNanos, long startBytes) {
+
+			super(startNanos, startBytes);
+			this.beanName = beanName;
+			this.parent = parent;
+			this.threadName = threadName;
+		}
+
+		/**
+		 * Return the name of the bean.
+		 */
+		public String getBeanName() {
+			return this.beanName;
+		}
+
+		/**
+		 * Return the name of the bean class as defined, if known.
+		 */
+		public String getBeanClassName() {
+			return this.beanClassName;
+		}
+
+		/**
+		 * Return the name of the thread that created the bean.
+		 */
+		public String getThreadName() {
+			return this.threadName;
+		}
+
+		/**
+		 * Return the wall time spent on this bean itself, excluding
+		 * the creation of nested beans, in nanoseconds.
+		 */
+		public long getSelfNanos() {
+			return getElapsedNanos() - getNestedBeanNanos(getChildren());
+		}
+
+		private long getNestedBeanNanos(List children) {
+			long nanos = 0;
+			for (Iterator it = children.iterator(); it.hasNext();) {
+				ProfilingRecord child = (ProfilingRecord) it.next();
+				if (child instanceof BeanCreationRecord) {
+					nanos += child.getElapsedNanos();
+				}
+				else {
+					nanos += getNestedBeanNanos(child.getChildren());
+				}
+			}
+			return nanos;
+		}
+	}
+
+
+	/**
+	 * Record for a single phase within the creation of a bean.
+	 */
+	public static class PhaseRecord extends ProfilingRecord {
+
+		private final String phaseName;
+
+		private final BeanCreationRecord owner;
+
+		private final PhaseRecord enclosingPhase;
+
+		PhaseRecord(String phaseName, BeanCreationRecord owner, PhaseRecord enclosingPhase,
+				long startNanos, long startBytes) {
+
+			super(startNanos, startBytes);
+			this.phaseName = phaseName;
+			this.owner = owner;
+			this.enclosingPhase = enclosingPhase;
+		}
+
+		/**
+		 * Return the name of the phase.
+		 */
+		public String getPhaseName() {
+			return this.phaseName;
+		}
+	}
+
+
+	/**
+	 * Reflective access to the per-thread allocation counter
+	 * of <code>com.sun.management.ThreadMXBean</code>, if available.
+	 */
+	private static class AllocationCounter {
+
+		private Object threadMXBean;
+
+		private Method allocatedBytesMethod;
+
+		public AllocationCounter() {
+			try {
+				Class sunThreadMXBeanClass = ClassUtils.forName(
+						"com.sun.management.ThreadMXBean", BeanCreationProfiler.class.getClassLoader());
+				Object bean = ManagementFactory.getThreadMXBean();
+				if (sunThreadMXBeanClass.isInstance(bean)) {
+					Method supportedMethod = sunThreadMXBeanClass.getMethod("isThreadAllocatedMemoryEnabled", new Class[0]);
+					if (((Boolean) supportedMethod.invoke(bean, new Object[0])).booleanValue()) {
+						this.allocatedBytesMethod =
+								sunThreadMXBeanClass.getMethod("getThreadAllocatedBytes", new Class[] {long.class});
+						this.threadMXBean = bean;
+					}
+				}
+			}
+			catch (Throwable ex) {
+				// Not available on this JVM: allocated bytes will not be measured.
+			}
+		}
+
+		public boolean isSupported() {
+			return (this.allocatedBytesMethod != null);
+		}
+
+		public long getAllocatedBytes() {
+			if (this.allocatedBytesMethod == null) {
+				return -1;
+			}
+			try {
+				Object[] args = new Object[] {new Long(Thread.currentThread().getId())};
+				return ((Long) this.allocatedBytesMethod.invoke(this.threadMXBean, args)).longValue();
+			}
+			catch (Throwable ex) {
+				return -1;
+			}
+		}
+	}
+
+}
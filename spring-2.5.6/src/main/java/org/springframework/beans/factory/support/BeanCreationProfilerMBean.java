@@ -0,0 +1,59 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+/**
+ * Standard JMX management interface for {@link BeanCreationProfiler}.
+ *
+ * @author agent
+ * @since 2.5.6
+ */
+public interface BeanCreationProfilerMBean {
+
+	/**
+	 * Return whether the profiler is currently recording bean creations.
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Switch recording of bean creations on or off.
+	 */
+	void setEnabled(boolean enabled);
+
+	/**
+	 * Return the number of bean creations recorded so far.
+	 */
+	int getRecordedBeanCount();
+
+	/**
+	 * Return the total wall time spent in top-level bean creations
+	 * recorded so far, in milliseconds.
+	 */
+	long getTotalTimeMillis();
+
+	/**
+	 * Return an XML report of all bean creations recorded so far.
+	 * @see BeanCreationProfiler#writeReport
+	 */
+	String getReport();
+
+	/**
+	 * Discard all bean creations recorded so far.
+	 */
+	void reset();
+
+}
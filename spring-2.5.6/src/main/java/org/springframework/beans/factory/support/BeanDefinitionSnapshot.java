@@ -0,0 +1,915 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.BeanMetadataAttributeAccessor;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanNameReference;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.core.ConfigurableObjectInputStream;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Recorded outcome of loading bean definitions into a registry: the bean
+ * definitions, aliases and removals that a reader (including any namespace
+ * handlers involved) applied to the registry, in their original order,
+ * plus the last-modified timestamps of the resources that were read.
+ *
+ * <p>A snapshot can be written to a compact binary form and read back on a
+ * later startup, replaying the recorded registrations instead of parsing
+ * the original resources again. {@link #isUpToDate} checks the recorded
+ * timestamps as well as the registry state that the recording started from.
+ * Loads whose outcome depends on anything other than the recorded resources,
+ * such as class path scanning or resource pattern imports, need to be
+ * {@link #markNotRecordable marked as not recordable}.
+ *
+ * <p>Bean definitions are stored field by field. Supported values are the
+ * standard bean definition metadata elements (typed String values, bean
+ * references, inner bean definitions, managed collections) plus any
+ * serializable value. Configuration sources are not retained; resource
+ * descriptions are. Annotated bean definitions (e.g. from component scanning)
+ * are restored as {@link GenericBeanDefinition GenericBeanDefinitions},
+ * since their annotation metadata is only relevant while scanning.
+ *
+ * @author agent
+ * @since 2.5.6
+ * @see #startRecording
+ * @see #registerWith
+ * @see org.springframework.beans.factory.xml.XmlBeanDefinitionReader#setSnapshotDirectory
+ */
+public class BeanDefinitionSnapshot {
+
+	private static final int SNAPSHOT_MAGIC = 0x53425344;
+
+	private static final int SNAPSHOT_VERSION = 1;
+
+	private static final byte REGISTER_OPERATION = 1;
+
+	private static final byte REMOVE_OPERATION = 2;
+
+	private static final byte ALIAS_OPERATION = 3;
+
+	private static final byte REMOVE_ALIAS_OPERATION = 4;
+
+	private static final byte ROOT_BEAN_DEFINITION = 1;
+
+	private static final byte CHILD_BEAN_DEFINITION = 2;
+
+	private static final byte GENERIC_BEAN_DEFINITION = 3;
+
+	private static final byte NULL_VALUE = 0;
+
+	private static final byte STRING_VALUE = 1;
+
+	private static final byte TYPED_STRING_VALUE = 2;
+
+	private static final byte BEAN_REFERENCE_VALUE = 3;
+
+	private static final byte BEAN_NAME_REFERENCE_VALUE = 4;
+
+	private static final byte BEAN_DEFINITION_HOLDER_VALUE = 5;
+
+	private static final byte BEAN_DEFINITION_VALUE = 6;
+
+	private static final byte MANAGED_LIST_VALUE = 7;
+
+	private static final byte MANAGED_SET_VALUE = 8;
+
+	private static final byte MANAGED_MAP_VALUE = 9;
+
+	private static final byte MANAGED_PROPERTIES_VALUE = 10;
+
+	private static final byte SERIALIZED_VALUE = 11;
+
+	private static final byte LOOKUP_OVERRIDE = 1;
+
+	private static final byte REPLACE_OVERRIDE = 2;
+
+
+	private final String key;
+
+	private String registryFingerprint;
+
+	private final List resourceUrls = new ArrayList();
+
+	private final List resourceTimestamps = new ArrayList();
+
+	private final List operations = new ArrayList();
+
+	private int loadCount;
+
+	private String notRecordableReason;
+
+
+	/**
+	 * Create a new, empty BeanDefinitionSnapshot.
+	 * @param key the key that identifies the loaded configuration,
+	 * e.g. the concatenated resource locations
+	 */
+	public BeanDefinitionSnapshot(String key) {
+		this.key = key;
+	}
+
+
+	/**
+	 * Return the key that identifies the loaded configuration.
+	 */
+	public String getKey() {
+		return this.key;
+	}
+
+	/**
+	 * Start recording the registrations applied to the given registry.
+	 * @param registry the registry to load bean definitions into
+	 * @return a registry to be used by the reader, delegating to the
+	 * given registry and recording all modifications in this snapshot
+	 */
+	public BeanDefinitionRegistry startRecording(BeanDefinitionRegistry registry) {
+		this.registryFingerprint = buildRegistryFingerprint(registry);
+		return new RecordingBeanDefinitionRegistry(registry);
+	}
+
+	/**
+	 * Register the given resource as read while recording, storing its
+	 * current last-modified timestamp. A resource without timestamp
+	 * renders this snapshot non-recordable.
+	 * @param resource the resource that has been read
+	 */
+	public void addResource(Resource resource) {
+		try {
+			String url = resource.getURL().toString();
+			if (!this.resourceUrls.contains(url)) {
+				this.resourceTimestamps.add(new Long(determineTimestamp(resource)));
+				this.resourceUrls.add(url);
+			}
+		}
+		catch (IOException ex) {
+			this.notRecordableReason = "Cannot determine URL and timestamp of " + resource + ": " + ex.getMessage();
+		}
+	}
+
+	/**
+	 * Mark the recorded load as not restorable from this snapshot, for example
+	 * because it depends on resources that cannot be checked for modifications
+	 * (such as the results of class path scanning or of resource patterns).
+	 * @param reason a description of the reason
+	 */
+	public void markNotRecordable(String reason) {
+		if (this.notRecordableReason == null) {
+			this.notRecordableReason = reason;
+		}
+	}
+
+	/**
+	 * Return whether the given resource has been read for this snapshot.
+	 */
+	public boolean containsResource(Resource resource) {
+		try {
+			return this.resourceUrls.contains(resource.getURL().toString());
+		}
+		catch (IOException ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * Set the number of bean definitions found by the recorded load.
+	 */
+	public void setLoadCount(int loadCount) {
+		this.loadCount = loadCount;
+	}
+
+	/**
+	 * Return the number of bean definitions found by the recorded load.
+	 */
+	public int getLoadCount() {
+		return this.loadCount;
+	}
+
+	/**
+	 * Return whether the recorded load can be restored from this snapshot later on.
+	 * @return <code>null</code> if recordable, or a description of the reason otherwise
+	 */
+	public String getNotRecordableReason() {
+		return this.notRecordableReason;
+	}
+
+	/**
+	 * Check whether this snapshot is still valid for the given registry:
+	 * that is, whether the registry holds the same bean definition names as
+	 * at recording time and none of the read resources have been modified since.
+	 * @param registry the registry to load the bean definitions into
+	 */
+	public boolean isUpToDate(BeanDefinitionRegistry registry) {
+		if (!ObjectUtils.nullSafeEquals(this.registryFingerprint, buildRegistryFingerprint(registry))) {
+			return false;
+		}
+		for (int i = 0; i < this.resourceUrls.size(); i++) {
+			String url = (String) this.resourceUrls.get(i);
+			long timestamp = ((Long) this.resourceTimestamps.get(i)).longValue();
+			try {
+				if (determineTimestamp(new UrlResource(url)) != timestamp) {
+					return false;
+				}
+			}
+			catch (IOException ex) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Replay the recorded registrations against the given registry.
+	 * @param registry the registry to load the bean definitions into
+	 * @return the number of bean definitions found by the recorded load
+	 * @throws BeanDefinitionStoreException in case of registration failure
+	 */
+	public int registerWith(BeanDefinitionRegistry registry) throws BeanDefinitionStoreException {
+		for (Iterator it = this.operations.iterator(); it.hasNext();) {
+			Operation operation = (Operation) it.next();
+			switch (operation.type) {
+				case REGISTER_OPERATION:
+					registry.registerBeanDefinition(operation.name, operation.beanDefinition);
+					break;
+				case REMOVE_OPERATION:
+					registry.removeBeanDefinition(operation.name);
+					break;
+				case ALIAS_OPERATION:
+					registry.registerAlias(operation.name, operation.alias);
+					break;
+				case REMOVE_ALIAS_OPERATION:
+					registry.removeAlias(operation.alias);
+					break;
+			}
+		}
+		return this.loadCount;
+	}
+
+
+	//---------------------------------------------------------------------
+	// Binary representation
+	//---------------------------------------------------------------------
+
+	/**
+	 * Write this snapshot to the given stream. The stream will not be closed.
+	 * @param outputStream the stream to write to
+	 * @throws IOException in case of I/O errors, or if the recorded bean
+	 * definitions contain values that cannot be stored
+	 */
+	public void writeTo(OutputStream outputStream) throws IOException {
+		if (this.notRecordableReason != null) {
+			throw new NotSerializableException(this.notRecordableReason);
+		}
+		ObjectOutputStream out = new ObjectOutputStream(outputStream);
+		out.writeInt(SNAPSHOT_MAGIC);
+		out.writeInt(SNAPSHOT_VERSION);
+		out.writeObject(this.key);
+		out.writeObject(this.registryFingerprint);
+		out.writeInt(this.resourceUrls.size());
+		for (int i = 0; i < this.resourceUrls.size(); i++) {
+			out.writeObject(this.resourceUrls.get(i));
+			out.writeLong(((Long) this.resourceTimestamps.get(i)).longValue());
+		}
+		out.writeInt(this.loadCount);
+		out.writeInt(this.operations.size());
+		for (Iterator it = this.operations.iterator(); it.hasNext();) {
+			Operation operation = (Operation) it.next();
+			out.writeByte(operation.type);
+			out.writeObject(operation.name);
+			out.writeObject(operation.alias);
+			if (operation.type == REGISTER_OPERATION) {
+				writeBeanDefinition(out, operation.beanDefinition);
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Read a snapshot from the given stream. The stream will not be closed.
+	 * @param inputStream the stream to read from
+	 * @param classLoader the ClassLoader to resolve serialized values and
+	 * pre-resolved bean classes against (may be <code>null</code>)
+	 * @return the snapshot
+	 * @throws IOException in case of I/O errors or an unsupported snapshot format
+	 * @throws ClassNotFoundException if a stored class cannot be resolved
+	 */
+	public static BeanDefinitionSnapshot readFrom(InputStream inputStream, ClassLoader classLoader)
+			throws IOException, ClassNotFoundException {
+
+		ObjectInputStream in = new ConfigurableObjectInputStream(inputStream, classLoader);
+		if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+			throw new StreamCorruptedException("Not a bean definition snapshot of version " + SNAPSHOT_VERSION);
+		}
+		BeanDefinitionSnapshot snapshot = new BeanDefinitionSnapshot((String) in.readObject());
+		snapshot.registryFingerprint = (String) in.readObject();
+		int resourceCount = in.readInt();
+		for (int i = 0; i < resourceCount; i++) {
+			snapshot.resourceUrls.add(in.readObject());
+			snapshot.resourceTimestamps.add(new Long(in.readLong()));
+		}
+		snapshot.loadCount = in.readInt();
+		int operationCount = in.readInt();
+		for (int i = 0; i < operationCount; i++) {
+			byte type = in.readByte();
+			String name = (String) in.readObject();
+			String alias = (String) in.readObject();
+			BeanDefinition beanDefinition = null;
+			if (type == REGISTER_OPERATION) {
+				beanDefinition = readBeanDefinition(in, classLoader);
+			}
+			snapshot.operations.add(new Operation(type, name, alias, beanDefinition));
+		}
+		return snapshot;
+	}
+
+	private static void writeBeanDefinition(ObjectOutputStream out, BeanDefinition bd) throws IOException {
+		if (!(bd instanceof AbstractBeanDefinition)) {
+			throw new NotSerializableException("Unsupported bean definition type: " + bd.getClass().getName());
+		}
+		AbstractBeanDefinition abd = (AbstractBeanDefinition) bd;
+		if (abd instanceof RootBeanDefinition) {
+			out.writeByte(ROOT_BEAN_DEFINITION);
+		}
+		else if (abd instanceof ChildBeanDefinition) {
+			out.writeByte(CHILD_BEAN_DEFINITION);
+		}
+		else if (abd instanceof GenericBeanDefinition) {
+			out.writeByte(GENERIC_BEAN_DEFINITION);
+		}
+		else {
+			throw new NotSerializableException("Unsupported bean definition type: " + bd.getClass().getName());
+		}
+		out.writeObject(abd.getParentName());
+		out.writeObject(abd.getBeanClassName());
+		out.writeBoolean(abd.hasBeanClass());
+		out.writeObject(abd.getScope());
+		out.writeBoolean(abd.isAbstract());
+		out.writeBoolean(abd.isLazyInit());
+		out.writeInt(abd.getAutowireMode());
+		out.writeInt(abd.getDependencyCheck());
+		out.writeObject(abd.getDependsOn());
+		out.writeBoolean(abd.isAutowireCandidate());
+		out.writeBoolean(abd.isPrimary());
+		Set qualifiers = abd.getQualifiers();
+		out.writeInt(qualifiers.size());
+		for (Iterator it = qualifiers.iterator(); it.hasNext();) {
+			AutowireCandidateQualifier qualifier = (AutowireCandidateQualifier) it.next();
+			out.writeObject(qualifier.getTypeName());
+			writeAttributes(out, qualifier);
+		}
+		writeConstructorArgumentValues(out, abd.getConstructorArgumentValues());
+		writePropertyValues(out, abd.getPropertyValues());
+		writeMethodOverrides(out, abd.getMethodOverrides());
+		out.writeObject(abd.getFactoryBeanName());
+		out.writeObject(abd.getFactoryMethodName());
+		out.writeObject(abd.getInitMethodName());
+		out.writeBoolean(abd.isEnforceInitMethod());
+		out.writeObject(abd.getDestroyMethodName());
+		out.writeBoolean(abd.isEnforceDestroyMethod());
+		out.writeBoolean(abd.isSynthetic());
+		out.writeInt(abd.getRole());
+		out.writeObject(abd.getDescription());
+		BeanDefinition originatingBd = abd.getOriginatingBeanDefinition();
+		out.writeBoolean(originatingBd != null);
+		if (originatingBd != null) {
+			writeBeanDefinition(out, originatingBd);
+		}
+		else {
+			out.writeObject(abd.getResourceDescription());
+		}
+		writeAttributes(out, abd);
+	}
+
+	private static BeanDefinition readBeanDefinition(ObjectInputStream in, ClassLoader classLoader)
+			throws IOException, ClassNotFoundException {
+
+		byte type = in.readByte();
+		String parentName = (String) in.readObject();
+		AbstractBeanDefinition abd = null;
+		switch (type) {
+			case ROOT_BEAN_DEFINITION:
+				abd = new RootBeanDefinition();
+				break;
+			case CHILD_BEAN_DEFINITION:
+				abd = new ChildBeanDefinition(parentName);
+				break;
+			case GENERIC_BEAN_DEFINITION:
+				abd = new GenericBeanDefinition();
+				abd.setParentName(parentName);
+				break;
+			default:
+				throw new StreamCorruptedException("Unknown bean definition type: " + type);
+		}
+		String beanClassName = (String) in.readObject();
+		boolean hasBeanClass = in.readBoolean();
+		if (hasBeanClass) {
+			abd.setBeanClass(ClassUtils.forName(beanClassName, classLoader));
+		}
+		else {
+			abd.setBeanClassName(beanClassName);
+		}
+		abd.setScope((String) in.readObject());
+		abd.setAbstract(in.readBoolean());
+		abd.setLazyInit(in.readBoolean());
+		abd.setAutowireMode(in.readInt());
+		abd.setDependencyCheck(in.readInt());
+		abd.setDependsOn((String[]) in.readObject());
+		abd.setAutowireCandidate(in.readBoolean());
+		abd.setPrimary(in.readBoolean());
+		int qualifierCount = in.readInt();
+		for (int i = 0; i < qualifierCount; i++) {
+			AutowireCandidateQualifier qualifier = new AutowireCandidateQualifier((String) in.readObject());
+			readAttributes(in, classLoader, qualifier);
+			abd.addQualifier(qualifier);
+		}
+		readConstructorArgumentValues(in, classLoader, abd.getConstructorArgumentValues());
+		readPropertyValues(in, classLoader, abd.getPropertyValues());
+		readMethodOverrides(in, abd.getMethodOverrides());
+		abd.setFactoryBeanName((String) in.readObject());
+		abd.setFactoryMethodName((String) in.readObject());
+		abd.setInitMethodName((String) in.readObject());
+		abd.setEnforceInitMethod(in.readBoolean());
+		abd.setDestroyMethodName((String) in.readObject());
+		abd.setEnforceDestroyMethod(in.readBoolean());
+		abd.setSynthetic(in.readBoolean());
+		abd.setRole(in.readInt());
+		abd.setDescription((String) in.readObject());
+		if (in.readBoolean()) {
+			abd.setOriginatingBeanDefinition(readBeanDefinition(in, classLoader));
+		}
+		else {
+			String resourceDescription = (String) in.readObject();
+			if (resourceDescription != null) {
+				abd.setResourceDescription(resourceDescription);
+			}
+		}
+		readAttributes(in, classLoader, abd);
+		return abd;
+	}
+
+	private static void writeConstructorArgumentValues(ObjectOutputStream out, ConstructorArgumentValues cargs)
+			throws IOException {
+
+		Map indexedValues = cargs.getIndexedArgumentValues();
+		out.writeInt(indexedValues.size());
+		for (Iterator it = indexedValues.entrySet().iterator(); it.hasNext();) {
+			Map.Entry entry = (Map.Entry) it.next();
+			out.writeInt(((Integer) entry.getKey()).intValue());
+			writeValueHolder(out, (ConstructorArgumentValues.ValueHolder) entry.getValue());
+		}
+		List genericValues = cargs.getGenericArgumentValues();
+		out.writeInt(genericValues.size());
+		for (Iterator it = genericValues.iterator(); it.hasNext();) {
+			writeValueHolder(out, (ConstructorArgumentValues.ValueHolder) it.next());
+		}
+	}
+
+	private static void readConstructorArgumentValues(
+			ObjectInputStream in, ClassLoader classLoader, ConstructorArgumentValues cargs)
+			throws IOException, ClassNotFoundException {
+
+		int indexedCount = in.readInt();
+		for (int i = 0; i < indexedCount; i++) {
+			int index = in.readInt();
+			cargs.addIndexedArgumentValue(index, readValueHolder(in, classLoader));
+		}
+		int genericCount = in.readInt();
+		for (int i = 0; i < genericCount; i++) {
+			cargs.addGenericArgumentValue(readValueHolder(in, classLoader));
+		}
+	}
+
+	private static void writeValueHolder(ObjectOutputStream out, ConstructorArgumentValues.ValueHolder valueHolder)
+			throws IOException {
+
+		writeValue(out, valueHolder.getValue());
+		out.writeObject(valueHolder.getType());
+	}
+
+	private static ConstructorArgumentValues.ValueHolder readValueHolder(ObjectInputStream in, ClassLoader classLoader)
+			throws IOException, ClassNotFoundException {
+
+		Object value = readValue(in, classLoader);
+		return new ConstructorArgumentValues.ValueHolder(value, (String) in.readObject());
+	}
+
+	private static void writePropertyValues(ObjectOutputStream out, MutablePropertyValues pvs) throws IOException {
+		PropertyValue[] pvArray = pvs.getPropertyValues();
+		out.writeInt(pvArray.length);
+		for (int i = 0; i < pvArray.length; i++) {
+			out.writeObject(pvArray[i].getName());
+			writeValue(out, pvArray[i].getValue());
+			writeAttributes(out, pvArray[i]);
+		}
+	}
+
+	private static void readPropertyValues(ObjectInputStream in, ClassLoader classLoader, MutablePropertyValues pvs)
+			throws IOException, ClassNotFoundException {
+
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			String name = (String) in.readObject();
+			PropertyValue pv = new PropertyValue(name, readValue(in, classLoader));
+			readAttributes(in, classLoader, pv);
+			pvs.addPropertyValue(pv);
+		}
+	}
+
+	private static void writeMethodOverrides(ObjectOutputStream out, MethodOverrides overrides) throws IOException {
+		Set overrideSet = overrides.getOverrides();
+		out.writeInt(overrideSet.size());
+		for (Iterator it = overrideSet.iterator(); it.hasNext();) {
+			MethodOverride override = (MethodOverride) it.next();
+			if (override instanceof LookupOverride) {
+				out.writeByte(LOOKUP_OVERRIDE);
+				out.writeObject(override.getMethodName());
+				out.writeObject(((LookupOverride) override).getBeanName());
+			}
+			else if (override instanceof ReplaceOverride) {
+				ReplaceOverride replaceOverride = (ReplaceOverride) override;
+				out.writeByte(REPLACE_OVERRIDE);
+				out.writeObject(override.getMethodName());
+				out.writeObject(replaceOverride.getMethodReplacerBeanName());
+				out.writeObject(replaceOverride.getTypeIdentifiers().toArray(new String[0]));
+			}
+			else {
+				throw new NotSerializableException("Unsupported method override type: " + override.getClass().getName());
+			}
+			out.writeBoolean(override.isOverloaded());
+		}
+	}
+
+	private static void readMethodOverrides(ObjectInputStream in, MethodOverrides overrides)
+			throws IOException, ClassNotFoundException {
+
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			byte type = in.readByte();
+			MethodOverride override = null;
+			if (type == LOOKUP_OVERRIDE) {
+				override = new LookupOverride((String) in.readObject(), (String) in.readObject());
+			}
+			else if (type == REPLACE_OVERRIDE) {
+				ReplaceOverride replaceOverride = new ReplaceOverride((String) in.readObject(), (String) in.readObject());
+				String[] typeIdentifiers = (String[]) in.readObject();
+				for (int j = 0; j < typeIdentifiers.length; j++) {
+					replaceOverride.addTypeIdentifier(typeIdentifiers[j]);
+				}
+				override = replaceOverride;
+			}
+			else {
+				throw new StreamCorruptedException("Unknown method override type: " + type);
+			}
+			override.setOverloaded(in.readBoolean());
+			overrides.addOverride(override);
+		}
+	}
+
+	private static void writeAttributes(ObjectOutputStream out, BeanMetadataAttributeAccessor accessor)
+			throws IOException {
+
+		String[] names = accessor.attributeNames();
+		out.writeInt(names.length);
+		for (int i = 0; i < names.length; i++) {
+			out.writeObject(names[i]);
+			writeValue(out, accessor.getAttribute(names[i]));
+		}
+	}
+
+	private static void readAttributes(ObjectInputStream in, ClassLoader classLoader,
+			BeanMetadataAttributeAccessor accessor) throws IOException, ClassNotFoundException {
+
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			String name = (String) in.readObject();
+			accessor.setAttribute(name, readValue(in, classLoader));
+		}
+	}
+
+	private static void writeValue(ObjectOutputStream out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL_VALUE);
+		}
+		else if (value instanceof String) {
+			out.writeByte(STRING_VALUE);
+			out.writeObject(value);
+		}
+		else if (value instanceof TypedStringValue) {
+			TypedStringValue typedValue = (TypedStringValue) value;
+			out.writeByte(TYPED_STRING_VALUE);
+			out.writeObject(typedValue.getValue());
+			out.writeObject(typedValue.getTargetTypeName());
+		}
+		else if (value instanceof RuntimeBeanReference) {
+			RuntimeBeanReference ref = (RuntimeBeanReference) value;
+			out.writeByte(BEAN_REFERENCE_VALUE);
+			out.writeObject(ref.getBeanName());
+			out.writeBoolean(ref.isToParent());
+		}
+		else if (value instanceof RuntimeBeanNameReference) {
+			out.writeByte(BEAN_NAME_REFERENCE_VALUE);
+			out.writeObject(((RuntimeBeanNameReference) value).getBeanName());
+		}
+		else if (value instanceof BeanDefinitionHolder) {
+			BeanDefinitionHolder holder = (BeanDefinitionHolder) value;
+			out.writeByte(BEAN_DEFINITION_HOLDER_VALUE);
+			out.writeObject(holder.getBeanName());
+			out.writeObject(holder.getAliases());
+			writeBeanDefinition(out, holder.getBeanDefinition());
+		}
+		else if (value instanceof BeanDefinition) {
+			out.writeByte(BEAN_DEFINITION_VALUE);
+			writeBeanDefinition(out, (BeanDefinition) value);
+		}
+		else if (value instanceof ManagedList) {
+			ManagedList list = (ManagedList) value;
+			out.writeByte(MANAGED_LIST_VALUE);
+			out.writeBoolean(list.isMergeEnabled());
+			writeElements(out, list);
+		}
+		else if (value instanceof ManagedSet) {
+			ManagedSet set = (ManagedSet) value;
+			out.writeByte(MANAGED_SET_VALUE);
+			out.writeBoolean(set.isMergeEnabled());
+			writeElements(out, set);
+		}
+		else if (value instanceof ManagedMap) {
+			ManagedMap map = (ManagedMap) value;
+			out.writeByte(MANAGED_MAP_VALUE);
+			out.writeBoolean(map.isMergeEnabled());
+			writeEntries(out, map);
+		}
+		else if (value instanceof ManagedProperties) {
+			ManagedProperties props = (ManagedProperties) value;
+			out.writeByte(MANAGED_PROPERTIES_VALUE);
+			out.writeBoolean(props.isMergeEnabled());
+			writeEntries(out, props);
+		}
+		else {
+			// Will throw NotSerializableException for non-serializable values.
+			out.writeByte(SERIALIZED_VALUE);
+			out.writeObject(value);
+		}
+	}
+
+	private static Object readValue(ObjectInputStream in, ClassLoader classLoader)
+			throws IOException, ClassNotFoundException {
+
+		byte type = in.readByte();
+		switch (type) {
+			case NULL_VALUE:
+				return null;
+			case STRING_VALUE:
+				return in.readObject();
+			case TYPED_STRING_VALUE:
+				TypedStringValue typedValue = new TypedStringValue((String) in.readObject());
+				String targetTypeName = (String) in.readObject();
+				if (targetTypeName != null) {
+					typedValue.setTargetTypeName(targetTypeName);
+				}
+				return typedValue;
+			case BEAN_REFERENCE_VALUE:
+				return new RuntimeBeanReference((String) in.readObject(), in.readBoolean());
+			case BEAN_NAME_REFERENCE_VALUE:
+				return new RuntimeBeanNameReference((String) in.readObject());
+			case BEAN_DEFINITION_HOLDER_VALUE:
+				String beanName = (String) in.readObject();
+				String[] aliases = (String[]) in.readObject();
+				return new BeanDefinitionHolder(readBeanDefinition(in, classLoader), beanName, aliases);
+			case BEAN_DEFINITION_VALUE:
+				return readBeanDefinition(in, classLoader);
+			case MANAGED_LIST_VALUE:
+				ManagedList list = new ManagedList();
+				list.setMergeEnabled(in.readBoolean());
+				readElements(in, classLoader, list);
+				return list;
+			case MANAGED_SET_VALUE:
+				ManagedSet set = new ManagedSet();
+				set.setMergeEnabled(in.readBoolean());
+				readElements(in, classLoader, set);
+				return set;
+			case MANAGED_MAP_VALUE:
+				ManagedMap map = new ManagedMap();
+				map.setMergeEnabled(in.readBoolean());
+				readEntries(in, classLoader, map);
+				return map;
+			case MANAGED_PROPERTIES_VALUE:
+				ManagedProperties props = new ManagedProperties();
+				props.setMergeEnabled(in.readBoolean());
+				readEntries(in, classLoader, props);
+				return props;
+			case SERIALIZED_VALUE:
+				return in.readObject();
+			default:
+				throw new StreamCorruptedException("Unknown value type: " + type);
+		}
+	}
+
+	private static void writeElements(ObjectOutputStream out, java.util.Collection elements) throws IOException {
+		out.writeInt(elements.size());
+		for (Iterator it = elements.iterator(); it.hasNext();) {
+			writeValue(out, it.next());
+		}
+	}
+
+	private static void readElements(ObjectInputStream in, ClassLoader classLoader, java.util.Collection elements)
+			throws IOException, ClassNotFoundException {
+
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			elements.add(readValue(in, classLoader));
+		}
+	}
+
+	private static void writeEntries(ObjectOutputStream out, Map entries) throws IOException {
+		out.writeInt(entries.size());
+		for (Iterator it = entries.entrySet().iterator(); it.hasNext();) {
+			Map.Entry entry = (Map.Entry) it.next();
+			writeValue(out, entry.getKey());
+			writeValue(out, entry.getValue());
+		}
+	}
+
+	private static void readEntries(ObjectInputStream in, ClassLoader classLoader, Map entries)
+			throws IOException, ClassNotFoundException {
+
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			Object key = readValue(in, classLoader);
+			entries.put(key, readValue(in, classLoader));
+		}
+	}
+
+
+	//---------------------------------------------------------------------
+	// Helpers
+	//---------------------------------------------------------------------
+
+	/**
+	 * Build a fingerprint of the bean definition names in the given registry.
+	 */
+	private static String buildRegistryFingerprint(BeanDefinitionRegistry registry) {
+		String[] beanNames = registry.getBeanDefinitionNames();
+		return beanNames.length + ":" + ObjectUtils.nullSafeHashCode(beanNames);
+	}
+
+	/**
+	 * Determine the last-modified timestamp of the given resource,
+	 * also supporting resources in jar files.
+	 */
+	private static long determineTimestamp(Resource resource) throws IOException {
+		try {
+			return resource.lastModified();
+		}
+		catch (IOException ex) {
+			// Not a file in the file system: ask the URL connection.
+			URL url = resource.getURL();
+			URLConnection con = url.openConnection();
+			con.setUseCaches(false);
+			long timestamp = con.getLastModified();
+			if (timestamp == 0) {
+				throw new IOException("No last-modified timestamp available for " + url);
+			}
+			return timestamp;
+		}
+	}
+
+
+	/**
+	 * A recorded registry modification.
+	 */
+	private static class Operation {
+
+		public final byte type;
+
+		public final String name;
+
+		public final String alias;
+
+		public final BeanDefinition beanDefinition;
+
+		public Operation(byte type, String name, String alias, BeanDefinition beanDefinition) {
+			this.type = type;
+			this.name = name;
+			this.alias = alias;
+			this.beanDefinition = beanDefinition;
+		}
+	}
+
+
+	/**
+	 * BeanDefinitionRegistry decorator that records all modifications.
+	 * Bean definitions get stored in their state at writing time, so changes
+	 * applied after registration are captured as well - unless they affect
+	 * bean definitions that existed before recording started, in which case
+	 * this snapshot is marked as non-recordable.
+	 */
+	private class RecordingBeanDefinitionRegistry implements BeanDefinitionRegistry {
+
+		private final BeanDefinitionRegistry targetRegistry;
+
+		private final Set recordedBeanNames = new HashSet();
+
+		public RecordingBeanDefinitionRegistry(BeanDefinitionRegistry targetRegistry) {
+			this.targetRegistry = targetRegistry;
+		}
+
+		public void registerBeanDefinition(String beanName, BeanDefinition beanDefinition)
+				throws BeanDefinitionStoreException {
+
+			this.targetRegistry.registerBeanDefinition(beanName, beanDefinition);
+			operations.add(new Operation(REGISTER_OPERATION, beanName, null, beanDefinition));
+			this.recordedBeanNames.add(beanName);
+		}
+
+		public void removeBeanDefinition(String beanName) throws NoSuchBeanDefinitionException {
+			this.targetRegistry.removeBeanDefinition(beanName);
+			operations.add(new Operation(REMOVE_OPERATION, beanName, null, null));
+		}
+
+		public BeanDefinition getBeanDefinition(String beanName) throws NoSuchBeanDefinitionException {
+			BeanDefinition bd = this.targetRegistry.getBeanDefinition(beanName);
+			if (!this.recordedBeanNames.contains(beanName)) {
+				notRecordableReason = "Bean definition '" + beanName +
+						"' registered before loading has been accessed and possibly modified";
+			}
+			return bd;
+		}
+
+		public boolean containsBeanDefinition(String beanName) {
+			return this.targetRegistry.containsBeanDefinition(beanName);
+		}
+
+		public String[] getBeanDefinitionNames() {
+			return this.targetRegistry.getBeanDefinitionNames();
+		}
+
+		public int getBeanDefinitionCount() {
+			return this.targetRegistry.getBeanDefinitionCount();
+		}
+
+		public boolean isBeanNameInUse(String beanName) {
+			return this.targetRegistry.isBeanNameInUse(beanName);
+		}
+
+		public void registerAlias(String name, String alias) {
+			this.targetRegistry.registerAlias(name, alias);
+			operations.add(new Operation(ALIAS_OPERATION, name, alias, null));
+		}
+
+		public void removeAlias(String alias) {
+			this.targetRegistry.removeAlias(alias);
+			operations.add(new Operation(REMOVE_ALIAS_OPERATION, null, alias, null));
+		}
+
+		public boolean isAlias(String beanName) {
+			return this.targetRegistry.isAlias(beanName);
+		}
+
+		public String[] getAliases(String name) {
+			return this.targetRegistry.getAliases(name);
+		}
+	}
+
+}
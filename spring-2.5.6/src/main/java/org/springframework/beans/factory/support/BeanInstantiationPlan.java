@@ -0,0 +1,172 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.core.CollectionFactory;
+
+/**
+ * Precomputed creation metadata for a non-singleton bean definition, kept on
+ * the {@link RootBeanDefinition} in order to avoid redoing the static parts of
+ * bean creation for every new instance: the InstantiationAwareBeanPostProcessors
+ * that apply, the PropertyDescriptors relevant for dependency checks, and the
+ * properties whose values can be converted for the target bean class.
+ *
+ * <p>Complements the resolved constructor and the pre-converted property values
+ * that are cached on the bean definition itself. A plan becomes stale once the
+ * factory's BeanPostProcessors change, be it through registration of further
+ * post-processors or through replacement of an existing one.
+ *
+ * <p>Note that only the InstantiationAwareBeanPostProcessors are planned:
+ * The before- and after-initialization callbacks apply to every
+ * BeanPostProcessor anyway, leaving nothing to precompute.
+ *
+ * @author agent
+ * @since 2.5.6
+ * @see RootBeanDefinition#instantiationPlan
+ * @see AbstractAutowireCapableBeanFactory#populateBean
+ */
+final class BeanInstantiationPlan {
+
+	private final Object[] beanPostProcessors;
+
+	private final InstantiationAwareBeanPostProcessor[] instantiationAwareBeanPostProcessors;
+
+	private volatile BeanClassMetadata beanClassMetadata;
+
+
+	/**
+	 * Create a new BeanInstantiationPlan for the given BeanPostProcessors.
+	 * @param beanPostProcessors the BeanPostProcessors registered with the factory
+	 */
+	public BeanInstantiationPlan(List beanPostProcessors) {
+		this.beanPostProcessors = beanPostProcessors.toArray();
+		List instantiationAware = new ArrayList();
+		for (Iterator it = beanPostProcessors.iterator(); it.hasNext();) {
+			Object beanProcessor = it.next();
+			if (beanProcessor instanceof InstantiationAwareBeanPostProcessor) {
+				instantiationAware.add(beanProcessor);
+			}
+		}
+		this.instantiationAwareBeanPostProcessors = (InstantiationAwareBeanPostProcessor[])
+				instantiationAware.toArray(new InstantiationAwareBeanPostProcessor[instantiationAware.size()]);
+	}
+
+
+	/**
+	 * Determine whether this plan still matches the given BeanPostProcessors,
+	 * i.e. whether they are the same post-processor instances in the same order
+	 * as the ones that the plan has been built for.
+	 */
+	public boolean isValidFor(List beanPostProcessors) {
+		if (beanPostProcessors.size() != this.beanPostProcessors.length) {
+			return false;
+		}
+		int i = 0;
+		for (Iterator it = beanPostProcessors.iterator(); it.hasNext(); i++) {
+			if (it.next() != this.beanPostProcessors[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Return the InstantiationAwareBeanPostProcessors to apply, in registration order.
+	 */
+	public InstantiationAwareBeanPostProcessor[] getInstantiationAwareBeanPostProcessors() {
+		return this.instantiationAwareBeanPostProcessors;
+	}
+
+	/**
+	 * Return the filtered PropertyDescriptors for the given bean class, if known.
+	 * @param beanClass the class of the bean instance
+	 * @return the PropertyDescriptors, or <code>null</code> if not determined yet
+	 */
+	public PropertyDescriptor[] getFilteredPropertyDescriptors(Class beanClass) {
+		BeanClassMetadata metadata = this.beanClassMetadata;
+		return (metadata != null && metadata.beanClass == beanClass ? metadata.filteredPropertyDescriptors : null);
+	}
+
+	/**
+	 * Store the filtered PropertyDescriptors for the given bean class.
+	 * @param beanClass the class of the bean instance
+	 * @param pds the PropertyDescriptors to store
+	 */
+	public void setFilteredPropertyDescriptors(Class beanClass, PropertyDescriptor[] pds) {
+		getBeanClassMetadata(beanClass).filteredPropertyDescriptors = pds;
+	}
+
+	/**
+	 * Return whether values for the given property can be converted
+	 * for the given bean class, if known.
+	 * @param beanClass the class of the bean instance
+	 * @param propertyName the name of the property
+	 * @return <code>Boolean.TRUE</code> or <code>Boolean.FALSE</code>,
+	 * or <code>null</code> if not determined yet
+	 */
+	public Boolean isConvertibleProperty(Class beanClass, String propertyName) {
+		BeanClassMetadata metadata = this.beanClassMetadata;
+		return (metadata != null && metadata.beanClass == beanClass ?
+				(Boolean) metadata.convertibleProperties.get(propertyName) : null);
+	}
+
+	/**
+	 * Store whether values for the given property can be converted
+	 * for the given bean class.
+	 * @param beanClass the class of the bean instance
+	 * @param propertyName the name of the property
+	 * @param convertible whether the property is convertible
+	 */
+	public void setConvertibleProperty(Class beanClass, String propertyName, boolean convertible) {
+		getBeanClassMetadata(beanClass).convertibleProperties.put(propertyName, Boolean.valueOf(convertible));
+	}
+
+	private BeanClassMetadata getBeanClassMetadata(Class beanClass) {
+		BeanClassMetadata metadata = this.beanClassMetadata;
+		if (metadata == null || metadata.beanClass != beanClass) {
+			// Factory methods may return different classes: keep the latest one only.
+			metadata = new BeanClassMetadata(beanClass);
+			this.beanClassMetadata = metadata;
+		}
+		return metadata;
+	}
+
+
+	/**
+	 * Metadata that depends on the actual class of the created bean instance.
+	 */
+	private static class BeanClassMetadata {
+
+		public final Class beanClass;
+
+		public volatile PropertyDescriptor[] filteredPropertyDescriptors;
+
+		public final Map convertibleProperties = CollectionFactory.createConcurrentMapIfPossible(16);
+
+		public BeanClassMetadata(Class beanClass) {
+			this.beanClass = beanClass;
+		}
+	}
+
+}
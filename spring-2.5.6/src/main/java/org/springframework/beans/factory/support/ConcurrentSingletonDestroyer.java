@@ -0,0 +1,376 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+/**
+ * Helper class for destroying singletons concurrently on a {@link TaskExecutor},
+ * honoring the dependencies registered with the {@link DefaultSingletonBeanRegistry}:
+ * A singleton only gets submitted for destruction once all of the beans that depend
+ * on it (including beans that contain it as inner bean) have been destroyed.
+ *
+ * <p>Singletons that are part of a dependency cycle (and singletons that such
+ * beans depend on) are destroyed sequentially on the calling thread afterwards,
+ * in reverse registration order, just like in the default case.
+ *
+ * <p>Once the destruction timeout has expired, this destroyer gets cancelled:
+ * Destruction tasks that are still queued or running do not access the registry
+ * anymore, since the registry may have been cleared and repopulated by then.
+ * A task checks for cancellation while holding this destroyer's lock before each
+ * access to the registry; destroy callbacks are invoked outside of the lock.
+ *
+ * <p>Used by {@link DefaultSingletonBeanRegistry}.
+ *
+ * @author agent
+ * @since 2.5.6
+ * @see DefaultSingletonBeanRegistry#setDestructionExecutor
+ */
+class ConcurrentSingletonDestroyer {
+
+	private final DefaultSingletonBeanRegistry registry;
+
+	private final TaskExecutor taskExecutor;
+
+	private final Log logger;
+
+	/** Names of the beans to destroy, in destruction order for the sequential case */
+	private final List beanNames;
+
+	/** Map from bean name to the names of the beans that it depends on */
+	private final Map dependencies = new HashMap();
+
+	/** Map from bean name to the number of its dependent beans not destroyed yet */
+	private final Map pendingDependentCounts = new HashMap();
+
+	/** Beans ready for submission; guarded by this destroyer */
+	private final LinkedList readyBeans = new LinkedList();
+
+	/** Beans submitted so far; guarded by this destroyer */
+	private final Set submittedBeans = new LinkedHashSet();
+
+	/** Beans currently being destroyed; guarded by this destroyer */
+	private final Set activeBeans = new LinkedHashSet();
+
+	/** Name of the bean that took longest to destroy; guarded by this destroyer */
+	private String slowestBeanName;
+
+	/** Destruction time of the slowest bean; guarded by this destroyer */
+	private long slowestBeanMillis = -1;
+
+	/** Whether this destroyer has given up on the remaining beans; guarded by this destroyer */
+	private boolean cancelled = false;
+
+
+	/**
+	 * Create a new ConcurrentSingletonDestroyer for the given beans.
+	 * @param registry the registry to destroy the beans in
+	 * @param beanNames the names of the disposable beans to destroy,
+	 * in reverse registration order
+	 * @param dependentBeanMap a snapshot of the registry's dependent beans:
+	 * bean name --> Set of dependent bean names
+	 * @param taskExecutor the TaskExecutor to destroy the beans on
+	 */
+	public ConcurrentSingletonDestroyer(DefaultSingletonBeanRegistry registry, List beanNames,
+			Map dependentBeanMap, TaskExecutor taskExecutor) {
+
+		this.registry = registry;
+		this.taskExecutor = taskExecutor;
+		this.logger = registry.logger;
+		// Include beans that are only known as dependents, since those need to be
+		// destroyed in between in order to preserve transitive orderings.
+		Set allBeanNames = new LinkedHashSet(beanNames);
+		for (Iterator it = dependentBeanMap.entrySet().iterator(); it.hasNext();) {
+			Map.Entry entry = (Map.Entry) it.next();
+			allBeanNames.add(entry.getKey());
+			allBeanNames.addAll((Set) entry.getValue());
+		}
+		this.beanNames = new ArrayList(allBeanNames);
+		for (Iterator it = this.beanNames.iterator(); it.hasNext();) {
+			String beanName = (String) it.next();
+			Set dependents = (Set) dependentBeanMap.get(beanName);
+			int dependentCount = 0;
+			if (dependents != null) {
+				for (Iterator depIt = dependents.iterator(); depIt.hasNext();) {
+					String dependent = (String) depIt.next();
+					if (!dependent.equals(beanName)) {
+						List dependentDependencies = (List) this.dependencies.get(dependent);
+						if (dependentDependencies == null) {
+							dependentDependencies = new ArrayList(4);
+							this.dependencies.put(dependent, dependentDependencies);
+						}
+						dependentDependencies.add(beanName);
+						dependentCount++;
+					}
+				}
+			}
+			this.pendingDependentCounts.put(beanName, new Integer(dependentCount));
+		}
+	}
+
+
+	/**
+	 * Destroy all beans, returning once all of them have been destroyed
+	 * or once the given timeout has expired.
+	 * @param timeout the maximum time to wait for the destruction of all beans
+	 * (in milliseconds), or 0 for no limit
+	 * @return <code>true</code> if all beans have been destroyed,
+	 * <code>false</code> if the timeout expired before
+	 */
+	public boolean destroySingletons(long timeout) {
+		long startTime = System.currentTimeMillis();
+		long deadline = (timeout > 0 ? startTime + timeout : Long.MAX_VALUE);
+
+		synchronized (this) {
+			for (Iterator it = this.beanNames.iterator(); it.hasNext();) {
+				String beanName = (String) it.next();
+				if (((Integer) this.pendingDependentCounts.get(beanName)).intValue() == 0) {
+					this.readyBeans.add(beanName);
+				}
+			}
+		}
+
+		while (true) {
+			List beansToSubmit = null;
+			synchronized (this) {
+				while (!this.activeBeans.isEmpty() && this.readyBeans.isEmpty()) {
+					long remaining = deadline - System.currentTimeMillis();
+					if (remaining <= 0) {
+						cancel(timeout);
+						return false;
+					}
+					try {
+						wait(remaining);
+					}
+					catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+						this.cancelled = true;
+						this.logger.warn("Interrupted while waiting for concurrent singleton destruction - " +
+								"abandoning beans not destroyed yet: " + getBeansNotDestroyed());
+						return false;
+					}
+				}
+				if (this.readyBeans.isEmpty()) {
+					break;
+				}
+				if (System.currentTimeMillis() >= deadline) {
+					cancel(timeout);
+					return false;
+				}
+				beansToSubmit = new ArrayList(this.readyBeans);
+				this.readyBeans.clear();
+				this.submittedBeans.addAll(beansToSubmit);
+				this.activeBeans.addAll(beansToSubmit);
+			}
+			for (Iterator it = beansToSubmit.iterator(); it.hasNext();) {
+				Runnable task = new SingletonDestructionTask((String) it.next());
+				try {
+					this.taskExecutor.execute(task);
+				}
+				catch (TaskRejectedException ex) {
+					// Executor saturated: destroy the singleton on the calling thread.
+					task.run();
+				}
+			}
+		}
+
+		// Destroy remaining beans - part of or depended on by a dependency cycle - sequentially.
+		for (Iterator it = this.beanNames.iterator(); it.hasNext();) {
+			String beanName = (String) it.next();
+			if (!this.submittedBeans.contains(beanName)) {
+				if (System.currentTimeMillis() >= deadline) {
+					synchronized (this) {
+						cancel(timeout);
+					}
+					return false;
+				}
+				synchronized (this) {
+					this.submittedBeans.add(beanName);
+				}
+				new SingletonDestructionTask(beanName).run();
+			}
+		}
+
+		if (this.logger.isInfoEnabled()) {
+			synchronized (this) {
+				this.logger.info("Destroyed " + this.beanNames.size() + " singletons concurrently in " +
+						(System.currentTimeMillis() - startTime) + " ms" + (this.slowestBeanName != null ?
+						" (slowest: '" + this.slowestBeanName + "' in " + this.slowestBeanMillis + " ms)" : ""));
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Callback from a destruction task once the given singleton has been destroyed.
+	 */
+	private synchronized void singletonDestroyed(String beanName, long millis) {
+		this.activeBeans.remove(beanName);
+		if (millis > this.slowestBeanMillis) {
+			this.slowestBeanName = beanName;
+			this.slowestBeanMillis = millis;
+		}
+		List beanDependencies = (List) this.dependencies.get(beanName);
+		if (beanDependencies != null) {
+			for (Iterator it = beanDependencies.iterator(); it.hasNext();) {
+				String dependency = (String) it.next();
+				int pendingCount = ((Integer) this.pendingDependentCounts.get(dependency)).intValue() - 1;
+				this.pendingDependentCounts.put(dependency, new Integer(pendingCount));
+				if (pendingCount == 0) {
+					this.readyBeans.add(dependency);
+				}
+			}
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Cancel this destroyer because of the given timeout, logging the beans
+	 * abandoned. To be called while holding this destroyer's lock.
+	 */
+	private void cancel(long timeout) {
+		this.cancelled = true;
+		this.logger.warn("Concurrent singleton destruction did not complete within " + timeout +
+				" ms - still in destruction: " + this.activeBeans + "; abandoning beans not destroyed yet: " +
+				getBeansNotDestroyed());
+	}
+
+	/**
+	 * Determine the beans that have not been submitted for destruction yet.
+	 * To be called while holding this destroyer's lock.
+	 */
+	private List getBeansNotDestroyed() {
+		List result = new ArrayList();
+		for (Iterator it = this.beanNames.iterator(); it.hasNext();) {
+			String beanName = (String) it.next();
+			if (!this.submittedBeans.contains(beanName)) {
+				result.add(beanName);
+			}
+		}
+		return result;
+	}
+
+
+	/**
+	 * Destroy the given singleton along with its dependent and contained beans,
+	 * following {@link DefaultSingletonBeanRegistry#destroySingleton}, but
+	 * checking for cancellation before each access to the registry.
+	 * @return <code>false</code> if this destroyer has been cancelled
+	 * before the given singleton has been fully destroyed
+	 */
+	private boolean destroySingleton(String beanName) {
+		DisposableBean disposableBean = null;
+		Set dependentBeans = null;
+		synchronized (this) {
+			if (this.cancelled) {
+				return false;
+			}
+			disposableBean = this.registry.removeSingletonForDestruction(beanName);
+			dependentBeans = this.registry.removeDependentBeans(beanName);
+		}
+		if (dependentBeans != null) {
+			for (Iterator it = dependentBeans.iterator(); it.hasNext();) {
+				if (!destroySingleton((String) it.next())) {
+					return false;
+				}
+			}
+		}
+
+		if (disposableBean != null) {
+			try {
+				disposableBean.destroy();
+			}
+			catch (Throwable ex) {
+				this.logger.error("Destroy method on bean with name '" + beanName + "' threw an exception", ex);
+			}
+		}
+
+		Set containedBeans = null;
+		synchronized (this) {
+			if (this.cancelled) {
+				return false;
+			}
+			containedBeans = this.registry.removeContainedBeans(beanName);
+		}
+		if (containedBeans != null) {
+			for (Iterator it = containedBeans.iterator(); it.hasNext();) {
+				if (!destroySingleton((String) it.next())) {
+					return false;
+				}
+			}
+		}
+
+		synchronized (this) {
+			if (this.cancelled) {
+				return false;
+			}
+			this.registry.removeDependencyInformation(beanName);
+		}
+		return true;
+	}
+
+
+	/**
+	 * Task that destroys a single singleton and reports back to the destroyer.
+	 */
+	private class SingletonDestructionTask implements Runnable {
+
+		private final String beanName;
+
+		public SingletonDestructionTask(String beanName) {
+			this.beanName = beanName;
+		}
+
+		public void run() {
+			long startTime = System.currentTimeMillis();
+			boolean completed = false;
+			try {
+				completed = destroySingleton(this.beanName);
+			}
+			catch (Throwable ex) {
+				logger.error("Destruction of singleton '" + this.beanName + "' failed", ex);
+			}
+			finally {
+				long millis = System.currentTimeMillis() - startTime;
+				if (logger.isDebugEnabled()) {
+					if (completed) {
+						logger.debug("Destroyed singleton '" + this.beanName + "' in " + millis + " ms");
+					}
+					else {
+						logger.debug("Abandoned destruction of singleton '" + this.beanName +
+								"' after concurrent singleton destruction timed out");
+					}
+				}
+				singletonDestroyed(this.beanName, millis);
+			}
+		}
+	}
+
+}
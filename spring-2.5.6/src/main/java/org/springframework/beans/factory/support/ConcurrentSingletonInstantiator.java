@@ -0,0 +1,368 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+/**
+ * Helper class for pre-instantiating singletons concurrently on a
+ * {@link TaskExecutor}, in an order derived from the dependencies between
+ * the beans: "depends-on" declarations, bean references in constructor
+ * arguments and property values, and dependencies registered with the factory.
+ *
+ * <p>A singleton gets submitted as soon as all of the singletons that it
+ * depends on have been created. Singletons that are part of a dependency
+ * cycle (and singletons depending on those) are created sequentially on the
+ * calling thread afterwards, in registration order, so that circular references
+ * get resolved through early singleton references just like in the default case.
+ *
+ * <p>Used by {@link DefaultListableBeanFactory}.
+ *
+ * @author agent
+ * @since 2.5.6
+ * @see DefaultListableBeanFactory#setPreInstantiationExecutor
+ */
+class ConcurrentSingletonInstantiator {
+
+	private final DefaultListableBeanFactory beanFactory;
+
+	private final TaskExecutor taskExecutor;
+
+	/** Names of the singletons to pre-instantiate, in registration order */
+	private final List beanNames;
+
+	/** Map from bean name to the names of the singletons that depend on it */
+	private final Map dependentBeans = new HashMap();
+
+	/** Map from bean name to the number of its dependencies not created yet */
+	private final Map pendingDependencyCounts = new HashMap();
+
+	private final int criticalPathLength;
+
+	/** Singletons ready for submission; guarded by this instantiator */
+	private final LinkedList readyBeans = new LinkedList();
+
+	/** Singletons submitted so far; guarded by this instantiator */
+	private final Set submittedBeans = new HashSet();
+
+	/** Number of submitted singletons not completed yet; guarded by this instantiator */
+	private int activeCount = 0;
+
+	/** First failure encountered by any creation task; guarded by this instantiator */
+	private Throwable failure;
+
+
+	/**
+	 * Create a new ConcurrentSingletonInstantiator for the given singletons.
+	 * @param beanFactory the BeanFactory to work with
+	 * @param beanNames the names of the singletons to pre-instantiate
+	 * @param taskExecutor the TaskExecutor to create the singletons on
+	 */
+	public ConcurrentSingletonInstantiator(
+			DefaultListableBeanFactory beanFactory, List beanNames, TaskExecutor taskExecutor) {
+
+		this.beanFactory = beanFactory;
+		this.taskExecutor = taskExecutor;
+		this.beanNames = beanNames;
+		Map dependencies = new LinkedHashMap(beanNames.size());
+		for (Iterator it = beanNames.iterator(); it.hasNext();) {
+			String beanName = (String) it.next();
+			dependencies.put(beanName, new LinkedHashSet());
+		}
+		for (Iterator it = beanNames.iterator(); it.hasNext();) {
+			String beanName = (String) it.next();
+			Set beanDependencies = (Set) dependencies.get(beanName);
+			Set referencedNames = new LinkedHashSet();
+			collectDependencies(beanName, referencedNames);
+			for (Iterator refIt = referencedNames.iterator(); refIt.hasNext();) {
+				String referencedName = (String) refIt.next();
+				if (!referencedName.equals(beanName) && dependencies.containsKey(referencedName)) {
+					beanDependencies.add(referencedName);
+				}
+			}
+			for (Iterator depIt = beanDependencies.iterator(); depIt.hasNext();) {
+				String dependency = (String) depIt.next();
+				List dependents = (List) this.dependentBeans.get(dependency);
+				if (dependents == null) {
+					dependents = new ArrayList(4);
+					this.dependentBeans.put(dependency, dependents);
+				}
+				dependents.add(beanName);
+			}
+			this.pendingDependencyCounts.put(beanName, new Integer(beanDependencies.size()));
+		}
+		this.criticalPathLength = determineCriticalPathLength(dependencies);
+	}
+
+	/**
+	 * Return the number of singletons along the longest chain of dependencies
+	 * between the singletons to pre-instantiate, i.e. the minimum number of
+	 * sequential creation steps even with unbounded concurrency.
+	 * <p>Singletons that are part of a dependency cycle are not taken into account.
+	 */
+	public int getCriticalPathLength() {
+		return this.criticalPathLength;
+	}
+
+
+	/**
+	 * Pre-instantiate all singletons, returning once all of them have been created.
+	 * @throws RuntimeException the first exception thrown by any creation task
+	 */
+	public void preInstantiateSingletons() {
+		synchronized (this) {
+			for (Iterator it = this.beanNames.iterator(); it.hasNext();) {
+				String beanName = (String) it.next();
+				if (((Integer) this.pendingDependencyCounts.get(beanName)).intValue() == 0) {
+					this.readyBeans.add(beanName);
+				}
+			}
+		}
+
+		while (true) {
+			List beansToSubmit = null;
+			synchronized (this) {
+				while (this.activeCount > 0 && (this.readyBeans.isEmpty() || this.failure != null)) {
+					try {
+						wait();
+					}
+					catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+						throw new BeanCreationException(
+								"Interrupted while waiting for concurrent singleton pre-instantiation", ex);
+					}
+				}
+				if (this.failure != null || this.readyBeans.isEmpty()) {
+					break;
+				}
+				beansToSubmit = new ArrayList(this.readyBeans);
+				this.readyBeans.clear();
+				this.submittedBeans.addAll(beansToSubmit);
+				this.activeCount += beansToSubmit.size();
+			}
+			for (Iterator it = beansToSubmit.iterator(); it.hasNext();) {
+				Runnable task = new SingletonCreationTask((String) it.next());
+				try {
+					this.taskExecutor.execute(task);
+				}
+				catch (TaskRejectedException ex) {
+					// Executor saturated: create the singleton on the calling thread.
+					task.run();
+				}
+			}
+		}
+
+		synchronized (this) {
+			if (this.failure instanceof RuntimeException) {
+				throw (RuntimeException) this.failure;
+			}
+			if (this.failure instanceof Error) {
+				throw (Error) this.failure;
+			}
+			if (this.failure != null) {
+				throw new BeanCreationException("Concurrent singleton pre-instantiation failed", this.failure);
+			}
+		}
+
+		// Create remaining singletons - part of or depending on a dependency cycle - sequentially.
+		for (Iterator it = this.beanNames.iterator(); it.hasNext();) {
+			String beanName = (String) it.next();
+			if (!this.submittedBeans.contains(beanName)) {
+				this.beanFactory.preInstantiateSingleton(beanName);
+			}
+		}
+	}
+
+	/**
+	 * Callback from a creation task once the given singleton has been created.
+	 */
+	private synchronized void singletonCreated(String beanName, Throwable ex) {
+		this.activeCount--;
+		if (ex != null) {
+			if (this.failure == null) {
+				this.failure = ex;
+			}
+		}
+		else {
+			List dependents = (List) this.dependentBeans.get(beanName);
+			if (dependents != null) {
+				for (Iterator it = dependents.iterator(); it.hasNext();) {
+					String dependent = (String) it.next();
+					int pendingCount = ((Integer) this.pendingDependencyCounts.get(dependent)).intValue() - 1;
+					this.pendingDependencyCounts.put(dependent, new Integer(pendingCount));
+					if (pendingCount == 0) {
+						this.readyBeans.add(dependent);
+					}
+				}
+			}
+		}
+		notifyAll();
+	}
+
+
+	/**
+	 * Collect the names of all beans that the given bean refers to,
+	 * including registered dependencies of an already created bean.
+	 */
+	private void collectDependencies(String beanName, Set referencedNames) {
+		RootBeanDefinition mbd = this.beanFactory.getMergedLocalBeanDefinition(beanName);
+		collectDependencies(mbd, referencedNames);
+		addBeanNames(this.beanFactory.getDependenciesForBean(beanName), referencedNames);
+	}
+
+	private void collectDependencies(BeanDefinition bd, Set referencedNames) {
+		if (bd instanceof AbstractBeanDefinition) {
+			addBeanNames(((AbstractBeanDefinition) bd).getDependsOn(), referencedNames);
+		}
+		PropertyValue[] pvs = bd.getPropertyValues().getPropertyValues();
+		for (int i = 0; i < pvs.length; i++) {
+			collectReferences(pvs[i].getValue(), referencedNames);
+		}
+		ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+		for (Iterator it = cargs.getIndexedArgumentValues().values().iterator(); it.hasNext();) {
+			collectReferences(((ConstructorArgumentValues.ValueHolder) it.next()).getValue(), referencedNames);
+		}
+		for (Iterator it = cargs.getGenericArgumentValues().iterator(); it.hasNext();) {
+			collectReferences(((ConstructorArgumentValues.ValueHolder) it.next()).getValue(), referencedNames);
+		}
+	}
+
+	private void collectReferences(Object value, Set referencedNames) {
+		if (value instanceof RuntimeBeanReference) {
+			RuntimeBeanReference ref = (RuntimeBeanReference) value;
+			if (!ref.isToParent()) {
+				referencedNames.add(canonicalBeanName(ref.getBeanName()));
+			}
+		}
+		else if (value instanceof BeanDefinitionHolder) {
+			collectDependencies(((BeanDefinitionHolder) value).getBeanDefinition(), referencedNames);
+		}
+		else if (value instanceof BeanDefinition) {
+			collectDependencies((BeanDefinition) value, referencedNames);
+		}
+		else if (value instanceof Collection) {
+			for (Iterator it = ((Collection) value).iterator(); it.hasNext();) {
+				collectReferences(it.next(), referencedNames);
+			}
+		}
+		else if (value instanceof Map) {
+			for (Iterator it = ((Map) value).entrySet().iterator(); it.hasNext();) {
+				Map.Entry entry = (Map.Entry) it.next();
+				collectReferences(entry.getKey(), referencedNames);
+				collectReferences(entry.getValue(), referencedNames);
+			}
+		}
+	}
+
+	private void addBeanNames(String[] names, Set referencedNames) {
+		if (names != null) {
+			for (int i = 0; i < names.length; i++) {
+				referencedNames.add(canonicalBeanName(names[i]));
+			}
+		}
+	}
+
+	private String canonicalBeanName(String name) {
+		return this.beanFactory.canonicalName(BeanFactoryUtils.transformedBeanName(name));
+	}
+
+	/**
+	 * Determine the length of the longest dependency chain,
+	 * visiting the singletons in topological order.
+	 */
+	private int determineCriticalPathLength(Map dependencies) {
+		Map pendingCounts = new HashMap(this.pendingDependencyCounts);
+		Map depths = new HashMap(dependencies.size());
+		LinkedList queue = new LinkedList();
+		for (Iterator it = dependencies.keySet().iterator(); it.hasNext();) {
+			String beanName = (String) it.next();
+			if (((Integer) pendingCounts.get(beanName)).intValue() == 0) {
+				queue.add(beanName);
+			}
+		}
+		int maxDepth = 0;
+		while (!queue.isEmpty()) {
+			String beanName = (String) queue.removeFirst();
+			int depth = 1;
+			for (Iterator it = ((Set) dependencies.get(beanName)).iterator(); it.hasNext();) {
+				Integer dependencyDepth = (Integer) depths.get(it.next());
+				depth = Math.max(depth, dependencyDepth.intValue() + 1);
+			}
+			depths.put(beanName, new Integer(depth));
+			maxDepth = Math.max(maxDepth, depth);
+			List dependents = (List) this.dependentBeans.get(beanName);
+			if (dependents != null) {
+				for (Iterator it = dependents.iterator(); it.hasNext();) {
+					String dependent = (String) it.next();
+					int pendingCount = ((Integer) pendingCounts.get(dependent)).intValue() - 1;
+					pendingCounts.put(dependent, new Integer(pendingCount));
+					if (pendingCount == 0) {
+						queue.add(dependent);
+					}
+				}
+			}
+		}
+		return maxDepth;
+	}
+
+
+	/**
+	 * Task that creates a single singleton and reports back to the instantiator.
+	 */
+	private class SingletonCreationTask implements Runnable {
+
+		private final String beanName;
+
+		public SingletonCreationTask(String beanName) {
+			this.beanName = beanName;
+		}
+
+		public void run() {
+			Throwable failure = null;
+			try {
+				beanFactory.preInstantiateSingleton(this.beanName);
+			}
+			catch (Throwable ex) {
+				failure = ex;
+			}
+			finally {
+				singletonCreated(this.beanName, failure);
+			}
+		}
+	}
+
+}
@@ -19,6 +19,7 @@ package org.springframework.beans.factory.support;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -40,6 +41,7 @@ import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.beans.factory.config.ConstructorArgumentValues;
 import org.springframework.beans.factory.config.DependencyDescriptor;
 import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.core.CollectionFactory;
 import org.springframework.core.GenericTypeResolver;
 import org.springframework.core.JdkVersion;
 import org.springframework.core.MethodParameter;
@@ -64,6 +66,13 @@ import org.springframework.util.ReflectionUtils;
  */
 class ConstructorResolver {
 
+	/**
+	 * Maximum number of explicit argument type combinations to cache
+	 * the chosen constructor or factory method for, per bean definition
+	 */
+	private static final int EXPLICIT_ARGUMENT_TYPES_CACHE_LIMIT = 32;
+
+
 	private final AbstractBeanFactory beanFactory;
 
 	private final AutowireCapableBeanFactory autowireFactory;
@@ -115,35 +124,32 @@ class ConstructorResolver {
 
 		if (explicitArgs != null) {
 			argsToUse = explicitArgs;
+			constructorToUse = (Constructor) getCachedForExplicitArguments(mbd, explicitArgs);
 		}
 		else {
-			constructorToUse = (Constructor) mbd.resolvedConstructorOrFactoryMethod;
-			if (constructorToUse != null) {
-				// Found a cached constructor...
-				argsToUse = mbd.resolvedConstructorArguments;
-				if (argsToUse == null) {
-					Class[] paramTypes = constructorToUse.getParameterTypes();
-					Object[] argsToResolve = mbd.preparedConstructorArguments;
-					TypeConverter converter = (this.typeConverter != null ? this.typeConverter : bw);
-					BeanDefinitionValueResolver valueResolver =
-							new BeanDefinitionValueResolver(this.beanFactory, beanName, mbd, converter);
-					argsToUse = new Object[argsToResolve.length];
-					for (int i = 0; i < argsToResolve.length; i++) {
-						Object argValue = argsToResolve[i];
-						MethodParameter methodParam = new MethodParameter(constructorToUse, i);
-						if (JdkVersion.isAtLeastJava15()) {
-							GenericTypeResolver.resolveParameterType(methodParam, constructorToUse.getDeclaringClass());
-						}
-						if (argValue instanceof AutowiredArgumentMarker) {
-							argValue = resolveAutowiredArgument(methodParam, beanName, null, converter);
+			Object[] argsToResolve = null;
+			MethodParameter[] paramsToResolve = null;
+			synchronized (mbd.constructorArgumentLock) {
+				constructorToUse = (Constructor) mbd.resolvedConstructorOrFactoryMethod;
+				if (constructorToUse != null) {
+					if (mbd.constructorArgumentsResolved) {
+						// Found a cached constructor...
+						argsToUse = mbd.resolvedConstructorArguments;
+						if (argsToUse == null) {
+							argsToResolve = mbd.preparedConstructorArguments;
+							paramsToResolve = mbd.preparedConstructorParameters;
 						}
-						else if (argValue instanceof BeanMetadataElement) {
-							argValue = valueResolver.resolveValueIfNecessary("constructor argument", argValue);
-						}
-						argsToUse[i] = converter.convertIfNecessary(argValue, paramTypes[i], methodParam);
+					}
+					else {
+						// Cached default constructor without argument plan: resolve again.
+						constructorToUse = null;
 					}
 				}
 			}
+			if (argsToResolve != null) {
+				argsToUse = resolvePreparedArguments(beanName, mbd, bw,
+						constructorToUse.getParameterTypes(), argsToResolve, paramsToResolve, "constructor argument");
+			}
 		}
 
 		if (constructorToUse == null) {
@@ -166,6 +172,7 @@ class ConstructorResolver {
 			Constructor[] candidates =
 					(chosenCtors != null ? chosenCtors : mbd.getBeanClass().getDeclaredConstructors());
 			AutowireUtils.sortConstructors(candidates);
+			ArgumentsHolder argsHolderToUse = null;
 			int minTypeDiffWeight = Integer.MAX_VALUE;
 
 			for (int i = 0; i < candidates.length; i++) {
@@ -229,6 +236,7 @@ class ConstructorResolver {
 				// Choose this constructor if it represents the closest match.
 				if (typeDiffWeight < minTypeDiffWeight) {
 					constructorToUse = candidate;
+					argsHolderToUse = args;
 					argsToUse = args.arguments;
 					minTypeDiffWeight = typeDiffWeight;
 				}
@@ -240,7 +248,10 @@ class ConstructorResolver {
 			}
 
 			if (explicitArgs == null) {
-				mbd.resolvedConstructorOrFactoryMethod = constructorToUse;
+				argsHolderToUse.storeCache(mbd, constructorToUse, constructorToUse.getDeclaringClass());
+			}
+			else {
+				cacheForExplicitArguments(mbd, explicitArgs, constructorToUse);
 			}
 		}
 
@@ -302,35 +313,26 @@ class ConstructorResolver {
 
 		if (explicitArgs != null) {
 			argsToUse = explicitArgs;
+			factoryMethodToUse = (Method) getCachedForExplicitArguments(mbd, explicitArgs);
 		}
 		else {
-			factoryMethodToUse = (Method) mbd.resolvedConstructorOrFactoryMethod;
-			if (factoryMethodToUse != null) {
-				// Found a cached factory method...
-				argsToUse = mbd.resolvedConstructorArguments;
-				if (argsToUse == null) {
-					Class[] paramTypes = factoryMethodToUse.getParameterTypes();
-					Object[] argsToResolve = mbd.preparedConstructorArguments;
-					TypeConverter converter = (this.typeConverter != null ? this.typeConverter : bw);
-					BeanDefinitionValueResolver valueResolver =
-							new BeanDefinitionValueResolver(this.beanFactory, beanName, mbd, converter);
-					argsToUse = new Object[argsToResolve.length];
-					for (int i = 0; i < argsToResolve.length; i++) {
-						Object argValue = argsToResolve[i];
-						MethodParameter methodParam = new MethodParameter(factoryMethodToUse, i);
-						if (JdkVersion.isAtLeastJava15()) {
-							GenericTypeResolver.resolveParameterType(methodParam, factoryClass);
-						}
-						if (argValue instanceof AutowiredArgumentMarker) {
-							argValue = resolveAutowiredArgument(methodParam, beanName, null, converter);
-						}
-						else if (argValue instanceof BeanMetadataElement) {
-							argValue = valueResolver.resolveValueIfNecessary("factory method argument", argValue);
-						}
-						argsToUse[i] = converter.convertIfNecessary(argValue, paramTypes[i], methodParam);
+			Object[] argsToResolve = null;
+			MethodParameter[] paramsToResolve = null;
+			synchronized (mbd.constructorArgumentLock) {
+				factoryMethodToUse = (Method) mbd.resolvedConstructorOrFactoryMethod;
+				if (factoryMethodToUse != null && mbd.constructorArgumentsResolved) {
+					// Found a cached factory method...
+					argsToUse = mbd.resolvedConstructorArguments;
+					if (argsToUse == null) {
+						argsToResolve = mbd.preparedConstructorArguments;
+						paramsToResolve = mbd.preparedConstructorParameters;
 					}
 				}
 			}
+			if (argsToResolve != null) {
+				argsToUse = resolvePreparedArguments(beanName, mbd, bw,
+						factoryMethodToUse.getParameterTypes(), argsToResolve, paramsToResolve, "factory method argument");
+			}
 		}
 
 		if (factoryMethodToUse == null) {
@@ -338,6 +340,7 @@ class ConstructorResolver {
 			// Try all methods with this name to see if they match the given arguments.
 			Method[] candidates = ReflectionUtils.getAllDeclaredMethods(factoryClass);
 			boolean autowiring = (mbd.getResolvedAutowireMode() == RootBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+			ArgumentsHolder argsHolderToUse = null;
 			int minTypeDiffWeight = Integer.MAX_VALUE;
 			ConstructorArgumentValues resolvedValues = null;
 
@@ -407,6 +410,7 @@ class ConstructorResolver {
 					// Choose this constructor if it represents the closest match.
 					if (typeDiffWeight < minTypeDiffWeight) {
 						factoryMethodToUse = candidate;
+						argsHolderToUse = args;
 						argsToUse = args.arguments;
 						minTypeDiffWeight = typeDiffWeight;
 					}
@@ -427,7 +431,10 @@ class ConstructorResolver {
 			}
 
 			if (explicitArgs == null) {
-				mbd.resolvedConstructorOrFactoryMethod = factoryMethodToUse;
+				argsHolderToUse.storeCache(mbd, factoryMethodToUse, factoryClass);
+			}
+			else {
+				cacheForExplicitArguments(mbd, explicitArgs, factoryMethodToUse);
 			}
 		}
 
@@ -519,7 +526,6 @@ class ConstructorResolver {
 		ArgumentsHolder args = new ArgumentsHolder(paramTypes.length);
 		Set usedValueHolders = new HashSet(paramTypes.length);
 		Set autowiredBeanNames = new LinkedHashSet(4);
-		boolean resolveNecessary = false;
 
 		for (int paramIndex = 0; paramIndex < paramTypes.length; paramIndex++) {
 			Class paramType = paramTypes[paramIndex];
@@ -557,8 +563,9 @@ class ConstructorResolver {
 							args.preparedArguments[paramIndex] = convertedValue;
 						}
 						else {
-							resolveNecessary = true;
+							args.resolveNecessary = true;
 							args.preparedArguments[paramIndex] = sourceValue;
+							args.resolveRequired[paramIndex] = true;
 						}
 					}
 					catch (TypeMismatchException ex) {
@@ -585,7 +592,8 @@ class ConstructorResolver {
 					args.rawArguments[paramIndex] = autowiredArgument;
 					args.arguments[paramIndex] = autowiredArgument;
 					args.preparedArguments[paramIndex] = new AutowiredArgumentMarker();
-					resolveNecessary = true;
+					args.resolveNecessary = true;
+					args.resolveRequired[paramIndex] = true;
 				}
 				catch (BeansException ex) {
 					throw new UnsatisfiedDependencyException(
@@ -603,14 +611,81 @@ class ConstructorResolver {
 			}
 		}
 
-		if (resolveNecessary) {
-			mbd.preparedConstructorArguments = args.preparedArguments;
+		return args;
+	}
+
+	/**
+	 * Resolve the prepared arguments stored in the given bean definition,
+	 * according to the cached argument plan: Only arguments that refer to
+	 * runtime state (bean references, inner beans, autowired arguments)
+	 * get resolved and converted again; all others are used as-is.
+	 */
+	private Object[] resolvePreparedArguments(String beanName, RootBeanDefinition mbd, BeanWrapper bw,
+			Class[] paramTypes, Object[] argsToResolve, MethodParameter[] paramsToResolve, String argName) {
+
+		TypeConverter converter = (this.typeConverter != null ? this.typeConverter : bw);
+		BeanDefinitionValueResolver valueResolver = null;
+		Object[] resolvedArgs = new Object[argsToResolve.length];
+		for (int i = 0; i < argsToResolve.length; i++) {
+			Object argValue = argsToResolve[i];
+			if (paramsToResolve[i] == null) {
+				// Already converted on first resolution.
+				resolvedArgs[i] = argValue;
+				continue;
+			}
+			// Use an independent copy, since conversion may change the nesting level.
+			MethodParameter methodParam = new MethodParameter(paramsToResolve[i]);
+			if (argValue instanceof AutowiredArgumentMarker) {
+				argValue = resolveAutowiredArgument(methodParam, beanName, null, converter);
+			}
+			else if (argValue instanceof BeanMetadataElement) {
+				if (valueResolver == null) {
+					valueResolver = new BeanDefinitionValueResolver(this.beanFactory, beanName, mbd, converter);
+				}
+				argValue = valueResolver.resolveValueIfNecessary(argName, argValue);
+			}
+			resolvedArgs[i] = converter.convertIfNecessary(argValue, paramTypes[i], methodParam);
+		}
+		return resolvedArgs;
+	}
+
+	/**
+	 * Return the constructor or factory method previously chosen for explicit
+	 * arguments of the same types, if any.
+	 */
+	private Object getCachedForExplicitArguments(RootBeanDefinition mbd, Object[] explicitArgs) {
+		Map cache = mbd.resolvedConstructorsByArgumentTypes;
+		return (cache != null ? cache.get(getArgumentTypes(explicitArgs)) : null);
+	}
+
+	/**
+	 * Remember the constructor or factory method chosen for the given explicit arguments.
+	 * Since matching is based on argument types only, the same choice applies to any
+	 * further explicit arguments of the same types.
+	 */
+	private void cacheForExplicitArguments(RootBeanDefinition mbd, Object[] explicitArgs, Object methodOrCtor) {
+		synchronized (mbd.constructorArgumentLock) {
+			Map cache = mbd.resolvedConstructorsByArgumentTypes;
+			if (cache == null) {
+				cache = CollectionFactory.createConcurrentMapIfPossible(4);
+				mbd.resolvedConstructorsByArgumentTypes = cache;
+			}
+			if (cache.size() < EXPLICIT_ARGUMENT_TYPES_CACHE_LIMIT) {
+				cache.put(getArgumentTypes(explicitArgs), methodOrCtor);
+			}
 		}
-		else {
-			mbd.resolvedConstructorArguments = args.arguments;
+	}
+
+	/**
+	 * Build a cache key from the types of the given arguments
+	 * (with <code>null</code> entries for <code>null</code> arguments).
+	 */
+	private static List getArgumentTypes(Object[] args) {
+		Class[] argTypes = new Class[args.length];
+		for (int i = 0; i < args.length; i++) {
+			argTypes[i] = (args[i] != null ? args[i].getClass() : null);
 		}
-		mbd.constructorArgumentsResolved = true;
-		return args;
+		return Arrays.asList(argTypes);
 	}
 
 	/**
@@ -635,16 +710,22 @@ class ConstructorResolver {
 
 		public Object preparedArguments[];
 
+		public boolean resolveRequired[];
+
+		public boolean resolveNecessary = false;
+
 		public ArgumentsHolder(int size) {
 			this.rawArguments = new Object[size];
 			this.arguments = new Object[size];
 			this.preparedArguments = new Object[size];
+			this.resolveRequired = new boolean[size];
 		}
 
 		public ArgumentsHolder(Object[] args) {
 			this.rawArguments = args;
 			this.arguments = args;
 			this.preparedArguments = args;
+			this.resolveRequired = new boolean[args.length];
 		}
 
 		public int getTypeDifferenceWeight(Class[] paramTypes) {
@@ -656,6 +737,44 @@ class ConstructorResolver {
 			int rawTypeDiffWeight = MethodInvoker.getTypeDifferenceWeight(paramTypes, this.rawArguments) - 1024;
 			return (rawTypeDiffWeight < typeDiffWeight ? rawTypeDiffWeight : typeDiffWeight);
 		}
+
+		/**
+		 * Cache the given constructor or factory method along with these arguments
+		 * in the bean definition: either the fully resolved arguments or the prepared
+		 * arguments plus the parameters of those that need to be resolved at runtime.
+		 * @param mbd the bean definition to store the cache in
+		 * @param constructorOrFactoryMethod the chosen constructor or factory method
+		 * @param containingClass the class to resolve generic parameter types against
+		 */
+		public void storeCache(RootBeanDefinition mbd, Object constructorOrFactoryMethod, Class containingClass) {
+			MethodParameter[] preparedParameters = null;
+			if (this.resolveNecessary) {
+				preparedParameters = new MethodParameter[this.preparedArguments.length];
+				for (int i = 0; i < preparedParameters.length; i++) {
+					if (this.resolveRequired[i]) {
+						MethodParameter methodParam = MethodParameter.forMethodOrConstructor(constructorOrFactoryMethod, i);
+						if (JdkVersion.isAtLeastJava15()) {
+							GenericTypeResolver.resolveParameterType(methodParam, containingClass);
+						}
+						preparedParameters[i] = methodParam;
+					}
+				}
+			}
+			synchronized (mbd.constructorArgumentLock) {
+				mbd.resolvedConstructorOrFactoryMethod = constructorOrFactoryMethod;
+				mbd.constructorArgumentsResolved = true;
+				if (this.resolveNecessary) {
+					mbd.resolvedConstructorArguments = null;
+					mbd.preparedConstructorArguments = this.preparedArguments;
+					mbd.preparedConstructorParameters = preparedParameters;
+				}
+				else {
+					mbd.resolvedConstructorArguments = this.arguments;
+					mbd.preparedConstructorArguments = null;
+					mbd.preparedConstructorParameters = null;
+				}
+			}
+		}
 	}
 
 
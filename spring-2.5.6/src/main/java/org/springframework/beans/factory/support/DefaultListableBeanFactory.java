@@ -17,8 +17,10 @@
 package org.springframework.beans.factory.support;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -35,6 +37,7 @@ import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryUtils;
 import org.springframework.beans.factory.CannotLoadBeanClassException;
 import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.ListableBeanFactory;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.SmartFactoryBean;
@@ -44,6 +47,7 @@ import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.config.DependencyDescriptor;
 import org.springframework.core.CollectionFactory;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
@@ -105,6 +109,33 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** Map from dependency type to corresponding autowired value */
 	private final Map resolvableDependencies = new HashMap();
 
+	/** Map of bean name arrays for eager by-type lookups, keyed by TypeLookupKey */
+	private final Map eagerBeanNamesByType = CollectionFactory.createConcurrentMapIfPossible(64);
+
+	/** Map of bean name arrays for non-eager by-type lookups, keyed by TypeLookupKey */
+	private final Map nonEagerBeanNamesByType = CollectionFactory.createConcurrentMapIfPossible(64);
+
+	/** Map of AncestorTypeLookups for eager lookups across the factory hierarchy, keyed by TypeLookupKey */
+	private final Map eagerAncestorBeanNamesByType = CollectionFactory.createConcurrentMapIfPossible(16);
+
+	/** Map of AncestorTypeLookups for non-eager lookups across the factory hierarchy, keyed by TypeLookupKey */
+	private final Map nonEagerAncestorBeanNamesByType = CollectionFactory.createConcurrentMapIfPossible(16);
+
+	/** Incremented whenever by-type lookups need to be redone, for validating AncestorTypeLookups */
+	private volatile int byTypeCacheGeneration;
+
+	/** Number of by-type lookups served from the cache (not synchronized: approximate) */
+	private int typeLookupCacheHitCount;
+
+	/** Number of by-type lookups computed while caching was active (not synchronized: approximate) */
+	private int typeLookupCacheMissCount;
+
+	/** TaskExecutor for concurrent singleton pre-instantiation, if any */
+	private TaskExecutor preInstantiationExecutor;
+
+	/** Critical path length determined by the last concurrent pre-instantiation */
+	private int preInstantiationCriticalPathLength = -1;
+
 
 	/**
 	 * Create a new DefaultListableBeanFactory.
@@ -162,6 +193,38 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	 */
 	public void setAllowEagerClassLoading(boolean allowEagerClassLoading) {
 		this.allowEagerClassLoading = allowEagerClassLoading;
+		clearNonEagerByTypeCache();
+	}
+
+
+	/**
+	 * Set a TaskExecutor to pre-instantiate singletons concurrently on.
+	 * <p>Default is none, creating all non-lazy singletons sequentially on the
+	 * calling thread. If specified, singletons will be created as soon as all
+	 * of the singletons that they depend on - through "depends-on" declarations,
+	 * bean references in constructor arguments and property values, or
+	 * dependencies registered with this factory - have been created.
+	 * Singletons that are part of a dependency cycle will still be created
+	 * sequentially afterwards, resolving circular references as usual.
+	 * <p>Pass in a bounded executor, typically a thread pool: Singletons whose
+	 * execution gets rejected will be created on the calling thread instead.
+	 * @see #preInstantiateSingletons()
+	 * @see #getPreInstantiationCriticalPathLength()
+	 * @see org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor
+	 */
+	public void setPreInstantiationExecutor(TaskExecutor preInstantiationExecutor) {
+		this.preInstantiationExecutor = preInstantiationExecutor;
+	}
+
+	/**
+	 * Return the length of the longest chain of dependent singletons,
+	 * as determined by the last concurrent pre-instantiation run.
+	 * @return the critical path length, or -1 if singletons have not been
+	 * pre-instantiated concurrently yet
+	 * @see #setPreInstantiationExecutor
+	 */
+	public int getPreInstantiationCriticalPathLength() {
+		return this.preInstantiationCriticalPathLength;
 	}
 
 
@@ -171,9 +234,33 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			DefaultListableBeanFactory otherListableFactory = (DefaultListableBeanFactory) otherFactory;
 			this.allowBeanDefinitionOverriding = otherListableFactory.allowBeanDefinitionOverriding;
 			this.allowEagerClassLoading = otherListableFactory.allowEagerClassLoading;
+			this.preInstantiationExecutor = otherListableFactory.preInstantiationExecutor;
 		}
 	}
 
+	/**
+	 * Return the number of by-type lookups that have been served from the
+	 * type lookup cache since this factory has been created.
+	 * <p>Note that the by-type cache is only active once the configuration
+	 * has been frozen. The counters are maintained without synchronization,
+	 * in order to keep cached lookups free of locking; under concurrent
+	 * lookups, they are approximate values.
+	 * @see #getBeanNamesForType(Class, boolean, boolean)
+	 * @see #freezeConfiguration()
+	 */
+	public int getTypeLookupCacheHitCount() {
+		return this.typeLookupCacheHitCount;
+	}
+
+	/**
+	 * Return the number of by-type lookups that could not be served from
+	 * the type lookup cache while caching was active.
+	 * @see #getTypeLookupCacheHitCount()
+	 */
+	public int getTypeLookupCacheMissCount() {
+		return this.typeLookupCacheMissCount;
+	}
+
 
 	//---------------------------------------------------------------------
 	// Implementation of ListableBeanFactory interface
@@ -203,6 +290,30 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	}
 
 	public String[] getBeanNamesForType(Class type, boolean includeNonSingletons, boolean allowEagerInit) {
+		if (type == null || !isConfigurationFrozen()) {
+			return doGetBeanNamesForType(type, includeNonSingletons, allowEagerInit);
+		}
+		Map cache = (allowEagerInit ? this.eagerBeanNamesByType : this.nonEagerBeanNamesByType);
+		Object cacheKey = new TypeLookupKey(type, includeNonSingletons);
+		String[] resolvedBeanNames = (String[]) cache.get(cacheKey);
+		if (resolvedBeanNames != null) {
+			this.typeLookupCacheHitCount++;
+		}
+		else {
+			this.typeLookupCacheMissCount++;
+			resolvedBeanNames = doGetBeanNamesForType(type, includeNonSingletons, allowEagerInit);
+			cache.put(cacheKey, resolvedBeanNames);
+		}
+		// Hand out a copy: the cached array is shared across callers.
+		return (String[]) resolvedBeanNames.clone();
+	}
+
+	/**
+	 * Actually determine the names of beans matching the given type,
+	 * checking all bean definitions as well as manually registered singletons.
+	 * @see #getBeanNamesForType(Class, boolean, boolean)
+	 */
+	private String[] doGetBeanNamesForType(Class type, boolean includeNonSingletons, boolean allowEagerInit) {
 		List result = new ArrayList();
 
 		// Check all bean definitions.
@@ -282,6 +393,99 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return StringUtils.toStringArray(result);
 	}
 
+	/**
+	 * Return the names of beans matching the given type in this factory
+	 * as well as in its ancestor factories, with beans in this factory
+	 * overriding same-named beans in ancestor factories.
+	 * <p>The merged result is cached as long as this factory and all of its
+	 * {@link org.springframework.beans.factory.ListableBeanFactory} ancestors
+	 * are DefaultListableBeanFactories with frozen configuration. A cached
+	 * result gets dropped as soon as any of those factories changes.
+	 * @param type the class or interface to match, or <code>null</code> for all bean names
+	 * @param includeNonSingletons whether to include prototype or scoped beans too
+	 * or just singletons (also applies to FactoryBeans)
+	 * @param allowEagerInit whether to initialize lazy-init singletons and
+	 * objects created by FactoryBeans (or by factory methods with a
+	 * "factory-bean" reference) for the type check
+	 * @return the names of beans (or objects created by FactoryBeans) matching
+	 * the given object type (including subclasses), or an empty array if none
+	 * @see org.springframework.beans.factory.BeanFactoryUtils#beanNamesForTypeIncludingAncestors(org.springframework.beans.factory.ListableBeanFactory, Class, boolean, boolean)
+	 */
+	public String[] getBeanNamesForTypeIncludingAncestors(
+			Class type, boolean includeNonSingletons, boolean allowEagerInit) {
+
+		// Determine the cache generations before the lookup, so that any
+		// concurrent change makes the result stale right away.
+		int[] generations = getHierarchyByTypeCacheGenerations();
+		if (type == null || generations == null) {
+			return doGetBeanNamesForTypeIncludingAncestors(type, includeNonSingletons, allowEagerInit);
+		}
+		Map cache = (allowEagerInit ? this.eagerAncestorBeanNamesByType : this.nonEagerAncestorBeanNamesByType);
+		Object cacheKey = new TypeLookupKey(type, includeNonSingletons);
+		AncestorTypeLookup lookup = (AncestorTypeLookup) cache.get(cacheKey);
+		if (lookup == null || !Arrays.equals(lookup.generations, generations)) {
+			String[] beanNames = doGetBeanNamesForTypeIncludingAncestors(type, includeNonSingletons, allowEagerInit);
+			lookup = new AncestorTypeLookup(beanNames, generations);
+			cache.put(cacheKey, lookup);
+		}
+		// Hand out a copy: the cached array is shared across callers.
+		return (String[]) lookup.beanNames.clone();
+	}
+
+	/**
+	 * Determine the by-type cache generations of this factory and its ancestors.
+	 * @return the generations, starting with this factory, or <code>null</code>
+	 * if any factory in the hierarchy does not allow for caching
+	 */
+	private int[] getHierarchyByTypeCacheGenerations() {
+		List generations = new ArrayList(4);
+		BeanFactory current = this;
+		while (current instanceof ListableBeanFactory) {
+			if (!(current instanceof DefaultListableBeanFactory)) {
+				return null;
+			}
+			DefaultListableBeanFactory dlbf = (DefaultListableBeanFactory) current;
+			if (!dlbf.isConfigurationFrozen()) {
+				return null;
+			}
+			generations.add(new Integer(dlbf.byTypeCacheGeneration));
+			current = dlbf.getParentBeanFactory();
+		}
+		int[] result = new int[generations.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = ((Integer) generations.get(i)).intValue();
+		}
+		return result;
+	}
+
+	/**
+	 * Actually merge the by-type lookup results of this factory and its ancestors.
+	 * @see #getBeanNamesForTypeIncludingAncestors
+	 */
+	private String[] doGetBeanNamesForTypeIncludingAncestors(
+			Class type, boolean includeNonSingletons, boolean allowEagerInit) {
+
+		String[] result = getBeanNamesForType(type, includeNonSingletons, allowEagerInit);
+		if (!(getParentBeanFactory() instanceof ListableBeanFactory)) {
+			return result;
+		}
+		String[] parentResult = BeanFactoryUtils.beanNamesForTypeIncludingAncestors(
+				(ListableBeanFactory) getParentBeanFactory(), type, includeNonSingletons, allowEagerInit);
+		List resultList = new ArrayList(result.length + parentResult.length);
+		Set seen = new HashSet(result.length + parentResult.length);
+		for (int i = 0; i < result.length; i++) {
+			resultList.add(result[i]);
+			seen.add(result[i]);
+		}
+		for (int i = 0; i < parentResult.length; i++) {
+			String beanName = parentResult[i];
+			if (!seen.contains(beanName) && !containsLocalBean(beanName)) {
+				resultList.add(beanName);
+			}
+		}
+		return StringUtils.toStringArray(resultList);
+	}
+
 	/**
 	 * Check whether the specified bean would need to be eagerly initialized
 	 * in order to determine its type.
@@ -393,6 +597,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		this.configurationFrozen = true;
 		synchronized (this.beanDefinitionMap) {
 			this.frozenBeanDefinitionNames = StringUtils.toStringArray(this.beanDefinitionNames);
+			clearByTypeCache();
 		}
 	}
 
@@ -414,25 +619,71 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			this.logger.info("Pre-instantiating singletons in " + this);
 		}
 
+		if (this.preInstantiationExecutor != null) {
+			preInstantiateSingletonsConcurrently();
+			return;
+		}
+
 		synchronized (this.beanDefinitionMap) {
 			for (Iterator it = this.beanDefinitionNames.iterator(); it.hasNext();) {
 				String beanName = (String) it.next();
 				RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
 				if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
-					if (isFactoryBean(beanName)) {
-						FactoryBean factory = (FactoryBean) getBean(FACTORY_BEAN_PREFIX + beanName);
-						if (factory instanceof SmartFactoryBean && ((SmartFactoryBean) factory).isEagerInit()) {
-							getBean(beanName);
-						}
-					}
-					else {
-						getBean(beanName);
-					}
+					preInstantiateSingleton(beanName);
 				}
 			}
 		}
 	}
 
+	/**
+	 * Pre-instantiate all non-lazy singletons on the pre-instantiation executor,
+	 * in an order determined by the dependencies between the singletons.
+	 * <p>Works on a snapshot of the bean definition names, not holding the
+	 * bean definition lock while waiting for creation tasks on other threads.
+	 * @see ConcurrentSingletonInstantiator
+	 */
+	private void preInstantiateSingletonsConcurrently() {
+		String[] beanNames = null;
+		synchronized (this.beanDefinitionMap) {
+			beanNames = StringUtils.toStringArray(this.beanDefinitionNames);
+		}
+		List singletonNames = new ArrayList(beanNames.length);
+		for (int i = 0; i < beanNames.length; i++) {
+			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanNames[i]);
+			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+				singletonNames.add(beanNames[i]);
+			}
+		}
+		ConcurrentSingletonInstantiator instantiator =
+				new ConcurrentSingletonInstantiator(this, singletonNames, this.preInstantiationExecutor);
+		this.preInstantiationCriticalPathLength = instantiator.getCriticalPathLength();
+		if (this.logger.isInfoEnabled()) {
+			this.logger.info("Pre-instantiating " + singletonNames.size() + " singletons concurrently in " +
+					ObjectUtils.identityToString(this) + ": critical path length " +
+					this.preInstantiationCriticalPathLength);
+		}
+		instantiator.preInstantiateSingletons();
+	}
+
+	/**
+	 * Pre-instantiate the specified non-lazy singleton. In case of a
+	 * FactoryBean, the object that it creates will only be initialized
+	 * if the FactoryBean is a {@link SmartFactoryBean} asking for eager init.
+	 * @param beanName the name of the singleton to pre-instantiate
+	 * @throws BeansException if the singleton could not be created
+	 */
+	protected void preInstantiateSingleton(String beanName) throws BeansException {
+		if (isFactoryBean(beanName)) {
+			FactoryBean factory = (FactoryBean) getBean(FACTORY_BEAN_PREFIX + beanName);
+			if (factory instanceof SmartFactoryBean && ((SmartFactoryBean) factory).isEagerInit()) {
+				getBean(beanName);
+			}
+		}
+		else {
+			getBean(beanName);
+		}
+	}
+
 
 	//---------------------------------------------------------------------
 	// Implementation of BeanDefinitionRegistry interface
@@ -506,6 +757,9 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		// Remove the merged bean definition for the given bean, if already created.
 		clearMergedBeanDefinition(beanName);
 
+		// Type lookups might have matched the bean or its former definition.
+		clearByTypeCache();
+
 		// Remove corresponding bean from singleton cache, if any. Shouldn't usually
 		// be necessary, rather just meant for overriding a context's default beans
 		// (e.g. the default StaticMessageSource in a StaticApplicationContext).
@@ -533,6 +787,70 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return this.allowBeanDefinitionOverriding;
 	}
 
+	/**
+	 * Overridden to drop all cached type lookups, since a local alias might
+	 * hide an ancestor's bean in lookups across the factory hierarchy.
+	 * @see org.springframework.beans.factory.BeanFactoryUtils#beanNamesForTypeIncludingAncestors
+	 */
+	public void registerAlias(String name, String alias) {
+		super.registerAlias(name, alias);
+		clearByTypeCache();
+	}
+
+	/**
+	 * Overridden to drop all cached type lookups, since a local alias might
+	 * have hidden an ancestor's bean in lookups across the factory hierarchy.
+	 */
+	public void removeAlias(String alias) {
+		super.removeAlias(alias);
+		clearByTypeCache();
+	}
+
+	public void registerSingleton(String beanName, Object singletonObject) throws IllegalStateException {
+		super.registerSingleton(beanName, singletonObject);
+		clearByTypeCache();
+	}
+
+	/**
+	 * Overridden to drop cached non-eager type lookups, since those
+	 * depend on which FactoryBean singletons have been created already.
+	 */
+	protected void addSingleton(String beanName, Object singletonObject) {
+		super.addSingleton(beanName, singletonObject);
+		clearNonEagerByTypeCache();
+	}
+
+	/**
+	 * Overridden to drop all cached type lookups, since a removed
+	 * singleton might have been a manually registered singleton
+	 * matched by a previous lookup.
+	 */
+	protected void removeSingleton(String beanName) {
+		super.removeSingleton(beanName);
+		clearByTypeCache();
+	}
+
+	/**
+	 * Remove any assumptions about by-type mappings.
+	 */
+	private void clearByTypeCache() {
+		this.byTypeCacheGeneration++;
+		this.eagerBeanNamesByType.clear();
+		this.nonEagerBeanNamesByType.clear();
+		this.eagerAncestorBeanNamesByType.clear();
+		this.nonEagerAncestorBeanNamesByType.clear();
+	}
+
+	/**
+	 * Remove any assumptions about non-eager by-type mappings,
+	 * which depend on the FactoryBean singletons created so far.
+	 */
+	private void clearNonEagerByTypeCache() {
+		this.byTypeCacheGeneration++;
+		this.nonEagerBeanNamesByType.clear();
+		this.nonEagerAncestorBeanNamesByType.clear();
+	}
+
 
 	//---------------------------------------------------------------------
 	// Implementation of superclass abstract methods
@@ -744,4 +1062,54 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return sb.toString();
 	}
 
+
+	/**
+	 * Cached result of a by-type lookup across the factory hierarchy,
+	 * along with the by-type cache generation of each factory involved.
+	 * <p>Does not hold on to the ancestor factories themselves.
+	 */
+	private static class AncestorTypeLookup {
+
+		private final String[] beanNames;
+
+		private final int[] generations;
+
+		public AncestorTypeLookup(String[] beanNames, int[] generations) {
+			this.beanNames = beanNames;
+			this.generations = generations;
+		}
+	}
+
+
+	/**
+	 * Cache key for by-type lookups: the type to match
+	 * plus the "includeNonSingletons" flag.
+	 */
+	private static class TypeLookupKey {
+
+		private final Class type;
+
+		private final boolean includeNonSingletons;
+
+		public TypeLookupKey(Class type, boolean includeNonSingletons) {
+			this.type = type;
+			this.includeNonSingletons = includeNonSingletons;
+		}
+
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof TypeLookupKey)) {
+				return false;
+			}
+			TypeLookupKey otherKey = (TypeLookupKey) other;
+			return (this.type.equals(otherKey.type) && this.includeNonSingletons == otherKey.includeNonSingletons);
+		}
+
+		public int hashCode() {
+			return this.type.hashCode() * 29 + (this.includeNonSingletons ? 1 : 0);
+		}
+	}
+
 }
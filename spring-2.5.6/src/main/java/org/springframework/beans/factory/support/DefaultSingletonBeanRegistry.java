@@ -16,12 +16,14 @@
 
 package org.springframework.beans.factory.support;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -35,7 +37,9 @@ import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.config.SingletonBeanRegistry;
 import org.springframework.core.CollectionFactory;
+import org.springframework.core.NamedThreadLocal;
 import org.springframework.core.SimpleAliasRegistry;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
@@ -97,8 +101,14 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	/** Names of beans that are currently in creation */
 	private final Set singletonsCurrentlyInCreation = Collections.synchronizedSet(new HashSet());
 
-	/** List of suppressed Exceptions, available for associating related causes */
-	private Set suppressedExceptions;
+	/** Singletons in creation: bean name --> SingletonCreation; guarded by singletonObjects */
+	private final Map singletonCreations = new HashMap();
+
+	/** Threads waiting for singletons created by other threads: Thread --> bean name; guarded by singletonObjects */
+	private final Map singletonCreationWaiters = new HashMap();
+
+	/** Suppressed Exceptions of the current thread's singleton creation, available for associating related causes */
+	private final ThreadLocal suppressedExceptions = new NamedThreadLocal("Suppressed singleton creation exceptions");
 
 	/** Flag that indicates whether we're currently within destroySingletons */
 	private boolean singletonsCurrentlyInDestruction = false;
@@ -115,6 +125,12 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	/** Map between depending bean names: bean name --> Set of bean names for the bean's dependencies */
 	private final Map dependenciesForBeanMap = CollectionFactory.createConcurrentMapIfPossible(16);
 
+	/** TaskExecutor for concurrent singleton destruction, if any */
+	private TaskExecutor destructionExecutor;
+
+	/** Maximum time to wait for concurrent singleton destruction, in milliseconds */
+	private long destructionTimeout = 0;
+
 
 	public void registerSingleton(String beanName, Object singletonObject) throws IllegalStateException {
 		Assert.notNull(beanName, "'beanName' must not be null");
@@ -178,23 +194,46 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		Object singletonObject = this.singletonObjects.get(beanName);
 		if (singletonObject == null) {
 			synchronized (this.singletonObjects) {
-				singletonObject = this.earlySingletonObjects.get(beanName);
-				if (singletonObject == null && allowEarlyReference) {
-					ObjectFactory singletonFactory = (ObjectFactory) this.singletonFactories.get(beanName);
-					if (singletonFactory != null) {
-						singletonObject = singletonFactory.getObject();
-						this.earlySingletonObjects.put(beanName, singletonObject);
-						this.singletonFactories.remove(beanName);
-					}
+				// Early references are only exposed to the thread that creates the singleton.
+				if (isCreatedByCurrentThread(beanName)) {
+					singletonObject = getEarlySingleton(beanName, allowEarlyReference);
 				}
 			}
 		}
 		return (singletonObject != NULL_OBJECT ? singletonObject : null);
 	}
 
+	/**
+	 * Return the early reference to the given singleton, if any,
+	 * obtaining it from the registered singleton factory if necessary.
+	 * <p>To be called with the singleton mutex held.
+	 * @param beanName the name of the bean to look for
+	 * @param allowEarlyReference whether early references should be created or not
+	 * @return the early singleton reference, or <code>null</code> if none found
+	 */
+	private Object getEarlySingleton(String beanName, boolean allowEarlyReference) {
+		Object singletonObject = this.earlySingletonObjects.get(beanName);
+		if (singletonObject == null && allowEarlyReference) {
+			ObjectFactory singletonFactory = (ObjectFactory) this.singletonFactories.get(beanName);
+			if (singletonFactory != null) {
+				singletonObject = singletonFactory.getObject();
+				this.earlySingletonObjects.put(beanName, singletonObject);
+				this.singletonFactories.remove(beanName);
+			}
+		}
+		return singletonObject;
+	}
+
 	/**
 	 * Return the (raw) singleton object registered under the given name,
 	 * creating and registering a new one if none registered yet.
+	 * <p>Fully initialized singletons are returned without any locking.
+	 * Threads asking for a singleton that another thread is creating wait for
+	 * that particular creation to finish, while creation of other singletons
+	 * may proceed in parallel. If the
+	 * creating thread in turn waits for the current thread, the current thread
+	 * receives an early reference to the singleton, just like for a circular
+	 * reference within a single thread.
 	 * @param beanName the name of the bean
 	 * @param singletonFactory the ObjectFactory to lazily create the singleton
 	 * with, if necessary
@@ -202,55 +241,152 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 */
 	public Object getSingleton(String beanName, ObjectFactory singletonFactory) {
 		Assert.notNull(beanName, "'beanName' must not be null");
-		synchronized (this.singletonObjects) {
-			Object singletonObject = this.singletonObjects.get(beanName);
-			if (singletonObject == null) {
+		Object singletonObject = this.singletonObjects.get(beanName);
+		if (singletonObject == null) {
+			singletonObject = awaitSingletonCreation(beanName);
+			if (singletonObject != null) {
+				return (singletonObject != NULL_OBJECT ? singletonObject : null);
+			}
+			boolean recordSuppressedExceptions = (this.suppressedExceptions.get() == null);
+			if (recordSuppressedExceptions) {
+				this.suppressedExceptions.set(new LinkedHashSet());
+			}
+			boolean created = false;
+			try {
+				singletonObject = singletonFactory.getObject();
+				created = true;
+			}
+			catch (BeanCreationException ex) {
+				if (recordSuppressedExceptions) {
+					for (Iterator it = ((Set) this.suppressedExceptions.get()).iterator(); it.hasNext();) {
+						ex.addRelatedCause((Exception) it.next());
+					}
+				}
+				throw ex;
+			}
+			finally {
+				if (recordSuppressedExceptions) {
+					this.suppressedExceptions.set(null);
+				}
+				synchronized (this.singletonObjects) {
+					// Register the singleton before waking up threads waiting for it.
+					if (created) {
+						addSingleton(beanName, singletonObject);
+					}
+					afterSingletonCreation(beanName);
+				}
+			}
+		}
+		return (singletonObject != NULL_OBJECT ? singletonObject : null);
+	}
+
+	/**
+	 * Wait until no other thread is creating the given singleton anymore,
+	 * then register the current thread as creating it unless it has been
+	 * created in the meantime.
+	 * <p>Waits on the given singleton's creation only, without holding
+	 * the singleton mutex.
+	 * @param beanName the name of the bean
+	 * @return the singleton object created by another thread in the meantime,
+	 * or an early reference in case of a circular reference across threads,
+	 * or <code>null</code> if the current thread is supposed to create the singleton
+	 * (in which case {@link #beforeSingletonCreation} has been called already)
+	 * @throws BeanCurrentlyInCreationException in case of a circular reference
+	 * across threads that cannot be resolved through an early reference
+	 */
+	private Object awaitSingletonCreation(String beanName) {
+		Thread currentThread = Thread.currentThread();
+		while (true) {
+			SingletonCreation creation = null;
+			synchronized (this.singletonObjects) {
 				if (this.singletonsCurrentlyInDestruction) {
 					throw new BeanCreationNotAllowedException(beanName,
 							"Singleton bean creation not allowed while the singletons of this factory are in destruction " +
 							"(Do not request a bean from a BeanFactory in a destroy method implementation!)");
 				}
-				if (logger.isDebugEnabled()) {
-					logger.debug("Creating shared instance of singleton bean '" + beanName + "'");
-				}
-				beforeSingletonCreation(beanName);
-				boolean recordSuppressedExceptions = (this.suppressedExceptions == null);
-				if (recordSuppressedExceptions) {
-					this.suppressedExceptions = new LinkedHashSet();
+				Object singletonObject = this.singletonObjects.get(beanName);
+				if (singletonObject != null) {
+					return singletonObject;
 				}
-				try {
-					singletonObject = singletonFactory.getObject();
-				}
-				catch (BeanCreationException ex) {
-					if (recordSuppressedExceptions) {
-						for (Iterator it = this.suppressedExceptions.iterator(); it.hasNext();) {
-							ex.addRelatedCause((Exception) it.next());
-						}
+				creation = (SingletonCreation) this.singletonCreations.get(beanName);
+				if (creation == null || creation.getThread() == currentThread) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Creating shared instance of singleton bean '" + beanName + "'");
 					}
-					throw ex;
+					beforeSingletonCreation(beanName);
+					return null;
 				}
-				finally {
-					if (recordSuppressedExceptions) {
-						this.suppressedExceptions = null;
+				if (isWaitingFor(creation.getThread(), currentThread)) {
+					// The creating thread depends on the current thread: resolve like a local circular reference.
+					singletonObject = getEarlySingleton(beanName, true);
+					if (singletonObject == null) {
+						throw new BeanCurrentlyInCreationException(beanName);
 					}
-					afterSingletonCreation(beanName);
+					return singletonObject;
+				}
+				this.singletonCreationWaiters.put(currentThread, beanName);
+			}
+			try {
+				creation.await();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new BeanCreationException(beanName,
+						"Interrupted while waiting for singleton creation on another thread", ex);
+			}
+			finally {
+				synchronized (this.singletonObjects) {
+					this.singletonCreationWaiters.remove(currentThread);
 				}
-				addSingleton(beanName, singletonObject);
 			}
-			return (singletonObject != NULL_OBJECT ? singletonObject : null);
 		}
 	}
 
+	/**
+	 * Determine whether the given thread waits for a singleton that is
+	 * being created by the target thread, directly or through a chain of
+	 * other waiting threads.
+	 * <p>To be called with the singleton mutex held.
+	 */
+	private boolean isWaitingFor(Thread thread, Thread targetThread) {
+		Set visitedThreads = new HashSet();
+		Thread currentThread = thread;
+		while (visitedThreads.add(currentThread)) {
+			String awaitedBeanName = (String) this.singletonCreationWaiters.get(currentThread);
+			if (awaitedBeanName == null) {
+				return false;
+			}
+			SingletonCreation creation = (SingletonCreation) this.singletonCreations.get(awaitedBeanName);
+			if (creation == null) {
+				return false;
+			}
+			currentThread = creation.getThread();
+			if (currentThread == targetThread) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Determine whether the given singleton is currently being created
+	 * by the current thread.
+	 * <p>To be called with the singleton mutex held.
+	 */
+	private boolean isCreatedByCurrentThread(String beanName) {
+		SingletonCreation creation = (SingletonCreation) this.singletonCreations.get(beanName);
+		return (creation != null && creation.getThread() == Thread.currentThread());
+	}
+
 	/**
 	 * Register an Exception that happened to get suppressed during the creation of a
 	 * singleton bean instance, e.g. a temporary circular reference resolution problem.
 	 * @param ex the Exception to register
 	 */
 	protected void onSuppressedException(Exception ex) {
-		synchronized (this.singletonObjects) {
-			if (this.suppressedExceptions != null) {
-				this.suppressedExceptions.add(ex);
-			}
+		Set exceptions = (Set) this.suppressedExceptions.get();
+		if (exceptions != null) {
+			exceptions.add(ex);
 		}
 	}
 
@@ -269,6 +405,19 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		}
 	}
 
+	/**
+	 * Return the fully created singleton object registered under the given name,
+	 * not considering early references to singletons that are currently in creation.
+	 * <p>Neither locks nor allocates, for use on frequently executed lookup paths.
+	 * @param beanName the name of the bean to look for
+	 * @return the registered singleton object, or <code>null</code> if none found
+	 * @see #getSingleton(String)
+	 */
+	protected final Object getCreatedSingleton(String beanName) {
+		Object singletonObject = this.singletonObjects.get(beanName);
+		return (singletonObject != NULL_OBJECT ? singletonObject : null);
+	}
+
 	public boolean containsSingleton(String beanName) {
 		return (this.singletonObjects.containsKey(beanName));
 	}
@@ -288,25 +437,36 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 
 	/**
 	 * Callback before singleton creation.
-	 * <p>Default implementation register the singleton as currently in creation.
+	 * <p>Default implementation register the singleton as currently in creation
+	 * by the current thread.
 	 * @param beanName the name of the singleton about to be created
 	 * @see #isSingletonCurrentlyInCreation
 	 */
 	protected void beforeSingletonCreation(String beanName) {
-		if (!this.singletonsCurrentlyInCreation.add(beanName)) {
-			throw new BeanCurrentlyInCreationException(beanName);
+		synchronized (this.singletonObjects) {
+			if (!this.singletonsCurrentlyInCreation.add(beanName)) {
+				throw new BeanCurrentlyInCreationException(beanName);
+			}
+			this.singletonCreations.put(beanName, new SingletonCreation(Thread.currentThread()));
 		}
 	}
 
 	/**
 	 * Callback after singleton creation.
-	 * <p>Default implementation marks the singleton as not in creation anymore.
+	 * <p>Default implementation marks the singleton as not in creation anymore,
+	 * waking up threads that wait for the singleton to be created.
 	 * @param beanName the name of the singleton that has been created
 	 * @see #isSingletonCurrentlyInCreation
 	 */
 	protected void afterSingletonCreation(String beanName) {
-		if (!this.singletonsCurrentlyInCreation.remove(beanName)) {
-			throw new IllegalStateException("Singleton '" + beanName + "' isn't currently in creation");
+		synchronized (this.singletonObjects) {
+			if (!this.singletonsCurrentlyInCreation.remove(beanName)) {
+				throw new IllegalStateException("Singleton '" + beanName + "' isn't currently in creation");
+			}
+			SingletonCreation creation = (SingletonCreation) this.singletonCreations.remove(beanName);
+			if (creation != null) {
+				creation.complete();
+			}
 		}
 	}
 
@@ -416,6 +576,51 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		return (String[]) dependenciesForBean.toArray(new String[dependenciesForBean.size()]);
 	}
 
+	/**
+	 * Set a TaskExecutor to destroy singletons concurrently on.
+	 * <p>Default is none, destroying all disposable singletons sequentially
+	 * on the calling thread, in reverse registration order. If specified, each
+	 * singleton will be destroyed as soon as all of the beans that depend on
+	 * it have been destroyed, according to the registered dependencies.
+	 * Singletons that are part of a dependency cycle will still be destroyed
+	 * sequentially afterwards.
+	 * <p>Pass in a bounded executor, typically a thread pool: Singletons whose
+	 * execution gets rejected will be destroyed on the calling thread instead.
+	 * @see #destroySingletons()
+	 * @see #setDestructionTimeout
+	 * @see #registerDependentBean
+	 */
+	public void setDestructionExecutor(TaskExecutor destructionExecutor) {
+		this.destructionExecutor = destructionExecutor;
+	}
+
+	/**
+	 * Return the TaskExecutor to destroy singletons concurrently on, if any.
+	 */
+	public TaskExecutor getDestructionExecutor() {
+		return this.destructionExecutor;
+	}
+
+	/**
+	 * Set the maximum time to wait for concurrent singleton destruction to
+	 * complete, in milliseconds. Default is 0, waiting for all singletons.
+	 * <p>Once the timeout has expired, singletons that have not been submitted
+	 * for destruction yet will be abandoned (with a warning listing them),
+	 * and the registry will be cleared regardless.
+	 * Only applies in case of a {@link #setDestructionExecutor destruction executor}.
+	 */
+	public void setDestructionTimeout(long destructionTimeout) {
+		this.destructionTimeout = destructionTimeout;
+	}
+
+	/**
+	 * Return the maximum time to wait for concurrent singleton destruction,
+	 * in milliseconds (0 for no limit).
+	 */
+	public long getDestructionTimeout() {
+		return this.destructionTimeout;
+	}
+
 	public void destroySingletons() {
 		if (logger.isInfoEnabled()) {
 			logger.info("Destroying singletons in " + this);
@@ -424,10 +629,15 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 			this.singletonsCurrentlyInDestruction = true;
 		}
 
-		synchronized (this.disposableBeans) {
-			String[] disposableBeanNames = StringUtils.toStringArray(this.disposableBeans.keySet());
-			for (int i = disposableBeanNames.length - 1; i >= 0; i--) {
-				destroySingleton(disposableBeanNames[i]);
+		if (this.destructionExecutor != null) {
+			destroySingletonsConcurrently();
+		}
+		else {
+			synchronized (this.disposableBeans) {
+				String[] disposableBeanNames = StringUtils.toStringArray(this.disposableBeans.keySet());
+				for (int i = disposableBeanNames.length - 1; i >= 0; i--) {
+					destroySingleton(disposableBeanNames[i]);
+				}
 			}
 		}
 
@@ -444,6 +654,40 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		}
 	}
 
+	/**
+	 * Destroy all disposable singletons on the destruction executor,
+	 * in an order determined by the registered dependencies.
+	 * <p>Works on a snapshot of the disposable bean names and the dependent
+	 * beans, not holding any registry lock while waiting for destruction
+	 * tasks on other threads.
+	 * @see ConcurrentSingletonDestroyer
+	 */
+	private void destroySingletonsConcurrently() {
+		String[] disposableBeanNames = null;
+		synchronized (this.disposableBeans) {
+			disposableBeanNames = StringUtils.toStringArray(this.disposableBeans.keySet());
+		}
+		List beanNames = new ArrayList(disposableBeanNames.length);
+		for (int i = disposableBeanNames.length - 1; i >= 0; i--) {
+			beanNames.add(disposableBeanNames[i]);
+		}
+		Map dependentBeans = new HashMap(this.dependentBeanMap.size());
+		synchronized (this.dependentBeanMap) {
+			for (Iterator it = this.dependentBeanMap.entrySet().iterator(); it.hasNext();) {
+				Map.Entry entry = (Map.Entry) it.next();
+				dependentBeans.put(entry.getKey(), new LinkedHashSet((Set) entry.getValue()));
+			}
+		}
+		ConcurrentSingletonDestroyer destroyer =
+				new ConcurrentSingletonDestroyer(this, beanNames, dependentBeans, this.destructionExecutor);
+		if (!destroyer.destroySingletons(this.destructionTimeout)) {
+			// Abandoned beans must not get destroyed on a later shutdown of this registry.
+			synchronized (this.disposableBeans) {
+				this.disposableBeans.clear();
+			}
+		}
+	}
+
 	/**
 	 * Destroy the given bean. Delegates to <code>destroyBean</code>
 	 * if a corresponding disposable bean instance is found.
@@ -500,6 +744,50 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 			}
 		}
 
+		removeDependencyInformation(beanName);
+	}
+
+	/**
+	 * Remove the given singleton and its DisposableBean instance from this
+	 * registry, without destroying it yet. Used for concurrent destruction.
+	 * @param beanName the name of the bean
+	 * @return the DisposableBean instance (or <code>null</code> if none)
+	 * @see ConcurrentSingletonDestroyer
+	 */
+	DisposableBean removeSingletonForDestruction(String beanName) {
+		removeSingleton(beanName);
+		synchronized (this.disposableBeans) {
+			return (DisposableBean) this.disposableBeans.remove(beanName);
+		}
+	}
+
+	/**
+	 * Remove the names of the beans that depend on the given bean.
+	 * Used for concurrent destruction.
+	 * @param beanName the name of the bean
+	 * @return the Set of dependent bean names (or <code>null</code> if none)
+	 * @see ConcurrentSingletonDestroyer
+	 */
+	Set removeDependentBeans(String beanName) {
+		return (Set) this.dependentBeanMap.remove(beanName);
+	}
+
+	/**
+	 * Remove the names of the beans contained in the given bean.
+	 * Used for concurrent destruction.
+	 * @param beanName the name of the bean
+	 * @return the Set of contained bean names (or <code>null</code> if none)
+	 * @see ConcurrentSingletonDestroyer
+	 */
+	Set removeContainedBeans(String beanName) {
+		return (Set) this.containedBeanMap.remove(beanName);
+	}
+
+	/**
+	 * Remove all dependency information for the given destroyed bean.
+	 * @param beanName the name of the bean
+	 */
+	void removeDependencyInformation(String beanName) {
 		// Remove destroyed bean from other beans' dependencies.
 		synchronized (this.dependentBeanMap) {
 			for (Iterator it = this.dependentBeanMap.entrySet().iterator(); it.hasNext();) {
@@ -522,9 +810,44 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 * any sort of extended singleton creation phase. In particular, subclasses
 	 * should <i>not</i> have their own mutexes involved in singleton creation,
 	 * to avoid the potential for deadlocks in lazy-init situations.
+	 * <p>Note that {@link #getSingleton(String, ObjectFactory)} only holds this
+	 * mutex for registry bookkeeping, not while actually creating a singleton.
 	 */
 	protected final Object getSingletonMutex() {
 		return this.singletonObjects;
 	}
 
+
+	/**
+	 * Ongoing creation of a singleton by a specific thread.
+	 * Serves as monitor for threads waiting for that creation to finish,
+	 * so that completing one singleton only wakes up the threads
+	 * waiting for that singleton.
+	 */
+	private static class SingletonCreation {
+
+		private final Thread thread;
+
+		private boolean completed = false;
+
+		public SingletonCreation(Thread thread) {
+			this.thread = thread;
+		}
+
+		public Thread getThread() {
+			return this.thread;
+		}
+
+		public synchronized void complete() {
+			this.completed = true;
+			notifyAll();
+		}
+
+		public synchronized void await() throws InterruptedException {
+			while (!this.completed) {
+				wait();
+			}
+		}
+	}
+
 }
@@ -17,6 +17,7 @@
 package org.springframework.beans.factory.support;
 
 import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -35,7 +36,8 @@ import java.util.Set;
  */
 public class MethodOverrides {
 
-	private final Set overrides = new HashSet();
+	/** Set of MethodOverride objects, lazily created on first override */
+	private Set overrides;
 
 
 	/**
@@ -56,8 +58,13 @@ public class MethodOverrides {
 	 * Copy all given method overrides into this object.
 	 */
 	public void addOverrides(MethodOverrides other) {
-		if (other != null) {
-			this.overrides.addAll(other.getOverrides());
+		if (other != null && !other.isEmpty()) {
+			if (this.overrides == null) {
+				this.overrides = new HashSet(other.getOverrides());
+			}
+			else {
+				this.overrides.addAll(other.getOverrides());
+			}
 		}
 	}
 
@@ -65,23 +72,27 @@ public class MethodOverrides {
 	 * Add the given method override.
 	 */
 	public void addOverride(MethodOverride override) {
+		if (this.overrides == null) {
+			this.overrides = new HashSet(4);
+		}
 		this.overrides.add(override);
 	}
 
 	/**
 	 * Return all method overrides contained by this object.
-	 * @return Set of MethodOverride objects
+	 * @return Set of MethodOverride objects (a shared immutable
+	 * empty Set if no overrides have been added)
 	 * @see MethodOverride
 	 */
 	public Set getOverrides() {
-		return this.overrides;
+		return (this.overrides != null ? this.overrides : Collections.EMPTY_SET);
 	}
 
 	/**
 	 * Return whether the set of method overrides is empty.
 	 */
 	public boolean isEmpty() {
-		return this.overrides.isEmpty();
+		return (this.overrides == null || this.overrides.isEmpty());
 	}
 	
 	/**
@@ -90,6 +101,9 @@ public class MethodOverrides {
 	 * @return the method override, or <code>null</code> if none
 	 */
 	public MethodOverride getOverride(Method method) {
+		if (this.overrides == null) {
+			return null;
+		}
 		for (Iterator it = this.overrides.iterator(); it.hasNext();) {
 			MethodOverride methodOverride = (MethodOverride) it.next();
 			if (methodOverride.matches(method)) {
@@ -105,13 +119,13 @@ public class MethodOverrides {
 
 		MethodOverrides that = (MethodOverrides) o;
 
-		if (!this.overrides.equals(that.overrides)) return false;
+		if (!getOverrides().equals(that.getOverrides())) return false;
 
 		return true;
 	}
 
 	public int hashCode() {
-		return this.overrides.hashCode();
+		return getOverrides().hashCode();
 	}
 
 }
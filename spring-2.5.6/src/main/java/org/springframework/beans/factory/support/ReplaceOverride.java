@@ -71,6 +71,13 @@ public class ReplaceOverride extends MethodOverride {
 		this.typeIdentifiers.add(identifier);
 	}
 
+	/**
+	 * Return the type identifiers added so far, in parameter order.
+	 */
+	List getTypeIdentifiers() {
+		return this.typeIdentifiers;
+	}
+
 
 	public boolean matches(Method method) {
 		// TODO could cache result for efficiency
@@ -19,11 +19,13 @@ package org.springframework.beans.factory.support;
 import java.lang.reflect.Member;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.springframework.beans.MutablePropertyValues;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.core.MethodParameter;
 
 /**
  * A root bean definition represents the merged bean definition that backs
@@ -63,12 +65,27 @@ public class RootBeanDefinition extends AbstractBeanDefinition {
 	/** Package-visible field that marks the constructor arguments as resolved */
 	volatile boolean constructorArgumentsResolved = false;
 
+	/**
+	 * Package-visible field for caching the parameters of those prepared constructor
+	 * arguments that need to be resolved at runtime (<code>null</code> entries otherwise)
+	 */
+	volatile MethodParameter[] preparedConstructorParameters;
+
+	/** Package-visible field for caching constructors or factory methods chosen for explicit arguments */
+	volatile Map resolvedConstructorsByArgumentTypes;
+
+	/** Common lock for the constructor and constructor argument fields above */
+	final Object constructorArgumentLock = new Object();
+
 	/** Package-visible field that indicates a before-instantiation post-processor having kicked in */
 	volatile Boolean beforeInstantiationResolved;
 
 	/** Package-visible field that indicates MergedBeanDefinitionPostProcessor having been applied */
 	boolean postProcessed = false;
 
+	/** Package-visible field for caching the instantiation plan of a non-singleton bean */
+	volatile BeanInstantiationPlan instantiationPlan;
+
 	final Object postProcessingLock = new Object();
 
 
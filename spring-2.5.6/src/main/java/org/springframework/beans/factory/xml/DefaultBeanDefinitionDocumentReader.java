@@ -126,14 +126,7 @@ public class DefaultBeanDefinitionDocumentReader implements BeanDefinitionDocume
 			for (int i = 0; i < nl.getLength(); i++) {
 				Node node = nl.item(i);
 				if (node instanceof Element) {
-					Element ele = (Element) node;
-					String namespaceUri = ele.getNamespaceURI();
-					if (delegate.isDefaultNamespace(namespaceUri)) {
-						parseDefaultElement(ele, delegate);
-					}
-					else {
-						delegate.parseCustomElement(ele);
-					}
+					parseTopLevelElement((Element) node, delegate);
 				}
 			}
 		}
@@ -142,6 +135,22 @@ public class DefaultBeanDefinitionDocumentReader implements BeanDefinitionDocume
 		}
 	}
 
+	/**
+	 * Parse a single element underneath the root element:
+	 * "import", "alias", "bean" or a custom element.
+	 * @param ele the DOM element to parse
+	 * @param delegate the delegate to use for bean definition parsing
+	 */
+	protected void parseTopLevelElement(Element ele, BeanDefinitionParserDelegate delegate) {
+		String namespaceUri = ele.getNamespaceURI();
+		if (delegate.isDefaultNamespace(namespaceUri)) {
+			parseDefaultElement(ele, delegate);
+		}
+		else {
+			delegate.parseCustomElement(ele);
+		}
+	}
+
 	private void parseDefaultElement(Element ele, BeanDefinitionParserDelegate delegate) {
 		if (DomUtils.nodeNameEquals(ele, IMPORT_ELEMENT)) {
 			importBeanDefinitionResource(ele);
@@ -71,8 +71,14 @@ public class DefaultDocumentLoader implements DocumentLoader {
 		if (logger.isDebugEnabled()) {
 			logger.debug("Using JAXP provider [" + factory.getClass().getName() + "]");
 		}
+		long startTime = System.currentTimeMillis();
 		DocumentBuilder builder = createDocumentBuilder(factory, entityResolver, errorHandler);
-		return builder.parse(inputSource);
+		Document doc = builder.parse(inputSource);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Loaded XML document [" + inputSource.getSystemId() + "] with validation mode " +
+					validationMode + " in " + (System.currentTimeMillis() - startTime) + " ms");
+		}
+		return doc;
 	}
 
 	/**
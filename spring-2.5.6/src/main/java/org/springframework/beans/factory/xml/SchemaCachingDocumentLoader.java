@@ -0,0 +1,399 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.xml;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.Source;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.ls.LSInput;
+import org.w3c.dom.ls.LSResourceResolver;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+
+import org.springframework.util.StringUtils;
+import org.springframework.util.xml.XmlValidationModeDetector;
+
+/**
+ * {@link DocumentLoader} implementation that validates XSD-based documents
+ * against compiled JAXP 1.3 {@link Schema} objects, cached per combination
+ * of EntityResolver and schema locations. Avoids loading and compiling the
+ * same schemas for each XML file, which otherwise dominates the parsing
+ * time for applications with many small bean definition files.
+ *
+ * <p>The cache is held by the loader instance, so compiled Schemas do not
+ * outlive the reader that the loader has been configured on. It is bounded,
+ * evicting the least recently used entries beyond the
+ * {@link #setCacheLimit cache limit}.
+ *
+ * <p>XSD-based documents get parsed without validation first; the schema
+ * locations declared through "xsi:schemaLocation" attributes are then used
+ * to look up the compiled Schema (resolving it through the given
+ * EntityResolver on first access), and the document gets validated in place.
+ * Default attribute values declared by the schema are applied the same way
+ * as with a validating parser. Note that validation errors do not carry
+ * line numbers, since they are detected on the DOM tree.
+ *
+ * <p>DTD-based and non-validated documents are loaded as usual.
+ * Logs the time spent on parsing and validation for each document
+ * at debug level.
+ *
+ * <p>Requires JAXP 1.3, as included in Java 5 and Xerces 2.7.
+ *
+ * @author agent
+ * @since 2.5.6
+ * @see XmlBeanDefinitionReader#setDocumentLoader
+ */
+public class SchemaCachingDocumentLoader extends DefaultDocumentLoader {
+
+	private static final String XSI_SCHEMA_LOCATION_ATTRIBUTE = "schemaLocation";
+
+	private static final String XSI_NO_NAMESPACE_SCHEMA_LOCATION_ATTRIBUTE = "noNamespaceSchemaLocation";
+
+	/** Default maximum number of entries for the Schema cache: 16 */
+	public static final int DEFAULT_CACHE_LIMIT = 16;
+
+
+	private static final Log logger = LogFactory.getLog(SchemaCachingDocumentLoader.class);
+
+	private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
+
+	/** Compiled Schemas, keyed by SchemaCacheKey */
+	private final Map schemaCache = new LinkedHashMap(DEFAULT_CACHE_LIMIT, 0.75f, true) {
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			return size() > getCacheLimit();
+		}
+	};
+
+
+	/**
+	 * Specify the maximum number of entries for the Schema cache.
+	 * Default is 16.
+	 */
+	public void setCacheLimit(int cacheLimit) {
+		this.cacheLimit = cacheLimit;
+	}
+
+	/**
+	 * Return the maximum number of entries for the Schema cache.
+	 */
+	public int getCacheLimit() {
+		return this.cacheLimit;
+	}
+
+	/**
+	 * Clear the Schema cache, releasing all compiled Schemas.
+	 */
+	public void clearCache() {
+		synchronized (this.schemaCache) {
+			this.schemaCache.clear();
+		}
+	}
+
+
+	public Document loadDocument(InputSource inputSource, EntityResolver entityResolver,
+			ErrorHandler errorHandler, int validationMode, boolean namespaceAware) throws Exception {
+
+		if (validationMode != XmlValidationModeDetector.VALIDATION_XSD) {
+			return super.loadDocument(inputSource, entityResolver, errorHandler, validationMode, namespaceAware);
+		}
+
+		long startTime = System.currentTimeMillis();
+		DocumentBuilderFactory factory = createDocumentBuilderFactory(XmlValidationModeDetector.VALIDATION_NONE, true);
+		DocumentBuilder builder = createDocumentBuilder(factory, entityResolver, errorHandler);
+		Document doc = builder.parse(inputSource);
+		long parseTime = System.currentTimeMillis() - startTime;
+
+		Map schemaLocations = new LinkedHashMap();
+		collectSchemaLocations(doc.getDocumentElement(), schemaLocations);
+		Object cacheKey = new SchemaCacheKey(entityResolver, buildCacheKey(schemaLocations));
+		Schema schema = null;
+		synchronized (this.schemaCache) {
+			schema = (Schema) this.schemaCache.get(cacheKey);
+		}
+		boolean cached = (schema != null);
+		if (schema == null) {
+			// Compile outside of the lock: a concurrent compilation of the
+			// same schemas is harmless, with the last Schema cached.
+			schema = compileSchema(schemaLocations, entityResolver);
+			if (getCacheLimit() > 0) {
+				synchronized (this.schemaCache) {
+					this.schemaCache.put(cacheKey, schema);
+				}
+			}
+		}
+
+		long validationStartTime = System.currentTimeMillis();
+		Validator validator = schema.newValidator();
+		validator.setResourceResolver(new EntityResolverAdapter(entityResolver));
+		if (errorHandler != null) {
+			validator.setErrorHandler(errorHandler);
+		}
+		// Validate in place, applying default attribute values to the given document.
+		validator.validate(new DOMSource(doc, inputSource.getSystemId()), new DOMResult(doc));
+		long validationTime = System.currentTimeMillis() - validationStartTime;
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Loaded XML document [" + inputSource.getSystemId() + "]: parsed in " + parseTime +
+					" ms, validated in " + validationTime + " ms against " + (cached ? "cached" : "newly compiled") +
+					" schema for " + schemaLocations.values() + " (total " +
+					(System.currentTimeMillis() - startTime) + " ms)");
+		}
+		return doc;
+	}
+
+	/**
+	 * Collect all schema locations declared in the given element and its children.
+	 * @param ele the element to start with
+	 * @param schemaLocations the Map to add to (namespace URI String to location String)
+	 */
+	private void collectSchemaLocations(Element ele, Map schemaLocations) {
+		String schemaLocation = ele.getAttributeNS(
+				XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, XSI_SCHEMA_LOCATION_ATTRIBUTE);
+		if (StringUtils.hasText(schemaLocation)) {
+			String[] tokens = StringUtils.tokenizeToStringArray(schemaLocation, " \t\n\r\f");
+			for (int i = 0; i + 1 < tokens.length; i += 2) {
+				if (!schemaLocations.containsKey(tokens[i])) {
+					schemaLocations.put(tokens[i], tokens[i + 1]);
+				}
+			}
+		}
+		String noNamespaceSchemaLocation = ele.getAttributeNS(
+				XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, XSI_NO_NAMESPACE_SCHEMA_LOCATION_ATTRIBUTE);
+		if (StringUtils.hasText(noNamespaceSchemaLocation) && !schemaLocations.containsKey("")) {
+			schemaLocations.put("", noNamespaceSchemaLocation.trim());
+		}
+		for (Node child = ele.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child instanceof Element) {
+				collectSchemaLocations((Element) child, schemaLocations);
+			}
+		}
+	}
+
+	private String buildCacheKey(Map schemaLocations) {
+		StringBuffer sb = new StringBuffer();
+		for (Iterator it = schemaLocations.entrySet().iterator(); it.hasNext();) {
+			Map.Entry entry = (Map.Entry) it.next();
+			sb.append(entry.getKey()).append('=').append(entry.getValue()).append(' ');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Compile a Schema for the given schema locations, resolving
+	 * the schema documents through the given EntityResolver.
+	 * @param schemaLocations the Map of namespace URI Strings to location Strings
+	 * @param entityResolver the EntityResolver to use (may be <code>null</code>)
+	 * @return the compiled Schema
+	 * @throws Exception if a schema document could not be resolved or compiled
+	 */
+	protected Schema compileSchema(Map schemaLocations, EntityResolver entityResolver) throws Exception {
+		long startTime = System.currentTimeMillis();
+		SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+		schemaFactory.setResourceResolver(new EntityResolverAdapter(entityResolver));
+		List sources = new ArrayList(schemaLocations.size());
+		for (Iterator it = schemaLocations.values().iterator(); it.hasNext();) {
+			String location = (String) it.next();
+			InputSource inputSource = (entityResolver != null ? entityResolver.resolveEntity(null, location) : null);
+			if (inputSource != null) {
+				if (inputSource.getSystemId() == null) {
+					inputSource.setSystemId(location);
+				}
+				sources.add(new SAXSource(inputSource));
+			}
+			else {
+				sources.add(new StreamSource(location));
+			}
+		}
+		Schema schema = schemaFactory.newSchema((Source[]) sources.toArray(new Source[sources.size()]));
+		if (logger.isDebugEnabled()) {
+			logger.debug("Compiled XML schema for " + schemaLocations.values() + " in " +
+					(System.currentTimeMillis() - startTime) + " ms");
+		}
+		return schema;
+	}
+
+
+	/**
+	 * Cache key for compiled Schemas: the EntityResolver that the schema
+	 * documents have been resolved with (compared by identity), plus
+	 * the schema locations.
+	 */
+	private static class SchemaCacheKey {
+
+		private final EntityResolver entityResolver;
+
+		private final String schemaLocations;
+
+		public SchemaCacheKey(EntityResolver entityResolver, String schemaLocations) {
+			this.entityResolver = entityResolver;
+			this.schemaLocations = schemaLocations;
+		}
+
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof SchemaCacheKey)) {
+				return false;
+			}
+			SchemaCacheKey otherKey = (SchemaCacheKey) other;
+			return (this.entityResolver == otherKey.entityResolver &&
+					this.schemaLocations.equals(otherKey.schemaLocations));
+		}
+
+		public int hashCode() {
+			return System.identityHashCode(this.entityResolver) * 29 + this.schemaLocations.hashCode();
+		}
+	}
+
+
+	/**
+	 * Adapter that exposes a SAX EntityResolver as DOM LSResourceResolver,
+	 * for resolving imported and included schema documents.
+	 */
+	private static class EntityResolverAdapter implements LSResourceResolver {
+
+		private final EntityResolver entityResolver;
+
+		public EntityResolverAdapter(EntityResolver entityResolver) {
+			this.entityResolver = entityResolver;
+		}
+
+		public LSInput resolveResource(
+				String type, String namespaceURI, String publicId, String systemId, String baseURI) {
+
+			if (this.entityResolver == null || systemId == null) {
+				return null;
+			}
+			try {
+				InputSource inputSource = this.entityResolver.resolveEntity(publicId, systemId);
+				return (inputSource != null ? new InputSourceLSInput(inputSource, baseURI) : null);
+			}
+			catch (Exception ex) {
+				throw new IllegalStateException("Failed to resolve XML resource [" + systemId + "]: " + ex);
+			}
+		}
+	}
+
+
+	/**
+	 * LSInput implementation backed by a SAX InputSource.
+	 */
+	private static class InputSourceLSInput implements LSInput {
+
+		private final InputSource inputSource;
+
+		private String baseURI;
+
+		private String stringData;
+
+		private boolean certifiedText;
+
+		public InputSourceLSInput(InputSource inputSource, String baseURI) {
+			this.inputSource = inputSource;
+			this.baseURI = baseURI;
+		}
+
+		public Reader getCharacterStream() {
+			return this.inputSource.getCharacterStream();
+		}
+
+		public void setCharacterStream(Reader characterStream) {
+			this.inputSource.setCharacterStream(characterStream);
+		}
+
+		public InputStream getByteStream() {
+			return this.inputSource.getByteStream();
+		}
+
+		public void setByteStream(InputStream byteStream) {
+			this.inputSource.setByteStream(byteStream);
+		}
+
+		public String getStringData() {
+			return this.stringData;
+		}
+
+		public void setStringData(String stringData) {
+			this.stringData = stringData;
+		}
+
+		public String getSystemId() {
+			return this.inputSource.getSystemId();
+		}
+
+		public void setSystemId(String systemId) {
+			this.inputSource.setSystemId(systemId);
+		}
+
+		public String getPublicId() {
+			return this.inputSource.getPublicId();
+		}
+
+		public void setPublicId(String publicId) {
+			this.inputSource.setPublicId(publicId);
+		}
+
+		public String getBaseURI() {
+			return this.baseURI;
+		}
+
+		public void setBaseURI(String baseURI) {
+			this.baseURI = baseURI;
+		}
+
+		public String getEncoding() {
+			return this.inputSource.getEncoding();
+		}
+
+		public void setEncoding(String encoding) {
+			this.inputSource.setEncoding(encoding);
+		}
+
+		public boolean getCertifiedText() {
+			return this.certifiedText;
+		}
+
+		public void setCertifiedText(boolean certifiedText) {
+			this.certifiedText = certifiedText;
+		}
+	}
+
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.xml;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.util.StringUtils;
+
+/**
+ * Streaming variant of {@link DefaultBeanDefinitionDocumentReader}, reading
+ * bean definitions from a StAX {@link XMLStreamReader} instead of a complete
+ * DOM document. Each element underneath the root element is turned into a
+ * standalone DOM fragment, parsed and registered right away, and released
+ * before the next element is read. Hence the memory needed for parsing is
+ * determined by the largest top-level element rather than by the whole file.
+ *
+ * <p>Custom namespace handlers and decorators keep operating on DOM elements
+ * as usual; they just get to see the fragment for their own element only.
+ * Custom elements used as root element of a document get parsed as a whole.
+ *
+ * <p>The XML stream is not validated. Instead, the attribute defaults that
+ * the "spring-beans" DTD and XSD declare are applied to each fragment.
+ * When used with a DOM {@link Document} through the standard
+ * {@link BeanDefinitionDocumentReader} interface, this reader behaves
+ * like its superclass.
+ *
+ * @author agent
+ * @since 2.5.6
+ * @see StaxXmlBeanDefinitionReader
+ */
+public class StaxBeanDefinitionDocumentReader extends DefaultBeanDefinitionDocumentReader {
+
+	private static final String DEFAULT_QUALIFIER_TYPE = "org.springframework.beans.factory.annotation.Qualifier";
+
+	private static final String XMLNS_ATTRIBUTE = "xmlns";
+
+	private static final String XMLNS_NAMESPACE_URI = "http://www.w3.org/2000/xmlns/";
+
+
+	private XMLStreamReader streamReader;
+
+
+	/**
+	 * Read bean definitions from the given XML stream.
+	 * @param streamReader the StAX reader, positioned before the root element
+	 * @param readerContext the current context of the reader
+	 * (includes the target registry and the resource being parsed)
+	 * @throws XMLStreamException if the stream is not well-formed
+	 * @throws BeanDefinitionStoreException in case of parsing errors
+	 */
+	public void registerBeanDefinitions(XMLStreamReader streamReader, XmlReaderContext readerContext)
+			throws XMLStreamException, BeanDefinitionStoreException {
+
+		Document doc = createDocument(readerContext);
+		while (streamReader.next() != XMLStreamConstants.START_ELEMENT) {
+			// Skip prolog: XML declaration, DOCTYPE, comments, processing instructions.
+		}
+		Element root = createElement(doc, streamReader);
+		doc.appendChild(root);
+		this.streamReader = streamReader;
+		try {
+			// Sets up the reader context and the parser delegate based on the root element only.
+			registerBeanDefinitions(doc, readerContext);
+		}
+		catch (XmlStreamParsingException ex) {
+			throw ex.getXmlStreamException();
+		}
+		finally {
+			this.streamReader = null;
+		}
+	}
+
+	/**
+	 * Parse the elements underneath the root element one at a time
+	 * if reading from an XML stream; else process the given DOM.
+	 */
+	protected void parseBeanDefinitions(Element root, BeanDefinitionParserDelegate delegate) {
+		if (this.streamReader == null) {
+			super.parseBeanDefinitions(root, delegate);
+			return;
+		}
+		try {
+			if (delegate.isDefaultNamespace(root.getNamespaceURI())) {
+				while (this.streamReader.next() != XMLStreamConstants.END_ELEMENT) {
+					if (this.streamReader.isStartElement()) {
+						Element ele = readElement(root.getOwnerDocument(), delegate);
+						root.appendChild(ele);
+						try {
+							parseTopLevelElement(ele, delegate);
+						}
+						finally {
+							root.removeChild(ele);
+						}
+					}
+				}
+			}
+			else {
+				readContent(root, delegate);
+				delegate.parseCustomElement(root);
+			}
+		}
+		catch (XMLStreamException ex) {
+			throw new XmlStreamParsingException(ex);
+		}
+	}
+
+	/**
+	 * Create an empty DOM document to hold the root element and the current fragment.
+	 */
+	private Document createDocument(XmlReaderContext readerContext) {
+		try {
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setNamespaceAware(true);
+			return factory.newDocumentBuilder().newDocument();
+		}
+		catch (ParserConfigurationException ex) {
+			throw new BeanDefinitionStoreException(readerContext.getResource().getDescription(),
+					"Parser configuration exception creating DOM document for " + readerContext.getResource(), ex);
+		}
+	}
+
+	/**
+	 * Read the element that the stream is positioned at, including its content.
+	 */
+	private Element readElement(Document doc, BeanDefinitionParserDelegate delegate) throws XMLStreamException {
+		Element ele = createElement(doc, this.streamReader);
+		applyDefaultAttributes(ele, delegate);
+		readContent(ele, delegate);
+		return ele;
+	}
+
+	/**
+	 * Read the content of the current element, up to its end tag.
+	 */
+	private void readContent(Element ele, BeanDefinitionParserDelegate delegate) throws XMLStreamException {
+		Document doc = ele.getOwnerDocument();
+		while (true) {
+			switch (this.streamReader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					ele.appendChild(readElement(doc, delegate));
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.SPACE:
+					ele.appendChild(doc.createTextNode(this.streamReader.getText()));
+					break;
+				case XMLStreamConstants.CDATA:
+					ele.appendChild(doc.createCDATASection(this.streamReader.getText()));
+					break;
+				case XMLStreamConstants.ENTITY_REFERENCE:
+					ele.appendChild(doc.createEntityReference(this.streamReader.getLocalName()));
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					return;
+			}
+		}
+	}
+
+	/**
+	 * Create a DOM element for the start tag that the stream is positioned at,
+	 * including its namespace declarations and attributes.
+	 */
+	private static Element createElement(Document doc, XMLStreamReader streamReader) {
+		Element ele = doc.createElementNS(streamReader.getNamespaceURI(),
+				qualifiedName(streamReader.getPrefix(), streamReader.getLocalName()));
+		for (int i = 0; i < streamReader.getNamespaceCount(); i++) {
+			String prefix = streamReader.getNamespacePrefix(i);
+			String qualifiedName = (StringUtils.hasLength(prefix) ? XMLNS_ATTRIBUTE + ":" + prefix : XMLNS_ATTRIBUTE);
+			ele.setAttributeNS(XMLNS_NAMESPACE_URI, qualifiedName, streamReader.getNamespaceURI(i));
+		}
+		for (int i = 0; i < streamReader.getAttributeCount(); i++) {
+			String namespaceUri = streamReader.getAttributeNamespace(i);
+			ele.setAttributeNS((StringUtils.hasLength(namespaceUri) ? namespaceUri : null),
+					qualifiedName(streamReader.getAttributePrefix(i), streamReader.getAttributeLocalName(i)),
+					streamReader.getAttributeValue(i));
+		}
+		return ele;
+	}
+
+	private static String qualifiedName(String prefix, String localName) {
+		return (StringUtils.hasLength(prefix) ? prefix + ":" + localName : localName);
+	}
+
+	/**
+	 * Apply the attribute defaults declared by the "spring-beans" DTD and XSD,
+	 * which would otherwise only be present in a validated DOM document.
+	 */
+	private void applyDefaultAttributes(Element ele, BeanDefinitionParserDelegate delegate) {
+		if (!delegate.isDefaultNamespace(ele.getNamespaceURI())) {
+			return;
+		}
+		String localName = ele.getLocalName();
+		if (BEAN_ELEMENT.equals(localName)) {
+			applyDefaultAttribute(ele, BeanDefinitionParserDelegate.LAZY_INIT_ATTRIBUTE);
+			applyDefaultAttribute(ele, BeanDefinitionParserDelegate.AUTOWIRE_ATTRIBUTE);
+			applyDefaultAttribute(ele, BeanDefinitionParserDelegate.DEPENDENCY_CHECK_ATTRIBUTE);
+			applyDefaultAttribute(ele, BeanDefinitionParserDelegate.AUTOWIRE_CANDIDATE_ATTRIBUTE);
+		}
+		else if (BeanDefinitionParserDelegate.QUALIFIER_ELEMENT.equals(localName) &&
+				!ele.hasAttribute(BeanDefinitionParserDelegate.TYPE_ATTRIBUTE)) {
+			ele.setAttribute(BeanDefinitionParserDelegate.TYPE_ATTRIBUTE, DEFAULT_QUALIFIER_TYPE);
+		}
+		else if (BeanDefinitionParserDelegate.LIST_ELEMENT.equals(localName) ||
+				BeanDefinitionParserDelegate.SET_ELEMENT.equals(localName) ||
+				BeanDefinitionParserDelegate.MAP_ELEMENT.equals(localName) ||
+				BeanDefinitionParserDelegate.PROPS_ELEMENT.equals(localName)) {
+			applyDefaultAttribute(ele, BeanDefinitionParserDelegate.MERGE_ATTRIBUTE);
+		}
+	}
+
+	private void applyDefaultAttribute(Element ele, String attributeName) {
+		if (!ele.hasAttribute(attributeName)) {
+			ele.setAttribute(attributeName, BeanDefinitionParserDelegate.DEFAULT_VALUE);
+		}
+	}
+
+
+	/**
+	 * Unchecked holder for an XMLStreamException thrown while
+	 * parsing, passed through the DOM-based template methods.
+	 */
+	private static class XmlStreamParsingException extends RuntimeException {
+
+		private final XMLStreamException xmlStreamException;
+
+		public XmlStreamParsingException(XMLStreamException ex) {
+			this.xmlStreamException = ex;
+		}
+
+		public XMLStreamException getXmlStreamException() {
+			return this.xmlStreamException;
+		}
+	}
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.xml;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.xml.sax.InputSource;
+
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.core.io.Resource;
+
+/**
+ * Variant of {@link XmlBeanDefinitionReader} that streams XML bean definition
+ * files through a StAX {@link XMLStreamReader} instead of loading a DOM
+ * document for the entire file. Bean definitions get registered as soon as
+ * their top-level element has been read, keeping the memory footprint of
+ * parsing independent of the file size - which matters for large generated
+ * configuration files.
+ *
+ * <p>Uses a {@link StaxBeanDefinitionDocumentReader} for the actual parsing.
+ * Custom namespace handlers are supported, operating on a DOM fragment for
+ * their element. Note that the XML stream is not validated against the DTD
+ * or XSD; hence the "validationMode" and "documentLoader" settings do not apply.
+ *
+ * <p>Requires a StAX implementation, as included in Java 6 and available as
+ * separate library for Java 1.4 and 5.
+ *
+ * @author agent
+ * @since 2.5.6
+ * @see StaxBeanDefinitionDocumentReader
+ */
+public class StaxXmlBeanDefinitionReader extends XmlBeanDefinitionReader {
+
+	private final XMLInputFactory inputFactory;
+
+
+	/**
+	 * Create new StaxXmlBeanDefinitionReader for the given bean factory.
+	 * @param registry the BeanFactory to load bean definitions into,
+	 * in the form of a BeanDefinitionRegistry
+	 */
+	public StaxXmlBeanDefinitionReader(BeanDefinitionRegistry registry) {
+		super(registry);
+		setDocumentReaderClass(StaxBeanDefinitionDocumentReader.class);
+		this.inputFactory = XMLInputFactory.newInstance();
+		this.inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+		this.inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		this.inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		this.inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+	}
+
+
+	/**
+	 * Actually load bean definitions from the specified XML file,
+	 * streaming its content into a StaxBeanDefinitionDocumentReader.
+	 * @param inputSource the SAX InputSource to read from
+	 * @param resource the resource descriptor for the XML file
+	 * @return the number of bean definitions found
+	 * @throws BeanDefinitionStoreException in case of loading or parsing errors
+	 */
+	protected int doLoadBeanDefinitions(InputSource inputSource, Resource resource)
+			throws BeanDefinitionStoreException {
+
+		BeanDefinitionDocumentReader documentReader = createBeanDefinitionDocumentReader();
+		if (!(documentReader instanceof StaxBeanDefinitionDocumentReader)) {
+			throw new IllegalStateException("StaxXmlBeanDefinitionReader requires a documentReaderClass " +
+					"that extends StaxBeanDefinitionDocumentReader");
+		}
+		try {
+			XMLStreamReader streamReader = createXmlStreamReader(inputSource);
+			try {
+				int countBefore = getRegistry().getBeanDefinitionCount();
+				((StaxBeanDefinitionDocumentReader) documentReader).registerBeanDefinitions(
+						streamReader, createReaderContext(resource));
+				return getRegistry().getBeanDefinitionCount() - countBefore;
+			}
+			finally {
+				streamReader.close();
+			}
+		}
+		catch (BeanDefinitionStoreException ex) {
+			throw ex;
+		}
+		catch (XMLStreamException ex) {
+			Location location = ex.getLocation();
+			String msg = (location != null ?
+					"Line " + location.getLineNumber() + " in XML document from " + resource + " is invalid" :
+					"XML document from " + resource + " is invalid");
+			throw new BeanDefinitionStoreException(resource.getDescription(), msg, ex);
+		}
+		catch (Throwable ex) {
+			throw new BeanDefinitionStoreException(resource.getDescription(),
+					"Unexpected exception parsing XML document from " + resource, ex);
+		}
+	}
+
+	/**
+	 * Create a StAX stream reader for the given SAX InputSource.
+	 */
+	private XMLStreamReader createXmlStreamReader(InputSource inputSource) throws XMLStreamException {
+		if (inputSource.getCharacterStream() != null) {
+			return this.inputFactory.createXMLStreamReader(inputSource.getCharacterStream());
+		}
+		if (inputSource.getEncoding() != null) {
+			return this.inputFactory.createXMLStreamReader(inputSource.getByteStream(), inputSource.getEncoding());
+		}
+		return this.inputFactory.createXMLStreamReader(inputSource.getByteStream());
+	}
+
+}
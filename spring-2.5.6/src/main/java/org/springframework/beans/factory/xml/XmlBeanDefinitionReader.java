@@ -16,14 +16,22 @@
 
 package org.springframework.beans.factory.xml;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.HashSet;
 import java.util.Set;
 
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.InputSource;
@@ -32,6 +40,8 @@ import org.xml.sax.SAXParseException;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
 import org.springframework.beans.factory.parsing.EmptyReaderEventListener;
 import org.springframework.beans.factory.parsing.FailFastProblemReporter;
 import org.springframework.beans.factory.parsing.NullSourceExtractor;
@@ -40,13 +50,17 @@ import org.springframework.beans.factory.parsing.ReaderEventListener;
 import org.springframework.beans.factory.parsing.SourceExtractor;
 import org.springframework.beans.factory.support.AbstractBeanDefinitionReader;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionSnapshot;
 import org.springframework.core.Constants;
 import org.springframework.core.NamedThreadLocal;
 import org.springframework.core.io.DescriptiveResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.xml.SimpleSaxErrorHandler;
 import org.springframework.util.xml.XmlValidationModeDetector;
 
@@ -122,6 +136,8 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 
 	private ErrorHandler errorHandler = new SimpleSaxErrorHandler(logger);
 
+	private File snapshotDirectory;
+
 	private final XmlValidationModeDetector validationModeDetector = new XmlValidationModeDetector();
 
 	private final ThreadLocal resourcesCurrentlyBeingLoaded =
@@ -299,6 +315,31 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 		this.documentReaderClass = documentReaderClass;
 	}
 
+	/**
+	 * Specify a directory for binary snapshots of the loaded bean definitions.
+	 * <p>If set, each top-level resource gets loaded through a
+	 * {@link BeanDefinitionSnapshot}: On first load, the registrations applied
+	 * to the registry (including the ones from imported resources and from
+	 * custom namespace handlers) get recorded and written to a snapshot file
+	 * in this directory. Subsequent loads replay the snapshot instead of
+	 * parsing the XML again, as long as none of the resources involved
+	 * have been modified and the registry is in the same initial state.
+	 * <p>Configurations that import resource patterns (e.g. "classpath*:" or
+	 * wildcard locations) or that scan for components will not be recorded,
+	 * since their outcome depends on class path contents that a snapshot
+	 * cannot check for modifications. Those always get parsed.
+	 * <p>Note that a replayed load does not fire any events to the
+	 * {@link #setEventListener ReaderEventListener}, and that configuration
+	 * sources are not retained for replayed bean definitions.
+	 * Default is none, always parsing the XML resources.
+	 * @param snapshotDirectory the directory to read and write snapshot files in
+	 * (will be created if necessary)
+	 * @see BeanDefinitionSnapshot
+	 */
+	public void setSnapshotDirectory(File snapshotDirectory) {
+		this.snapshotDirectory = snapshotDirectory;
+	}
+
 
 	/**
 	 * Load bean definitions from the specified XML file.
@@ -319,6 +360,12 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 	 */
 	public int loadBeanDefinitions(EncodedResource encodedResource) throws BeanDefinitionStoreException {
 		Assert.notNull(encodedResource, "EncodedResource must not be null");
+		if (this.snapshotDirectory != null && this.resourcesCurrentlyBeingLoaded.get() == null) {
+			File snapshotFile = getSnapshotFile(encodedResource);
+			if (snapshotFile != null) {
+				return loadBeanDefinitionsThroughSnapshot(encodedResource, snapshotFile);
+			}
+		}
 		if (logger.isInfoEnabled()) {
 			logger.info("Loading XML bean definitions from " + encodedResource.getResource());
 		}
@@ -357,6 +404,173 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 		}
 	}
 
+	/**
+	 * Determine the snapshot file for the given top-level resource.
+	 * @param encodedResource the resource to load
+	 * @return the snapshot file, or <code>null</code> if the resource
+	 * does not have a URL and hence cannot be checked for modifications
+	 */
+	private File getSnapshotFile(EncodedResource encodedResource) {
+		try {
+			String key = getSnapshotKey(encodedResource);
+			return new File(this.snapshotDirectory, "beans-" + Integer.toHexString(key.hashCode()) + ".snapshot");
+		}
+		catch (IOException ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Not using bean definition snapshot for " + encodedResource.getResource() +
+						": " + ex.getMessage());
+			}
+			return null;
+		}
+	}
+
+	private String getSnapshotKey(EncodedResource encodedResource) throws IOException {
+		return encodedResource.getResource().getURL() + ";encoding=" + encodedResource.getEncoding();
+	}
+
+	/**
+	 * Load bean definitions from the given snapshot file if up to date,
+	 * else load them from the specified XML file and record a new snapshot.
+	 * @param encodedResource the resource descriptor for the XML file
+	 * @param snapshotFile the snapshot file to read and write
+	 * @return the number of bean definitions found
+	 * @throws BeanDefinitionStoreException in case of loading or parsing errors
+	 */
+	private int loadBeanDefinitionsThroughSnapshot(EncodedResource encodedResource, File snapshotFile)
+			throws BeanDefinitionStoreException {
+
+		String key = null;
+		try {
+			key = getSnapshotKey(encodedResource);
+		}
+		catch (IOException ex) {
+			throw new BeanDefinitionStoreException("Could not determine URL of " + encodedResource.getResource(), ex);
+		}
+
+		if (snapshotFile.isFile()) {
+			BeanDefinitionSnapshot snapshot = readSnapshot(snapshotFile);
+			if (snapshot != null && key.equals(snapshot.getKey()) && snapshot.isUpToDate(getRegistry())) {
+				if (logger.isInfoEnabled()) {
+					logger.info("Loading XML bean definitions from " + encodedResource.getResource() +
+							" through snapshot [" + snapshotFile + "]");
+				}
+				return snapshot.registerWith(getRegistry());
+			}
+		}
+
+		final BeanDefinitionSnapshot snapshot = new BeanDefinitionSnapshot(key);
+		XmlBeanDefinitionReader recordingReader = new XmlBeanDefinitionReader(snapshot.startRecording(getRegistry())) {
+			public int loadBeanDefinitions(EncodedResource resource) throws BeanDefinitionStoreException {
+				snapshot.addResource(resource.getResource());
+				return super.loadBeanDefinitions(resource);
+			}
+			public int loadBeanDefinitions(String location, Set actualResources) throws BeanDefinitionStoreException {
+				if (isResourcePattern(location)) {
+					snapshot.markNotRecordable("Import of resource pattern [" + location + "]");
+				}
+				return super.loadBeanDefinitions(location, actualResources);
+			}
+		};
+		recordingReader.setResourceLoader(getResourceLoader());
+		recordingReader.setBeanClassLoader(getBeanClassLoader());
+		recordingReader.setBeanNameGenerator(getBeanNameGenerator());
+		recordingReader.namespaceAware = this.namespaceAware;
+		recordingReader.validationMode = this.validationMode;
+		recordingReader.parserClass = this.parserClass;
+		recordingReader.documentReaderClass = this.documentReaderClass;
+		recordingReader.problemReporter = this.problemReporter;
+		recordingReader.eventListener = this.eventListener;
+		recordingReader.sourceExtractor = this.sourceExtractor;
+		if (this.namespaceHandlerResolver == null) {
+			this.namespaceHandlerResolver = createDefaultNamespaceHandlerResolver();
+		}
+		recordingReader.namespaceHandlerResolver =
+				new RecordingNamespaceHandlerResolver(this.namespaceHandlerResolver, snapshot);
+		recordingReader.documentLoader = this.documentLoader;
+		recordingReader.entityResolver = getEntityResolver();
+		recordingReader.errorHandler = this.errorHandler;
+
+		int loadCount = recordingReader.loadBeanDefinitions(encodedResource);
+		snapshot.setLoadCount(loadCount);
+		if (snapshot.getNotRecordableReason() == null) {
+			writeSnapshot(snapshot, snapshotFile);
+		}
+		else if (logger.isDebugEnabled()) {
+			logger.debug("Not writing bean definition snapshot for " + encodedResource.getResource() +
+					": " + snapshot.getNotRecordableReason());
+		}
+		return loadCount;
+	}
+
+	/**
+	 * Determine whether the given import location is a resource pattern,
+	 * resolving to resources that may come and go without the importing
+	 * resource being modified.
+	 */
+	private static boolean isResourcePattern(String location) {
+		return (location.startsWith(ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX) ||
+				new AntPathMatcher().isPattern(location));
+	}
+
+	private BeanDefinitionSnapshot readSnapshot(File snapshotFile) {
+		ClassLoader classLoader = getBeanClassLoader();
+		if (classLoader == null) {
+			classLoader = ClassUtils.getDefaultClassLoader();
+		}
+		try {
+			InputStream is = new BufferedInputStream(new FileInputStream(snapshotFile));
+			try {
+				return BeanDefinitionSnapshot.readFrom(is, classLoader);
+			}
+			finally {
+				is.close();
+			}
+		}
+		catch (Exception ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Ignoring unreadable bean definition snapshot [" + snapshotFile + "]", ex);
+			}
+			return null;
+		}
+	}
+
+	private void writeSnapshot(BeanDefinitionSnapshot snapshot, File snapshotFile) {
+		File tempFile = null;
+		try {
+			// Serialize completely before touching the file system.
+			ByteArrayOutputStream bos = new ByteArrayOutputStream(4096);
+			snapshot.writeTo(bos);
+			this.snapshotDirectory.mkdirs();
+			// Write to a temporary file first, so that readers never see a partially written snapshot.
+			tempFile = File.createTempFile(snapshotFile.getName() + ".", ".tmp", this.snapshotDirectory);
+			OutputStream os = new FileOutputStream(tempFile);
+			try {
+				bos.writeTo(os);
+			}
+			finally {
+				os.close();
+			}
+			if (!tempFile.renameTo(snapshotFile)) {
+				// Some platforms do not allow for renaming onto an existing file.
+				snapshotFile.delete();
+				if (!tempFile.renameTo(snapshotFile)) {
+					throw new IOException("Could not rename temporary file [" + tempFile + "]");
+				}
+			}
+			tempFile = null;
+		}
+		catch (IOException ex) {
+			if (logger.isWarnEnabled()) {
+				logger.warn("Could not write bean definition snapshot [" + snapshotFile + "]: " + ex);
+			}
+		}
+		finally {
+			if (tempFile != null) {
+				tempFile.delete();
+			}
+		}
+	}
+
 	/**
 	 * Load bean definitions from the specified XML file.
 	 * @param inputSource the SAX InputSource to read from
@@ -401,8 +615,11 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 			throw ex;
 		}
 		catch (SAXParseException ex) {
-			throw new XmlBeanDefinitionStoreException(resource.getDescription(),
-					"Line " + ex.getLineNumber() + " in XML document from " + resource + " is invalid", ex);
+			// No line number available in case of validation against a DOM tree.
+			String msg = (ex.getLineNumber() >= 0 ?
+					"Line " + ex.getLineNumber() + " in XML document from " + resource + " is invalid" :
+					"XML document from " + resource + " is invalid");
+			throw new XmlBeanDefinitionStoreException(resource.getDescription(), msg, ex);
 		}
 		catch (SAXException ex) {
 			throw new XmlBeanDefinitionStoreException(resource.getDescription(),
@@ -537,4 +754,44 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 		return new DefaultNamespaceHandlerResolver(getResourceLoader().getClassLoader());
 	}
 
+
+	/**
+	 * NamespaceHandlerResolver decorator for recording a snapshot, marking the
+	 * snapshot as not recordable when encountering a component scan element.
+	 */
+	private static class RecordingNamespaceHandlerResolver implements NamespaceHandlerResolver {
+
+		private static final String COMPONENT_SCAN_ELEMENT = "component-scan";
+
+		private final NamespaceHandlerResolver targetResolver;
+
+		private final BeanDefinitionSnapshot snapshot;
+
+		public RecordingNamespaceHandlerResolver(NamespaceHandlerResolver targetResolver, BeanDefinitionSnapshot snapshot) {
+			this.targetResolver = targetResolver;
+			this.snapshot = snapshot;
+		}
+
+		public NamespaceHandler resolve(String namespaceUri) {
+			final NamespaceHandler handler = this.targetResolver.resolve(namespaceUri);
+			if (handler == null) {
+				return null;
+			}
+			return new NamespaceHandler() {
+				public void init() {
+					handler.init();
+				}
+				public BeanDefinition parse(Element element, ParserContext parserContext) {
+					if (COMPONENT_SCAN_ELEMENT.equals(element.getLocalName())) {
+						snapshot.markNotRecordable("Scanning for components in element <" + element.getNodeName() + ">");
+					}
+					return handler.parse(element, parserContext);
+				}
+				public BeanDefinitionHolder decorate(Node source, BeanDefinitionHolder definition, ParserContext parserContext) {
+					return handler.decorate(source, definition, parserContext);
+				}
+			};
+		}
+	}
+
 }
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Build-time generator for the candidate component index: reads all ".class"
+ * files in a class output directory and writes an index of the classes that
+ * carry the {@link Component @Component} annotation or a stereotype annotation
+ * that is annotated with it (such as {@link org.springframework.stereotype.Service
+ * @Service} or {@link org.springframework.stereotype.Repository @Repository}).
+ *
+ * <p>The index gets written to {@link #COMPONENT_INDEX_LOCATION
+ * "META-INF/spring.components"} within the class output directory, to be
+ * packaged into the jar file along with the classes. It lists each component
+ * class along with its stereotype annotation types, in properties format.
+ * {@link ClassPathScanningCandidateComponentProvider} consults the index of each
+ * jar file (or class directory) instead of reading all of its ".class" files.
+ * <b>Note that the index needs to be regenerated whenever classes change.</b>
+ *
+ * <p>Typically run after compilation, for example as Maven build step through
+ * the "exec-maven-plugin" (goal "java", phase "process-classes") with main class
+ * <code>org.springframework.context.annotation.CandidateComponentIndexer</code>
+ * and the class output directory as argument. Custom stereotype annotations
+ * from other jar files need to be on the class path of the generator.
+ * Each index file written gets logged at info level through Commons Logging.
+ *
+ * @author agent
+ * @since 2.5.6
+ * @see ClassPathScanningCandidateComponentProvider#setUseComponentIndex
+ */
+public class CandidateComponentIndexer {
+
+	/**
+	 * The location of the candidate component index within
+	 * a jar file or class directory.
+	 */
+	public static final String COMPONENT_INDEX_LOCATION = "META-INF/spring.components";
+
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private final File classesDirectory;
+
+	private final MetadataReaderFactory metadataReaderFactory;
+
+
+	/**
+	 * Create a new CandidateComponentIndexer for the given class output directory.
+	 * @param classesDirectory the root directory of the compiled classes
+	 */
+	public CandidateComponentIndexer(File classesDirectory) throws IOException {
+		Assert.notNull(classesDirectory, "Classes directory must not be null");
+		Assert.isTrue(classesDirectory.isDirectory(), "Classes directory [" + classesDirectory + "] does not exist");
+		this.classesDirectory = classesDirectory;
+		// Resolve stereotype annotations declared in the classes directory itself as well.
+		ClassLoader classLoader = new URLClassLoader(
+				new URL[] {classesDirectory.toURI().toURL()}, ClassUtils.getDefaultClassLoader());
+		this.metadataReaderFactory = new SimpleMetadataReaderFactory(classLoader);
+	}
+
+
+	/**
+	 * Determine the candidate components in the class output directory.
+	 * @return a sorted Map from component class name to
+	 * a comma-delimited String of stereotype annotation types
+	 * @throws IOException if a ".class" file could not be read
+	 */
+	public Map<String, String> buildIndex() throws IOException {
+		Map<String, String> index = new TreeMap<String, String>();
+		addComponents(this.classesDirectory, index);
+		return index;
+	}
+
+	/**
+	 * Write the candidate component index into the class output directory.
+	 * @return the index file written
+	 * @throws IOException if a ".class" file could not be read
+	 * or the index file could not be written
+	 */
+	public File writeIndex() throws IOException {
+		Map<String, String> index = buildIndex();
+		File indexFile = new File(this.classesDirectory, COMPONENT_INDEX_LOCATION);
+		indexFile.getParentFile().mkdirs();
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(indexFile), "ISO-8859-1"));
+		try {
+			writer.write("# Candidate components, generated by " + getClass().getName() + "\n");
+			for (Map.Entry<String, String> entry : index.entrySet()) {
+				writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+			}
+		}
+		finally {
+			writer.close();
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("Written candidate component index [" + indexFile + "] with " + index.size() + " entries");
+		}
+		return indexFile;
+	}
+
+	/**
+	 * Recursively add the candidate components in the given directory to the index.
+	 */
+	private void addComponents(File dir, Map<String, String> index) throws IOException {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			throw new IOException("Could not list contents of directory [" + dir + "]");
+		}
+		for (int i = 0; i < files.length; i++) {
+			File file = files[i];
+			if (file.isDirectory()) {
+				addComponents(file, index);
+			}
+			else if (file.getName().endsWith(ClassUtils.CLASS_FILE_SUFFIX)) {
+				AnnotationMetadata metadata =
+						this.metadataReaderFactory.getMetadataReader(new FileSystemResource(file)).getAnnotationMetadata();
+				Set<String> stereotypes = getStereotypes(metadata);
+				if (!stereotypes.isEmpty()) {
+					index.put(metadata.getClassName(), StringUtils.collectionToCommaDelimitedString(stereotypes));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Determine the stereotype annotations of the given class: the component
+	 * annotation itself and annotations that are annotated with it.
+	 * Mirrors the default include filter of
+	 * {@link ClassPathScanningCandidateComponentProvider}.
+	 */
+	private Set<String> getStereotypes(AnnotationMetadata metadata) {
+		String componentType = Component.class.getName();
+		Set<String> stereotypes = new LinkedHashSet<String>();
+		for (String annotationType : metadata.getAnnotationTypes()) {
+			Set<String> metaAnnotationTypes = metadata.getMetaAnnotationTypes(annotationType);
+			if (componentType.equals(annotationType) ||
+					(metaAnnotationTypes != null && metaAnnotationTypes.contains(componentType))) {
+				stereotypes.add(annotationType);
+			}
+		}
+		return stereotypes;
+	}
+
+
+	/**
+	 * Write the candidate component index for the given class output directories.
+	 * @param args the class output directories
+	 * @throws IllegalArgumentException if no class output directory has been specified
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			throw new IllegalArgumentException(
+					"Usage: java " + CandidateComponentIndexer.class.getName() + " <classes directory>...");
+		}
+		for (int i = 0; i < args.length; i++) {
+			new CandidateComponentIndexer(new File(args[i])).writeIndex();
+		}
+	}
+
+}
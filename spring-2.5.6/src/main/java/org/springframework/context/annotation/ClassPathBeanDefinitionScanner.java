@@ -177,7 +177,12 @@ public class ClassPathBeanDefinitionScanner extends ClassPathScanningCandidateCo
 	public int scan(String... basePackages) {
 		int beanCountAtScanStart = this.registry.getBeanDefinitionCount();
 
-		doScan(basePackages);
+		try {
+			doScan(basePackages);
+		}
+		finally {
+			clearCache();
+		}
 
 		// Register annotation config processors, if necessary.
 		if (this.includeAnnotationConfig) {
@@ -17,10 +17,17 @@
 package org.springframework.context.annotation;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -31,20 +38,27 @@ import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.ResourceLoaderAware;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.UrlResource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
 import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.support.ParallelTaskRunner;
 import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
 import org.springframework.core.type.classreading.MetadataReader;
 import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
 import org.springframework.core.type.filter.AnnotationTypeFilter;
 import org.springframework.core.type.filter.TypeFilter;
 import org.springframework.stereotype.Component;
 import org.springframework.stereotype.Controller;
 import org.springframework.stereotype.Repository;
 import org.springframework.stereotype.Service;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.PathMatcher;
 import org.springframework.util.SystemPropertyUtils;
 
 /**
@@ -54,6 +68,15 @@ import org.springframework.util.SystemPropertyUtils;
  * <p>This implementation is based on Spring's
  * {@link org.springframework.core.type.classreading.MetadataReader MetadataReader}
  * facility, backed by an ASM {@link org.objectweb.asm.ClassReader ClassReader}.
+ * Type filters operate on the ASM metadata, without loading the scanned classes.
+ *
+ * <p>The ".class" files found can be read and filtered in parallel, in batches
+ * submitted to a specified {@link #setTaskExecutor TaskExecutor}.
+ *
+ * <p>With the default filters, jar files and class directories that contain a
+ * candidate component index (as written by {@link CandidateComponentIndexer})
+ * do not get scanned: Only the ".class" files of the indexed components will
+ * be read and filtered.
  *
  * @author Mark Fisher
  * @author Juergen Hoeller
@@ -67,6 +90,12 @@ public class ClassPathScanningCandidateComponentProvider implements ResourceLoad
 
 	protected static final String DEFAULT_RESOURCE_PATTERN = "**/*.class";
 
+	/** Number of ".class" files per task when scanning in parallel */
+	private static final int PARALLEL_SCAN_BATCH_SIZE = 64;
+
+	/** Marker for class path roots without candidate component index */
+	private static final Object NO_INDEX = new Object();
+
 
 	protected final Log logger = LogFactory.getLog(getClass());
 
@@ -80,6 +109,13 @@ public class ClassPathScanningCandidateComponentProvider implements ResourceLoad
 
 	private final List<TypeFilter> excludeFilters = new LinkedList<TypeFilter>();
 
+	private TaskExecutor taskExecutor;
+
+	private boolean useComponentIndex = true;
+
+	/** Cache from class path root URL to component index; NO_INDEX if none */
+	private final Map<String, Object> componentIndexCache = new HashMap<String, Object>();
+
 
 	/**
 	 * Create a ClassPathScanningCandidateComponentProvider.
@@ -127,6 +163,37 @@ public class ClassPathScanningCandidateComponentProvider implements ResourceLoad
 		this.resourcePattern = resourcePattern;
 	}
 
+	/**
+	 * Set a TaskExecutor for reading and filtering the ".class" files found
+	 * in parallel, in batches of 64 files. Default is none, scanning all files
+	 * on the calling thread.
+	 * <p>Batches that the executor rejects get scanned on the calling thread.
+	 * Note that type filters and overridden <code>isCandidateComponent</code>
+	 * methods need to be thread-safe when running with an executor.
+	 */
+	public void setTaskExecutor(TaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Return the TaskExecutor for scanning in parallel, if any.
+	 */
+	public TaskExecutor getTaskExecutor() {
+		return this.taskExecutor;
+	}
+
+	/**
+	 * Set whether to consult the candidate component index of jar files and
+	 * class directories, if present, instead of scanning them. Default is "true".
+	 * <p>The index only applies when using the default include filter for
+	 * {@link Component @Component}, since it lists stereotype-annotated
+	 * classes only. Exclude filters get applied to the indexed classes as usual.
+	 * @see CandidateComponentIndexer
+	 */
+	public void setUseComponentIndex(boolean useComponentIndex) {
+		this.useComponentIndex = useComponentIndex;
+	}
+
 	/**
 	 * Add an include type filter to the <i>end</i> of the inclusion list.
 	 */
@@ -177,51 +244,232 @@ public class ClassPathScanningCandidateComponentProvider implements ResourceLoad
 	public Set<BeanDefinition> findCandidateComponents(String basePackage) {
 		Set<BeanDefinition> candidates = new LinkedHashSet<BeanDefinition>();
 		try {
-			String packageSearchPath = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX +
-					resolveBasePackage(basePackage) + "/" + this.resourcePattern;
-			Resource[] resources = this.resourcePatternResolver.getResources(packageSearchPath);
-			boolean traceEnabled = logger.isTraceEnabled();
-			boolean debugEnabled = logger.isDebugEnabled();
-			for (int i = 0; i < resources.length; i++) {
-				Resource resource = resources[i];
-				if (traceEnabled) {
-					logger.trace("Scanning " + resource);
-				}
-				if (resource.isReadable()) {
-					MetadataReader metadataReader = this.metadataReaderFactory.getMetadataReader(resource);
-					if (isCandidateComponent(metadataReader)) {
-						ScannedGenericBeanDefinition sbd = new ScannedGenericBeanDefinition(metadataReader);
-						sbd.setResource(resource);
-						sbd.setSource(resource);
-						if (isCandidateComponent(sbd)) {
-							if (debugEnabled) {
-								logger.debug("Identified candidate component class: " + resource);
-							}
-							candidates.add(sbd);
+			String basePackagePath = resolveBasePackage(basePackage);
+			Resource[] resources = null;
+			if (this.useComponentIndex && isComponentIndexApplicable(basePackagePath)) {
+				resources = findIndexedCandidateResources(basePackagePath);
+			}
+			if (resources == null) {
+				String packageSearchPath = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX +
+						basePackagePath + "/" + this.resourcePattern;
+				resources = this.resourcePatternResolver.getResources(packageSearchPath);
+			}
+			if (this.taskExecutor != null && resources.length > PARALLEL_SCAN_BATCH_SIZE) {
+				scanCandidateComponentsInParallel(resources, candidates);
+			}
+			else {
+				scanCandidateComponents(resources, 0, resources.length, candidates);
+			}
+		}
+		catch (IOException ex) {
+			throw new BeanDefinitionStoreException("I/O failure during classpath scanning", ex);
+		}
+		return candidates;
+	}
+
+	/**
+	 * Clear the metadata cache of this component provider, if any,
+	 * releasing the metadata read for scanned classes and their supertypes.
+	 * To be called once scanning has completed.
+	 * @see org.springframework.core.type.classreading.SimpleMetadataReaderFactory#clearCache()
+	 */
+	public void clearCache() {
+		if (this.metadataReaderFactory instanceof SimpleMetadataReaderFactory) {
+			((SimpleMetadataReaderFactory) this.metadataReaderFactory).clearCache();
+		}
+		this.componentIndexCache.clear();
+	}
+
+	/**
+	 * Determine whether the candidate component index can be used for the given
+	 * base package: that is, for a concrete base package and the default include filter.
+	 */
+	private boolean isComponentIndexApplicable(String basePackagePath) {
+		if (basePackagePath.length() == 0 || basePackagePath.indexOf('*') != -1 || basePackagePath.indexOf('?') != -1) {
+			return false;
+		}
+		if (this.includeFilters.isEmpty()) {
+			return false;
+		}
+		for (TypeFilter tf : this.includeFilters) {
+			if (!AnnotationTypeFilter.class.equals(tf.getClass()) ||
+					!Component.class.equals(((AnnotationTypeFilter) tf).getAnnotationType())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Determine the ".class" file resources to read for the given base package,
+	 * taking the indexed components of each class path root with a candidate
+	 * component index, and scanning the class path roots without index.
+	 * <p>Indexed classes whose ".class" file does not exist (anymore) get
+	 * skipped with a warning, since the index is probably outdated.
+	 * @param basePackagePath the base package as resource path
+	 * @return the candidate resources, or <code>null</code> if no class path
+	 * root for the given base package comes with an index
+	 */
+	private Resource[] findIndexedCandidateResources(String basePackagePath) throws IOException {
+		String packageDirPath = basePackagePath + "/";
+		Resource[] rootDirResources = this.resourcePatternResolver.getResources(
+				ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX + packageDirPath);
+		String[] rootDirUrls = new String[rootDirResources.length];
+		Properties[] indexes = new Properties[rootDirResources.length];
+		boolean indexFound = false;
+		for (int i = 0; i < rootDirResources.length; i++) {
+			rootDirUrls[i] = rootDirResources[i].getURL().toExternalForm();
+			if (rootDirUrls[i].endsWith(packageDirPath)) {
+				indexes[i] = getComponentIndex(rootDirUrls[i].substring(0, rootDirUrls[i].length() - packageDirPath.length()));
+				indexFound |= (indexes[i] != null);
+			}
+		}
+		if (!indexFound) {
+			return null;
+		}
+		PathMatcher pathMatcher = (this.resourcePatternResolver instanceof PathMatchingResourcePatternResolver ?
+				((PathMatchingResourcePatternResolver) this.resourcePatternResolver).getPathMatcher() :
+				new AntPathMatcher());
+		List<Resource> resources = new ArrayList<Resource>();
+		for (int i = 0; i < rootDirResources.length; i++) {
+			if (indexes[i] != null) {
+				for (Object className : new TreeSet<Object>(indexes[i].keySet())) {
+					String classFilePath = ClassUtils.convertClassNameToResourcePath((String) className) +
+							ClassUtils.CLASS_FILE_SUFFIX;
+					if (classFilePath.startsWith(packageDirPath) &&
+							pathMatcher.match(this.resourcePattern, classFilePath.substring(packageDirPath.length()))) {
+						Resource resource = new UrlResource(rootDirUrls[i] + classFilePath.substring(packageDirPath.length()));
+						if (resource.exists()) {
+							resources.add(resource);
+						}
+						else if (logger.isWarnEnabled()) {
+							logger.warn("Skipping indexed candidate component class [" + className + "]: " +
+									resource + " does not exist - the candidate component index seems to be outdated");
 						}
-						else {
-							if (debugEnabled) {
-								logger.debug("Ignored because not a concrete top-level class: " + resource);
-							}
+					}
+				}
+			}
+			else {
+				resources.addAll(Arrays.asList(this.resourcePatternResolver.getResources(rootDirUrls[i] + this.resourcePattern)));
+			}
+		}
+		return resources.toArray(new Resource[resources.size()]);
+	}
+
+	/**
+	 * Load the candidate component index of the given class path root, if any.
+	 * @param rootUrl the URL of the class path root (a jar file or class directory)
+	 * @return the index (class name to stereotype annotation types),
+	 * or <code>null</code> if the class path root does not come with an index
+	 */
+	private Properties getComponentIndex(String rootUrl) throws IOException {
+		Object index = this.componentIndexCache.get(rootUrl);
+		if (index == null) {
+			Resource indexResource = new UrlResource(rootUrl + CandidateComponentIndexer.COMPONENT_INDEX_LOCATION);
+			if (indexResource.exists()) {
+				index = PropertiesLoaderUtils.loadProperties(indexResource);
+				if (logger.isDebugEnabled()) {
+					logger.debug("Using candidate component index " + indexResource);
+				}
+			}
+			else {
+				index = NO_INDEX;
+			}
+			this.componentIndexCache.put(rootUrl, index);
+		}
+		return (index != NO_INDEX ? (Properties) index : null);
+	}
+
+	/**
+	 * Read and filter the given range of ".class" file resources,
+	 * adding a bean definition for each candidate component found.
+	 * @param resources the resources found for the base package
+	 * @param start the index of the first resource to scan
+	 * @param end the index after the last resource to scan
+	 * @param candidates the Collection to add candidate components to
+	 */
+	private void scanCandidateComponents(Resource[] resources, int start, int end,
+			Collection<BeanDefinition> candidates) throws IOException {
+
+		boolean traceEnabled = logger.isTraceEnabled();
+		boolean debugEnabled = logger.isDebugEnabled();
+		for (int i = start; i < end; i++) {
+			Resource resource = resources[i];
+			if (traceEnabled) {
+				logger.trace("Scanning " + resource);
+			}
+			if (resource.isReadable()) {
+				MetadataReader metadataReader = this.metadataReaderFactory.getMetadataReader(resource);
+				if (isCandidateComponent(metadataReader)) {
+					ScannedGenericBeanDefinition sbd = new ScannedGenericBeanDefinition(metadataReader);
+					sbd.setResource(resource);
+					sbd.setSource(resource);
+					if (isCandidateComponent(sbd)) {
+						if (debugEnabled) {
+							logger.debug("Identified candidate component class: " + resource);
 						}
+						candidates.add(sbd);
 					}
 					else {
-						if (traceEnabled) {
-							logger.trace("Ignored because not matching any filter: " + resource);
+						if (debugEnabled) {
+							logger.debug("Ignored because not a concrete top-level class: " + resource);
 						}
 					}
 				}
 				else {
 					if (traceEnabled) {
-						logger.trace("Ignored because not readable: " + resource);
+						logger.trace("Ignored because not matching any filter: " + resource);
 					}
 				}
 			}
+			else {
+				if (traceEnabled) {
+					logger.trace("Ignored because not readable: " + resource);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read and filter the given ".class" file resources in batches on the
+	 * TaskExecutor, adding the candidates in the order of the sequential scan.
+	 * @param resources the resources found for the base package
+	 * @param candidates the Collection to add candidate components to
+	 */
+	@SuppressWarnings("unchecked")
+	private void scanCandidateComponentsInParallel(final Resource[] resources, Collection<BeanDefinition> candidates)
+			throws IOException {
+
+		int batchCount = (resources.length + PARALLEL_SCAN_BATCH_SIZE - 1) / PARALLEL_SCAN_BATCH_SIZE;
+		Object[] results;
+		try {
+			results = new ParallelTaskRunner(this.taskExecutor).run(batchCount, new ParallelTaskRunner.IndexedTask() {
+				public Object run(int index) throws IOException {
+					int start = index * PARALLEL_SCAN_BATCH_SIZE;
+					int end = Math.min(start + PARALLEL_SCAN_BATCH_SIZE, resources.length);
+					List<BeanDefinition> batchCandidates = new ArrayList<BeanDefinition>();
+					scanCandidateComponents(resources, start, end, batchCandidates);
+					return batchCandidates;
+				}
+			});
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new BeanDefinitionStoreException("Interrupted during parallel classpath scanning");
 		}
 		catch (IOException ex) {
-			throw new BeanDefinitionStoreException("I/O failure during classpath scanning", ex);
+			throw ex;
+		}
+		catch (RuntimeException ex) {
+			throw ex;
+		}
+		catch (Exception ex) {
+			// Not expected: the scan only throws IOExceptions and unchecked exceptions.
+			throw new IllegalStateException("Failed to scan classpath in parallel: " + ex);
+		}
+		for (Object batchCandidates : results) {
+			candidates.addAll((List<BeanDefinition>) batchCandidates);
 		}
-		return candidates;
 	}
 
 	/**
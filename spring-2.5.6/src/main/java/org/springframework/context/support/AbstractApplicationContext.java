@@ -40,6 +40,8 @@ import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanFactory;
+import org.springframework.beans.factory.support.BeanCreationProfiler;
 import org.springframework.beans.support.ResourceEditorRegistrar;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
@@ -70,6 +72,8 @@ import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourceScanningExecutorProvider;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ObjectUtils;
@@ -116,7 +120,7 @@ import org.springframework.util.ObjectUtils;
  * @see org.springframework.context.MessageSource
  */
 public abstract class AbstractApplicationContext extends DefaultResourceLoader
-		implements ConfigurableApplicationContext, DisposableBean {
+		implements ConfigurableApplicationContext, DisposableBean, ResourceScanningExecutorProvider {
 
 	/**
 	 * Name of the MessageSource bean in the factory.
@@ -183,6 +187,15 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	/** Statically specified listeners */
 	private List applicationListeners = new ArrayList();
 
+	/** Profiler to record bean creations with, if any */
+	private BeanCreationProfiler beanCreationProfiler;
+
+	/** JMX registration of the BeanCreationProfiler, if any */
+	private BeanCreationProfilerExporter beanCreationProfilerExporter;
+
+	/** TaskExecutor for scanning resources in parallel, if any */
+	private TaskExecutor resourceScanningExecutor;
+
 
 	/**
 	 * Create a new AbstractApplicationContext with no parent.
@@ -342,56 +355,152 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		return this.applicationListeners;
 	}
 
+	/**
+	 * Set a profiler to record the creation of this context's beans with.
+	 * Needs to be specified before the context gets refreshed.
+	 * <p>At the end of each refresh, a summary will be logged at info level
+	 * and the full XML report at debug level. The profiler will also be
+	 * registered with the locally running JMX MBeanServer, if available,
+	 * under the ObjectName "org.springframework.beans.factory.support:
+	 * type=BeanCreationProfiler,context=&lt;context id&gt;".
+	 * <p>Default is none, not incurring any recording overhead.
+	 * @see org.springframework.beans.factory.support.AbstractBeanFactory#setBeanCreationProfiler
+	 */
+	public void setBeanCreationProfiler(BeanCreationProfiler beanCreationProfiler) {
+		this.beanCreationProfiler = beanCreationProfiler;
+	}
+
+	/**
+	 * Return the profiler to record bean creations with, if any.
+	 */
+	public BeanCreationProfiler getBeanCreationProfiler() {
+		return this.beanCreationProfiler;
+	}
+
+	/**
+	 * Set a TaskExecutor for searching the root directories of location patterns
+	 * in parallel, for example the jar files on the class path when scanning for
+	 * components. Default is none, searching sequentially.
+	 * <p>Only applies to a ResourcePatternResolver that is a
+	 * {@link org.springframework.core.io.support.PathMatchingResourcePatternResolver}.
+	 * The executor will also be used for reading the ".class" files found by
+	 * &lt;context:component-scan&gt; in parallel.
+	 * @see org.springframework.core.io.support.PathMatchingResourcePatternResolver#setTaskExecutor
+	 * @see org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider#setTaskExecutor
+	 */
+	public void setResourceScanningExecutor(TaskExecutor resourceScanningExecutor) {
+		this.resourceScanningExecutor = resourceScanningExecutor;
+		if (this.resourcePatternResolver instanceof PathMatchingResourcePatternResolver) {
+			((PathMatchingResourcePatternResolver) this.resourcePatternResolver).setTaskExecutor(resourceScanningExecutor);
+		}
+		else if (resourceScanningExecutor != null) {
+			logger.warn("Not searching root directories in parallel: ResourcePatternResolver [" +
+					this.resourcePatternResolver + "] is not a PathMatchingResourcePatternResolver");
+		}
+	}
+
+	/**
+	 * Return the TaskExecutor for scanning resources in parallel, if any.
+	 */
+	public TaskExecutor getResourceScanningExecutor() {
+		return this.resourceScanningExecutor;
+	}
+
 
 	public void refresh() throws BeansException, IllegalStateException {
 		synchronized (this.startupShutdownMonitor) {
-			// Prepare this context for refreshing.
-			prepareRefresh();
+			// Search each jar file only once during this refresh, even for several location patterns.
+			boolean jarEntryCachingEnabled = enableJarEntryCaching();
+			try {
+				// Prepare this context for refreshing.
+				prepareRefresh();
 
-			// Tell the subclass to refresh the internal bean factory.
-			ConfigurableListableBeanFactory beanFactory = obtainFreshBeanFactory();
+				// Tell the subclass to refresh the internal bean factory.
+				ConfigurableListableBeanFactory beanFactory = obtainFreshBeanFactory();
 
-			// Prepare the bean factory for use in this context.
-			prepareBeanFactory(beanFactory);
+				// Prepare the bean factory for use in this context.
+				prepareBeanFactory(beanFactory);
 
-			try {
-				// Allows post-processing of the bean factory in context subclasses.
-				postProcessBeanFactory(beanFactory);
+				try {
+					// Allows post-processing of the bean factory in context subclasses.
+					postProcessBeanFactory(beanFactory);
 
-				// Invoke factory processors registered as beans in the context.
-				invokeBeanFactoryPostProcessors(beanFactory);
+					// Invoke factory processors registered as beans in the context.
+					invokeBeanFactoryPostProcessors(beanFactory);
 
-				// Register bean processors that intercept bean creation.
-				registerBeanPostProcessors(beanFactory);
+					// Register bean processors that intercept bean creation.
+					registerBeanPostProcessors(beanFactory);
 
-				// Initialize message source for this context.
-				initMessageSource();
+					// Initialize message source for this context.
+					initMessageSource();
 
-				// Initialize event multicaster for this context.
-				initApplicationEventMulticaster();
+					// Initialize event multicaster for this context.
+					initApplicationEventMulticaster();
 
-				// Initialize other special beans in specific context subclasses.
-				onRefresh();
+					// Initialize other special beans in specific context subclasses.
+					onRefresh();
 
-				// Check for listener beans and register them.
-				registerListeners();
+					// Check for listener beans and register them.
+					registerListeners();
 
-				// Instantiate all remaining (non-lazy-init) singletons.
-				finishBeanFactoryInitialization(beanFactory);
+					// Instantiate all remaining (non-lazy-init) singletons.
+					finishBeanFactoryInitialization(beanFactory);
 
-				// Last step: publish corresponding event.
-				finishRefresh();
+					// Last step: publish corresponding event.
+					finishRefresh();
+
+					// Expose recorded bean creations, if requested.
+					exposeBeanCreationProfile();
+				}
+
+				catch (BeansException ex) {
+					// Destroy already created singletons to avoid dangling resources.
+					beanFactory.destroySingletons();
+
+					// Reset 'active' flag.
+					cancelRefresh(ex);
+
+					// Propagate exception to caller.
+					throw ex;
+				}
 			}
 
-			catch (BeansException ex) {
-				// Destroy already created singletons to avoid dangling resources.
-				beanFactory.destroySingletons();
+			finally {
+				// Release jar entry names cached during this refresh.
+				disableJarEntryCaching(jarEntryCachingEnabled);
+			}
+		}
+	}
 
-				// Reset 'active' flag.
-				cancelRefresh(ex);
+	/**
+	 * Switch on jar entry caching for this context's ResourcePatternResolver
+	 * for the duration of a refresh, unless it has been switched on already.
+	 * @return whether jar entry caching has been switched on for this refresh
+	 * @see org.springframework.core.io.support.PathMatchingResourcePatternResolver#setCacheJarEntries
+	 */
+	private boolean enableJarEntryCaching() {
+		if (this.resourcePatternResolver instanceof PathMatchingResourcePatternResolver) {
+			PathMatchingResourcePatternResolver resolver = (PathMatchingResourcePatternResolver) this.resourcePatternResolver;
+			if (!resolver.isCacheJarEntries()) {
+				resolver.setCacheJarEntries(true);
+				return true;
+			}
+		}
+		return false;
+	}
 
-				// Propagate exception to caller.
-				throw ex;
+	/**
+	 * Release the jar entry names cached during a refresh, switching
+	 * jar entry caching off again if it has been switched on for the refresh.
+	 * @param jarEntryCachingEnabled the result of {@link #enableJarEntryCaching()}
+	 * @see org.springframework.core.io.support.PathMatchingResourcePatternResolver#clearCache()
+	 */
+	private void disableJarEntryCaching(boolean jarEntryCachingEnabled) {
+		if (this.resourcePatternResolver instanceof PathMatchingResourcePatternResolver) {
+			PathMatchingResourcePatternResolver resolver = (PathMatchingResourcePatternResolver) this.resourcePatternResolver;
+			resolver.clearCache();
+			if (jarEntryCachingEnabled) {
+				resolver.setCacheJarEntries(false);
 			}
 		}
 	}
@@ -442,6 +551,11 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		// Tell the internal bean factory to use the context's class loader.
 		beanFactory.setBeanClassLoader(getClassLoader());
 
+		// Record bean creations, if requested.
+		if (this.beanCreationProfiler != null && beanFactory instanceof AbstractBeanFactory) {
+			((AbstractBeanFactory) beanFactory).setBeanCreationProfiler(this.beanCreationProfiler);
+		}
+
 		// Populate the bean factory with context-specific resource editors.
 		beanFactory.addPropertyEditorRegistrar(new ResourceEditorRegistrar(this));
 
@@ -736,6 +850,37 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		publishEvent(new ContextRefreshedEvent(this));
 	}
 
+	/**
+	 * Expose the bean creations recorded by the BeanCreationProfiler, if any:
+	 * logging a summary and the XML report, and registering the profiler
+	 * with the JMX MBeanServer.
+	 * @see #setBeanCreationProfiler
+	 */
+	protected void exposeBeanCreationProfile() {
+		if (this.beanCreationProfiler == null) {
+			return;
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("Recorded creation of " + this.beanCreationProfiler.getRecordedBeanCount() + " beans in " +
+					getDisplayName() + " (" + this.beanCreationProfiler.getTotalTimeMillis() + " ms in total)");
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Bean creation report for " + getDisplayName() + ":\n" + this.beanCreationProfiler.getReport());
+		}
+		if (this.beanCreationProfilerExporter == null) {
+			try {
+				this.beanCreationProfilerExporter = new BeanCreationProfilerExporter(this.beanCreationProfiler, getId());
+				if (logger.isDebugEnabled()) {
+					logger.debug("Registered BeanCreationProfiler with JMX MBeanServer under name [" +
+							this.beanCreationProfilerExporter.getObjectName() + "]");
+				}
+			}
+			catch (Throwable ex) {
+				logger.warn("Could not register BeanCreationProfiler with JMX MBeanServer", ex);
+			}
+		}
+	}
+
 	/**
 	 * Cancel this context's refresh attempt, resetting the <code>active</code> flag
 	 * after an exception got thrown.
@@ -832,6 +977,15 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 			// Close the state of this context itself.
 			closeBeanFactory();
 			onClose();
+			if (this.beanCreationProfilerExporter != null) {
+				try {
+					this.beanCreationProfilerExporter.unregister();
+				}
+				catch (Throwable ex) {
+					logger.warn("Could not unregister BeanCreationProfiler from JMX MBeanServer", ex);
+				}
+				this.beanCreationProfilerExporter = null;
+			}
 			synchronized (this.activeMonitor) {
 				this.active = false;
 			}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.support;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.springframework.beans.factory.support.BeanCreationProfiler;
+import org.springframework.jmx.MBeanServerNotFoundException;
+import org.springframework.jmx.support.JmxUtils;
+import org.springframework.jmx.support.ObjectNameManager;
+
+/**
+ * Registers a {@link BeanCreationProfiler} for an application context
+ * with the locally running JMX MBeanServer. Separate class in order
+ * to not depend on the JMX API in AbstractApplicationContext itself.
+ *
+ * @author agent
+ * @since 2.5.6
+ * @see AbstractApplicationContext#setBeanCreationProfiler
+ */
+class BeanCreationProfilerExporter {
+
+	private static final String OBJECT_NAME_PREFIX =
+			"org.springframework.beans.factory.support:type=BeanCreationProfiler,context=";
+
+
+	private final MBeanServer server;
+
+	private final ObjectName objectName;
+
+
+	/**
+	 * Register the given profiler as MBean, with an ObjectName
+	 * containing the given context id.
+	 * @param profiler the profiler to register
+	 * @param contextId the id of the application context
+	 * @throws JMException in case of registration failure
+	 */
+	public BeanCreationProfilerExporter(BeanCreationProfiler profiler, String contextId) throws JMException {
+		this.server = locateMBeanServer();
+		this.objectName = ObjectNameManager.getInstance(OBJECT_NAME_PREFIX + ObjectName.quote(contextId));
+		this.server.registerMBean(profiler, this.objectName);
+	}
+
+	/**
+	 * Locate an existing MBeanServer, falling back to the JDK 1.5 platform
+	 * MBeanServer (as required by the BeanCreationProfiler anyway).
+	 */
+	private static MBeanServer locateMBeanServer() {
+		try {
+			return JmxUtils.locateMBeanServer();
+		}
+		catch (MBeanServerNotFoundException ex) {
+			return ManagementFactory.getPlatformMBeanServer();
+		}
+	}
+
+	/**
+	 * Return the ObjectName that the profiler has been registered with.
+	 */
+	public ObjectName getObjectName() {
+		return this.objectName;
+	}
+
+	/**
+	 * Unregister the profiler from the MBeanServer.
+	 * @throws JMException in case of unregistration failure
+	 */
+	public void unregister() throws JMException {
+		this.server.unregisterMBean(this.objectName);
+	}
+
+}
@@ -17,6 +17,7 @@
 package org.springframework.core;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
@@ -35,13 +36,16 @@ import org.springframework.util.Assert;
  */
 public abstract class AttributeAccessorSupport implements AttributeAccessor, Serializable {
 
-	/** Map with String keys and Object values */
-	private final Map attributes = new LinkedHashMap();
+	/** Map with String keys and Object values, lazily created on first attribute */
+	private Map attributes;
 
 
 	public void setAttribute(String name, Object value) {
 		Assert.notNull(name, "Name must not be null");
 		if (value != null) {
+			if (this.attributes == null) {
+				this.attributes = new LinkedHashMap(4);
+			}
 			this.attributes.put(name, value);
 		}
 		else {
@@ -51,20 +55,23 @@ public abstract class AttributeAccessorSupport implements AttributeAccessor, Ser
 
 	public Object getAttribute(String name) {
 		Assert.notNull(name, "Name must not be null");
-		return this.attributes.get(name);
+		return (this.attributes != null ? this.attributes.get(name) : null);
 	}
 
 	public Object removeAttribute(String name) {
 		Assert.notNull(name, "Name must not be null");
-		return this.attributes.remove(name);
+		return (this.attributes != null ? this.attributes.remove(name) : null);
 	}
 
 	public boolean hasAttribute(String name) {
 		Assert.notNull(name, "Name must not be null");
-		return this.attributes.containsKey(name);
+		return (this.attributes != null && this.attributes.containsKey(name));
 	}
 
 	public String[] attributeNames() {
+		if (this.attributes == null) {
+			return new String[0];
+		}
 		Set attributeNames = this.attributes.keySet();
 		return (String[]) attributeNames.toArray(new String[attributeNames.size()]);
 	}
@@ -92,11 +99,19 @@ public abstract class AttributeAccessorSupport implements AttributeAccessor, Ser
 			return false;
 		}
 		AttributeAccessorSupport that = (AttributeAccessorSupport) other;
-		return this.attributes.equals(that.attributes);
+		return getAttributeMap().equals(that.getAttributeMap());
 	}
 
 	public int hashCode() {
-		return this.attributes.hashCode();
+		return getAttributeMap().hashCode();
+	}
+
+	/**
+	 * Return the attribute Map for comparison purposes,
+	 * treating a not yet created Map as empty.
+	 */
+	private Map getAttributeMap() {
+		return (this.attributes != null ? this.attributes : Collections.EMPTY_MAP);
 	}
 
 }
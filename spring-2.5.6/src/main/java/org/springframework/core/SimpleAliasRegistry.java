@@ -19,8 +19,11 @@ package org.springframework.core;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
@@ -37,25 +40,41 @@ import org.springframework.util.StringValueResolver;
  */
 public class SimpleAliasRegistry implements AliasRegistry {
 
-	/** Map from alias to canonical name */
+	/** Map from alias to registered name (which may be an alias itself) */
 	private final Map aliasMap = CollectionFactory.createConcurrentMapIfPossible(16);
 
+	/** Map from registered name to the Set of aliases registered for it; guarded by the alias map */
+	private final Map chainedAliasMap = new HashMap(16);
+
+	/**
+	 * Map from alias to fully resolved canonical name, updated for the changed
+	 * alias and the aliases chained to it on every change to the alias map
+	 */
+	private final Map canonicalNameMap = CollectionFactory.createConcurrentMapIfPossible(16);
+
 
 	public void registerAlias(String name, String alias) {
 		Assert.hasText(name, "'name' must not be empty");
 		Assert.hasText(alias, "'alias' must not be empty");
-		if (alias.equals(name)) {
-			this.aliasMap.remove(alias);
-		}
-		else {
-			if (!allowAliasOverriding()) {
-				String registeredName = (String) this.aliasMap.get(alias);
-				if (registeredName != null && !registeredName.equals(name)) {
+		synchronized (this.aliasMap) {
+			if (alias.equals(name)) {
+				removeAliasEntry(alias);
+			}
+			else {
+				if (!allowAliasOverriding()) {
+					String registeredName = (String) this.aliasMap.get(alias);
+					if (registeredName != null && !registeredName.equals(name)) {
+						throw new IllegalStateException("Cannot register alias '" + alias + "' for name '" +
+								name + "': It is already registered for name '" + registeredName + "'.");
+					}
+				}
+				if (isChainedTo(name, alias)) {
 					throw new IllegalStateException("Cannot register alias '" + alias + "' for name '" +
-							name + "': It is already registered for name '" + registeredName + "'.");
+							name + "': Circular reference - '" + name + "' is a direct or indirect alias for '" +
+							alias + "' already");
 				}
+				putAliasEntry(alias, name);
 			}
-			this.aliasMap.put(alias, name);
 		}
 	}
 
@@ -68,9 +87,11 @@ public class SimpleAliasRegistry implements AliasRegistry {
 	}
 
 	public void removeAlias(String alias) {
-		String name = (String) this.aliasMap.remove(alias);
-		if (name == null) {
-			throw new IllegalStateException("No alias '" + alias + "' registered");
+		synchronized (this.aliasMap) {
+			String name = removeAliasEntry(alias);
+			if (name == null) {
+				throw new IllegalStateException("No alias '" + alias + "' registered");
+			}
 		}
 	}
 
@@ -115,11 +136,11 @@ public class SimpleAliasRegistry implements AliasRegistry {
 								resolvedAlias + "' (original: '" + alias + "') for name '" + resolvedName +
 								"': It is already registered for name '" + registeredName + "'.");
 					}
-					this.aliasMap.put(resolvedAlias, resolvedName);
-					this.aliasMap.remove(alias);
+					putAliasEntry(resolvedAlias, resolvedName);
+					removeAliasEntry(alias);
 				}
 				else if (!registeredName.equals(resolvedName)) {
-					this.aliasMap.put(alias, resolvedName);
+					putAliasEntry(alias, resolvedName);
 				}
 			}
 		}
@@ -131,17 +152,106 @@ public class SimpleAliasRegistry implements AliasRegistry {
 	 * @return the transformed name
 	 */
 	public String canonicalName(String name) {
-		String canonicalName = name;
-		// Handle aliasing.
-		String resolvedName = null;
-		do {
-			resolvedName = (String) this.aliasMap.get(canonicalName);
-			if (resolvedName != null) {
-				canonicalName = resolvedName;
+		String canonicalName = (String) this.canonicalNameMap.get(name);
+		return (canonicalName != null ? canonicalName : name);
+	}
+
+	/**
+	 * Determine whether the given name is an alias for the given alias,
+	 * directly or through a chain of aliases. To be called while holding
+	 * the alias map's lock.
+	 */
+	private boolean isChainedTo(String name, String alias) {
+		String registeredName = name;
+		while ((registeredName = (String) this.aliasMap.get(registeredName)) != null) {
+			if (registeredName.equals(alias)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Register the given alias for the given name in the alias map,
+	 * updating the canonical names affected. To be called while
+	 * holding the alias map's lock.
+	 */
+	private void putAliasEntry(String alias, String name) {
+		String previousName = (String) this.aliasMap.put(alias, name);
+		if (previousName != null) {
+			removeChainedAlias(previousName, alias);
+		}
+		Set chainedAliases = (Set) this.chainedAliasMap.get(name);
+		if (chainedAliases == null) {
+			chainedAliases = new LinkedHashSet(4);
+			this.chainedAliasMap.put(name, chainedAliases);
+		}
+		chainedAliases.add(alias);
+		updateCanonicalNames(alias);
+	}
+
+	/**
+	 * Remove the given alias from the alias map, updating the canonical
+	 * names affected. To be called while holding the alias map's lock.
+	 * @return the name that the alias was registered for,
+	 * or <code>null</code> if none
+	 */
+	private String removeAliasEntry(String alias) {
+		String name = (String) this.aliasMap.remove(alias);
+		if (name != null) {
+			removeChainedAlias(name, alias);
+			updateCanonicalNames(alias);
+		}
+		return name;
+	}
+
+	private void removeChainedAlias(String name, String alias) {
+		Set chainedAliases = (Set) this.chainedAliasMap.get(name);
+		if (chainedAliases != null) {
+			chainedAliases.remove(alias);
+			if (chainedAliases.isEmpty()) {
+				this.chainedAliasMap.remove(name);
+			}
+		}
+	}
+
+	/**
+	 * Recompute the canonical name of the given alias after a change to its
+	 * alias map entry, as well as the canonical names of all aliases chained
+	 * to it (directly or indirectly). The canonical names of all other aliases
+	 * remain unaffected. To be called while holding the alias map's lock.
+	 * @throws IllegalStateException if the change introduced a circular reference
+	 */
+	private void updateCanonicalNames(String alias) {
+		String registeredName = (String) this.aliasMap.get(alias);
+		String canonicalName = alias;
+		if (registeredName != null) {
+			canonicalName = canonicalName(registeredName);
+			if (canonicalName.equals(alias)) {
+				throw new IllegalStateException("Circular reference in alias chain for alias '" + alias + "'");
+			}
+			this.canonicalNameMap.put(alias, canonicalName);
+		}
+		else {
+			this.canonicalNameMap.remove(alias);
+		}
+		LinkedList namesToProcess = new LinkedList();
+		namesToProcess.add(alias);
+		int hops = 0;
+		while (!namesToProcess.isEmpty()) {
+			Set chainedAliases = (Set) this.chainedAliasMap.get(namesToProcess.removeFirst());
+			if (chainedAliases != null) {
+				for (Iterator it = chainedAliases.iterator(); it.hasNext();) {
+					String chainedAlias = (String) it.next();
+					if (chainedAlias.equals(alias) || ++hops > this.aliasMap.size()) {
+						throw new IllegalStateException(
+								"Circular reference in alias chain for alias '" + chainedAlias + "'");
+					}
+					this.canonicalNameMap.put(chainedAlias, canonicalName);
+					namesToProcess.add(chainedAlias);
+				}
 			}
 		}
-		while (resolvedName != null);
-		return canonicalName;
 	}
 
 }
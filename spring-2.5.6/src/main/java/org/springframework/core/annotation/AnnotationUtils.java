@@ -17,13 +17,19 @@
 package org.springframework.core.annotation;
 
 import java.lang.annotation.Annotation;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.core.BridgeMethodResolver;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 
 /**
  * General utility methods for working with annotations, handling bridge methods
@@ -40,6 +46,14 @@ import org.springframework.util.Assert;
  * ({@link #getAnnotation(Method, Class)}) and lookup in the entire inheritance
  * hierarchy of the given method ({@link #findAnnotation(Method, Class)}).
  *
+ * <p>The results of <code>findAnnotation</code> lookups (including lookups
+ * that did not find an annotation) and of bridge method resolution are cached
+ * per class. The cache refers to classes weakly, and holds results for classes
+ * that are not cache-safe (i.e. loaded by a ClassLoader underneath the one that
+ * loaded this class) through soft references only: Such results survive regular
+ * garbage collection but do not prevent the classes from being unloaded once
+ * the JVM runs low on memory.
+ *
  * @author Rob Harrop
  * @author Juergen Hoeller
  * @author Sam Brannen
@@ -53,6 +67,19 @@ public abstract class AnnotationUtils {
 	/** The attribute name for annotations with a single element */
 	static final String	VALUE	= "value";
 
+	/** Marker for cached lookups that did not find an annotation */
+	private static final Object NOT_FOUND = new Object();
+
+	/**
+	 * Map keyed by weakly referenced class, containing a Map of lookup results
+	 * for the class and its methods - or a SoftReference to such a Map in case
+	 * of a class that is not cache-safe (since the Map refers to the class).
+	 */
+	private static final Map<WeakClassKey, Object> lookupCache = new ConcurrentHashMap<WeakClassKey, Object>(64);
+
+	/** Queue for class keys that have been garbage-collected */
+	private static final ReferenceQueue<Class<?>> staleClassKeys = new ReferenceQueue<Class<?>>();
+
 
 	/**
 	 * Get all {@link Annotation Annotations} from the supplied {@link Method}.
@@ -62,7 +89,7 @@ public abstract class AnnotationUtils {
 	 * @see org.springframework.core.BridgeMethodResolver#findBridgedMethod(Method)
 	 */
 	public static Annotation[] getAnnotations(Method method) {
-		return BridgeMethodResolver.findBridgedMethod(method).getAnnotations();
+		return findBridgedMethod(method).getAnnotations();
 	}
 
 	/**
@@ -75,7 +102,7 @@ public abstract class AnnotationUtils {
 	 * @see org.springframework.core.BridgeMethodResolver#findBridgedMethod(Method)
 	 */
 	public static <A extends Annotation> A getAnnotation(Method method, Class<A> annotationType) {
-		return BridgeMethodResolver.findBridgedMethod(method).getAnnotation(annotationType);
+		return findBridgedMethod(method).getAnnotation(annotationType);
 	}
 
 	/**
@@ -89,6 +116,25 @@ public abstract class AnnotationUtils {
 	 * @return the annotation found, or <code>null</code> if none found
 	 */
 	public static <A extends Annotation> A findAnnotation(Method method, Class<A> annotationType) {
+		Map<Object, Object> lookups = getLookupCache(method.getDeclaringClass(), annotationType);
+		if (lookups == null) {
+			return doFindAnnotation(method, annotationType);
+		}
+		Object lookupKey = new MethodAnnotationKey(method, annotationType);
+		Object cached = lookups.get(lookupKey);
+		if (cached == null) {
+			A annotation = doFindAnnotation(method, annotationType);
+			lookups.put(lookupKey, annotation != null ? annotation : NOT_FOUND);
+			return annotation;
+		}
+		return (cached != NOT_FOUND ? annotationType.cast(cached) : null);
+	}
+
+	/**
+	 * Actually find an annotation on the given method or its super methods,
+	 * without caching.
+	 */
+	private static <A extends Annotation> A doFindAnnotation(Method method, Class<A> annotationType) {
 		A annotation = getAnnotation(method, annotationType);
 		Class<?> cl = method.getDeclaringClass();
 		while (annotation == null) {
@@ -127,6 +173,25 @@ public abstract class AnnotationUtils {
 	 */
 	public static <A extends Annotation> A findAnnotation(Class<?> clazz, Class<A> annotationType) {
 		Assert.notNull(clazz, "Class must not be null");
+		Map<Object, Object> lookups = getLookupCache(clazz, annotationType);
+		if (lookups == null) {
+			return doFindAnnotation(clazz, annotationType);
+		}
+		Object cached = lookups.get(annotationType);
+		if (cached == null) {
+			A annotation = doFindAnnotation(clazz, annotationType);
+			lookups.put(annotationType, annotation != null ? annotation : NOT_FOUND);
+			return annotation;
+		}
+		return (cached != NOT_FOUND ? annotationType.cast(cached) : null);
+	}
+
+	/**
+	 * Actually find an annotation on the given class, its interfaces or its
+	 * super classes. Delegates to the caching <code>findAnnotation</code>
+	 * method for the interfaces and super classes, sharing their results.
+	 */
+	private static <A extends Annotation> A doFindAnnotation(Class<?> clazz, Class<A> annotationType) {
 		A annotation = clazz.getAnnotation(annotationType);
 		if (annotation != null) {
 			return annotation;
@@ -322,6 +387,13 @@ public abstract class AnnotationUtils {
 		return getDefaultValue(annotationType, VALUE);
 	}
 
+	/**
+	 * Clear the cache of annotation lookup results.
+	 */
+	public static void clearCache() {
+		lookupCache.clear();
+	}
+
 	/**
 	 * Retrieve the <em>default value</em> of a named Annotation attribute,
 	 * given the {@link Class annotation type}.
@@ -342,4 +414,138 @@ public abstract class AnnotationUtils {
 		}
 	}
 
+
+	/**
+	 * Find the original method for the given bridge method,
+	 * caching the result of bridge method resolution.
+	 * @see org.springframework.core.BridgeMethodResolver#findBridgedMethod(Method)
+	 */
+	private static Method findBridgedMethod(Method method) {
+		if (!method.isBridge()) {
+			return method;
+		}
+		Map<Object, Object> lookups = getLookupCache(method.getDeclaringClass(), null);
+		Method bridgedMethod = (Method) lookups.get(method);
+		if (bridgedMethod == null) {
+			bridgedMethod = BridgeMethodResolver.findBridgedMethod(method);
+			lookups.put(method, bridgedMethod);
+		}
+		return bridgedMethod;
+	}
+
+	/**
+	 * Obtain the Map of cached lookup results for the given class,
+	 * creating it if necessary.
+	 * @param clazz the class (or declaring class of the method) to look up annotations on
+	 * @param annotationType the annotation type to look up (may be <code>null</code>)
+	 * @return the Map of lookup results, or <code>null</code> if lookups for the
+	 * given annotation type cannot be cached for the given class (because the
+	 * annotation type has been loaded by a ClassLoader underneath that of the class)
+	 */
+	private static Map<Object, Object> getLookupCache(Class<?> clazz, Class<?> annotationType) {
+		boolean cacheSafe = isCacheSafe(clazz);
+		if (cacheSafe && annotationType != null && !isCacheSafe(annotationType)) {
+			return null;
+		}
+		Object value = lookupCache.get(new WeakClassKey(clazz, null));
+		Map<Object, Object> lookups;
+		if (value instanceof Reference) {
+			@SuppressWarnings("unchecked")
+			Reference<Map<Object, Object>> lookupsRef = (Reference<Map<Object, Object>>) value;
+			lookups = lookupsRef.get();
+		}
+		else {
+			@SuppressWarnings("unchecked")
+			Map<Object, Object> strongLookups = (Map<Object, Object>) value;
+			lookups = strongLookups;
+		}
+		if (lookups == null) {
+			lookups = new ConcurrentHashMap<Object, Object>(4, 0.75f, 1);
+			expungeStaleClassKeys();
+			WeakClassKey classKey = new WeakClassKey(clazz, staleClassKeys);
+			lookupCache.put(classKey, cacheSafe ? lookups : new SoftReference<Map<Object, Object>>(lookups));
+		}
+		return lookups;
+	}
+
+	/**
+	 * Determine whether the given class is loaded by the ClassLoader of this
+	 * class or a parent of it (or by the bootstrap ClassLoader).
+	 */
+	private static boolean isCacheSafe(Class<?> clazz) {
+		return (clazz.getClassLoader() == null ||
+				ClassUtils.isCacheSafe(clazz, AnnotationUtils.class.getClassLoader()));
+	}
+
+	/**
+	 * Remove cache entries for classes that have been garbage-collected.
+	 */
+	private static void expungeStaleClassKeys() {
+		Reference<? extends Class<?>> staleKey;
+		while ((staleKey = staleClassKeys.poll()) != null) {
+			lookupCache.remove(staleKey);
+		}
+	}
+
+
+	/**
+	 * Weak reference to a class, usable as key in the lookup cache.
+	 * Equal to any other key that refers to the same (non-collected) class.
+	 */
+	private static final class WeakClassKey extends WeakReference<Class<?>> {
+
+		private final int hashCode;
+
+		public WeakClassKey(Class<?> clazz, ReferenceQueue<Class<?>> queue) {
+			super(clazz, queue);
+			this.hashCode = System.identityHashCode(clazz);
+		}
+
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof WeakClassKey)) {
+				return false;
+			}
+			Class<?> clazz = get();
+			return (clazz != null && clazz == ((WeakClassKey) other).get());
+		}
+
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
+
+	/**
+	 * Key for the lookup of an annotation type on a method.
+	 */
+	private static final class MethodAnnotationKey {
+
+		private final Method method;
+
+		private final Class<?> annotationType;
+
+		public MethodAnnotationKey(Method method, Class<?> annotationType) {
+			this.method = method;
+			this.annotationType = annotationType;
+		}
+
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof MethodAnnotationKey)) {
+				return false;
+			}
+			MethodAnnotationKey otherKey = (MethodAnnotationKey) other;
+			return (this.method.equals(otherKey.method) && this.annotationType == otherKey.annotationType);
+		}
+
+		public int hashCode() {
+			return this.method.hashCode() * 29 + this.annotationType.hashCode();
+		}
+	}
+
 }
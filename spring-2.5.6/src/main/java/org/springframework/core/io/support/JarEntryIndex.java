@@ -0,0 +1,328 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.support;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.CollectionFactory;
+import org.springframework.util.ResourceUtils;
+
+/**
+ * Index of the entry names of jar files, allowing the
+ * {@link PathMatchingResourcePatternResolver} to match several resource
+ * patterns against the same jar file without opening it again.
+ *
+ * <p>Entry names are held in memory, keyed by jar file URL. If an index file
+ * has been specified, the entry names of jar files in the local file system
+ * are also stored in that file, keyed by jar file path, size and last-modified
+ * timestamp, to be reused for unchanged jar files in later runs.
+ *
+ * @author agent
+ * @since 2.5.6
+ * @see PathMatchingResourcePatternResolver#setCacheJarEntries
+ * @see PathMatchingResourcePatternResolver#setJarEntryIndexFile
+ */
+class JarEntryIndex {
+
+	private static final String INDEX_FILE_HEADER = "org.springframework.core.io.support.JarEntryIndex-1";
+
+	private static final Log logger = LogFactory.getLog(JarEntryIndex.class);
+
+
+	private final File indexFile;
+
+	/** Map from jar file URL to entry name array */
+	private final Map entryNamesByUrl = CollectionFactory.createConcurrentMapIfPossible(64);
+
+	/** Map from jar file path to IndexedJar, as read from the index file; guarded by this index */
+	private Map indexedJars;
+
+	/** Whether the indexed jars have changed since reading the index file; guarded by this index */
+	private boolean modified = false;
+
+
+	/**
+	 * Create a new JarEntryIndex.
+	 * @param indexFile the index file to read and store entry names in,
+	 * or <code>null</code> for an in-memory index only
+	 */
+	public JarEntryIndex(File indexFile) {
+		this.indexFile = indexFile;
+	}
+
+
+	/**
+	 * Return the entry names of the given jar file, if indexed.
+	 * @param jarFileUrl the URL of the jar file
+	 * @return the entry names, or <code>null</code> if not indexed
+	 * (or indexed for a different version of the jar file)
+	 */
+	public String[] getEntryNames(String jarFileUrl) {
+		String[] entryNames = (String[]) this.entryNamesByUrl.get(jarFileUrl);
+		if (entryNames == null && this.indexFile != null) {
+			File jarFile = getLocalJarFile(jarFileUrl);
+			if (jarFile != null) {
+				synchronized (this) {
+					IndexedJar indexedJar = (IndexedJar) getIndexedJars().get(jarFile.getAbsolutePath());
+					if (indexedJar != null && indexedJar.isCurrentFor(jarFile)) {
+						entryNames = indexedJar.entryNames;
+					}
+				}
+				if (entryNames != null) {
+					this.entryNamesByUrl.put(jarFileUrl, entryNames);
+				}
+			}
+		}
+		return entryNames;
+	}
+
+	/**
+	 * Register the entry names of the given jar file.
+	 * @param jarFileUrl the URL of the jar file
+	 * @param entryNames the names of all entries in the jar file
+	 */
+	public void putEntryNames(String jarFileUrl, String[] entryNames) {
+		this.entryNamesByUrl.put(jarFileUrl, entryNames);
+		if (this.indexFile != null) {
+			File jarFile = getLocalJarFile(jarFileUrl);
+			if (jarFile != null) {
+				IndexedJar indexedJar = new IndexedJar(jarFile.length(), jarFile.lastModified(), entryNames);
+				synchronized (this) {
+					getIndexedJars().put(jarFile.getAbsolutePath(), indexedJar);
+					this.modified = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Store the index file, if specified and if new jar files have been indexed,
+	 * and release all entry names held in memory. Jar files indexed since the
+	 * last successful store are dropped if the index file could not be written.
+	 */
+	public void clear() {
+		store();
+		this.entryNamesByUrl.clear();
+		synchronized (this) {
+			this.indexedJars = null;
+			this.modified = false;
+		}
+	}
+
+	/**
+	 * Store the index file, if specified and if new jar files have been indexed.
+	 * Failure to write the index file will be logged but not propagated.
+	 * <p>The index gets written to a temporary file first, which then replaces
+	 * the index file. Where renaming onto an existing file is not supported,
+	 * the previous index file is kept as backup until the replacement succeeded.
+	 */
+	public synchronized void store() {
+		if (this.indexFile == null || this.indexedJars == null || !this.modified) {
+			return;
+		}
+		File tempFile = null;
+		try {
+			File indexDir = this.indexFile.getAbsoluteFile().getParentFile();
+			tempFile = File.createTempFile(this.indexFile.getName() + ".", ".tmp", indexDir);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			try {
+				out.writeUTF(INDEX_FILE_HEADER);
+				Map jarsToStore = new HashMap(this.indexedJars);
+				for (Iterator it = jarsToStore.keySet().iterator(); it.hasNext();) {
+					if (!new File((String) it.next()).isFile()) {
+						it.remove();
+					}
+				}
+				out.writeInt(jarsToStore.size());
+				for (Iterator it = jarsToStore.entrySet().iterator(); it.hasNext();) {
+					Map.Entry entry = (Map.Entry) it.next();
+					IndexedJar indexedJar = (IndexedJar) entry.getValue();
+					out.writeUTF((String) entry.getKey());
+					out.writeLong(indexedJar.size);
+					out.writeLong(indexedJar.lastModified);
+					out.writeInt(indexedJar.entryNames.length);
+					for (int i = 0; i < indexedJar.entryNames.length; i++) {
+						out.writeUTF(indexedJar.entryNames[i]);
+					}
+				}
+			}
+			finally {
+				out.close();
+			}
+			replaceIndexFile(tempFile);
+			tempFile = null;
+			this.modified = false;
+			if (logger.isDebugEnabled()) {
+				logger.debug("Stored entry names of " + this.indexedJars.size() +
+						" jar files in index file [" + this.indexFile + "]");
+			}
+		}
+		catch (IOException ex) {
+			logger.warn("Could not store jar entry index file [" + this.indexFile + "]", ex);
+		}
+		catch (RuntimeException ex) {
+			logger.warn("Could not store jar entry index file [" + this.indexFile + "]", ex);
+		}
+		finally {
+			if (tempFile != null) {
+				tempFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Replace the index file with the given, completely written temporary file.
+	 * Keeps the previous index file as backup while replacing it, in case
+	 * the platform does not allow for renaming onto an existing file.
+	 */
+	private void replaceIndexFile(File tempFile) throws IOException {
+		if (tempFile.renameTo(this.indexFile)) {
+			return;
+		}
+		File backupFile = getBackupFile();
+		backupFile.delete();
+		if (!this.indexFile.renameTo(backupFile)) {
+			throw new IOException("Could not rename [" + this.indexFile + "] to [" + backupFile + "]");
+		}
+		if (!tempFile.renameTo(this.indexFile)) {
+			backupFile.renameTo(this.indexFile);
+			throw new IOException("Could not rename [" + tempFile + "] to [" + this.indexFile + "]");
+		}
+		backupFile.delete();
+	}
+
+	private File getBackupFile() {
+		return new File(this.indexFile.getPath() + ".bak");
+	}
+
+	/**
+	 * Return the Map of indexed jars, reading the index file on first access.
+	 * To be called while holding this index's lock.
+	 */
+	private Map getIndexedJars() {
+		if (this.indexedJars == null) {
+			this.indexedJars = readIndexFile();
+		}
+		return this.indexedJars;
+	}
+
+	/**
+	 * Read the index file, if it exists. An unreadable index file will be ignored.
+	 * @return the Map of indexed jars (never <code>null</code>)
+	 */
+	private Map readIndexFile() {
+		Map result = new HashMap();
+		File fileToRead = this.indexFile;
+		if (!fileToRead.isFile()) {
+			// Interrupted while replacing the index file?
+			fileToRead = getBackupFile();
+			if (!fileToRead.isFile()) {
+				return result;
+			}
+		}
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileToRead)));
+			try {
+				if (!INDEX_FILE_HEADER.equals(in.readUTF())) {
+					throw new IOException("Unsupported index file format");
+				}
+				int jarCount = in.readInt();
+				for (int i = 0; i < jarCount; i++) {
+					String path = in.readUTF();
+					long size = in.readLong();
+					long lastModified = in.readLong();
+					String[] entryNames = new String[in.readInt()];
+					for (int j = 0; j < entryNames.length; j++) {
+						entryNames[j] = in.readUTF();
+					}
+					result.put(path, new IndexedJar(size, lastModified, entryNames));
+				}
+			}
+			finally {
+				in.close();
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Read entry names of " + result.size() +
+						" jar files from index file [" + fileToRead + "]");
+			}
+			return result;
+		}
+		catch (IOException ex) {
+			logger.warn("Ignoring unreadable jar entry index file [" + fileToRead + "]", ex);
+			return new HashMap();
+		}
+	}
+
+	/**
+	 * Resolve the given jar file URL into a file in the local file system.
+	 * @return the jar file, or <code>null</code> if not resolvable
+	 */
+	private File getLocalJarFile(String jarFileUrl) {
+		File jarFile = null;
+		if (jarFileUrl.startsWith(ResourceUtils.FILE_URL_PREFIX)) {
+			try {
+				jarFile = new File(ResourceUtils.toURI(jarFileUrl).getSchemeSpecificPart());
+			}
+			catch (URISyntaxException ex) {
+				jarFile = new File(jarFileUrl.substring(ResourceUtils.FILE_URL_PREFIX.length()));
+			}
+		}
+		else if (jarFileUrl.indexOf(':') == -1 || new File(jarFileUrl).isAbsolute()) {
+			jarFile = new File(jarFileUrl);
+		}
+		return (jarFile != null && jarFile.isFile() ? jarFile : null);
+	}
+
+
+	/**
+	 * Entry names of a jar file in the index file, along with
+	 * the jar file's size and last-modified timestamp.
+	 */
+	private static class IndexedJar {
+
+		private final long size;
+
+		private final long lastModified;
+
+		private final String[] entryNames;
+
+		public IndexedJar(long size, long lastModified, String[] entryNames) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.entryNames = entryNames;
+		}
+
+		public boolean isCurrentFor(File jarFile) {
+			return (jarFile.length() == this.size && jarFile.lastModified() == this.lastModified);
+		}
+	}
+
+}
@@ -18,15 +18,18 @@ package org.springframework.core.io.support;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.lang.reflect.Method;
 import java.net.JarURLConnection;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -39,6 +42,8 @@ import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.UrlResource;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.support.ParallelTaskRunner;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
 import org.springframework.util.PathMatcher;
@@ -153,6 +158,16 @@ import org.springframework.util.StringUtils;
  * Ant-style pattern in such a case, which will search <i>all</i> class path
  * locations that contain the root package.
  *
+ * <p><b>Performance options:</b>
+ *
+ * <p>The root directories found for a pattern can be searched in parallel,
+ * through a specified {@link #setTaskExecutor TaskExecutor}. The entry names
+ * of jar files can be cached in memory, to be reused for further patterns
+ * that refer to the same jar files, until {@link #clearCache()} gets called;
+ * see {@link #setCacheJarEntries "cacheJarEntries"}. Finally, cached entry
+ * names can be kept in an {@link #setJarEntryIndexFile index file} for
+ * reuse in later runs, as long as the jar files remain unchanged.
+ *
  * @author Juergen Hoeller
  * @author Colin Sampaleanu
  * @since 1.0.2
@@ -185,6 +200,14 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 
 	private PathMatcher pathMatcher = new AntPathMatcher();
 
+	private TaskExecutor taskExecutor;
+
+	private boolean cacheJarEntries = false;
+
+	private File jarEntryIndexFile;
+
+	private volatile JarEntryIndex jarEntryIndex;
+
 
 	/**
 	 * Create a new PathMatchingResourcePatternResolver with a DefaultResourceLoader.
@@ -249,6 +272,87 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		return this.pathMatcher;
 	}
 
+	/**
+	 * Set a TaskExecutor for searching the root directories of a location pattern
+	 * in parallel, one task per jar file or directory tree. Default is none,
+	 * searching all root directories on the calling thread.
+	 * <p>Root directories that the executor rejects get searched on the calling thread.
+	 * Note that custom <code>doFindPathMatchingJarResources</code> and
+	 * <code>doFindPathMatchingFileResources</code> implementations need
+	 * to be thread-safe when running with an executor.
+	 */
+	public void setTaskExecutor(TaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Return the TaskExecutor for searching root directories in parallel, if any.
+	 */
+	public TaskExecutor getTaskExecutor() {
+		return this.taskExecutor;
+	}
+
+	/**
+	 * Set whether to cache the entry names of each jar file searched, avoiding
+	 * to open and iterate the same jar file again for further location patterns.
+	 * Default is "false".
+	 * <p>Cached entry names are held until {@link #clearCache()} gets called.
+	 * Application contexts switch this on for their default resolver for
+	 * the duration of each refresh, clearing the cache and switching it off
+	 * again at the end of the refresh (unless it has been switched on before).
+	 */
+	public void setCacheJarEntries(boolean cacheJarEntries) {
+		this.cacheJarEntries = cacheJarEntries;
+		resetJarEntryIndex();
+	}
+
+	/**
+	 * Return whether to cache the entry names of each jar file searched.
+	 */
+	public boolean isCacheJarEntries() {
+		return this.cacheJarEntries;
+	}
+
+	/**
+	 * Specify a file for keeping the entry names of jar files in the local
+	 * file system across runs, implicitly switching on jar entry caching.
+	 * Default is none.
+	 * <p>The index file gets read on first access to a jar file and stored on
+	 * {@link #clearCache()} in case of new or changed jar files. Entries are
+	 * keyed by jar file path, size and last-modified timestamp: A jar file
+	 * that has changed in any of those respects will be searched again.
+	 * @see #setCacheJarEntries
+	 */
+	public void setJarEntryIndexFile(File jarEntryIndexFile) {
+		this.jarEntryIndexFile = jarEntryIndexFile;
+		resetJarEntryIndex();
+	}
+
+	/**
+	 * Return the file for keeping jar entry names across runs, if any.
+	 */
+	public File getJarEntryIndexFile() {
+		return this.jarEntryIndexFile;
+	}
+
+	/**
+	 * Clear the cached jar entry names, storing the jar entry index file first (if any).
+	 * Jar files will be searched again for subsequent location patterns.
+	 * @see #setCacheJarEntries
+	 * @see #setJarEntryIndexFile
+	 */
+	public void clearCache() {
+		JarEntryIndex jarEntryIndex = this.jarEntryIndex;
+		if (jarEntryIndex != null) {
+			jarEntryIndex.clear();
+		}
+	}
+
+	private void resetJarEntryIndex() {
+		this.jarEntryIndex = (this.cacheJarEntries || this.jarEntryIndexFile != null ?
+				new JarEntryIndex(this.jarEntryIndexFile) : null);
+	}
+
 
 	public Resource getResource(String location) {
 		return getResourceLoader().getResource(location);
@@ -333,13 +437,15 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		String subPattern = locationPattern.substring(rootDirPath.length());
 		Resource[] rootDirResources = getResources(rootDirPath);
 		Set result = new LinkedHashSet(16);
-		for (int i = 0; i < rootDirResources.length; i++) {
-			Resource rootDirResource = resolveRootDirResource(rootDirResources[i]);
-			if (isJarResource(rootDirResource)) {
-				result.addAll(doFindPathMatchingJarResources(rootDirResource, subPattern));
+		if (this.taskExecutor != null && rootDirResources.length > 1) {
+			Object[] rootDirResults = findPathMatchingResourcesInParallel(rootDirResources, subPattern);
+			for (int i = 0; i < rootDirResults.length; i++) {
+				result.addAll((Set) rootDirResults[i]);
 			}
-			else {
-				result.addAll(doFindPathMatchingFileResources(rootDirResource, subPattern));
+		}
+		else {
+			for (int i = 0; i < rootDirResources.length; i++) {
+				result.addAll(doFindPathMatchingResources(rootDirResources[i], subPattern));
 			}
 		}
 		if (logger.isDebugEnabled()) {
@@ -348,6 +454,53 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		return (Resource[]) result.toArray(new Resource[result.size()]);
 	}
 
+	/**
+	 * Search the given root directories in parallel on the TaskExecutor,
+	 * collecting the results per root directory in order to preserve
+	 * the order of the sequential search.
+	 * @return the Set of matching resources for each root directory
+	 */
+	private Object[] findPathMatchingResourcesInParallel(final Resource[] rootDirResources, final String subPattern)
+			throws IOException {
+
+		try {
+			return new ParallelTaskRunner(this.taskExecutor).run(rootDirResources.length,
+					new ParallelTaskRunner.IndexedTask() {
+						public Object run(int index) throws IOException {
+							return doFindPathMatchingResources(rootDirResources[index], subPattern);
+						}
+					});
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while searching root directories in parallel");
+		}
+		catch (IOException ex) {
+			throw ex;
+		}
+		catch (RuntimeException ex) {
+			throw ex;
+		}
+		catch (Exception ex) {
+			// Not expected: the search only throws IOExceptions and unchecked exceptions.
+			throw new IllegalStateException("Failed to search root directories in parallel: " + ex);
+		}
+	}
+
+	/**
+	 * Find all resources underneath the given root directory
+	 * that match the given sub pattern.
+	 */
+	private Set doFindPathMatchingResources(Resource rootDirResource, String subPattern) throws IOException {
+		Resource resolvedRootDirResource = resolveRootDirResource(rootDirResource);
+		if (isJarResource(resolvedRootDirResource)) {
+			return doFindPathMatchingJarResources(resolvedRootDirResource, subPattern);
+		}
+		else {
+			return doFindPathMatchingFileResources(resolvedRootDirResource, subPattern);
+		}
+	}
+
 	/**
 	 * Determine the root directory for the given location.
 	 * <p>Used for determining the starting point for file matching,
@@ -418,19 +571,30 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 	 */
 	protected Set doFindPathMatchingJarResources(Resource rootDirResource, String subPattern) throws IOException {
 		URLConnection con = rootDirResource.getURL().openConnection();
+		JarEntryIndex jarEntryIndex = this.jarEntryIndex;
 		JarFile jarFile = null;
 		String jarFileUrl = null;
 		String rootEntryPath = null;
 		boolean newJarFile = false;
+		String[] entryNames = null;
 
 		if (con instanceof JarURLConnection) {
 			// Should usually be the case for traditional JAR files.
 			JarURLConnection jarCon = (JarURLConnection) con;
 			jarCon.setUseCaches(false);
-			jarFile = jarCon.getJarFile();
 			jarFileUrl = jarCon.getJarFileURL().toExternalForm();
-			JarEntry jarEntry = jarCon.getJarEntry();
-			rootEntryPath = (jarEntry != null ? jarEntry.getName() : "");
+			if (jarEntryIndex != null) {
+				entryNames = jarEntryIndex.getEntryNames(jarFileUrl);
+			}
+			if (entryNames != null) {
+				// Indexed jar file: no need to open it.
+				rootEntryPath = findEntryName(entryNames, jarCon.getEntryName());
+			}
+			else {
+				jarFile = jarCon.getJarFile();
+				JarEntry jarEntry = jarCon.getJarEntry();
+				rootEntryPath = (jarEntry != null ? jarEntry.getName() : "");
+			}
 		}
 		else {
 			// No JarURLConnection -> need to resort to URL file parsing.
@@ -442,19 +606,24 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 			if (separatorIndex != -1) {
 				jarFileUrl = urlFile.substring(0, separatorIndex);
 				rootEntryPath = urlFile.substring(separatorIndex + ResourceUtils.JAR_URL_SEPARATOR.length());
-				jarFile = getJarFile(jarFileUrl);
 			}
 			else {
-				jarFile = new JarFile(urlFile);
 				jarFileUrl = urlFile;
 				rootEntryPath = "";
 			}
-			newJarFile = true;
+			if (jarEntryIndex != null) {
+				entryNames = jarEntryIndex.getEntryNames(jarFileUrl);
+			}
+			if (entryNames == null) {
+				jarFile = (separatorIndex != -1 ? getJarFile(jarFileUrl) : new JarFile(urlFile));
+				newJarFile = true;
+			}
 		}
 
 		try {
 			if (logger.isDebugEnabled()) {
-				logger.debug("Looking for matching resources in jar file [" + jarFileUrl + "]");
+				logger.debug("Looking for matching resources in " + (entryNames != null ? "indexed " : "") +
+						"jar file [" + jarFileUrl + "]");
 			}
 			if (!"".equals(rootEntryPath) && !rootEntryPath.endsWith("/")) {
 				// Root entry path must end with slash to allow for proper matching.
@@ -462,14 +631,23 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 				rootEntryPath = rootEntryPath + "/";
 			}
 			Set result = new LinkedHashSet(8);
-			for (Enumeration entries = jarFile.entries(); entries.hasMoreElements();) {
-				JarEntry entry = (JarEntry) entries.nextElement();
-				String entryPath = entry.getName();
-				if (entryPath.startsWith(rootEntryPath)) {
-					String relativePath = entryPath.substring(rootEntryPath.length());
-					if (getPathMatcher().match(subPattern, relativePath)) {
-						result.add(rootDirResource.createRelative(relativePath));
+			if (entryNames != null) {
+				for (int i = 0; i < entryNames.length; i++) {
+					addMatchingJarEntry(rootDirResource, rootEntryPath, entryNames[i], subPattern, result);
+				}
+			}
+			else {
+				List entryNamesToIndex = (jarEntryIndex != null ? new ArrayList() : null);
+				for (Enumeration entries = jarFile.entries(); entries.hasMoreElements();) {
+					JarEntry entry = (JarEntry) entries.nextElement();
+					String entryPath = entry.getName();
+					if (entryNamesToIndex != null) {
+						entryNamesToIndex.add(entryPath);
 					}
+					addMatchingJarEntry(rootDirResource, rootEntryPath, entryPath, subPattern, result);
+				}
+				if (entryNamesToIndex != null) {
+					jarEntryIndex.putEntryNames(jarFileUrl, StringUtils.toStringArray(entryNamesToIndex));
 				}
 			}
 			return result;
@@ -483,6 +661,45 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		}
 	}
 
+	/**
+	 * Add a resource for the given jar entry to the given result Set,
+	 * if the entry is located underneath the root entry path and matches
+	 * the given sub pattern.
+	 */
+	private void addMatchingJarEntry(Resource rootDirResource, String rootEntryPath, String entryPath,
+			String subPattern, Set result) throws IOException {
+
+		if (entryPath.startsWith(rootEntryPath)) {
+			String relativePath = entryPath.substring(rootEntryPath.length());
+			if (getPathMatcher().match(subPattern, relativePath)) {
+				result.add(rootDirResource.createRelative(relativePath));
+			}
+		}
+	}
+
+	/**
+	 * Find the given entry among the given entry names, the same way that
+	 * <code>JarFile.getEntry</code> does, that is, also considering a directory
+	 * entry with trailing slash.
+	 * @return the actual entry name, or the empty String if not found
+	 */
+	private String findEntryName(String[] entryNames, String entryName) {
+		if (entryName != null) {
+			String dirEntryName = entryName + "/";
+			String found = "";
+			for (int i = 0; i < entryNames.length; i++) {
+				if (entryNames[i].equals(entryName)) {
+					return entryName;
+				}
+				if (entryNames[i].equals(dirEntryName)) {
+					found = dirEntryName;
+				}
+			}
+			return found;
+		}
+		return "";
+	}
+
 	/**
 	 * Resolve the given jar file URL into a JarFile object.
 	 */
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.support;
+
+import org.springframework.core.task.TaskExecutor;
+
+/**
+ * Interface to be implemented by resource loaders that provide a TaskExecutor
+ * for scanning resources in parallel, for example when searching the class path
+ * for candidate components.
+ *
+ * @author agent
+ * @since 2.5.6
+ * @see org.springframework.context.support.AbstractApplicationContext#setResourceScanningExecutor
+ * @see org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider#setTaskExecutor
+ */
+public interface ResourceScanningExecutorProvider {
+
+	/**
+	 * Return the TaskExecutor for scanning resources in parallel.
+	 * @return the TaskExecutor, or <code>null</code> for scanning sequentially
+	 */
+	TaskExecutor getResourceScanningExecutor();
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.task.support;
+
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.util.Assert;
+
+/**
+ * Helper that runs a fixed number of indexed tasks on a {@link TaskExecutor}
+ * and waits for all of them to complete, returning their results in index order.
+ *
+ * <p>Tasks rejected by the executor run on the calling thread instead.
+ * If any task fails, the exception thrown by the failed task with the
+ * lowest index gets rethrown once all tasks have completed.
+ *
+ * @author agent
+ * @since 2.5.6
+ */
+public class ParallelTaskRunner {
+
+	private final TaskExecutor taskExecutor;
+
+
+	/**
+	 * Create a new ParallelTaskRunner for the given TaskExecutor.
+	 * @param taskExecutor the TaskExecutor to run the tasks on
+	 */
+	public ParallelTaskRunner(TaskExecutor taskExecutor) {
+		Assert.notNull(taskExecutor, "TaskExecutor must not be null");
+		this.taskExecutor = taskExecutor;
+	}
+
+
+	/**
+	 * Run the given task for each index from 0 to <code>taskCount - 1</code>,
+	 * returning once all of them have completed.
+	 * @param taskCount the number of tasks to run
+	 * @param task the task to run for each index
+	 * @return the results of the tasks, in index order
+	 * @throws InterruptedException if the calling thread got interrupted while
+	 * waiting for the tasks to complete
+	 * @throws Exception the exception thrown by the first failed task, if any
+	 */
+	public Object[] run(int taskCount, final IndexedTask task) throws Exception {
+		final Batch batch = new Batch(taskCount);
+		for (int i = 0; i < taskCount; i++) {
+			final int index = i;
+			Runnable runnable = new Runnable() {
+				public void run() {
+					Object result = null;
+					Throwable failure = null;
+					try {
+						result = task.run(index);
+					}
+					catch (Throwable ex) {
+						failure = ex;
+					}
+					batch.taskFinished(index, result, failure);
+				}
+			};
+			try {
+				this.taskExecutor.execute(runnable);
+			}
+			catch (TaskRejectedException ex) {
+				// Executor saturated: run the task on the calling thread.
+				runnable.run();
+			}
+		}
+		return batch.awaitResults();
+	}
+
+
+	/**
+	 * Callback interface for a task to be run for each index.
+	 */
+	public interface IndexedTask {
+
+		/**
+		 * Run the task for the given index.
+		 * @param index the index of the task, from 0 to <code>taskCount - 1</code>
+		 * @return the result of the task (may be <code>null</code>)
+		 * @throws Exception in case of failure
+		 */
+		Object run(int index) throws Exception;
+	}
+
+
+	/**
+	 * Results and failures of a single run, along with the
+	 * number of tasks not completed yet.
+	 */
+	private static class Batch {
+
+		/** Results per task; guarded by this batch */
+		private final Object[] results;
+
+		/** Failures per task; guarded by this batch */
+		private final Throwable[] failures;
+
+		/** Number of tasks not completed yet; guarded by this batch */
+		private int pendingCount;
+
+		public Batch(int taskCount) {
+			this.results = new Object[taskCount];
+			this.failures = new Throwable[taskCount];
+			this.pendingCount = taskCount;
+		}
+
+		public synchronized void taskFinished(int index, Object result, Throwable failure) {
+			this.results[index] = result;
+			this.failures[index] = failure;
+			this.pendingCount--;
+			notifyAll();
+		}
+
+		public synchronized Object[] awaitResults() throws Exception {
+			while (this.pendingCount > 0) {
+				wait();
+			}
+			for (int i = 0; i < this.failures.length; i++) {
+				Throwable failure = this.failures[i];
+				if (failure instanceof Exception) {
+					throw (Exception) failure;
+				}
+				if (failure instanceof Error) {
+					throw (Error) failure;
+				}
+				if (failure != null) {
+					throw new IllegalStateException("Task " + i + " failed: " + failure);
+				}
+			}
+			return this.results;
+		}
+	}
+
+}
@@ -16,25 +16,35 @@
 
 package org.springframework.core.type.classreading;
 
-import java.lang.annotation.Annotation;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
 import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.EmptyVisitor;
 
 import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.util.ClassUtils;
 
 /**
  * ASM class visitor which looks for the class name and implemented types as
  * well as for the annotations defined on the class, exposing them through
  * the {@link org.springframework.core.type.AnnotationMetadata} interface.
  *
+ * <p>Meta-annotations get read from the ".class" files of the annotation
+ * types as well, so that annotation type filters can operate without loading
+ * any classes. Only the default values of annotation attributes require the
+ * annotation type to be loaded, on access through {@link #getAnnotationAttributes}.
+ * Both are cached per annotation type in a given {@link AnnotationTypeCache}.
+ *
  * @author Juergen Hoeller
  * @author Mark Fisher
  * @since 2.5
@@ -48,9 +58,22 @@ class AnnotationMetadataReadingVisitor extends ClassMetadataReadingVisitor imple
 
 	private final ClassLoader classLoader;
 
+	private final AnnotationTypeCache annotationTypeCache;
+
 
 	public AnnotationMetadataReadingVisitor(ClassLoader classLoader) {
+		this(classLoader, null);
+	}
+
+	/**
+	 * Create a new AnnotationMetadataReadingVisitor.
+	 * @param classLoader the ClassLoader to read annotation types with
+	 * @param annotationTypeCache a cache for the metadata of annotation types,
+	 * shared across visitors (may be <code>null</code>)
+	 */
+	public AnnotationMetadataReadingVisitor(ClassLoader classLoader, AnnotationTypeCache annotationTypeCache) {
 		this.classLoader = classLoader;
+		this.annotationTypeCache = annotationTypeCache;
 	}
 
 
@@ -63,34 +86,72 @@ class AnnotationMetadataReadingVisitor extends ClassMetadataReadingVisitor imple
 				attributes.put(name, value);
 			}
 			public void visitEnd() {
-				try {
-					Class annotationClass = classLoader.loadClass(className);
-					// Check declared default values of attributes in the annotation type.
-					Method[] annotationAttributes = annotationClass.getMethods();
-					for (int i = 0; i < annotationAttributes.length; i++) {
-						Method annotationAttribute = annotationAttributes[i];
-						String attributeName = annotationAttribute.getName();
-						Object defaultValue = annotationAttribute.getDefaultValue();
-						if (defaultValue != null && !attributes.containsKey(attributeName)) {
-							attributes.put(attributeName, defaultValue);
-						}
-					}
-					// Register annotations that the annotation type is annotated with.
-					Annotation[] metaAnnotations = annotationClass.getAnnotations();
-					Set<String> metaAnnotationTypeNames = new HashSet<String>();
-					for (Annotation metaAnnotation : metaAnnotations) {
-						metaAnnotationTypeNames.add(metaAnnotation.annotationType().getName());
-					}
+				// Register annotations that the annotation type is annotated with.
+				Set<String> metaAnnotationTypeNames = getMetaAnnotationTypeNames(className);
+				if (metaAnnotationTypeNames != null) {
 					metaAnnotationMap.put(className, metaAnnotationTypeNames);
 				}
-				catch (ClassNotFoundException ex) {
-					// Class not found - can't determine meta-annotations.
-				}
 				attributesMap.put(className, attributes);
 			}
 		};
 	}
 
+	/**
+	 * Determine the annotations that the given annotation type is annotated with,
+	 * using the meta-annotation cache if available.
+	 */
+	private Set<String> getMetaAnnotationTypeNames(String annotationType) {
+		if (this.annotationTypeCache == null) {
+			return readMetaAnnotationTypeNames(annotationType);
+		}
+		Set<String> metaAnnotationTypeNames = this.annotationTypeCache.getMetaAnnotationTypes(annotationType);
+		if (metaAnnotationTypeNames == null) {
+			metaAnnotationTypeNames = readMetaAnnotationTypeNames(annotationType);
+			if (metaAnnotationTypeNames != null) {
+				this.annotationTypeCache.putMetaAnnotationTypes(annotationType, metaAnnotationTypeNames);
+			}
+		}
+		return metaAnnotationTypeNames;
+	}
+
+	/**
+	 * Read the runtime-visible annotations of the given annotation type
+	 * from its ".class" file, without loading the annotation type.
+	 * @return the meta-annotation type names, or <code>null</code>
+	 * if the ".class" file could not be found or read
+	 */
+	private Set<String> readMetaAnnotationTypeNames(String annotationType) {
+		InputStream is = this.classLoader.getResourceAsStream(
+				ClassUtils.convertClassNameToResourcePath(annotationType) + ClassUtils.CLASS_FILE_SUFFIX);
+		if (is == null) {
+			// Class file not found - can't determine meta-annotations.
+			return null;
+		}
+		try {
+			final Set<String> metaAnnotationTypeNames = new LinkedHashSet<String>();
+			new ClassReader(is).accept(new EmptyVisitor() {
+				public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+					if (visible) {
+						metaAnnotationTypeNames.add(Type.getType(desc).getClassName());
+					}
+					return super.visitAnnotation(desc, visible);
+				}
+			}, true);
+			return Collections.unmodifiableSet(metaAnnotationTypeNames);
+		}
+		catch (IOException ex) {
+			return null;
+		}
+		finally {
+			try {
+				is.close();
+			}
+			catch (IOException ex) {
+				// ignore
+			}
+		}
+	}
+
 
 	public Set<String> getAnnotationTypes() {
 		return this.attributesMap.keySet();
@@ -115,7 +176,64 @@ class AnnotationMetadataReadingVisitor extends ClassMetadataReadingVisitor imple
 	}
 
 	public Map<String, Object> getAnnotationAttributes(String annotationType) {
-		return this.attributesMap.get(annotationType);
+		Map<String, Object> attributes = this.attributesMap.get(annotationType);
+		if (attributes == null) {
+			return null;
+		}
+		Map<String, Object> result = new LinkedHashMap<String, Object>(attributes);
+		Map<String, Object> defaultAttributes = getDefaultAttributes(annotationType);
+		if (defaultAttributes != null) {
+			for (Map.Entry<String, Object> entry : defaultAttributes.entrySet()) {
+				if (!result.containsKey(entry.getKey())) {
+					result.put(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Determine the default values of the attributes of the given annotation type,
+	 * using the annotation type cache if available.
+	 */
+	private Map<String, Object> getDefaultAttributes(String annotationType) {
+		if (this.annotationTypeCache == null) {
+			return loadDefaultAttributes(annotationType);
+		}
+		Map<String, Object> defaultAttributes = this.annotationTypeCache.getDefaultAttributes(annotationType);
+		if (defaultAttributes == null) {
+			defaultAttributes = loadDefaultAttributes(annotationType);
+			if (defaultAttributes != null) {
+				this.annotationTypeCache.putDefaultAttributes(annotationType, defaultAttributes);
+			}
+		}
+		return defaultAttributes;
+	}
+
+	/**
+	 * Load the given annotation type and introspect the declared
+	 * default values of its attributes.
+	 * @return the Map of attribute names to default values, or <code>null</code>
+	 * if the annotation type could not be loaded
+	 */
+	private Map<String, Object> loadDefaultAttributes(String annotationType) {
+		try {
+			Class annotationClass = this.classLoader.loadClass(annotationType);
+			Map<String, Object> defaultAttributes = new LinkedHashMap<String, Object>();
+			Method[] annotationAttributes = annotationClass.getMethods();
+			for (int i = 0; i < annotationAttributes.length; i++) {
+				Method annotationAttribute = annotationAttributes[i];
+				Object defaultValue = annotationAttribute.getDefaultValue();
+				if (defaultValue != null) {
+					defaultAttributes.put(annotationAttribute.getName(), defaultValue);
+				}
+			}
+			return Collections.unmodifiableMap(defaultAttributes);
+		}
+		catch (ClassNotFoundException ex) {
+			// Class not found - can't determine default values.
+			return null;
+		}
 	}
 
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bounded cache for the metadata of annotation types, shared by the
+ * metadata readers of a {@link SimpleMetadataReaderFactory}: the
+ * meta-annotations of each annotation type and the default values
+ * of its attributes.
+ *
+ * <p>Evicts the least recently used annotation types beyond the given
+ * cache limit. Instances of this class are thread-safe.
+ *
+ * @author agent
+ * @since 2.5.6
+ * @see AnnotationMetadataReadingVisitor
+ */
+class AnnotationTypeCache {
+
+	/** Default maximum number of annotation types to cache: 256 */
+	public static final int DEFAULT_CACHE_LIMIT = 256;
+
+
+	private final Map<String, Set<String>> metaAnnotationTypes;
+
+	private final Map<String, Map<String, Object>> defaultAttributes;
+
+
+	/**
+	 * Create a new AnnotationTypeCache with the default cache limit.
+	 */
+	public AnnotationTypeCache() {
+		this(DEFAULT_CACHE_LIMIT);
+	}
+
+	/**
+	 * Create a new AnnotationTypeCache.
+	 * @param cacheLimit the maximum number of annotation types to cache
+	 */
+	public AnnotationTypeCache(int cacheLimit) {
+		this.metaAnnotationTypes = new BoundedMap<Set<String>>(cacheLimit);
+		this.defaultAttributes = new BoundedMap<Map<String, Object>>(cacheLimit);
+	}
+
+
+	/**
+	 * Return the cached meta-annotation type names for the given annotation type.
+	 * @return the meta-annotation type names, or <code>null</code> if not cached
+	 */
+	public Set<String> getMetaAnnotationTypes(String annotationType) {
+		synchronized (this.metaAnnotationTypes) {
+			return this.metaAnnotationTypes.get(annotationType);
+		}
+	}
+
+	/**
+	 * Cache the given meta-annotation type names for the given annotation type.
+	 */
+	public void putMetaAnnotationTypes(String annotationType, Set<String> metaAnnotationTypes) {
+		synchronized (this.metaAnnotationTypes) {
+			this.metaAnnotationTypes.put(annotationType, metaAnnotationTypes);
+		}
+	}
+
+	/**
+	 * Return the cached attribute default values for the given annotation type.
+	 * @return the Map of attribute names to default values,
+	 * or <code>null</code> if not cached
+	 */
+	public Map<String, Object> getDefaultAttributes(String annotationType) {
+		synchronized (this.defaultAttributes) {
+			return this.defaultAttributes.get(annotationType);
+		}
+	}
+
+	/**
+	 * Cache the given attribute default values for the given annotation type.
+	 */
+	public void putDefaultAttributes(String annotationType, Map<String, Object> defaultAttributes) {
+		synchronized (this.defaultAttributes) {
+			this.defaultAttributes.put(annotationType, defaultAttributes);
+		}
+	}
+
+	/**
+	 * Clear this cache, releasing all cached annotation type metadata.
+	 */
+	public void clear() {
+		synchronized (this.metaAnnotationTypes) {
+			this.metaAnnotationTypes.clear();
+		}
+		synchronized (this.defaultAttributes) {
+			this.defaultAttributes.clear();
+		}
+	}
+
+
+	/**
+	 * LinkedHashMap in access order, evicting the eldest entry beyond the cache limit.
+	 */
+	@SuppressWarnings("serial")
+	private static class BoundedMap<V> extends LinkedHashMap<String, V> {
+
+		private final int cacheLimit;
+
+		public BoundedMap(int cacheLimit) {
+			super(16, 0.75f, true);
+			this.cacheLimit = cacheLimit;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+			return size() > this.cacheLimit;
+		}
+	}
+
+}
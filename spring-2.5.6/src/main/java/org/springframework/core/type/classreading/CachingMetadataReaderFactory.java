@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2007 the original author or authors.
+ * Copyright 2002-2008 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,7 +17,7 @@
 package org.springframework.core.type.classreading;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.springframework.core.io.Resource;
@@ -28,12 +28,30 @@ import org.springframework.core.io.ResourceLoader;
  * caching an ASM {@link org.objectweb.asm.ClassReader} per Spring Resource handle
  * (i.e. per ".class" file).
  *
+ * <p>The cache is bounded, evicting the least recently used entries beyond
+ * the {@link #setCacheLimit cache limit}, and can be released through
+ * {@link #clearCache()} once a scan has completed. This factory is safe
+ * for concurrent use: ".class" files get read outside of the cache lock,
+ * so that several threads can read different files at the same time.
+ *
  * @author Juergen Hoeller
  * @since 2.5
  */
 public class CachingMetadataReaderFactory extends SimpleMetadataReaderFactory {
 
-	private final Map<Resource, MetadataReader> classReaderCache = new HashMap<Resource, MetadataReader>();
+	/** Default maximum number of entries for the MetadataReader cache: 256 */
+	public static final int DEFAULT_CACHE_LIMIT = 256;
+
+
+	private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
+
+	private final Map<Resource, MetadataReader> classReaderCache =
+			new LinkedHashMap<Resource, MetadataReader>(DEFAULT_CACHE_LIMIT, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Resource, MetadataReader> eldest) {
+					return size() > getCacheLimit();
+				}
+			};
 
 
 	/**
@@ -61,15 +79,51 @@ public class CachingMetadataReaderFactory extends SimpleMetadataReaderFactory {
 	}
 
 
+	/**
+	 * Specify the maximum number of entries for the MetadataReader cache.
+	 * Default is 256.
+	 */
+	public void setCacheLimit(int cacheLimit) {
+		this.cacheLimit = cacheLimit;
+	}
+
+	/**
+	 * Return the maximum number of entries for the MetadataReader cache.
+	 */
+	public int getCacheLimit() {
+		return this.cacheLimit;
+	}
+
+	/**
+	 * Clear the MetadataReader cache as well as the cached metadata
+	 * of annotation types, releasing all cached metadata.
+	 */
+	@Override
+	public void clearCache() {
+		synchronized (this.classReaderCache) {
+			this.classReaderCache.clear();
+		}
+		super.clearCache();
+	}
+
+
 	public MetadataReader getMetadataReader(Resource resource) throws IOException {
+		if (getCacheLimit() <= 0) {
+			return super.getMetadataReader(resource);
+		}
 		synchronized (this.classReaderCache) {
 			MetadataReader metadataReader = this.classReaderCache.get(resource);
-			if (metadataReader == null) {
-				metadataReader = super.getMetadataReader(resource);
-				this.classReaderCache.put(resource, metadataReader);
+			if (metadataReader != null) {
+				return metadataReader;
 			}
-			return metadataReader;
 		}
+		// Read the class file outside of the lock: a concurrent read of the
+		// same resource is harmless, with the last reader cached.
+		MetadataReader metadataReader = super.getMetadataReader(resource);
+		synchronized (this.classReaderCache) {
+			this.classReaderCache.put(resource, metadataReader);
+		}
+		return metadataReader;
 	}
 
 }
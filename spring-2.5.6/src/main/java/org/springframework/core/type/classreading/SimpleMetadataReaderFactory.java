@@ -30,6 +30,11 @@ import org.springframework.util.ClassUtils;
  * Simple implementation of the {@link MetadataReaderFactory} interface,
  * creating a new ASM {@link org.objectweb.asm.ClassReader} for every request.
  *
+ * <p>The meta-annotations and attribute default values of annotation types
+ * are cached across requests, since those are checked for every class that
+ * carries the annotation. That cache is bounded and can be released through
+ * {@link #clearCache()}. Instances of this class are thread-safe.
+ *
  * @author Juergen Hoeller
  * @since 2.5
  */
@@ -37,6 +42,9 @@ public class SimpleMetadataReaderFactory implements MetadataReaderFactory {
 
 	private final ResourceLoader resourceLoader;
 
+	/** Cache for meta-annotations and attribute default values of annotation types */
+	private final AnnotationTypeCache annotationTypeCache = new AnnotationTypeCache();
+
 
 	/**
 	 * Create a new SimpleMetadataReaderFactory for the default class loader.
@@ -64,6 +72,14 @@ public class SimpleMetadataReaderFactory implements MetadataReaderFactory {
 	}
 
 
+	/**
+	 * Clear the cached metadata of annotation types.
+	 */
+	public void clearCache() {
+		this.annotationTypeCache.clear();
+	}
+
+
 	public MetadataReader getMetadataReader(String className) throws IOException {
 		String resourcePath = ResourceLoader.CLASSPATH_URL_PREFIX +
 				ClassUtils.convertClassNameToResourcePath(className) + ClassUtils.CLASS_FILE_SUFFIX;
@@ -73,7 +89,8 @@ public class SimpleMetadataReaderFactory implements MetadataReaderFactory {
 	public MetadataReader getMetadataReader(Resource resource) throws IOException {
 		InputStream is = resource.getInputStream();
 		try {
-			return new SimpleMetadataReader(new ClassReader(is), this.resourceLoader.getClassLoader());
+			return new SimpleMetadataReader(
+					new ClassReader(is), this.resourceLoader.getClassLoader(), this.annotationTypeCache);
 		}
 		finally {
 			is.close();
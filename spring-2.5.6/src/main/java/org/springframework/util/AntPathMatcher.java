@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2007 the original author or authors.
+ * Copyright 2002-2008 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,10 @@
 
 package org.springframework.util;
 
+import java.util.Map;
+
+import org.springframework.core.CollectionFactory;
+
 /**
  * PathMatcher implementation for Ant-style path patterns.
  * Examples are provided below.
@@ -46,6 +50,10 @@ package org.springframework.util;
  * <code>org/servlet/bla.jsp</code></li>
  * </ul>
  *
+ * <p>Patterns get compiled into a pre-tokenized form on first use, with
+ * compiled patterns cached up until a configurable limit. For matching a
+ * path against many patterns at once, consider {@link AntPathPatternSet}.
+ *
  * @author Alef Arendsen
  * @author Juergen Hoeller
  * @author Rob Harrop
@@ -56,8 +64,17 @@ public class AntPathMatcher implements PathMatcher {
 	/** Default path separator: "/" */
 	public static final String DEFAULT_PATH_SEPARATOR = "/";
 
+	/** Default maximum number of compiled patterns to cache: 1024 */
+	public static final int DEFAULT_PATTERN_CACHE_LIMIT = 1024;
+
+
 	private String pathSeparator = DEFAULT_PATH_SEPARATOR;
 
+	private int patternCacheLimit = DEFAULT_PATTERN_CACHE_LIMIT;
+
+	/** Cache of CompiledPatterns, keyed by pattern String */
+	private final Map compiledPatternCache = CollectionFactory.createConcurrentMapIfPossible(64);
+
 
 	/**
 	 * Set the path separator to use for pattern parsing.
@@ -65,6 +82,21 @@ public class AntPathMatcher implements PathMatcher {
 	 */
 	public void setPathSeparator(String pathSeparator) {
 		this.pathSeparator = (pathSeparator != null ? pathSeparator : DEFAULT_PATH_SEPARATOR);
+		this.compiledPatternCache.clear();
+	}
+
+	/**
+	 * Set the maximum number of compiled patterns to cache.
+	 * Default is 1024.
+	 * <p>Patterns beyond this limit get compiled for every match attempt,
+	 * protecting against unbounded growth in case of dynamically built patterns.
+	 * Set this to 0 in order to switch pattern caching off.
+	 * <p>Note that this limit is checked without locking: Concurrent first
+	 * uses of different patterns may briefly exceed it by the number of threads.
+	 */
+	public void setPatternCacheLimit(int patternCacheLimit) {
+		this.patternCacheLimit = patternCacheLimit;
+		this.compiledPatternCache.clear();
 	}
 
 
@@ -94,318 +126,363 @@ public class AntPathMatcher implements PathMatcher {
 		if (path.startsWith(this.pathSeparator) != pattern.startsWith(this.pathSeparator)) {
 			return false;
 		}
-
-		String[] pattDirs = StringUtils.tokenizeToStringArray(pattern, this.pathSeparator);
 		String[] pathDirs = StringUtils.tokenizeToStringArray(path, this.pathSeparator);
+		return getCompiledPattern(pattern).matches(pathDirs, path, fullMatch);
+	}
 
-		int pattIdxStart = 0;
-		int pattIdxEnd = pattDirs.length - 1;
-		int pathIdxStart = 0;
-		int pathIdxEnd = pathDirs.length - 1;
-
-		// Match all elements up to the first **
-		while (pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd) {
-			String patDir = pattDirs[pattIdxStart];
-			if ("**".equals(patDir)) {
-				break;
-			}
-			if (!matchStrings(patDir, pathDirs[pathIdxStart])) {
-				return false;
+	/**
+	 * Obtain the compiled form of the given pattern, compiling it on first use.
+	 * Compiled patterns get cached up until the pattern cache limit.
+	 * @param pattern the pattern to compile
+	 * @return the compiled pattern
+	 * @see #setPatternCacheLimit
+	 */
+	CompiledPattern getCompiledPattern(String pattern) {
+		CompiledPattern compiledPattern = (CompiledPattern) this.compiledPatternCache.get(pattern);
+		if (compiledPattern == null) {
+			compiledPattern = new CompiledPattern(pattern, this.pathSeparator);
+			if (this.compiledPatternCache.size() < this.patternCacheLimit &&
+					compiledPattern.pathSeparator.equals(this.pathSeparator)) {
+				this.compiledPatternCache.put(pattern, compiledPattern);
 			}
-			pattIdxStart++;
-			pathIdxStart++;
 		}
+		return compiledPattern;
+	}
 
-		if (pathIdxStart > pathIdxEnd) {
-			// Path is exhausted, only match if rest of pattern is * or **'s
-			if (pattIdxStart > pattIdxEnd) {
-				return (pattern.endsWith(this.pathSeparator) ?
-						path.endsWith(this.pathSeparator) : !path.endsWith(this.pathSeparator));
-			}
-			if (!fullMatch) {
-				return true;
-			}
-			if (pattIdxStart == pattIdxEnd && pattDirs[pattIdxStart].equals("*") &&
-					path.endsWith(this.pathSeparator)) {
-				return true;
-			}
-			for (int i = pattIdxStart; i <= pattIdxEnd; i++) {
-				if (!pattDirs[i].equals("**")) {
-					return false;
-				}
-			}
-			return true;
-		}
-		else if (pattIdxStart > pattIdxEnd) {
-			// String not exhausted, but pattern is. Failure.
-			return false;
-		}
-		else if (!fullMatch && "**".equals(pattDirs[pattIdxStart])) {
-			// Path start definitely matches due to "**" part in pattern.
-			return true;
-		}
+	/**
+	 * Given a pattern and a full path, determine the pattern-mapped part.
+	 * <p>For example:
+	 * <ul>
+	 * <li>'<code>/docs/cvs/commit.html</code>' and '<code>/docs/cvs/commit.html</code> -> ''</li>
+	 * <li>'<code>/docs/*</code>' and '<code>/docs/cvs/commit</code> -> '<code>cvs/commit</code>'</li>
+	 * <li>'<code>/docs/cvs/*.html</code>' and '<code>/docs/cvs/commit.html</code> -> '<code>commit.html</code>'</li>
+	 * <li>'<code>/docs/**</code>' and '<code>/docs/cvs/commit</code> -> '<code>cvs/commit</code>'</li>
+	 * <li>'<code>/docs/**\/*.html</code>' and '<code>/docs/cvs/commit.html</code> -> '<code>cvs/commit.html</code>'</li>
+	 * <li>'<code>/*.html</code>' and '<code>/docs/cvs/commit.html</code> -> '<code>docs/cvs/commit.html</code>'</li>
+	 * <li>'<code>*.html</code>' and '<code>/docs/cvs/commit.html</code> -> '<code>/docs/cvs/commit.html</code>'</li>
+	 * <li>'<code>*</code>' and '<code>/docs/cvs/commit.html</code> -> '<code>/docs/cvs/commit.html</code>'</li>
+	 * </ul>
+	 * <p>Assumes that {@link #match} returns <code>true</code> for '<code>pattern</code>'
+	 * and '<code>path</code>', but does <strong>not</strong> enforce this.
+	 */
+	public String extractPathWithinPattern(String pattern, String path) {
+		String[] patternParts = StringUtils.tokenizeToStringArray(pattern, this.pathSeparator);
+		String[] pathParts = StringUtils.tokenizeToStringArray(path, this.pathSeparator);
 
-		// up to last '**'
-		while (pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd) {
-			String patDir = pattDirs[pattIdxEnd];
-			if (patDir.equals("**")) {
-				break;
-			}
-			if (!matchStrings(patDir, pathDirs[pathIdxEnd])) {
-				return false;
-			}
-			pattIdxEnd--;
-			pathIdxEnd--;
-		}
-		if (pathIdxStart > pathIdxEnd) {
-			// String is exhausted
-			for (int i = pattIdxStart; i <= pattIdxEnd; i++) {
-				if (!pattDirs[i].equals("**")) {
-					return false;
-				}
-			}
-			return true;
-		}
+		StringBuffer buffer = new StringBuffer();
 
-		while (pattIdxStart != pattIdxEnd && pathIdxStart <= pathIdxEnd) {
-			int patIdxTmp = -1;
-			for (int i = pattIdxStart + 1; i <= pattIdxEnd; i++) {
-				if (pattDirs[i].equals("**")) {
-					patIdxTmp = i;
-					break;
+		// Add any path parts that have a wildcarded pattern part.
+		int puts = 0;
+		for (int i = 0; i < patternParts.length; i++) {
+			String patternPart = patternParts[i];
+			if ((patternPart.indexOf('*') > -1 || patternPart.indexOf('?') > -1) && pathParts.length >= i + 1) {
+				if (puts > 0 || (i == 0 && !pattern.startsWith(this.pathSeparator))) {
+					buffer.append(this.pathSeparator);
 				}
+				buffer.append(pathParts[i]);
+				puts++;
 			}
-			if (patIdxTmp == pattIdxStart + 1) {
-				// '**/**' situation, so skip one
-				pattIdxStart++;
-				continue;
-			}
-			// Find the pattern between padIdxStart & padIdxTmp in str between
-			// strIdxStart & strIdxEnd
-			int patLength = (patIdxTmp - pattIdxStart - 1);
-			int strLength = (pathIdxEnd - pathIdxStart + 1);
-			int foundIdx = -1;
-
-			strLoop:
-			    for (int i = 0; i <= strLength - patLength; i++) {
-				    for (int j = 0; j < patLength; j++) {
-					    String subPat = (String) pattDirs[pattIdxStart + j + 1];
-					    String subStr = (String) pathDirs[pathIdxStart + i + j];
-					    if (!matchStrings(subPat, subStr)) {
-						    continue strLoop;
-					    }
-				    }
-				    foundIdx = pathIdxStart + i;
-				    break;
-			    }
-
-			if (foundIdx == -1) {
-				return false;
-			}
-
-			pattIdxStart = patIdxTmp;
-			pathIdxStart = foundIdx + patLength;
 		}
 
-		for (int i = pattIdxStart; i <= pattIdxEnd; i++) {
-			if (!pattDirs[i].equals("**")) {
-				return false;
+		// Append any trailing path parts.
+		for (int i = patternParts.length; i < pathParts.length; i++) {
+			if (puts > 0 || i > 0) {
+				buffer.append(this.pathSeparator);
 			}
+			buffer.append(pathParts[i]);
 		}
 
-		return true;
+		return buffer.toString();
 	}
 
+
 	/**
-	 * Tests whether or not a string matches against a pattern.
-	 * The pattern may contain two special characters:<br>
-	 * '*' means zero or more characters<br>
-	 * '?' means one and only one character
-	 * @param pattern pattern to match against.
-	 * Must not be <code>null</code>.
-	 * @param str string which must be matched against the pattern.
-	 * Must not be <code>null</code>.
-	 * @return <code>true</code> if the string matches against the
-	 * pattern, or <code>false</code> otherwise.
+	 * Pre-tokenized form of a pattern, keeping the characters of every
+	 * pattern segment along with its wildcard characteristics, so that
+	 * matching neither tokenizes the pattern nor copies path segments.
 	 */
-	private boolean matchStrings(String pattern, String str) {
-		char[] patArr = pattern.toCharArray();
-		char[] strArr = str.toCharArray();
-		int patIdxStart = 0;
-		int patIdxEnd = patArr.length - 1;
-		int strIdxStart = 0;
-		int strIdxEnd = strArr.length - 1;
-		char ch;
-
-		boolean containsStar = false;
-		for (int i = 0; i < patArr.length; i++) {
-			if (patArr[i] == '*') {
-				containsStar = true;
-				break;
-			}
-		}
+	static class CompiledPattern {
 
-		if (!containsStar) {
-			// No '*'s, so we make a shortcut
-			if (patIdxEnd != strIdxEnd) {
-				return false; // Pattern and string do not have the same size
-			}
-			for (int i = 0; i <= patIdxEnd; i++) {
-				ch = patArr[i];
-				if (ch != '?') {
-					if (ch != strArr[i]) {
-						return false;// Character mismatch
-					}
-				}
+		final String pattern;
+
+		final String pathSeparator;
+
+		final String[] pattDirs;
+
+		private final char[][] pattChars;
+
+		private final boolean[] containsStar;
+
+		private final boolean[] doubleStar;
+
+		private final boolean endsWithSeparator;
+
+		public CompiledPattern(String pattern, String pathSeparator) {
+			this.pattern = pattern;
+			this.pathSeparator = pathSeparator;
+			this.pattDirs = StringUtils.tokenizeToStringArray(pattern, pathSeparator);
+			this.pattChars = new char[this.pattDirs.length][];
+			this.containsStar = new boolean[this.pattDirs.length];
+			this.doubleStar = new boolean[this.pattDirs.length];
+			for (int i = 0; i < this.pattDirs.length; i++) {
+				this.pattChars[i] = this.pattDirs[i].toCharArray();
+				this.containsStar[i] = (this.pattDirs[i].indexOf('*') != -1);
+				this.doubleStar[i] = "**".equals(this.pattDirs[i]);
 			}
-			return true; // String matches against pattern
+			this.endsWithSeparator = pattern.endsWith(pathSeparator);
 		}
 
-
-		if (patIdxEnd == 0) {
-			return true; // Pattern contains only '*', which matches anything
+		/**
+		 * Return whether the given segment of the pattern is a "**" segment.
+		 */
+		public boolean isDoubleStar(int pattIdx) {
+			return this.doubleStar[pattIdx];
 		}
 
-		// Process characters before first star
-		while ((ch = patArr[patIdxStart]) != '*' && strIdxStart <= strIdxEnd) {
-			if (ch != '?') {
-				if (ch != strArr[strIdxStart]) {
-					return false;// Character mismatch
+		/**
+		 * Match the given tokenized path against this pattern.
+		 * Assumes that the leading separators of pattern and path have been compared already.
+		 * @param pathDirs the tokenized path
+		 * @param path the original path String
+		 * @param fullMatch whether a full pattern match is required
+		 * (else a pattern match as far as the given base path goes is sufficient)
+		 * @return <code>true</code> if the supplied <code>path</code> matched,
+		 * <code>false</code> if it didn't
+		 */
+		public boolean matches(String[] pathDirs, String path, boolean fullMatch) {
+			int pattIdxStart = 0;
+			int pattIdxEnd = this.pattDirs.length - 1;
+			int pathIdxStart = 0;
+			int pathIdxEnd = pathDirs.length - 1;
+
+			// Match all elements up to the first **
+			while (pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+				if (this.doubleStar[pattIdxStart]) {
+					break;
 				}
-			}
-			patIdxStart++;
-			strIdxStart++;
-		}
-		if (strIdxStart > strIdxEnd) {
-			// All characters in the string are used. Check if only '*'s are
-			// left in the pattern. If so, we succeeded. Otherwise failure.
-			for (int i = patIdxStart; i <= patIdxEnd; i++) {
-				if (patArr[i] != '*') {
+				if (!matchSegment(pattIdxStart, pathDirs[pathIdxStart])) {
 					return false;
 				}
+				pattIdxStart++;
+				pathIdxStart++;
 			}
-			return true;
-		}
 
-		// Process characters after last star
-		while ((ch = patArr[patIdxEnd]) != '*' && strIdxStart <= strIdxEnd) {
-			if (ch != '?') {
-				if (ch != strArr[strIdxEnd]) {
-					return false;// Character mismatch
+			if (pathIdxStart > pathIdxEnd) {
+				// Path is exhausted, only match if rest of pattern is * or **'s
+				if (pattIdxStart > pattIdxEnd) {
+					return (this.endsWithSeparator ?
+							path.endsWith(this.pathSeparator) : !path.endsWith(this.pathSeparator));
 				}
-			}
-			patIdxEnd--;
-			strIdxEnd--;
-		}
-		if (strIdxStart > strIdxEnd) {
-			// All characters in the string are used. Check if only '*'s are
-			// left in the pattern. If so, we succeeded. Otherwise failure.
-			for (int i = patIdxStart; i <= patIdxEnd; i++) {
-				if (patArr[i] != '*') {
-					return false;
+				if (!fullMatch) {
+					return true;
 				}
+				if (pattIdxStart == pattIdxEnd && this.pattDirs[pattIdxStart].equals("*") &&
+						path.endsWith(this.pathSeparator)) {
+					return true;
+				}
+				return onlyDoubleStars(pattIdxStart, pattIdxEnd);
+			}
+			else if (pattIdxStart > pattIdxEnd) {
+				// String not exhausted, but pattern is. Failure.
+				return false;
+			}
+			else if (!fullMatch && this.doubleStar[pattIdxStart]) {
+				// Path start definitely matches due to "**" part in pattern.
+				return true;
 			}
-			return true;
-		}
 
-		// process pattern between stars. padIdxStart and patIdxEnd point
-		// always to a '*'.
-		while (patIdxStart != patIdxEnd && strIdxStart <= strIdxEnd) {
-			int patIdxTmp = -1;
-			for (int i = patIdxStart + 1; i <= patIdxEnd; i++) {
-				if (patArr[i] == '*') {
-					patIdxTmp = i;
+			// up to last '**'
+			while (pattIdxStart <= pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+				if (this.doubleStar[pattIdxEnd]) {
 					break;
 				}
+				if (!matchSegment(pattIdxEnd, pathDirs[pathIdxEnd])) {
+					return false;
+				}
+				pattIdxEnd--;
+				pathIdxEnd--;
 			}
-			if (patIdxTmp == patIdxStart + 1) {
-				// Two stars next to each other, skip the first one.
-				patIdxStart++;
-				continue;
+			if (pathIdxStart > pathIdxEnd) {
+				// String is exhausted
+				return onlyDoubleStars(pattIdxStart, pattIdxEnd);
 			}
-			// Find the pattern between padIdxStart & padIdxTmp in str between
-			// strIdxStart & strIdxEnd
-			int patLength = (patIdxTmp - patIdxStart - 1);
-			int strLength = (strIdxEnd - strIdxStart + 1);
-			int foundIdx = -1;
-			strLoop:
-			for (int i = 0; i <= strLength - patLength; i++) {
-				for (int j = 0; j < patLength; j++) {
-					ch = patArr[patIdxStart + j + 1];
-					if (ch != '?') {
-						if (ch != strArr[strIdxStart + i + j]) {
+
+			while (pattIdxStart != pattIdxEnd && pathIdxStart <= pathIdxEnd) {
+				int patIdxTmp = -1;
+				for (int i = pattIdxStart + 1; i <= pattIdxEnd; i++) {
+					if (this.doubleStar[i]) {
+						patIdxTmp = i;
+						break;
+					}
+				}
+				if (patIdxTmp == pattIdxStart + 1) {
+					// '**/**' situation, so skip one
+					pattIdxStart++;
+					continue;
+				}
+				// Find the pattern between padIdxStart & padIdxTmp in str between
+				// strIdxStart & strIdxEnd
+				int patLength = (patIdxTmp - pattIdxStart - 1);
+				int strLength = (pathIdxEnd - pathIdxStart + 1);
+				int foundIdx = -1;
+
+				strLoop:
+				for (int i = 0; i <= strLength - patLength; i++) {
+					for (int j = 0; j < patLength; j++) {
+						if (!matchSegment(pattIdxStart + j + 1, pathDirs[pathIdxStart + i + j])) {
 							continue strLoop;
 						}
 					}
+					foundIdx = pathIdxStart + i;
+					break;
 				}
 
-				foundIdx = strIdxStart + i;
-				break;
-			}
+				if (foundIdx == -1) {
+					return false;
+				}
 
-			if (foundIdx == -1) {
-				return false;
+				pattIdxStart = patIdxTmp;
+				pathIdxStart = foundIdx + patLength;
 			}
 
-			patIdxStart = patIdxTmp;
-			strIdxStart = foundIdx + patLength;
+			return onlyDoubleStars(pattIdxStart, pattIdxEnd);
 		}
 
-		// All characters in the string are used. Check if only '*'s are left
-		// in the pattern. If so, we succeeded. Otherwise failure.
-		for (int i = patIdxStart; i <= patIdxEnd; i++) {
-			if (patArr[i] != '*') {
-				return false;
+		private boolean onlyDoubleStars(int pattIdxStart, int pattIdxEnd) {
+			for (int i = pattIdxStart; i <= pattIdxEnd; i++) {
+				if (!this.doubleStar[i]) {
+					return false;
+				}
 			}
+			return true;
 		}
 
-		return true;
-	}
+		/**
+		 * Tests whether or not a path segment matches against the given pattern segment.
+		 * The pattern segment may contain two special characters:<br>
+		 * '*' means zero or more characters<br>
+		 * '?' means one and only one character
+		 * @param pattIdx the index of the pattern segment to match against
+		 * @param str the path segment which must be matched against the pattern segment
+		 * @return <code>true</code> if the string matches against the
+		 * pattern segment, or <code>false</code> otherwise.
+		 */
+		public boolean matchSegment(int pattIdx, String str) {
+			char[] patArr = this.pattChars[pattIdx];
+			int patIdxStart = 0;
+			int patIdxEnd = patArr.length - 1;
+			int strIdxStart = 0;
+			int strIdxEnd = str.length() - 1;
+			char ch;
+
+			if (!this.containsStar[pattIdx]) {
+				// No '*'s, so we make a shortcut
+				if (patIdxEnd != strIdxEnd) {
+					return false; // Pattern and string do not have the same size
+				}
+				for (int i = 0; i <= patIdxEnd; i++) {
+					ch = patArr[i];
+					if (ch != '?') {
+						if (ch != str.charAt(i)) {
+							return false;// Character mismatch
+						}
+					}
+				}
+				return true; // String matches against pattern
+			}
 
-	/**
-	 * Given a pattern and a full path, determine the pattern-mapped part.
-	 * <p>For example:
-	 * <ul>
-	 * <li>'<code>/docs/cvs/commit.html</code>' and '<code>/docs/cvs/commit.html</code> -> ''</li>
-	 * <li>'<code>/docs/*</code>' and '<code>/docs/cvs/commit</code> -> '<code>cvs/commit</code>'</li>
-	 * <li>'<code>/docs/cvs/*.html</code>' and '<code>/docs/cvs/commit.html</code> -> '<code>commit.html</code>'</li>
-	 * <li>'<code>/docs/**</code>' and '<code>/docs/cvs/commit</code> -> '<code>cvs/commit</code>'</li>
-	 * <li>'<code>/docs/**\/*.html</code>' and '<code>/docs/cvs/commit.html</code> -> '<code>cvs/commit.html</code>'</li>
-	 * <li>'<code>/*.html</code>' and '<code>/docs/cvs/commit.html</code> -> '<code>docs/cvs/commit.html</code>'</li>
-	 * <li>'<code>*.html</code>' and '<code>/docs/cvs/commit.html</code> -> '<code>/docs/cvs/commit.html</code>'</li>
-	 * <li>'<code>*</code>' and '<code>/docs/cvs/commit.html</code> -> '<code>/docs/cvs/commit.html</code>'</li>
-	 * </ul>
-	 * <p>Assumes that {@link #match} returns <code>true</code> for '<code>pattern</code>'
-	 * and '<code>path</code>', but does <strong>not</strong> enforce this.
-	 */
-	public String extractPathWithinPattern(String pattern, String path) {
-		String[] patternParts = StringUtils.tokenizeToStringArray(pattern, this.pathSeparator);
-		String[] pathParts = StringUtils.tokenizeToStringArray(path, this.pathSeparator);
+			if (patIdxEnd == 0) {
+				return true; // Pattern contains only '*', which matches anything
+			}
 
-		StringBuffer buffer = new StringBuffer();
+			// Process characters before first star
+			while ((ch = patArr[patIdxStart]) != '*' && strIdxStart <= strIdxEnd) {
+				if (ch != '?') {
+					if (ch != str.charAt(strIdxStart)) {
+						return false;// Character mismatch
+					}
+				}
+				patIdxStart++;
+				strIdxStart++;
+			}
+			if (strIdxStart > strIdxEnd) {
+				// All characters in the string are used. Check if only '*'s are
+				// left in the pattern. If so, we succeeded. Otherwise failure.
+				return onlyStars(patArr, patIdxStart, patIdxEnd);
+			}
 
-		// Add any path parts that have a wildcarded pattern part.
-		int puts = 0;
-		for (int i = 0; i < patternParts.length; i++) {
-			String patternPart = patternParts[i];
-			if ((patternPart.indexOf('*') > -1 || patternPart.indexOf('?') > -1) && pathParts.length >= i + 1) {
-				if (puts > 0 || (i == 0 && !pattern.startsWith(this.pathSeparator))) {
-					buffer.append(this.pathSeparator);
+			// Process characters after last star
+			while ((ch = patArr[patIdxEnd]) != '*' && strIdxStart <= strIdxEnd) {
+				if (ch != '?') {
+					if (ch != str.charAt(strIdxEnd)) {
+						return false;// Character mismatch
+					}
 				}
-				buffer.append(pathParts[i]);
-				puts++;
+				patIdxEnd--;
+				strIdxEnd--;
+			}
+			if (strIdxStart > strIdxEnd) {
+				// All characters in the string are used. Check if only '*'s are
+				// left in the pattern. If so, we succeeded. Otherwise failure.
+				return onlyStars(patArr, patIdxStart, patIdxEnd);
 			}
-		}
 
-		// Append any trailing path parts.
-		for (int i = patternParts.length; i < pathParts.length; i++) {
-			if (puts > 0 || i > 0) {
-				buffer.append(this.pathSeparator);
+			// process pattern between stars. padIdxStart and patIdxEnd point
+			// always to a '*'.
+			while (patIdxStart != patIdxEnd && strIdxStart <= strIdxEnd) {
+				int patIdxTmp = -1;
+				for (int i = patIdxStart + 1; i <= patIdxEnd; i++) {
+					if (patArr[i] == '*') {
+						patIdxTmp = i;
+						break;
+					}
+				}
+				if (patIdxTmp == patIdxStart + 1) {
+					// Two stars next to each other, skip the first one.
+					patIdxStart++;
+					continue;
+				}
+				// Find the pattern between padIdxStart & padIdxTmp in str between
+				// strIdxStart & strIdxEnd
+				int patLength = (patIdxTmp - patIdxStart - 1);
+				int strLength = (strIdxEnd - strIdxStart + 1);
+				int foundIdx = -1;
+				strLoop:
+				for (int i = 0; i <= strLength - patLength; i++) {
+					for (int j = 0; j < patLength; j++) {
+						ch = patArr[patIdxStart + j + 1];
+						if (ch != '?') {
+							if (ch != str.charAt(strIdxStart + i + j)) {
+								continue strLoop;
+							}
+						}
+					}
+
+					foundIdx = strIdxStart + i;
+					break;
+				}
+
+				if (foundIdx == -1) {
+					return false;
+				}
+
+				patIdxStart = patIdxTmp;
+				strIdxStart = foundIdx + patLength;
 			}
-			buffer.append(pathParts[i]);
+
+			// All characters in the string are used. Check if only '*'s are left
+			// in the pattern. If so, we succeeded. Otherwise failure.
+			return onlyStars(patArr, patIdxStart, patIdxEnd);
 		}
 
-		return buffer.toString();
+		private static boolean onlyStars(char[] patArr, int patIdxStart, int patIdxEnd) {
+			for (int i = patIdxStart; i <= patIdxEnd; i++) {
+				if (patArr[i] != '*') {
+					return false;
+				}
+			}
+			return true;
+		}
 	}
 
 }
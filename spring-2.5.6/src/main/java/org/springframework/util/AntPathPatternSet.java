@@ -0,0 +1,320 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable set of Ant-style path patterns, matching a given path against all
+ * of its patterns in a single pass. Supports the same pattern syntax as the
+ * {@link AntPathMatcher}, with the same semantics as its <code>match</code> method.
+ *
+ * <p>Patterns are arranged in a trie of path segments: A lookup only follows
+ * the branches whose literal or wildcard segments match the corresponding
+ * segments of the given path, instead of trying every pattern in turn.
+ * Patterns with "**" segments are attached to the trie at their first "**",
+ * with their remainder checked for the paths that reach that point.
+ *
+ * <p>Matching patterns are returned most specific first: patterns without
+ * wildcards, then patterns with fewer "**" segments, fewer "*" wildcards and
+ * fewer "?" wildcards, then longer patterns. Patterns of equal specificity
+ * keep the order in which they have been specified.
+ *
+ * @author agent
+ * @since 2.5.6
+ * @see AntPathMatcher
+ */
+public class AntPathPatternSet {
+
+	private static final Comparator SPECIFICITY_COMPARATOR = new SpecificityComparator();
+
+
+	private final String pathSeparator;
+
+	private final String[] patterns;
+
+	/** Trie for patterns that start with the path separator */
+	private final Node absoluteRoot = new Node(null);
+
+	/** Trie for patterns that do not start with the path separator */
+	private final Node relativeRoot = new Node(null);
+
+
+	/**
+	 * Create a new AntPathPatternSet for the given patterns,
+	 * using the default path separator "/".
+	 * @param patterns the Ant-style path patterns
+	 */
+	public AntPathPatternSet(String[] patterns) {
+		this(patterns, AntPathMatcher.DEFAULT_PATH_SEPARATOR);
+	}
+
+	/**
+	 * Create a new AntPathPatternSet for the given patterns.
+	 * @param patterns the Ant-style path patterns
+	 * @param pathSeparator the path separator to use for pattern parsing
+	 */
+	public AntPathPatternSet(String[] patterns, String pathSeparator) {
+		Assert.notNull(patterns, "Patterns must not be null");
+		Assert.hasLength(pathSeparator, "Path separator must not be empty");
+		this.pathSeparator = pathSeparator;
+		this.patterns = StringUtils.toStringArray(new LinkedHashSet(Arrays.asList(patterns)));
+		for (int i = 0; i < this.patterns.length; i++) {
+			String pattern = this.patterns[i];
+			Entry entry = new Entry(new AntPathMatcher.CompiledPattern(pattern, pathSeparator), i);
+			Node node = (pattern.startsWith(pathSeparator) ? this.absoluteRoot : this.relativeRoot);
+			String[] pattDirs = entry.compiledPattern.pattDirs;
+			int pattIdx = 0;
+			while (pattIdx < pattDirs.length && !entry.compiledPattern.isDoubleStar(pattIdx)) {
+				node = node.getOrCreateChild(pattDirs[pattIdx], pathSeparator);
+				pattIdx++;
+			}
+			if (pattIdx < pattDirs.length) {
+				node.deferredEntries.add(entry);
+			}
+			else {
+				node.terminalEntries.add(entry);
+			}
+		}
+	}
+
+
+	/**
+	 * Return the patterns in this set, in the order specified
+	 * (with duplicates removed).
+	 */
+	public String[] getPatterns() {
+		return (String[]) this.patterns.clone();
+	}
+
+	/**
+	 * Determine all patterns in this set that match the given path.
+	 * @param path the path String to test
+	 * @return the matching patterns, most specific first
+	 * (an empty array if none matched)
+	 */
+	public String[] getMatchingPatterns(String path) {
+		List matches = findMatches(path);
+		String[] result = new String[matches.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = ((Entry) matches.get(i)).compiledPattern.pattern;
+		}
+		return result;
+	}
+
+	/**
+	 * Determine the most specific pattern in this set that matches the given path.
+	 * @param path the path String to test
+	 * @return the most specific matching pattern, or <code>null</code> if none matched
+	 */
+	public String getBestMatchingPattern(String path) {
+		List matches = findMatches(path);
+		return (!matches.isEmpty() ? ((Entry) matches.get(0)).compiledPattern.pattern : null);
+	}
+
+	/**
+	 * Determine whether any pattern in this set matches the given path.
+	 * @param path the path String to test
+	 */
+	public boolean matches(String path) {
+		return !findMatches(path).isEmpty();
+	}
+
+
+	/**
+	 * Find the entries for all patterns matching the given path.
+	 * @return the matching entries, sorted by specificity
+	 */
+	private List findMatches(String path) {
+		Assert.notNull(path, "Path must not be null");
+		Node root = (path.startsWith(this.pathSeparator) ? this.absoluteRoot : this.relativeRoot);
+		String[] pathDirs = StringUtils.tokenizeToStringArray(path, this.pathSeparator);
+		List matches = new ArrayList(4);
+		collectMatches(root, pathDirs, 0, path, matches);
+		if (matches.size() > 1) {
+			Collections.sort(matches, SPECIFICITY_COMPARATOR);
+		}
+		return matches;
+	}
+
+	/**
+	 * Walk the trie along the given path, collecting the entries of all matching patterns.
+	 */
+	private void collectMatches(Node node, String[] pathDirs, int pathIdx, String path, List matches) {
+		addMatchingEntries(node.deferredEntries, pathDirs, path, matches);
+		if (pathIdx == pathDirs.length) {
+			addMatchingEntries(node.terminalEntries, pathDirs, path, matches);
+			// A trailing "*" segment also matches an exhausted path that ends with a separator.
+			for (Iterator it = node.wildcardChildren.iterator(); it.hasNext();) {
+				Node child = (Node) it.next();
+				addMatchingEntries(child.terminalEntries, pathDirs, path, matches);
+			}
+			return;
+		}
+		String pathDir = pathDirs[pathIdx];
+		Node literalChild = (Node) node.literalChildren.get(pathDir);
+		if (literalChild != null) {
+			collectMatches(literalChild, pathDirs, pathIdx + 1, path, matches);
+		}
+		for (Iterator it = node.wildcardChildren.iterator(); it.hasNext();) {
+			Node child = (Node) it.next();
+			if (child.segmentPattern.matchSegment(0, pathDir)) {
+				collectMatches(child, pathDirs, pathIdx + 1, path, matches);
+			}
+		}
+	}
+
+	/**
+	 * Add those of the given candidate entries whose complete pattern matches the given path.
+	 */
+	private void addMatchingEntries(List candidates, String[] pathDirs, String path, List matches) {
+		for (int i = 0; i < candidates.size(); i++) {
+			Entry entry = (Entry) candidates.get(i);
+			if (entry.compiledPattern.matches(pathDirs, path, true)) {
+				matches.add(entry);
+			}
+		}
+	}
+
+
+	/**
+	 * Node in the segment trie.
+	 */
+	private static class Node {
+
+		/** Compiled wildcard segment leading to this node, or <code>null</code> for a literal segment */
+		private final AntPathMatcher.CompiledPattern segmentPattern;
+
+		/** Children for literal segments: segment String --> Node */
+		private final Map literalChildren = new HashMap(4);
+
+		/** Children for segments with wildcards, in registration order */
+		private final List wildcardChildren = new ArrayList(2);
+
+		/** Patterns that end at this node */
+		private final List terminalEntries = new ArrayList(1);
+
+		/** Patterns that continue with a "**" segment at this node */
+		private final List deferredEntries = new ArrayList(1);
+
+		public Node(AntPathMatcher.CompiledPattern segmentPattern) {
+			this.segmentPattern = segmentPattern;
+		}
+
+		public Node getOrCreateChild(String segment, String pathSeparator) {
+			if (segment.indexOf('*') == -1 && segment.indexOf('?') == -1) {
+				Node child = (Node) this.literalChildren.get(segment);
+				if (child == null) {
+					child = new Node(null);
+					this.literalChildren.put(segment, child);
+				}
+				return child;
+			}
+			for (Iterator it = this.wildcardChildren.iterator(); it.hasNext();) {
+				Node child = (Node) it.next();
+				if (child.segmentPattern.pattern.equals(segment)) {
+					return child;
+				}
+			}
+			Node child = new Node(new AntPathMatcher.CompiledPattern(segment, pathSeparator));
+			this.wildcardChildren.add(child);
+			return child;
+		}
+	}
+
+
+	/**
+	 * Pattern in the set, along with its specificity characteristics.
+	 */
+	private static class Entry {
+
+		private final AntPathMatcher.CompiledPattern compiledPattern;
+
+		private final int index;
+
+		private final boolean wildcardFree;
+
+		private int doubleStarCount;
+
+		private int starCount;
+
+		private int questionMarkCount;
+
+		public Entry(AntPathMatcher.CompiledPattern compiledPattern, int index) {
+			this.compiledPattern = compiledPattern;
+			this.index = index;
+			String[] pattDirs = compiledPattern.pattDirs;
+			for (int i = 0; i < pattDirs.length; i++) {
+				if (compiledPattern.isDoubleStar(i)) {
+					this.doubleStarCount++;
+				}
+				else {
+					String pattDir = pattDirs[i];
+					for (int j = 0; j < pattDir.length(); j++) {
+						char ch = pattDir.charAt(j);
+						if (ch == '*') {
+							this.starCount++;
+						}
+						else if (ch == '?') {
+							this.questionMarkCount++;
+						}
+					}
+				}
+			}
+			this.wildcardFree = (this.doubleStarCount + this.starCount + this.questionMarkCount == 0);
+		}
+	}
+
+
+	/**
+	 * Comparator that sorts more specific patterns first.
+	 */
+	private static class SpecificityComparator implements Comparator {
+
+		public int compare(Object o1, Object o2) {
+			Entry entry1 = (Entry) o1;
+			Entry entry2 = (Entry) o2;
+			if (entry1.wildcardFree != entry2.wildcardFree) {
+				return (entry1.wildcardFree ? -1 : 1);
+			}
+			if (entry1.doubleStarCount != entry2.doubleStarCount) {
+				return (entry1.doubleStarCount < entry2.doubleStarCount ? -1 : 1);
+			}
+			if (entry1.starCount != entry2.starCount) {
+				return (entry1.starCount < entry2.starCount ? -1 : 1);
+			}
+			if (entry1.questionMarkCount != entry2.questionMarkCount) {
+				return (entry1.questionMarkCount < entry2.questionMarkCount ? -1 : 1);
+			}
+			int length1 = entry1.compiledPattern.pattern.length();
+			int length2 = entry2.compiledPattern.pattern.length();
+			if (length1 != length2) {
+				return (length1 > length2 ? -1 : 1);
+			}
+			return (entry1.index < entry2.index ? -1 : (entry1.index > entry2.index ? 1 : 0));
+		}
+	}
+
+}
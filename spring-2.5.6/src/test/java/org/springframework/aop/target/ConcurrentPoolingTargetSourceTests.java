@@ -0,0 +1,265 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.target;
+
+import static org.junit.Assert.*;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+/**
+ * @author agent
+ * @since 2.5.6
+ */
+public class ConcurrentPoolingTargetSourceTests {
+
+	private static final AtomicInteger destroyCount = new AtomicInteger();
+
+	private DefaultListableBeanFactory beanFactory;
+
+	private ConcurrentPoolingTargetSource pool;
+
+
+	@Before
+	public void setUp() {
+		destroyCount.set(0);
+		this.beanFactory = new DefaultListableBeanFactory();
+		RootBeanDefinition bd = new RootBeanDefinition(PooledBean.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		this.beanFactory.registerBeanDefinition("target", bd);
+		this.pool = new ConcurrentPoolingTargetSource();
+		this.pool.setTargetBeanName("target");
+		this.pool.setBeanFactory(this.beanFactory);
+	}
+
+	@After
+	public void tearDown() {
+		this.pool.destroy();
+	}
+
+	@Test
+	public void borrowAndReturnReusesInstance() throws Exception {
+		this.pool.afterPropertiesSet();
+		Object target = this.pool.getTarget();
+		assertEquals(1, this.pool.getActiveCount());
+		assertEquals(0, this.pool.getIdleCount());
+		this.pool.releaseTarget(target);
+		assertEquals(0, this.pool.getActiveCount());
+		assertEquals(1, this.pool.getIdleCount());
+		assertSame(target, this.pool.getTarget());
+		assertEquals(1, this.pool.getAffinityHitCount());
+		assertEquals(2, this.pool.getBorrowCount());
+		assertEquals(1, this.pool.getCreatedCount());
+	}
+
+	@Test
+	public void concurrentBorrowersGetDistinctInstances() throws Exception {
+		this.pool.afterPropertiesSet();
+		Object target1 = this.pool.getTarget();
+		Object target2 = this.pool.getTarget();
+		assertNotSame(target1, target2);
+		assertEquals(2, this.pool.getActiveCount());
+		this.pool.releaseTarget(target2);
+		this.pool.releaseTarget(target1);
+		assertEquals(2, this.pool.getIdleCount());
+	}
+
+	@Test
+	public void instancesBeyondMaxIdleAreDestroyedOnRelease() throws Exception {
+		this.pool.setMaxIdle(1);
+		this.pool.afterPropertiesSet();
+		Object target1 = this.pool.getTarget();
+		Object target2 = this.pool.getTarget();
+		Object target3 = this.pool.getTarget();
+		this.pool.releaseTarget(target1);
+		this.pool.releaseTarget(target2);
+		this.pool.releaseTarget(target3);
+		assertEquals(1, this.pool.getIdleCount());
+		assertEquals(0, this.pool.getActiveCount());
+		assertEquals(2, this.pool.getDestroyedCount());
+		assertEquals(2, destroyCount.get());
+	}
+
+	@Test
+	public void instanceInUseIsDestroyedWhenReleasedAfterClose() throws Exception {
+		this.pool.afterPropertiesSet();
+		PooledBean busy = (PooledBean) this.pool.getTarget();
+		PooledBean idle = (PooledBean) this.pool.getTarget();
+		this.pool.releaseTarget(idle);
+		this.pool.destroy();
+		assertTrue(idle.destroyed);
+		assertFalse(busy.destroyed);
+		this.pool.releaseTarget(busy);
+		assertTrue(busy.destroyed);
+		assertEquals(0, this.pool.getIdleCount());
+		assertEquals(0, this.pool.getActiveCount());
+		assertEquals(2, destroyCount.get());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void getTargetAfterCloseIsRejected() throws Exception {
+		this.pool.afterPropertiesSet();
+		this.pool.destroy();
+		this.pool.getTarget();
+	}
+
+	@Test
+	public void evictionRetainsMinIdle() throws Exception {
+		this.pool.setMinIdle(1);
+		this.pool.setMinEvictableIdleTimeMillis(-1);
+		this.pool.afterPropertiesSet();
+		assertEquals(1, this.pool.getIdleCount());
+		Object target1 = this.pool.getTarget();
+		Object target2 = this.pool.getTarget();
+		Object target3 = this.pool.getTarget();
+		this.pool.releaseTarget(target1);
+		this.pool.releaseTarget(target2);
+		this.pool.releaseTarget(target3);
+		assertEquals(3, this.pool.getIdleCount());
+		this.pool.evict();
+		assertEquals(1, this.pool.getIdleCount());
+		assertEquals(2, this.pool.getEvictedCount());
+		assertEquals(2, destroyCount.get());
+	}
+
+	@Test
+	public void evictedInstanceIsNotPinnedByBorrowingThread() throws Exception {
+		this.pool.setMinEvictableIdleTimeMillis(-1);
+		this.pool.afterPropertiesSet();
+		Object target = this.pool.getTarget();
+		this.pool.releaseTarget(target);
+		this.pool.evict();
+		assertEquals(0, this.pool.getIdleCount());
+		assertEquals(1, destroyCount.get());
+
+		WeakReference ref = new WeakReference(target);
+		target = null;
+		for (int i = 0; i < 50 && ref.get() != null; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		assertNull("Evicted target still referenced", ref.get());
+
+		Object newTarget = this.pool.getTarget();
+		assertEquals(0, this.pool.getAffinityHitCount());
+		assertEquals(2, this.pool.getCreatedCount());
+		this.pool.releaseTarget(newTarget);
+	}
+
+	@Test
+	public void instanceDestroyedOnReleaseIsNotReusedByReleasingThread() throws Exception {
+		this.pool.setMaxIdle(0);
+		this.pool.afterPropertiesSet();
+		Object target = this.pool.getTarget();
+		this.pool.releaseTarget(target);
+		assertEquals(1, destroyCount.get());
+		assertNotSame(target, this.pool.getTarget());
+		assertEquals(0, this.pool.getAffinityHitCount());
+	}
+
+	@Test
+	public void concurrentBorrowReturnAndEvict() throws Throwable {
+		this.pool.setMaxIdle(4);
+		this.pool.setMinEvictableIdleTimeMillis(-1);
+		this.pool.afterPropertiesSet();
+		final int threadCount = 8;
+		final int iterations = 5000;
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final AtomicReference failure = new AtomicReference();
+		List threads = new ArrayList();
+		for (int i = 0; i < threadCount; i++) {
+			threads.add(new Thread() {
+				public void run() {
+					try {
+						start.await();
+						for (int j = 0; j < iterations; j++) {
+							PooledBean target = (PooledBean) pool.getTarget();
+							if (!target.inUse.compareAndSet(false, true)) {
+								throw new IllegalStateException("Pooled instance handed out twice");
+							}
+							if (target.destroyed) {
+								throw new IllegalStateException("Destroyed instance handed out");
+							}
+							Thread.yield();
+							target.inUse.set(false);
+							pool.releaseTarget(target);
+						}
+					}
+					catch (Throwable ex) {
+						failure.compareAndSet(null, ex);
+					}
+				}
+			});
+		}
+		Thread evictor = new Thread() {
+			public void run() {
+				while (running.get()) {
+					pool.evict();
+					Thread.yield();
+				}
+			}
+		};
+		for (int i = 0; i < threadCount; i++) {
+			((Thread) threads.get(i)).start();
+		}
+		evictor.start();
+		start.countDown();
+		for (int i = 0; i < threadCount; i++) {
+			((Thread) threads.get(i)).join(60000);
+		}
+		running.set(false);
+		evictor.join(10000);
+		if (failure.get() != null) {
+			throw (Throwable) failure.get();
+		}
+
+		assertEquals(threadCount * iterations, this.pool.getBorrowCount());
+		assertEquals(0, this.pool.getActiveCount());
+		assertEquals(this.pool.getCreatedCount() - this.pool.getDestroyedCount(), this.pool.getIdleCount());
+		assertEquals(this.pool.getDestroyedCount(), destroyCount.get());
+		assertTrue(this.pool.getIdleCount() <= threadCount);
+	}
+
+
+	public static class PooledBean implements DisposableBean {
+
+		public final AtomicBoolean inUse = new AtomicBoolean();
+
+		public volatile boolean destroyed;
+
+		public void destroy() {
+			this.destroyed = true;
+			destroyCount.incrementAndGet();
+		}
+	}
+
+}
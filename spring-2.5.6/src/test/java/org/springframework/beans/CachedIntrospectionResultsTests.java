@@ -0,0 +1,143 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import static org.junit.Assert.*;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.Test;
+
+import org.springframework.core.OverridingClassLoader;
+
+/**
+ * Tests for the class cache of {@link CachedIntrospectionResults}.
+ *
+ * @author agent
+ * @since 2.5.6
+ */
+public class CachedIntrospectionResultsTests {
+
+	@Test
+	public void cacheSafeClassIsIntrospectedOnce() {
+		CachedIntrospectionResults results = CachedIntrospectionResults.forClass(IntrospectedBean.class);
+		assertNotNull(results.getPropertyDescriptor("name"));
+		assertSame(results, CachedIntrospectionResults.forClass(IntrospectedBean.class));
+	}
+
+	@Test
+	public void concurrentLookupsSettleOnCachedResults() throws Exception {
+		final Class beanClass = new SingleClassLoader(getClass().getClassLoader()).loadClass(
+				IntrospectedBean.class.getName());
+		CachedIntrospectionResults.acceptClassLoader(beanClass.getClassLoader());
+		try {
+			final Throwable[] failure = new Throwable[1];
+			Thread[] threads = new Thread[4];
+			for (int i = 0; i < threads.length; i++) {
+				threads[i] = new Thread() {
+					public void run() {
+						try {
+							for (int j = 0; j < 1000; j++) {
+								assertNotNull(CachedIntrospectionResults.forClass(beanClass).getPropertyDescriptor("name"));
+							}
+						}
+						catch (Throwable ex) {
+							failure[0] = ex;
+						}
+					}
+				};
+				threads[i].start();
+			}
+			for (int i = 0; i < threads.length; i++) {
+				threads[i].join();
+			}
+			if (failure[0] != null) {
+				throw new AssertionError(failure[0]);
+			}
+			assertSame(CachedIntrospectionResults.forClass(beanClass), CachedIntrospectionResults.forClass(beanClass));
+		}
+		finally {
+			CachedIntrospectionResults.clearClassLoader(beanClass.getClassLoader());
+		}
+	}
+
+	@Test
+	public void acceptedClassLoaderIsCachedUntilCleared() throws Exception {
+		ClassLoader classLoader = new SingleClassLoader(getClass().getClassLoader());
+		Class beanClass = classLoader.loadClass(IntrospectedBean.class.getName());
+		assertNotSame(IntrospectedBean.class, beanClass);
+		CachedIntrospectionResults.acceptClassLoader(classLoader);
+		WeakReference resultsRef = new WeakReference(CachedIntrospectionResults.forClass(beanClass));
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		assertNotNull("Results for accepted ClassLoader not held strongly", resultsRef.get());
+		assertSame(resultsRef.get(), CachedIntrospectionResults.forClass(beanClass));
+
+		CachedIntrospectionResults.clearClassLoader(classLoader);
+		assertNotSame(resultsRef.get(), CachedIntrospectionResults.forClass(beanClass));
+	}
+
+	@Test
+	public void classLoaderIsCollectedAfterIntrospection() throws Exception {
+		WeakReference classLoaderRef = introspectInChildClassLoader();
+		for (int i = 0; i < 50 && classLoaderRef.get() != null; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		assertNull("ClassLoader still reachable from introspection cache", classLoaderRef.get());
+	}
+
+	private WeakReference introspectInChildClassLoader() throws Exception {
+		ClassLoader classLoader = new SingleClassLoader(getClass().getClassLoader());
+		Class beanClass = classLoader.loadClass(IntrospectedBean.class.getName());
+		assertNotSame(IntrospectedBean.class, beanClass);
+		assertNotNull(CachedIntrospectionResults.forClass(beanClass).getPropertyDescriptor("name"));
+		return new WeakReference(classLoader);
+	}
+
+
+	/**
+	 * Defines IntrospectedBean itself instead of delegating to its parent.
+	 */
+	private static class SingleClassLoader extends OverridingClassLoader {
+
+		public SingleClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		protected boolean isEligibleForOverriding(String className) {
+			return className.equals(IntrospectedBean.class.getName());
+		}
+	}
+
+
+	public static class IntrospectedBean {
+
+		private String name;
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+	}
+
+}
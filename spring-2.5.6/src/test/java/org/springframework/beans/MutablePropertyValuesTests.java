@@ -0,0 +1,175 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import org.junit.Test;
+
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+/**
+ * @author agent
+ * @since 2.5.6
+ */
+public class MutablePropertyValuesTests {
+
+	private static final int PROPERTY_COUNT = 50;
+
+	private static final int COPY_COUNT = 1000;
+
+
+	@Test
+	public void copyReflectsOriginalContent() {
+		MutablePropertyValues original = createPropertyValues(3);
+		MutablePropertyValues copy = new MutablePropertyValues(original);
+		assertEquals(3, copy.size());
+		assertEquals("value1", copy.getPropertyValue("name1").getValue());
+		assertEquals(original, copy);
+	}
+
+	@Test
+	public void modificationOfCopyDoesNotAffectOriginal() {
+		MutablePropertyValues original = createPropertyValues(3);
+		MutablePropertyValues copy = new MutablePropertyValues(original);
+		copy.addPropertyValue("name1", "other");
+		copy.addPropertyValue("name4", "value4");
+		copy.removePropertyValue("name2");
+		assertEquals(3, original.size());
+		assertEquals("value1", original.getPropertyValue("name1").getValue());
+		assertNotNull(original.getPropertyValue("name2"));
+		assertNull(original.getPropertyValue("name4"));
+	}
+
+	@Test
+	public void modificationOfOriginalDoesNotAffectCopy() {
+		MutablePropertyValues original = createPropertyValues(3);
+		MutablePropertyValues copy = new MutablePropertyValues(original);
+		original.addPropertyValue("name1", "other");
+		original.clear();
+		assertEquals(3, copy.size());
+		assertEquals("value1", copy.getPropertyValue("name1").getValue());
+	}
+
+	@Test
+	public void copyExposesIndependentPropertyValues() {
+		MutablePropertyValues original = createPropertyValues(3);
+		MutablePropertyValues copy = new MutablePropertyValues(original);
+		PropertyValue copiedPv = copy.getPropertyValue("name1");
+		copiedPv.setSource("copySource");
+		copiedPv.setAttribute("attr", "copyAttr");
+		copiedPv.setConvertedValue("copyConverted");
+
+		PropertyValue originalPv = original.getPropertyValue("name1");
+		assertNotSame(originalPv, copiedPv);
+		assertNull(originalPv.getSource());
+		assertNull(originalPv.getAttribute("attr"));
+		assertFalse(originalPv.isConverted());
+	}
+
+	@Test
+	public void originalExposesIndependentPropertyValuesAfterCopy() {
+		MutablePropertyValues original = createPropertyValues(3);
+		MutablePropertyValues copy = new MutablePropertyValues(original);
+		PropertyValue[] originalPvs = original.getPropertyValues();
+		originalPvs[0].setSource("originalSource");
+		originalPvs[0].setAttribute("attr", "originalAttr");
+		((PropertyValue) original.getPropertyValueList().get(1)).setConvertedValue("originalConverted");
+
+		PropertyValue[] copiedPvs = copy.getPropertyValues();
+		assertNull(copiedPvs[0].getSource());
+		assertNull(copiedPvs[0].getAttribute("attr"));
+		assertFalse(copiedPvs[1].isConverted());
+	}
+
+	@Test
+	public void copiesOfCopyExposeIndependentPropertyValues() {
+		MutablePropertyValues original = createPropertyValues(3);
+		MutablePropertyValues copy1 = new MutablePropertyValues(original);
+		MutablePropertyValues copy2 = new MutablePropertyValues(copy1);
+		copy1.getPropertyValue("name1").setSource("copy1Source");
+		assertNull(copy2.getPropertyValue("name1").getSource());
+		assertNull(original.getPropertyValue("name1").getSource());
+	}
+
+	@Test
+	public void changesSinceDoesNotExposeSharedPropertyValues() {
+		MutablePropertyValues original = createPropertyValues(3);
+		MutablePropertyValues copy = new MutablePropertyValues(original);
+		PropertyValues changes = copy.changesSince(new MutablePropertyValues());
+		assertEquals(3, changes.getPropertyValues().length);
+		changes.getPropertyValue("name1").setSource("changedSource");
+		assertNull(original.getPropertyValue("name1").getSource());
+	}
+
+	@Test
+	public void unusedCopiesShareHeapFootprint() {
+		ThreadAllocation allocation = ThreadAllocation.create();
+		assumeTrue(allocation != null);
+		MutablePropertyValues original = createPropertyValues(PROPERTY_COUNT);
+
+		MutablePropertyValues[] copies = new MutablePropertyValues[COPY_COUNT];
+		long start = allocation.getAllocatedBytes();
+		for (int i = 0; i < COPY_COUNT; i++) {
+			copies[i] = new MutablePropertyValues(original);
+		}
+		long sharedBytes = allocation.getAllocatedBytes() - start;
+
+		start = allocation.getAllocatedBytes();
+		for (int i = 0; i < COPY_COUNT; i++) {
+			copies[i].getPropertyValues();
+		}
+		long materializedBytes = allocation.getAllocatedBytes() - start;
+
+		assertTrue("Unused copies allocated " + sharedBytes + " bytes, used copies " + materializedBytes,
+				sharedBytes * 10 < materializedBytes);
+	}
+
+	@Test
+	public void unusedBeanDefinitionCopiesShareHeapFootprint() {
+		ThreadAllocation allocation = ThreadAllocation.create();
+		assumeTrue(allocation != null);
+		RootBeanDefinition original = new RootBeanDefinition(Object.class, createPropertyValues(PROPERTY_COUNT));
+
+		RootBeanDefinition[] copies = new RootBeanDefinition[COPY_COUNT];
+		long start = allocation.getAllocatedBytes();
+		for (int i = 0; i < COPY_COUNT; i++) {
+			copies[i] = new RootBeanDefinition(original);
+		}
+		long copyBytes = allocation.getAllocatedBytes() - start;
+
+		start = allocation.getAllocatedBytes();
+		for (int i = 0; i < COPY_COUNT; i++) {
+			copies[i].getPropertyValues().getPropertyValues();
+		}
+		long propertyValueBytes = allocation.getAllocatedBytes() - start;
+
+		assertTrue("Bean definition copies allocated " + copyBytes + " bytes, their property values " +
+				propertyValueBytes, copyBytes < propertyValueBytes);
+	}
+
+
+	private static MutablePropertyValues createPropertyValues(int count) {
+		MutablePropertyValues pvs = new MutablePropertyValues();
+		for (int i = 1; i <= count; i++) {
+			pvs.addPropertyValue("name" + i, "value" + i);
+		}
+		return pvs;
+	}
+
+}
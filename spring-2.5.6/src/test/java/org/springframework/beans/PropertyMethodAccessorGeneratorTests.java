@@ -0,0 +1,110 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 2.5.6
+ */
+public class PropertyMethodAccessorGeneratorTests {
+
+	private PropertyMethodAccessor accessor;
+
+
+	@Before
+	public void setUp() throws Exception {
+		Method[] readMethods = new Method[] {
+				Bean.class.getMethod("getName"), Bean.class.getMethod("getAge"), null};
+		Method[] writeMethods = new Method[] {
+				Bean.class.getMethod("setName", String.class), Bean.class.getMethod("setAge", int.class),
+				Bean.class.getMethod("setFailing", String.class)};
+		this.accessor = PropertyMethodAccessorGenerator.generateAccessor(Bean.class, readMethods, writeMethods);
+	}
+
+	@Test
+	public void readAndWrite() throws Exception {
+		Bean bean = new Bean();
+		this.accessor.invokeWriteMethod(bean, 0, "juergen");
+		this.accessor.invokeWriteMethod(bean, 1, new Integer(42));
+		assertEquals("juergen", this.accessor.invokeReadMethod(bean, 0));
+		assertEquals(new Integer(42), this.accessor.invokeReadMethod(bean, 1));
+	}
+
+	@Test
+	public void exceptionFromPropertyMethodIsWrapped() {
+		try {
+			this.accessor.invokeWriteMethod(new Bean(), 2, "value");
+			fail("Should have thrown InvocationTargetException");
+		}
+		catch (InvocationTargetException ex) {
+			assertTrue(ex.getTargetException() instanceof ClassCastException);
+			assertEquals("thrown by setter", ex.getTargetException().getMessage());
+		}
+	}
+
+	@Test(expected = ClassCastException.class)
+	public void targetOfWrongTypeIsNotWrapped() throws Exception {
+		this.accessor.invokeReadMethod("not a bean", 0);
+	}
+
+	@Test(expected = ClassCastException.class)
+	public void valueOfWrongTypeIsNotWrapped() throws Exception {
+		this.accessor.invokeWriteMethod(new Bean(), 0, new Integer(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void indexWithoutPropertyMethodIsNotWrapped() throws Exception {
+		this.accessor.invokeReadMethod(new Bean(), 2);
+	}
+
+
+	public static class Bean {
+
+		private String name;
+
+		private int age;
+
+		public String getName() {
+			return this.name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+
+		public void setAge(int age) {
+			this.age = age;
+		}
+
+		public void setFailing(String value) {
+			throw new ClassCastException("thrown by setter");
+		}
+	}
+
+}
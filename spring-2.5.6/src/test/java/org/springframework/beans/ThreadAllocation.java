@@ -0,0 +1,65 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Test helper that measures the bytes allocated by the current thread,
+ * on JVMs which support per-thread allocation tracking.
+ *
+ * @author agent
+ * @since 2.5.6
+ */
+public class ThreadAllocation {
+
+	private final com.sun.management.ThreadMXBean threadBean;
+
+	private ThreadAllocation(com.sun.management.ThreadMXBean threadBean) {
+		this.threadBean = threadBean;
+	}
+
+	/**
+	 * Return the total number of bytes allocated by the current thread so far.
+	 */
+	public long getAllocatedBytes() {
+		return this.threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+
+	/**
+	 * Create a ThreadAllocation for the current JVM.
+	 * @return the ThreadAllocation, or <code>null</code> if per-thread
+	 * allocation tracking is not supported
+	 */
+	public static ThreadAllocation create() {
+		try {
+			Object threadBean = ManagementFactory.getThreadMXBean();
+			if (threadBean instanceof com.sun.management.ThreadMXBean) {
+				com.sun.management.ThreadMXBean sunThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+				if (sunThreadBean.isThreadAllocatedMemorySupported() && sunThreadBean.isThreadAllocatedMemoryEnabled()) {
+					return new ThreadAllocation(sunThreadBean);
+				}
+			}
+		}
+		catch (Throwable ex) {
+			// Not supported on this JVM.
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+import static org.junit.Assert.*;
+
+import java.beans.PropertyEditorManager;
+import java.beans.PropertyEditorSupport;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the precedence of ValueConverters over PropertyEditors.
+ *
+ * @author agent
+ * @since 2.5.6
+ */
+public class TypeConverterDelegateTests {
+
+	private BeanWrapperImpl bw;
+
+
+	@Before
+	public void setUp() {
+		ValueConverterRegistry registry = new ValueConverterRegistry(ValueConverterRegistry.getDefaultInstance());
+		registry.addConverter(String.class, AbstractValue.class, new ValueConverter() {
+			public Object convert(Object value, Class targetType) {
+				AbstractValue result = (AbstractValue) BeanUtils.instantiateClass(targetType);
+				result.text = "converter:" + value;
+				return result;
+			}
+		});
+		this.bw = new BeanWrapperImpl(new ValueHolder());
+		this.bw.setValueConverterRegistry(registry);
+	}
+
+	@Test
+	public void inheritedConverterAppliesWithoutConventionalEditor() {
+		this.bw.setPropertyValue("plainValue", "x");
+		assertEquals("converter:x", ((AbstractValue) this.bw.getPropertyValue("plainValue")).text);
+	}
+
+	@Test
+	public void conventionEditorTakesPrecedenceOverInheritedConverter() {
+		this.bw.setPropertyValue("conventionValue", "x");
+		assertEquals("editor:x", ((AbstractValue) this.bw.getPropertyValue("conventionValue")).text);
+	}
+
+	@Test
+	public void propertyEditorManagerEditorTakesPrecedenceOverInheritedConverter() {
+		PropertyEditorManager.registerEditor(ManagedValue.class, ManagedValueEditor.class);
+		try {
+			this.bw.setPropertyValue("managedValue", "x");
+			assertEquals("manager:x", ((AbstractValue) this.bw.getPropertyValue("managedValue")).text);
+		}
+		finally {
+			PropertyEditorManager.registerEditor(ManagedValue.class, null);
+		}
+	}
+
+	@Test
+	public void customEditorTakesPrecedenceOverExactConverter() {
+		this.bw.registerCustomEditor(int.class, new PropertyEditorSupport() {
+			public void setAsText(String text) {
+				setValue(new Integer(text.length()));
+			}
+		});
+		this.bw.setPropertyValue("number", "abc");
+		assertEquals(new Integer(3), this.bw.getPropertyValue("number"));
+	}
+
+	@Test
+	public void inheritedConverterResolution() {
+		ValueConverterRegistry registry = this.bw.getValueConverterRegistry();
+		assertNotNull(registry.getConverter(String.class, PlainValue.class));
+		assertTrue(registry.isInheritedConverter(String.class, PlainValue.class));
+		assertFalse(registry.isInheritedConverter(String.class, AbstractValue.class));
+		assertFalse(registry.isInheritedConverter(String.class, int.class));
+		assertFalse(registry.isInheritedConverter(String.class, ValueHolder.class));
+	}
+
+
+	public static class ValueHolder {
+
+		private PlainValue plainValue;
+
+		private ConventionValue conventionValue;
+
+		private ManagedValue managedValue;
+
+		private int number;
+
+		public PlainValue getPlainValue() {
+			return this.plainValue;
+		}
+
+		public void setPlainValue(PlainValue plainValue) {
+			this.plainValue = plainValue;
+		}
+
+		public ConventionValue getConventionValue() {
+			return this.conventionValue;
+		}
+
+		public void setConventionValue(ConventionValue conventionValue) {
+			this.conventionValue = conventionValue;
+		}
+
+		public ManagedValue getManagedValue() {
+			return this.managedValue;
+		}
+
+		public void setManagedValue(ManagedValue managedValue) {
+			this.managedValue = managedValue;
+		}
+
+		public int getNumber() {
+			return this.number;
+		}
+
+		public void setNumber(int number) {
+			this.number = number;
+		}
+	}
+
+
+	public static abstract class AbstractValue {
+
+		public String text;
+	}
+
+
+	public static class PlainValue extends AbstractValue {
+	}
+
+
+	public static class ConventionValue extends AbstractValue {
+	}
+
+
+	public static class ConventionValueEditor extends PropertyEditorSupport {
+
+		public void setAsText(String text) {
+			ConventionValue value = new ConventionValue();
+			value.text = "editor:" + text;
+			setValue(value);
+		}
+	}
+
+
+	public static class ManagedValue extends AbstractValue {
+	}
+
+
+	public static class ManagedValueEditor extends PropertyEditorSupport {
+
+		public void setAsText(String text) {
+			ManagedValue value = new ManagedValue();
+			value.text = "manager:" + text;
+			setValue(value);
+		}
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+/**
+ * Tests for the ancestor-merged lookups in {@link BeanFactoryUtils}.
+ *
+ * @author agent
+ * @since 2.5.6
+ */
+public class BeanFactoryUtilsTests {
+
+	private DefaultListableBeanFactory parent;
+
+	private DefaultListableBeanFactory child;
+
+
+	@Before
+	public void setUp() {
+		this.parent = new DefaultListableBeanFactory();
+		this.parent.registerBeanDefinition("a", new RootBeanDefinition(StringBuffer.class));
+		this.parent.registerBeanDefinition("b", new RootBeanDefinition(StringBuffer.class));
+		this.child = new DefaultListableBeanFactory(this.parent);
+		this.child.registerBeanDefinition("b", new RootBeanDefinition(StringBuffer.class));
+		this.child.registerBeanDefinition("c", new RootBeanDefinition(StringBuffer.class));
+	}
+
+
+	@Test
+	public void mergedNamesAcrossHierarchy() {
+		assertNames("b", "c", "a");
+		freeze();
+		assertNames("b", "c", "a");
+	}
+
+	@Test
+	public void mergedNamesCachedPerFactory() {
+		freeze();
+		assertNames("b", "c", "a");
+		int parentLookups = this.parent.getTypeLookupCacheHitCount() + this.parent.getTypeLookupCacheMissCount();
+		assertNames("b", "c", "a");
+		assertNames("b", "c", "a");
+		assertEquals(parentLookups,
+				this.parent.getTypeLookupCacheHitCount() + this.parent.getTypeLookupCacheMissCount());
+	}
+
+	@Test
+	public void cachedArrayCannotBeModifiedByCallers() {
+		freeze();
+		BeanFactoryUtils.beanNamesForTypeIncludingAncestors(this.child, StringBuffer.class)[0] = "modified";
+		assertNames("b", "c", "a");
+		BeanFactoryUtils.beanNamesForTypeIncludingAncestors(this.child, StringBuffer.class)[2] = "modified";
+		assertNames("b", "c", "a");
+	}
+
+	@Test
+	public void registrationInParentAfterLookup() {
+		freeze();
+		assertNames("b", "c", "a");
+		this.parent.registerBeanDefinition("d", new RootBeanDefinition(StringBuffer.class));
+		assertNames("b", "c", "a", "d");
+		this.parent.removeBeanDefinition("a");
+		assertNames("b", "c", "d");
+	}
+
+	@Test
+	public void aliasInChildHidesParentBean() {
+		freeze();
+		assertNames("b", "c", "a");
+		this.child.registerAlias("c", "a");
+		assertNames("b", "c");
+		this.child.removeAlias("a");
+		assertNames("b", "c", "a");
+	}
+
+	@Test
+	public void nonCacheableParentIsAskedEachTime() {
+		StaticListableBeanFactory staticParent = new StaticListableBeanFactory();
+		staticParent.addBean("a", new StringBuffer());
+		this.child = new DefaultListableBeanFactory(staticParent);
+		this.child.registerBeanDefinition("b", new RootBeanDefinition(StringBuffer.class));
+		this.child.registerBeanDefinition("c", new RootBeanDefinition(StringBuffer.class));
+		this.child.freezeConfiguration();
+		assertNames("b", "c", "a");
+		staticParent.addBean("d", new StringBuffer());
+		assertNames("b", "c", "a", "d");
+	}
+
+	@Test
+	public void beansOfTypeIncludingAncestors() {
+		freeze();
+		Map beans = BeanFactoryUtils.beansOfTypeIncludingAncestors(this.child, StringBuffer.class);
+		assertEquals(Arrays.asList(new String[] {"b", "c", "a"}), Arrays.asList(beans.keySet().toArray()));
+		assertSame(this.child.getBean("b"), beans.get("b"));
+		assertNotSame(this.parent.getBean("b"), beans.get("b"));
+		assertSame(this.parent.getBean("a"), beans.get("a"));
+	}
+
+	@Test
+	public void beansOfTypeWithoutContributingParent() {
+		this.parent.removeBeanDefinition("a");
+		freeze();
+		Map beans = BeanFactoryUtils.beansOfTypeIncludingAncestors(this.child, StringBuffer.class);
+		assertEquals(2, beans.size());
+		assertFalse(this.parent.containsSingleton("b"));
+	}
+
+
+	private void freeze() {
+		this.parent.freezeConfiguration();
+		this.child.freezeConfiguration();
+	}
+
+	private void assertNames(String... expected) {
+		String[] names = BeanFactoryUtils.beanNamesForTypeIncludingAncestors(this.child, StringBuffer.class);
+		assertEquals(Arrays.asList(expected), Arrays.asList(names));
+	}
+
+}
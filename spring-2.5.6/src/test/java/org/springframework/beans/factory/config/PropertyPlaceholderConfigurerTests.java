@@ -0,0 +1,124 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.config;
+
+import static org.junit.Assert.*;
+
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+/**
+ * Tests for parallel placeholder resolution in {@link PropertyPlaceholderConfigurer}.
+ *
+ * @author agent
+ * @since 2.5.6
+ */
+public class PropertyPlaceholderConfigurerTests {
+
+	private static final int BEAN_COUNT = 500;
+
+	private DefaultListableBeanFactory beanFactory;
+
+	private PropertyPlaceholderConfigurer configurer;
+
+
+	@Before
+	public void setUp() {
+		this.beanFactory = new DefaultListableBeanFactory();
+		this.configurer = new PropertyPlaceholderConfigurer();
+		Properties props = new Properties();
+		props.setProperty("env", "test");
+		props.setProperty("host.test", "localhost");
+		props.setProperty("url", "http://${host.${env}}:8080");
+		this.configurer.setProperties(props);
+		this.configurer.setTaskExecutor(new SimpleAsyncTaskExecutor());
+	}
+
+
+	@Test
+	public void placeholdersResolvedInParallel() {
+		for (int i = 0; i < BEAN_COUNT; i++) {
+			register("bean" + i, "${url}/" + i);
+		}
+		this.configurer.postProcessBeanFactory(this.beanFactory);
+		for (int i = 0; i < BEAN_COUNT; i++) {
+			assertEquals("http://localhost:8080/" + i, getValue("bean" + i));
+		}
+	}
+
+	@Test
+	public void parallelResolutionMatchesSequentialResolution() {
+		for (int i = 0; i < BEAN_COUNT; i++) {
+			register("bean" + i, (i % 3 == 0 ? "${url}" : "${host.${env}}-" + (i % 7)));
+		}
+		DefaultListableBeanFactory sequentialFactory = new DefaultListableBeanFactory();
+		sequentialFactory.copyConfigurationFrom(this.beanFactory);
+		for (int i = 0; i < BEAN_COUNT; i++) {
+			sequentialFactory.registerBeanDefinition("bean" + i,
+					new RootBeanDefinition((RootBeanDefinition) this.beanFactory.getBeanDefinition("bean" + i)));
+		}
+
+		this.configurer.postProcessBeanFactory(this.beanFactory);
+		this.configurer.setTaskExecutor(null);
+		this.configurer.postProcessBeanFactory(sequentialFactory);
+
+		for (int i = 0; i < BEAN_COUNT; i++) {
+			assertEquals(getValue(sequentialFactory, "bean" + i), getValue("bean" + i));
+		}
+	}
+
+	@Test
+	public void firstFailureInRegistrationOrderRethrown() {
+		for (int i = 0; i < BEAN_COUNT; i++) {
+			register("bean" + i, (i == 150 || i == 400 ? "${missing" + i + "}" : "${url}"));
+		}
+		try {
+			this.configurer.postProcessBeanFactory(this.beanFactory);
+			fail("Should have thrown BeanDefinitionStoreException");
+		}
+		catch (BeanDefinitionStoreException ex) {
+			assertEquals("bean150", ex.getBeanName());
+			assertTrue(ex.getMessage().indexOf("missing150") != -1);
+		}
+	}
+
+
+	private void register(String beanName, String value) {
+		RootBeanDefinition bd = new RootBeanDefinition(StringBuffer.class);
+		MutablePropertyValues pvs = new MutablePropertyValues();
+		pvs.addPropertyValue("value", value);
+		bd.setPropertyValues(pvs);
+		this.beanFactory.registerBeanDefinition(beanName, bd);
+	}
+
+	private String getValue(String beanName) {
+		return getValue(this.beanFactory, beanName);
+	}
+
+	private String getValue(DefaultListableBeanFactory factory, String beanName) {
+		return (String) factory.getBeanDefinition(beanName).getPropertyValues().getPropertyValue("value").getValue();
+	}
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.config;
+
+import static org.junit.Assert.*;
+
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+/**
+ * @author agent
+ * @since 2.5.6
+ */
+public class ServiceLocatorFactoryBeanTests {
+
+	private DefaultListableBeanFactory beanFactory;
+
+	private TestService service1;
+
+	private TestService service2;
+
+
+	@Before
+	public void setUp() {
+		this.beanFactory = new DefaultListableBeanFactory();
+		this.service1 = new TestService();
+		this.service2 = new TestService();
+	}
+
+	@Test
+	public void noArgMethodReturnsSingleBeanOfType() {
+		this.beanFactory.registerSingleton("service1", this.service1);
+		TestServiceLocator locator = (TestServiceLocator) createLocator(TestServiceLocator.class, null, null);
+		assertSame(this.service1, locator.getService());
+		assertSame(this.service1, locator.getService());
+	}
+
+	@Test(expected = NoSuchBeanDefinitionException.class)
+	public void noArgMethodFailsForAmbiguousBeans() {
+		this.beanFactory.registerSingleton("service1", this.service1);
+		this.beanFactory.registerSingleton("service2", this.service2);
+		TestServiceLocator locator = (TestServiceLocator) createLocator(TestServiceLocator.class, null, null);
+		locator.getService();
+	}
+
+	@Test
+	public void idArgMethodReturnsBeanByName() {
+		this.beanFactory.registerSingleton("service1", this.service1);
+		this.beanFactory.registerSingleton("service2", this.service2);
+		TestServiceLocator locator = (TestServiceLocator) createLocator(TestServiceLocator.class, null, null);
+		assertSame(this.service1, locator.getService("service1"));
+		assertSame(this.service2, locator.getService("service2"));
+		assertSame(this.service2, locator.getService(new StringBuffer("service2")));
+	}
+
+	@Test
+	public void idArgMethodWithoutIdReturnsSingleBeanOfType() {
+		this.beanFactory.registerSingleton("service1", this.service1);
+		TestServiceLocator locator = (TestServiceLocator) createLocator(TestServiceLocator.class, null, null);
+		assertSame(this.service1, locator.getService((String) null));
+		assertSame(this.service1, locator.getService(""));
+	}
+
+	@Test
+	public void mappedServiceIds() {
+		this.beanFactory.registerSingleton("service1", this.service1);
+		this.beanFactory.registerSingleton("service2", this.service2);
+		Properties mappings = new Properties();
+		mappings.setProperty("", "service1");
+		mappings.setProperty("second", "service2");
+		TestServiceLocator locator = (TestServiceLocator) createLocator(TestServiceLocator.class, mappings, null);
+		assertSame(this.service1, locator.getService());
+		assertSame(this.service1, locator.getService((String) null));
+		assertSame(this.service2, locator.getService("second"));
+		// Unmapped service ids are used as bean names as-is.
+		assertSame(this.service2, locator.getService("service2"));
+	}
+
+	@Test
+	public void unsupportedSignatures() {
+		this.beanFactory.registerSingleton("service1", this.service1);
+		UnsupportedServiceLocator locator =
+				(UnsupportedServiceLocator) createLocator(UnsupportedServiceLocator.class, null, null);
+		try {
+			locator.getService("service1", "service2");
+			fail("Should have thrown UnsupportedOperationException");
+		}
+		catch (UnsupportedOperationException ex) {
+			// expected
+		}
+		try {
+			locator.lookUp();
+			fail("Should have thrown UnsupportedOperationException");
+		}
+		catch (UnsupportedOperationException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void customExceptionForFailedLookup() {
+		ExceptionThrowingServiceLocator locator = (ExceptionThrowingServiceLocator)
+				createLocator(ExceptionThrowingServiceLocator.class, null, ServiceLocatorException.class);
+		try {
+			locator.getService("missing");
+			fail("Should have thrown ServiceLocatorException");
+		}
+		catch (ServiceLocatorException ex) {
+			assertTrue(ex.getCause() instanceof NoSuchBeanDefinitionException);
+		}
+	}
+
+	@Test
+	public void objectMethods() {
+		TestServiceLocator locator = (TestServiceLocator) createLocator(TestServiceLocator.class, null, null);
+		TestServiceLocator otherLocator = (TestServiceLocator) createLocator(TestServiceLocator.class, null, null);
+		assertTrue(locator.equals(locator));
+		assertFalse(locator.equals(otherLocator));
+		assertEquals(System.identityHashCode(locator), locator.hashCode());
+		assertEquals("Service locator: " + TestServiceLocator.class.getName(), locator.toString());
+	}
+
+
+	private Object createLocator(Class locatorInterface, Properties mappings, Class exceptionClass) {
+		ServiceLocatorFactoryBean factory = new ServiceLocatorFactoryBean();
+		factory.setServiceLocatorInterface(locatorInterface);
+		factory.setServiceMappings(mappings);
+		if (exceptionClass != null) {
+			factory.setServiceLocatorExceptionClass(exceptionClass);
+		}
+		factory.setBeanFactory(this.beanFactory);
+		factory.afterPropertiesSet();
+		return factory.getObject();
+	}
+
+
+	public static class TestService {
+	}
+
+
+	public interface TestServiceLocator {
+
+		TestService getService();
+
+		TestService getService(String id);
+
+		TestService getService(Object id);
+	}
+
+
+	public interface UnsupportedServiceLocator {
+
+		TestService getService(String id, String fallbackId);
+
+		void lookUp();
+	}
+
+
+	public interface ExceptionThrowingServiceLocator {
+
+		TestService getService(String id) throws ServiceLocatorException;
+	}
+
+
+	public static class ServiceLocatorException extends Exception {
+
+		public ServiceLocatorException(Throwable cause) {
+			super(cause);
+		}
+	}
+
+}
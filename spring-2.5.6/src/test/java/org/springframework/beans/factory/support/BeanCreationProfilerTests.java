@@ -0,0 +1,167 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+/**
+ * @author agent
+ * @since 2.5.6
+ */
+public class BeanCreationProfilerTests {
+
+	private DefaultListableBeanFactory bf;
+
+	private BeanCreationProfiler profiler;
+
+
+	@Before
+	public void setUp() {
+		this.bf = new DefaultListableBeanFactory();
+		this.profiler = new BeanCreationProfiler();
+		this.bf.setBeanCreationProfiler(this.profiler);
+	}
+
+	@Test
+	public void phasesAreRecordedForSuccessfulCreation() {
+		this.bf.registerBeanDefinition("bean", new RootBeanDefinition(Object.class));
+		this.bf.getBean("bean");
+		assertEquals(1, this.profiler.getRecordedBeanCount());
+		List phaseNames = getPhaseNames("bean");
+		assertTrue(phaseNames.contains(BeanCreationProfiler.PHASE_INSTANTIATION));
+		assertTrue(phaseNames.contains(BeanCreationProfiler.PHASE_POPULATION));
+		assertTrue(phaseNames.contains(BeanCreationProfiler.PHASE_INIT_METHODS));
+	}
+
+	@Test
+	public void failedInitMethodPhaseIsRecorded() {
+		RootBeanDefinition bd = new RootBeanDefinition(FailingInitBean.class);
+		bd.setInitMethodName("init");
+		this.bf.registerBeanDefinition("bean", bd);
+		try {
+			this.bf.getBean("bean");
+			fail("Should have thrown BeanCreationException");
+		}
+		catch (BeanCreationException ex) {
+			// expected
+		}
+		assertTrue(getPhaseNames("bean").contains(BeanCreationProfiler.PHASE_INIT_METHODS));
+	}
+
+	@Test
+	public void failedInstantiationPhaseIsRecorded() {
+		this.bf.registerBeanDefinition("bean", new RootBeanDefinition(FailingConstructorBean.class));
+		try {
+			this.bf.getBean("bean");
+			fail("Should have thrown BeanCreationException");
+		}
+		catch (BeanCreationException ex) {
+			// expected
+		}
+		assertTrue(getPhaseNames("bean").contains(BeanCreationProfiler.PHASE_INSTANTIATION));
+	}
+
+	@Test
+	public void failedPostProcessorPhaseIsRecorded() {
+		this.bf.addBeanPostProcessor(new FailingBeanPostProcessor());
+		this.bf.registerBeanDefinition("bean", new RootBeanDefinition(Object.class));
+		try {
+			this.bf.getBean("bean");
+			fail("Should have thrown BeanCreationException");
+		}
+		catch (BeanCreationException ex) {
+			// expected
+		}
+		assertTrue(getPhaseNames("bean").contains(BeanCreationProfiler.PHASE_BEFORE_INITIALIZATION +
+				"[" + FailingBeanPostProcessor.class.getName() + "]"));
+	}
+
+	@Test
+	public void oldestRecordsAreDiscardedBeyondLimit() {
+		this.profiler.setRecordLimit(3);
+		RootBeanDefinition bd = new RootBeanDefinition(Object.class);
+		bd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		this.bf.registerBeanDefinition("prototype", bd);
+		for (int i = 0; i < 10; i++) {
+			this.bf.getBean("prototype");
+		}
+		assertEquals(10, this.profiler.getRecordedBeanCount());
+		assertEquals(3, this.profiler.getBeanCreationRecords().size());
+		assertEquals(7, this.profiler.getDiscardedRecordCount());
+		assertTrue(this.profiler.getReport().indexOf("discarded-records=\"7\"") != -1);
+
+		this.profiler.reset();
+		assertEquals(0, this.profiler.getDiscardedRecordCount());
+		assertTrue(this.profiler.getReport().indexOf("discarded-records") == -1);
+	}
+
+
+	private List getPhaseNames(String beanName) {
+		List phaseNames = new ArrayList();
+		for (Iterator it = this.profiler.getBeanCreationRecords().iterator(); it.hasNext();) {
+			BeanCreationProfiler.BeanCreationRecord record = (BeanCreationProfiler.BeanCreationRecord) it.next();
+			if (beanName.equals(record.getBeanName())) {
+				for (Iterator it2 = record.getChildren().iterator(); it2.hasNext();) {
+					Object child = it2.next();
+					if (child instanceof BeanCreationProfiler.PhaseRecord) {
+						phaseNames.add(((BeanCreationProfiler.PhaseRecord) child).getPhaseName());
+					}
+				}
+			}
+		}
+		return phaseNames;
+	}
+
+
+	public static class FailingInitBean {
+
+		public void init() {
+			throw new IllegalStateException("init failed");
+		}
+	}
+
+
+	public static class FailingConstructorBean {
+
+		public FailingConstructorBean() {
+			throw new IllegalStateException("constructor failed");
+		}
+	}
+
+
+	private static class FailingBeanPostProcessor implements BeanPostProcessor {
+
+		public Object postProcessBeforeInitialization(Object bean, String beanName) {
+			throw new IllegalStateException("post-processing failed");
+		}
+
+		public Object postProcessAfterInitialization(Object bean, String beanName) {
+			return bean;
+		}
+	}
+
+}
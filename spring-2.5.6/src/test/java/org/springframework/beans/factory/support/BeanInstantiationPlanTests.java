@@ -0,0 +1,79 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
+
+/**
+ * @author agent
+ * @since 2.5.6
+ */
+public class BeanInstantiationPlanTests {
+
+	@Test
+	public void planIsRebuiltWhenPostProcessorGetsReplaced() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		bf.registerBeanDefinition("bean", bd);
+		bf.addBeanPostProcessor(new NamingPostProcessor("first"));
+		assertEquals("first", ((TestBean) bf.getBean("bean")).name);
+		assertEquals("first", ((TestBean) bf.getBean("bean")).name);
+
+		bf.getBeanPostProcessors().set(0, new NamingPostProcessor("second"));
+		assertEquals("second", ((TestBean) bf.getBean("bean")).name);
+	}
+
+	@Test
+	public void planIsRebuiltWhenPostProcessorGetsAdded() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		RootBeanDefinition bd = new RootBeanDefinition(TestBean.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		bf.registerBeanDefinition("bean", bd);
+		assertNull(((TestBean) bf.getBean("bean")).name);
+
+		bf.addBeanPostProcessor(new NamingPostProcessor("added"));
+		assertEquals("added", ((TestBean) bf.getBean("bean")).name);
+	}
+
+
+	public static class TestBean {
+
+		public String name;
+	}
+
+
+	private static class NamingPostProcessor extends InstantiationAwareBeanPostProcessorAdapter {
+
+		private final String name;
+
+		public NamingPostProcessor(String name) {
+			this.name = name;
+		}
+
+		public boolean postProcessAfterInstantiation(Object bean, String beanName) {
+			((TestBean) bean).name = this.name;
+			return true;
+		}
+	}
+
+}
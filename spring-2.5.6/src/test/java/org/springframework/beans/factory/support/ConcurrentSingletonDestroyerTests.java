@@ -0,0 +1,172 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+
+/**
+ * @author agent
+ * @since 2.5.6
+ */
+public class ConcurrentSingletonDestroyerTests {
+
+	@Test
+	public void dependentBeansAreDestroyedFirst() {
+		DefaultSingletonBeanRegistry registry = new DefaultSingletonBeanRegistry();
+		registry.setDestructionExecutor(new SimpleAsyncTaskExecutor());
+		List destroyed = Collections.synchronizedList(new ArrayList());
+		registerDisposableSingleton(registry, "a", new RecordingBean("a", destroyed));
+		registerDisposableSingleton(registry, "b", new RecordingBean("b", destroyed));
+		registerDisposableSingleton(registry, "c", new RecordingBean("c", destroyed));
+		registry.registerDependentBean("a", "b");
+		registry.registerDependentBean("b", "c");
+
+		registry.destroySingletons();
+
+		assertEquals(Arrays.asList(new String[] {"c", "b", "a"}), destroyed);
+		assertEquals(0, registry.getSingletonCount());
+	}
+
+	@Test
+	public void runningTaskDoesNotTouchRegistryAfterTimeout() throws Exception {
+		DefaultSingletonBeanRegistry registry = new DefaultSingletonBeanRegistry();
+		registry.setDestructionExecutor(new SimpleAsyncTaskExecutor());
+		registry.setDestructionTimeout(100);
+		CountDownLatch destroyStarted = new CountDownLatch(1);
+		CountDownLatch releaseDestroy = new CountDownLatch(1);
+		CountDownLatch destroyFinished = new CountDownLatch(1);
+		registerDisposableSingleton(registry, "slow",
+				new BlockingBean(destroyStarted, releaseDestroy, destroyFinished));
+		registry.registerContainedBean("inner", "slow");
+		registry.registerDependentBean("other", "slow");
+
+		registry.destroySingletons();
+		assertTrue(destroyStarted.await(10, TimeUnit.SECONDS));
+
+		// Repopulate the registry while the abandoned task is still running.
+		registry.registerSingleton("inner", "newInner");
+		registry.registerDependentBean("other", "slow");
+		releaseDestroy.countDown();
+		assertTrue(destroyFinished.await(10, TimeUnit.SECONDS));
+		Thread.sleep(100);
+
+		assertEquals("newInner", registry.getSingleton("inner"));
+		assertEquals(Arrays.asList(new String[] {"slow"}), Arrays.asList(registry.getDependentBeans("other")));
+	}
+
+	@Test
+	public void queuedTaskDoesNotTouchRegistryAfterTimeout() throws Exception {
+		DefaultSingletonBeanRegistry registry = new DefaultSingletonBeanRegistry();
+		DeferringTaskExecutor executor = new DeferringTaskExecutor();
+		registry.setDestructionExecutor(executor);
+		registry.setDestructionTimeout(100);
+		List destroyed = Collections.synchronizedList(new ArrayList());
+		registerDisposableSingleton(registry, "a", new RecordingBean("a", destroyed));
+
+		registry.destroySingletons();
+		assertEquals(1, executor.tasks.size());
+		assertEquals(0, registry.getSingletonCount());
+
+		RecordingBean newBean = new RecordingBean("a", destroyed);
+		registerDisposableSingleton(registry, "a", newBean);
+		executor.runTasks();
+
+		assertSame(newBean, registry.getSingleton("a"));
+		assertTrue(destroyed.isEmpty());
+	}
+
+
+	private static void registerDisposableSingleton(DefaultSingletonBeanRegistry registry, String name, Object bean) {
+		registry.registerSingleton(name, bean);
+		registry.registerDisposableBean(name, (DisposableBean) bean);
+	}
+
+
+	private static class RecordingBean implements DisposableBean {
+
+		private final String name;
+
+		private final List destroyed;
+
+		public RecordingBean(String name, List destroyed) {
+			this.name = name;
+			this.destroyed = destroyed;
+		}
+
+		public void destroy() {
+			this.destroyed.add(this.name);
+		}
+	}
+
+
+	private static class BlockingBean implements DisposableBean {
+
+		private final CountDownLatch destroyStarted;
+
+		private final CountDownLatch releaseDestroy;
+
+		private final CountDownLatch destroyFinished;
+
+		public BlockingBean(CountDownLatch destroyStarted, CountDownLatch releaseDestroy,
+				CountDownLatch destroyFinished) {
+			this.destroyStarted = destroyStarted;
+			this.releaseDestroy = releaseDestroy;
+			this.destroyFinished = destroyFinished;
+		}
+
+		public void destroy() throws Exception {
+			this.destroyStarted.countDown();
+			try {
+				this.releaseDestroy.await(10, TimeUnit.SECONDS);
+			}
+			finally {
+				this.destroyFinished.countDown();
+			}
+		}
+	}
+
+
+	private static class DeferringTaskExecutor implements TaskExecutor {
+
+		public final List tasks = new ArrayList();
+
+		public void execute(Runnable task) {
+			this.tasks.add(task);
+		}
+
+		public void runTasks() {
+			for (Iterator it = this.tasks.iterator(); it.hasNext();) {
+				((Runnable) it.next()).run();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+/**
+ * Tests for concurrent singleton pre-instantiation through
+ * {@link ConcurrentSingletonInstantiator}.
+ *
+ * @author agent
+ * @since 2.5.6
+ */
+public class ConcurrentSingletonInstantiatorTests {
+
+	private DefaultListableBeanFactory beanFactory;
+
+
+	@Before
+	public void setUp() {
+		this.beanFactory = new DefaultListableBeanFactory();
+		this.beanFactory.setPreInstantiationExecutor(new SimpleAsyncTaskExecutor("preInstantiation-"));
+	}
+
+
+	@Test
+	public void dependenciesCreatedBeforeDependents() {
+		register("a", null, false);
+		RootBeanDefinition b = register("b", null, false);
+		b.setDependsOn(new String[] {"a"});
+		RootBeanDefinition c = register("c", "b", false);
+		c.getConstructorArgumentValues().addGenericArgumentValue("c");
+		register("d", "c", false);
+		register("independent", null, false);
+
+		this.beanFactory.preInstantiateSingletons();
+
+		assertEquals(4, this.beanFactory.getPreInstantiationCriticalPathLength());
+		String[] names = new String[] {"a", "b", "c", "d", "independent"};
+		boolean createdOnOtherThread = false;
+		for (int i = 0; i < names.length; i++) {
+			TrackedBean bean = (TrackedBean) this.beanFactory.getSingleton(names[i]);
+			assertNotNull(bean);
+			assertTrue("Dependency of '" + names[i] + "' not initialized", bean.dependencyInitialized);
+			createdOnOtherThread |= (bean.creationThread != Thread.currentThread());
+		}
+		assertTrue(createdOnOtherThread);
+		assertTrue(((TrackedBean) this.beanFactory.getSingleton("a")).initOrder <
+				((TrackedBean) this.beanFactory.getSingleton("b")).initOrder);
+	}
+
+	@Test
+	public void circularReferencesCreatedOnCallingThread() {
+		register("x", "y", false);
+		register("y", "x", false);
+		register("dependsOnCycle", "x", false);
+		register("independent", null, false);
+
+		this.beanFactory.preInstantiateSingletons();
+
+		TrackedBean x = (TrackedBean) this.beanFactory.getSingleton("x");
+		TrackedBean y = (TrackedBean) this.beanFactory.getSingleton("y");
+		TrackedBean dependent = (TrackedBean) this.beanFactory.getSingleton("dependsOnCycle");
+		assertSame(y, x.dependency);
+		assertSame(x, y.dependency);
+		assertSame(x, dependent.dependency);
+		assertSame(Thread.currentThread(), x.creationThread);
+		assertSame(Thread.currentThread(), y.creationThread);
+		assertSame(Thread.currentThread(), dependent.creationThread);
+		assertEquals(1, this.beanFactory.getPreInstantiationCriticalPathLength());
+	}
+
+	@Test
+	public void failurePropagatedToCaller() {
+		register("ok", null, false);
+		register("failing", null, true);
+		register("dependsOnFailing", "failing", false);
+
+		try {
+			this.beanFactory.preInstantiateSingletons();
+			fail("Should have thrown BeanCreationException");
+		}
+		catch (BeanCreationException ex) {
+			assertEquals("failing", ex.getBeanName());
+			assertTrue(ex.getMostSpecificCause() instanceof IllegalStateException);
+		}
+		assertFalse(this.beanFactory.containsSingleton("failing"));
+		assertFalse(this.beanFactory.containsSingleton("dependsOnFailing"));
+	}
+
+	@Test
+	public void rejectedTasksRunOnCallingThread() {
+		this.beanFactory.setPreInstantiationExecutor(new TaskExecutor() {
+			public void execute(Runnable task) {
+				throw new TaskRejectedException("rejected");
+			}
+		});
+		register("a", null, false);
+		register("b", "a", false);
+
+		this.beanFactory.preInstantiateSingletons();
+
+		TrackedBean a = (TrackedBean) this.beanFactory.getSingleton("a");
+		TrackedBean b = (TrackedBean) this.beanFactory.getSingleton("b");
+		assertSame(Thread.currentThread(), a.creationThread);
+		assertSame(a, b.dependency);
+		assertTrue(b.dependencyInitialized);
+	}
+
+
+	private RootBeanDefinition register(String beanName, String dependency, boolean fail) {
+		RootBeanDefinition bd = new RootBeanDefinition(TrackedBean.class);
+		MutablePropertyValues pvs = new MutablePropertyValues();
+		if (dependency != null) {
+			pvs.addPropertyValue("dependency", new RuntimeBeanReference(dependency));
+		}
+		pvs.addPropertyValue("fail", Boolean.valueOf(fail));
+		bd.setPropertyValues(pvs);
+		this.beanFactory.registerBeanDefinition(beanName, bd);
+		return bd;
+	}
+
+
+	public static class TrackedBean implements BeanNameAware, InitializingBean {
+
+		private static int initCounter = 0;
+
+		private String beanName;
+
+		private TrackedBean dependency;
+
+		private boolean fail;
+
+		private volatile boolean initialized;
+
+		private boolean dependencyInitialized;
+
+		private Thread creationThread = Thread.currentThread();
+
+		private int initOrder;
+
+		public TrackedBean() {
+		}
+
+		public TrackedBean(String name) {
+		}
+
+		public void setBeanName(String beanName) {
+			this.beanName = beanName;
+		}
+
+		public void setDependency(TrackedBean dependency) {
+			this.dependency = dependency;
+		}
+
+		public void setFail(boolean fail) {
+			this.fail = fail;
+		}
+
+		public void afterPropertiesSet() throws InterruptedException {
+			if (this.fail) {
+				throw new IllegalStateException("Failure in '" + this.beanName + "'");
+			}
+			this.dependencyInitialized = (this.dependency == null || this.dependency.initialized);
+			// Give concurrently created beans a chance to interleave.
+			Thread.sleep(20);
+			synchronized (TrackedBean.class) {
+				this.initOrder = ++initCounter;
+			}
+			this.initialized = true;
+		}
+	}
+
+}
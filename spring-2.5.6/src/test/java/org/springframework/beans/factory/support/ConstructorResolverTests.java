@@ -0,0 +1,176 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Array;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+
+/**
+ * Tests for the constructor and factory method caching in {@link ConstructorResolver}.
+ *
+ * @author agent
+ * @since 2.5.6
+ */
+public class ConstructorResolverTests {
+
+	private DefaultListableBeanFactory beanFactory;
+
+
+	@Before
+	public void setUp() {
+		this.beanFactory = new DefaultListableBeanFactory();
+	}
+
+
+	@Test
+	public void prototypeWithExplicitArgumentsUsesMatchingOverloadedConstructor() {
+		registerPrototype("overloaded", new RootBeanDefinition(Overloaded.class));
+		assertEquals("String:a", getOverloaded(new Object[] {"a"}));
+		assertEquals("Integer:1", getOverloaded(new Object[] {new Integer(1)}));
+		assertEquals("String:b", getOverloaded(new Object[] {"b"}));
+		assertEquals("String,Integer:c,2", getOverloaded(new Object[] {"c", new Integer(2)}));
+		assertEquals("Integer:3", getOverloaded(new Object[] {new Integer(3)}));
+		assertEquals(3, getExplicitArgumentTypesCacheSize("overloaded"));
+	}
+
+	@Test
+	public void explicitArgumentsNotShadowedByCachedConstructor() {
+		RootBeanDefinition bd = new RootBeanDefinition(Overloaded.class);
+		bd.getConstructorArgumentValues().addGenericArgumentValue("fromDefinition");
+		registerPrototype("overloaded", bd);
+		assertEquals("String:fromDefinition", getOverloaded(null));
+		assertEquals("Integer:1", getOverloaded(new Object[] {new Integer(1)}));
+		assertEquals("default", getOverloaded(new Object[0]));
+		assertEquals("String:fromDefinition", getOverloaded(null));
+	}
+
+	@Test
+	public void cachedConstructorResolvesBeanReferencesPerInstance() {
+		registerPrototype("dependency", new RootBeanDefinition(Object.class));
+		RootBeanDefinition bd = new RootBeanDefinition(Holder.class);
+		bd.getConstructorArgumentValues().addGenericArgumentValue(new RuntimeBeanReference("dependency"));
+		registerPrototype("holder", bd);
+		Holder holder1 = (Holder) this.beanFactory.getBean("holder");
+		Holder holder2 = (Holder) this.beanFactory.getBean("holder");
+		assertNotNull(holder1.value);
+		assertNotNull(holder2.value);
+		assertNotSame(holder1.value, holder2.value);
+	}
+
+	@Test
+	public void factoryMethodWithExplicitArgumentsUsesMatchingOverload() {
+		RootBeanDefinition bd = new RootBeanDefinition(Overloaded.class);
+		bd.setFactoryMethodName("create");
+		registerPrototype("created", bd);
+		assertEquals("create:String:a", get("created", new Object[] {"a"}));
+		assertEquals("create:Integer:1", get("created", new Object[] {new Integer(1)}));
+		assertEquals("create:String:b", get("created", new Object[] {"b"}));
+		assertEquals(2, getExplicitArgumentTypesCacheSize("created"));
+	}
+
+	@Test
+	public void explicitArgumentTypesCacheIsBounded() {
+		registerPrototype("overloaded", new RootBeanDefinition(Overloaded.class));
+		for (int i = 1; i <= 40; i++) {
+			// Arrays of increasing dimension, each of a different class.
+			Object arg = Array.newInstance(Byte.class, new int[i]);
+			assertEquals("Object:" + arg.getClass().getName(), getOverloaded(new Object[] {arg}));
+		}
+		assertEquals(32, getExplicitArgumentTypesCacheSize("overloaded"));
+		// Argument types beyond the limit still get resolved correctly.
+		Object arg = Array.newInstance(Byte.class, new int[40]);
+		assertEquals("Object:" + arg.getClass().getName(), getOverloaded(new Object[] {arg}));
+		assertEquals("String:a", getOverloaded(new Object[] {"a"}));
+		assertEquals(32, getExplicitArgumentTypesCacheSize("overloaded"));
+	}
+
+
+	private void registerPrototype(String beanName, RootBeanDefinition bd) {
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		this.beanFactory.registerBeanDefinition(beanName, bd);
+	}
+
+	private String getOverloaded(Object[] args) {
+		return get("overloaded", args);
+	}
+
+	private String get(String beanName, Object[] args) {
+		Object bean = (args != null ? this.beanFactory.getBean(beanName, args) : this.beanFactory.getBean(beanName));
+		return ((Overloaded) bean).description;
+	}
+
+	private int getExplicitArgumentTypesCacheSize(String beanName) {
+		RootBeanDefinition mbd = this.beanFactory.getMergedLocalBeanDefinition(beanName);
+		return (mbd.resolvedConstructorsByArgumentTypes != null ? mbd.resolvedConstructorsByArgumentTypes.size() : 0);
+	}
+
+
+	public static class Overloaded {
+
+		private final String description;
+
+		public Overloaded() {
+			this.description = "default";
+		}
+
+		public Overloaded(String value) {
+			this.description = "String:" + value;
+		}
+
+		public Overloaded(Integer value) {
+			this.description = "Integer:" + value;
+		}
+
+		public Overloaded(Object[] value) {
+			this.description = "Object:" + value.getClass().getName();
+		}
+
+		public Overloaded(String value, Integer number) {
+			this.description = "String,Integer:" + value + "," + number;
+		}
+
+		private Overloaded(String prefix, String description) {
+			this.description = prefix + description;
+		}
+
+		public static Overloaded create(String value) {
+			return new Overloaded("create:", "String:" + value);
+		}
+
+		public static Overloaded create(Integer value) {
+			return new Overloaded("create:", "Integer:" + value);
+		}
+	}
+
+
+	public static class Holder {
+
+		private final Object value;
+
+		public Holder(Object value) {
+			this.value = value;
+		}
+	}
+
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.ObjectFactory;
+
+/**
+ * @author agent
+ * @since 2.5.6
+ */
+public class DefaultSingletonBeanRegistryTests {
+
+	@Test
+	public void suppressedExceptionsAreRecordedPerCreatingThread() throws Exception {
+		final DefaultSingletonBeanRegistry registry = new DefaultSingletonBeanRegistry();
+		final Exception suppressedA = new IllegalStateException("a");
+		final Exception suppressedB = new IllegalStateException("b");
+		final CountDownLatch aRecorded = new CountDownLatch(1);
+		final CountDownLatch bFinished = new CountDownLatch(1);
+		final BeanCreationException[] failures = new BeanCreationException[2];
+
+		Thread threadA = new Thread() {
+			public void run() {
+				try {
+					registry.getSingleton("a", new ObjectFactory() {
+						public Object getObject() {
+							registry.onSuppressedException(suppressedA);
+							aRecorded.countDown();
+							try {
+								bFinished.await(10, TimeUnit.SECONDS);
+							}
+							catch (InterruptedException ex) {
+								Thread.currentThread().interrupt();
+							}
+							throw new BeanCreationException("a", "failed");
+						}
+					});
+				}
+				catch (BeanCreationException ex) {
+					failures[0] = ex;
+				}
+			}
+		};
+		Thread threadB = new Thread() {
+			public void run() {
+				try {
+					aRecorded.await(10, TimeUnit.SECONDS);
+					registry.getSingleton("b", new ObjectFactory() {
+						public Object getObject() {
+							registry.onSuppressedException(suppressedB);
+							throw new BeanCreationException("b", "failed");
+						}
+					});
+				}
+				catch (BeanCreationException ex) {
+					failures[1] = ex;
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				finally {
+					bFinished.countDown();
+				}
+			}
+		};
+		threadA.start();
+		threadB.start();
+		threadA.join(20000);
+		threadB.join(20000);
+
+		assertNotNull(failures[0]);
+		assertNotNull(failures[1]);
+		assertEquals(Arrays.asList(new Throwable[] {suppressedA}), Arrays.asList(failures[0].getRelatedCauses()));
+		assertEquals(Arrays.asList(new Throwable[] {suppressedB}), Arrays.asList(failures[1].getRelatedCauses()));
+	}
+
+	@Test
+	public void suppressedExceptionsAreOnlyRecordedDuringCreation() {
+		final DefaultSingletonBeanRegistry registry = new DefaultSingletonBeanRegistry();
+		registry.onSuppressedException(new IllegalStateException("outside"));
+		try {
+			registry.getSingleton("a", new ObjectFactory() {
+				public Object getObject() {
+					throw new BeanCreationException("a", "failed");
+				}
+			});
+			fail("Should have thrown BeanCreationException");
+		}
+		catch (BeanCreationException ex) {
+			assertNull(ex.getRelatedCauses());
+		}
+		assertFalse(registry.containsSingleton("a"));
+	}
+
+	@Test
+	public void waitingThreadReceivesSingletonCreatedByOtherThread() throws Exception {
+		final DefaultSingletonBeanRegistry registry = new DefaultSingletonBeanRegistry();
+		final CountDownLatch creationStarted = new CountDownLatch(1);
+		final CountDownLatch creationReleased = new CountDownLatch(1);
+		final AtomicInteger creationCount = new AtomicInteger();
+		final Object[] results = new Object[2];
+		final ObjectFactory factory = new ObjectFactory() {
+			public Object getObject() {
+				creationCount.incrementAndGet();
+				creationStarted.countDown();
+				awaitQuietly(creationReleased);
+				return new Object();
+			}
+		};
+
+		Thread creator = new Thread() {
+			public void run() {
+				results[0] = registry.getSingleton("a", factory);
+			}
+		};
+		Thread waiter = new Thread() {
+			public void run() {
+				results[1] = registry.getSingleton("a", factory);
+			}
+		};
+		creator.start();
+		assertTrue(creationStarted.await(10, TimeUnit.SECONDS));
+		waiter.start();
+		awaitWaiting(waiter);
+
+		// Creating another singleton in the meantime must neither block nor release the waiter.
+		Object other = registry.getSingleton("b", new ObjectFactory() {
+			public Object getObject() {
+				return "b";
+			}
+		});
+		assertEquals("b", other);
+		assertTrue(waiter.isAlive());
+
+		creationReleased.countDown();
+		creator.join(10000);
+		waiter.join(10000);
+		assertNotNull(results[0]);
+		assertSame(results[0], results[1]);
+		assertEquals(1, creationCount.get());
+	}
+
+	@Test
+	public void waitingThreadDoesNotWaitOnSingletonMutex() throws Exception {
+		final DefaultSingletonBeanRegistry registry = new DefaultSingletonBeanRegistry();
+		final CountDownLatch creationStarted = new CountDownLatch(1);
+		final CountDownLatch creationReleased = new CountDownLatch(1);
+		final ObjectFactory factory = new ObjectFactory() {
+			public Object getObject() {
+				creationStarted.countDown();
+				awaitQuietly(creationReleased);
+				return "a";
+			}
+		};
+
+		Thread creator = new Thread() {
+			public void run() {
+				registry.getSingleton("a", factory);
+			}
+		};
+		Thread waiter = new Thread() {
+			public void run() {
+				registry.getSingleton("a", factory);
+			}
+		};
+		creator.start();
+		assertTrue(creationStarted.await(10, TimeUnit.SECONDS));
+		waiter.start();
+		try {
+			awaitWaiting(waiter);
+			LockInfo lockInfo = ManagementFactory.getThreadMXBean().getThreadInfo(waiter.getId()).getLockInfo();
+			assertNotNull(lockInfo);
+			assertTrue(lockInfo.getIdentityHashCode() != System.identityHashCode(registry.getSingletonMutex()));
+		}
+		finally {
+			creationReleased.countDown();
+			creator.join(10000);
+			waiter.join(10000);
+		}
+	}
+
+	@Test
+	public void waitingThreadCreatesSingletonAfterFailedCreation() throws Exception {
+		final DefaultSingletonBeanRegistry registry = new DefaultSingletonBeanRegistry();
+		final CountDownLatch creationStarted = new CountDownLatch(1);
+		final CountDownLatch creationReleased = new CountDownLatch(1);
+		final Object[] results = new Object[2];
+
+		Thread creator = new Thread() {
+			public void run() {
+				try {
+					registry.getSingleton("a", new ObjectFactory() {
+						public Object getObject() {
+							creationStarted.countDown();
+							awaitQuietly(creationReleased);
+							throw new BeanCreationException("a", "failed");
+						}
+					});
+				}
+				catch (BeanCreationException ex) {
+					results[0] = ex;
+				}
+			}
+		};
+		Thread waiter = new Thread() {
+			public void run() {
+				results[1] = registry.getSingleton("a", new ObjectFactory() {
+					public Object getObject() {
+						return "a";
+					}
+				});
+			}
+		};
+		creator.start();
+		assertTrue(creationStarted.await(10, TimeUnit.SECONDS));
+		waiter.start();
+		awaitWaiting(waiter);
+		creationReleased.countDown();
+		creator.join(10000);
+		waiter.join(10000);
+
+		assertTrue(results[0] instanceof BeanCreationException);
+		assertEquals("a", results[1]);
+		assertEquals("a", registry.getSingleton("a"));
+	}
+
+	@Test
+	public void circularReferenceAcrossThreadsResolvedThroughEarlyReference() throws Exception {
+		final DefaultSingletonBeanRegistry registry = new DefaultSingletonBeanRegistry();
+		final CountDownLatch aStarted = new CountDownLatch(1);
+		final CountDownLatch bStarted = new CountDownLatch(1);
+		final Object[] results = new Object[2];
+
+		Thread threadA = new Thread() {
+			public void run() {
+				results[0] = registry.getSingleton("a", new CircularFactory(registry, "a", "b", aStarted, bStarted));
+			}
+		};
+		Thread threadB = new Thread() {
+			public void run() {
+				results[1] = registry.getSingleton("b", new CircularFactory(registry, "b", "a", bStarted, aStarted));
+			}
+		};
+		threadA.start();
+		threadB.start();
+		threadA.join(10000);
+		threadB.join(10000);
+
+		assertFalse(threadA.isAlive());
+		assertFalse(threadB.isAlive());
+		assertSame(registry.getSingleton("a"), results[0]);
+		assertSame(registry.getSingleton("b"), results[1]);
+	}
+
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void awaitWaiting(Thread thread) throws InterruptedException {
+		for (int i = 0; i < 1000 && thread.getState() != Thread.State.WAITING; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(Thread.State.WAITING, thread.getState());
+	}
+
+
+	/**
+	 * Creates a singleton that exposes an early reference and
+	 * then depends on a singleton created by another thread.
+	 */
+	private static class CircularFactory implements ObjectFactory {
+
+		private final DefaultSingletonBeanRegistry registry;
+
+		private final String beanName;
+
+		private final String dependencyName;
+
+		private final CountDownLatch started;
+
+		private final CountDownLatch dependencyStarted;
+
+		public CircularFactory(DefaultSingletonBeanRegistry registry, String beanName, String dependencyName,
+				CountDownLatch started, CountDownLatch dependencyStarted) {
+
+			this.registry = registry;
+			this.beanName = beanName;
+			this.dependencyName = dependencyName;
+			this.started = started;
+			this.dependencyStarted = dependencyStarted;
+		}
+
+		public Object getObject() {
+			final StringBuffer bean = new StringBuffer(this.beanName);
+			this.registry.addSingletonFactory(this.beanName, new ObjectFactory() {
+				public Object getObject() {
+					return bean;
+				}
+			});
+			this.started.countDown();
+			awaitQuietly(this.dependencyStarted);
+			Object dependency = this.registry.getSingleton(this.dependencyName, new ObjectFactory() {
+				public Object getObject() {
+					throw new IllegalStateException("Should not create dependency again");
+				}
+			});
+			bean.append("->").append(dependency);
+			return bean;
+		}
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.ThreadAllocation;
+
+/**
+ * Checks that lookups of fully created singletons take the allocation-free
+ * fast path in {@link AbstractBeanFactory#doGetBean}.
+ *
+ * @author agent
+ * @since 2.5.6
+ */
+public class SingletonLookupAllocationTests {
+
+	private static final int WARMUP_LOOKUPS = 50000;
+
+	private static final int MEASURED_LOOKUPS = 200000;
+
+	private DefaultListableBeanFactory beanFactory;
+
+	private ThreadAllocation allocation;
+
+	private Logger factoryLogger;
+
+	private Level originalLevel;
+
+
+	@Before
+	public void setUp() {
+		// Debug level, as with a log4j setup without explicit configuration:
+		// lookups must not allocate even with debug logging enabled.
+		this.factoryLogger = Logger.getLogger(DefaultListableBeanFactory.class);
+		this.originalLevel = this.factoryLogger.getLevel();
+		this.factoryLogger.setLevel(Level.DEBUG);
+		this.allocation = ThreadAllocation.create();
+		this.beanFactory = new DefaultListableBeanFactory();
+		this.beanFactory.registerBeanDefinition("singleton", new RootBeanDefinition(StringBuffer.class));
+		this.beanFactory.registerAlias("singleton", "alias");
+		this.beanFactory.registerAlias("alias", "chainedAlias");
+		this.beanFactory.preInstantiateSingletons();
+	}
+
+	@After
+	public void tearDown() {
+		this.factoryLogger.setLevel(this.originalLevel);
+	}
+
+	@Test
+	public void lookupByNameDoesNotAllocate() {
+		assumeTrue(this.allocation != null);
+		Object singleton = this.beanFactory.getBean("singleton");
+		for (int i = 0; i < WARMUP_LOOKUPS; i++) {
+			lookupByName();
+		}
+		long start = this.allocation.getAllocatedBytes();
+		for (int i = 0; i < MEASURED_LOOKUPS; i++) {
+			lookupByName();
+		}
+		assertAllocationFree(this.allocation.getAllocatedBytes() - start);
+		assertSame(singleton, this.beanFactory.getBean("chainedAlias"));
+	}
+
+	@Test
+	public void lookupByNameAndTypeDoesNotAllocate() {
+		assumeTrue(this.allocation != null);
+		for (int i = 0; i < WARMUP_LOOKUPS; i++) {
+			lookupByNameAndType();
+		}
+		long start = this.allocation.getAllocatedBytes();
+		for (int i = 0; i < MEASURED_LOOKUPS; i++) {
+			lookupByNameAndType();
+		}
+		assertAllocationFree(this.allocation.getAllocatedBytes() - start);
+	}
+
+	@Test
+	public void prototypeLookupIsMeasuredAsAllocating() {
+		assumeTrue(this.allocation != null);
+		RootBeanDefinition bd = new RootBeanDefinition(StringBuffer.class);
+		bd.setScope(RootBeanDefinition.SCOPE_PROTOTYPE);
+		this.beanFactory.registerBeanDefinition("prototype", bd);
+		long start = this.allocation.getAllocatedBytes();
+		for (int i = 0; i < 1000; i++) {
+			assertNotSame(this.beanFactory.getBean("prototype"), this.beanFactory.getBean("prototype"));
+		}
+		assertTrue(this.allocation.getAllocatedBytes() - start > 1000);
+	}
+
+	private void lookupByName() {
+		this.beanFactory.getBean("singleton");
+		this.beanFactory.getBean("alias");
+		this.beanFactory.getBean("chainedAlias");
+	}
+
+	private void lookupByNameAndType() {
+		this.beanFactory.getBean("singleton", StringBuffer.class);
+		this.beanFactory.getBean("chainedAlias", CharSequence.class);
+	}
+
+	/**
+	 * Allow for a few bytes of measurement noise, far below
+	 * a single object allocation per lookup.
+	 */
+	private static void assertAllocationFree(long allocatedBytes) {
+		assertTrue("Allocated " + allocatedBytes + " bytes for " + MEASURED_LOOKUPS + " lookups",
+				allocatedBytes < MEASURED_LOOKUPS);
+	}
+
+}
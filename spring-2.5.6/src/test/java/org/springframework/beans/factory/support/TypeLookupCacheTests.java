@@ -0,0 +1,149 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.factory.FactoryBean;
+
+/**
+ * Tests for the by-type lookup cache of {@link DefaultListableBeanFactory}.
+ *
+ * @author agent
+ * @since 2.5.6
+ */
+public class TypeLookupCacheTests {
+
+	private DefaultListableBeanFactory beanFactory;
+
+
+	@Before
+	public void setUp() {
+		this.beanFactory = new DefaultListableBeanFactory();
+		this.beanFactory.registerBeanDefinition("first", new RootBeanDefinition(StringBuffer.class));
+		this.beanFactory.registerBeanDefinition("list", new RootBeanDefinition(java.util.ArrayList.class));
+	}
+
+
+	@Test
+	public void noCachingBeforeFreeze() {
+		assertNames(StringBuffer.class, "first");
+		assertNames(StringBuffer.class, "first");
+		assertEquals(0, this.beanFactory.getTypeLookupCacheHitCount());
+		assertEquals(0, this.beanFactory.getTypeLookupCacheMissCount());
+	}
+
+	@Test
+	public void cachingAfterFreeze() {
+		this.beanFactory.freezeConfiguration();
+		assertNames(StringBuffer.class, "first");
+		assertNames(StringBuffer.class, "first");
+		assertNames(StringBuffer.class, "first");
+		assertEquals(2, this.beanFactory.getTypeLookupCacheHitCount());
+		assertEquals(1, this.beanFactory.getTypeLookupCacheMissCount());
+	}
+
+	@Test
+	public void cachedArrayCannotBeModifiedByCallers() {
+		this.beanFactory.freezeConfiguration();
+		String[] names = this.beanFactory.getBeanNamesForType(StringBuffer.class);
+		names[0] = "modified";
+		assertNames(StringBuffer.class, "first");
+		this.beanFactory.getBeanNamesForType(StringBuffer.class)[0] = "modified";
+		assertNames(StringBuffer.class, "first");
+	}
+
+	@Test
+	public void registrationAfterLookup() {
+		this.beanFactory.freezeConfiguration();
+		assertNames(StringBuffer.class, "first");
+		this.beanFactory.registerBeanDefinition("second", new RootBeanDefinition(StringBuffer.class));
+		assertNames(StringBuffer.class, "first", "second");
+		this.beanFactory.registerBeanDefinition("first", new RootBeanDefinition(Object.class));
+		assertNames(StringBuffer.class, "second");
+		this.beanFactory.removeBeanDefinition("second");
+		assertNames(StringBuffer.class);
+	}
+
+	@Test
+	public void singletonRegistrationAfterLookup() {
+		this.beanFactory.freezeConfiguration();
+		assertNames(StringBuffer.class, "first");
+		this.beanFactory.registerSingleton("manual", new StringBuffer());
+		assertNames(StringBuffer.class, "first", "manual");
+	}
+
+	@Test
+	public void aliasChangesDropCachedLookups() {
+		this.beanFactory.freezeConfiguration();
+		assertNames(StringBuffer.class, "first");
+		this.beanFactory.registerAlias("first", "alias");
+		assertNames(StringBuffer.class, "first");
+		assertEquals(2, this.beanFactory.getTypeLookupCacheMissCount());
+		this.beanFactory.removeAlias("alias");
+		assertNames(StringBuffer.class, "first");
+		assertEquals(3, this.beanFactory.getTypeLookupCacheMissCount());
+		assertEquals(0, this.beanFactory.getTypeLookupCacheHitCount());
+	}
+
+	@Test
+	public void nonEagerLookupSeesCreatedFactoryBean() {
+		this.beanFactory.registerBeanDefinition("factory", new RootBeanDefinition(StringFactoryBean.class));
+		this.beanFactory.freezeConfiguration();
+		assertEquals(0, this.beanFactory.getBeanNamesForType(String.class, true, false).length);
+		assertEquals(0, this.beanFactory.getBeanNamesForType(String.class, true, false).length);
+		this.beanFactory.getBean("&factory");
+		assertEquals(Arrays.asList(new String[] {"factory"}),
+				Arrays.asList(this.beanFactory.getBeanNamesForType(String.class, true, false)));
+	}
+
+	@Test
+	public void freezingAgainDropsCachedLookups() {
+		this.beanFactory.freezeConfiguration();
+		assertNames(StringBuffer.class, "first");
+		this.beanFactory.freezeConfiguration();
+		assertNames(StringBuffer.class, "first");
+		assertEquals(2, this.beanFactory.getTypeLookupCacheMissCount());
+	}
+
+
+	private void assertNames(Class type, String... expectedNames) {
+		assertEquals(Arrays.asList(expectedNames), Arrays.asList(this.beanFactory.getBeanNamesForType(type)));
+	}
+
+
+	public static class StringFactoryBean implements FactoryBean {
+
+		public Object getObject() {
+			return "value";
+		}
+
+		public Class getObjectType() {
+			return String.class;
+		}
+
+		public boolean isSingleton() {
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.xml;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import javax.xml.validation.Schema;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.xml.XmlValidationModeDetector;
+
+/**
+ * Tests for the Schema cache of {@link SchemaCachingDocumentLoader}.
+ *
+ * @author agent
+ * @since 2.5.6
+ */
+public class SchemaCachingDocumentLoaderTests {
+
+	private static final String NAMESPACE = "http://www.springframework.org/schema/test";
+
+	private static final String SCHEMA_LOCATION = "http://www.springframework.org/schema/test/test.xsd";
+
+
+	@Test
+	public void validatesAndAppliesDefaults() throws Exception {
+		CountingDocumentLoader loader = new CountingDocumentLoader();
+		Document doc = load(loader, new TestEntityResolver(), "name=\"a\"");
+		assertEquals("default", doc.getDocumentElement().getAttribute("mode"));
+		try {
+			load(loader, new TestEntityResolver(), "mode=\"x\"");
+			fail("Should have thrown SAXException");
+		}
+		catch (SAXException ex) {
+			// expected: missing required attribute
+		}
+	}
+
+	@Test
+	public void schemaReusedForSameEntityResolver() throws Exception {
+		CountingDocumentLoader loader = new CountingDocumentLoader();
+		EntityResolver resolver = new TestEntityResolver();
+		load(loader, resolver, "name=\"a\"");
+		load(loader, resolver, "name=\"b\"");
+		load(loader, resolver, "name=\"c\"");
+		assertEquals(1, loader.compileCount);
+	}
+
+	@Test
+	public void schemaNotSharedAcrossEntityResolvers() throws Exception {
+		CountingDocumentLoader loader = new CountingDocumentLoader();
+		load(loader, new TestEntityResolver(), "name=\"a\"");
+		load(loader, new TestEntityResolver(), "name=\"b\"");
+		assertEquals(2, loader.compileCount);
+	}
+
+	@Test
+	public void schemaNotSharedAcrossLoaders() throws Exception {
+		EntityResolver resolver = new TestEntityResolver();
+		CountingDocumentLoader loader1 = new CountingDocumentLoader();
+		CountingDocumentLoader loader2 = new CountingDocumentLoader();
+		load(loader1, resolver, "name=\"a\"");
+		load(loader2, resolver, "name=\"b\"");
+		assertEquals(1, loader1.compileCount);
+		assertEquals(1, loader2.compileCount);
+	}
+
+	@Test
+	public void cacheLimitEvictsLeastRecentlyUsed() throws Exception {
+		CountingDocumentLoader loader = new CountingDocumentLoader();
+		loader.setCacheLimit(1);
+		EntityResolver resolver1 = new TestEntityResolver();
+		EntityResolver resolver2 = new TestEntityResolver();
+		load(loader, resolver1, "name=\"a\"");
+		load(loader, resolver1, "name=\"a\"");
+		assertEquals(1, loader.compileCount);
+		load(loader, resolver2, "name=\"a\"");
+		load(loader, resolver1, "name=\"a\"");
+		assertEquals(3, loader.compileCount);
+	}
+
+	@Test
+	public void clearCache() throws Exception {
+		CountingDocumentLoader loader = new CountingDocumentLoader();
+		EntityResolver resolver = new TestEntityResolver();
+		load(loader, resolver, "name=\"a\"");
+		loader.clearCache();
+		load(loader, resolver, "name=\"a\"");
+		assertEquals(2, loader.compileCount);
+	}
+
+
+	private Document load(SchemaCachingDocumentLoader loader, EntityResolver resolver, String attributes)
+			throws Exception {
+
+		String xml = "<t:root xmlns:t=\"" + NAMESPACE + "\"" +
+				" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"" +
+				" xsi:schemaLocation=\"" + NAMESPACE + " " + SCHEMA_LOCATION + "\" " + attributes + "/>";
+		InputSource inputSource = new InputSource(new StringReader(xml));
+		inputSource.setSystemId("test.xml");
+		return loader.loadDocument(inputSource, resolver, null, XmlValidationModeDetector.VALIDATION_XSD, true);
+	}
+
+
+	private static class CountingDocumentLoader extends SchemaCachingDocumentLoader {
+
+		private int compileCount;
+
+		protected Schema compileSchema(Map schemaLocations, EntityResolver entityResolver) throws Exception {
+			this.compileCount++;
+			return super.compileSchema(schemaLocations, entityResolver);
+		}
+	}
+
+
+	private static class TestEntityResolver implements EntityResolver {
+
+		public InputSource resolveEntity(String publicId, String systemId) throws IOException {
+			if (SCHEMA_LOCATION.equals(systemId)) {
+				ClassPathResource resource = new ClassPathResource("schemaCachingTests.xsd", getClass());
+				InputSource inputSource = new InputSource(resource.getInputStream());
+				inputSource.setSystemId(systemId);
+				return inputSource;
+			}
+			return null;
+		}
+	}
+
+}
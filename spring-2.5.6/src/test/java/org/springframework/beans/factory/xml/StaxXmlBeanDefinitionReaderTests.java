@@ -0,0 +1,111 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.xml;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.junit.Test;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * Compares the streaming parse of bean definition files with the DOM-based parse.
+ *
+ * @author agent
+ * @since 2.5.6
+ */
+public class StaxXmlBeanDefinitionReaderTests {
+
+	@Test
+	public void dtdDefaultsMatchDomParse() {
+		Resource resource = new ClassPathResource("staxDtdMergeTests.xml", getClass());
+		DefaultListableBeanFactory dom = new DefaultListableBeanFactory();
+		new XmlBeanDefinitionReader(dom).loadBeanDefinitions(resource);
+		DefaultListableBeanFactory stax = new DefaultListableBeanFactory();
+		new StaxXmlBeanDefinitionReader(stax).loadBeanDefinitions(resource);
+
+		assertEquals(Arrays.asList(dom.getBeanDefinitionNames()), Arrays.asList(stax.getBeanDefinitionNames()));
+		String[] names = dom.getBeanDefinitionNames();
+		for (int i = 0; i < names.length; i++) {
+			assertEquals(names[i], dom.getMergedBeanDefinition(names[i]), stax.getMergedBeanDefinition(names[i]));
+		}
+
+		CollectionHolder child = (CollectionHolder) stax.getBean("child");
+		assertEquals(Arrays.asList(new String[] {"parentList", "childList"}), child.getList());
+		assertEquals(new HashSet(Arrays.asList(new String[] {"parentSet", "childSet"})), child.getSet());
+		assertEquals("parentMap", child.getMap().get("parent"));
+		assertEquals("childMap", child.getMap().get("child"));
+		assertEquals("parentProps", child.getProps().getProperty("parent"));
+		assertEquals("childProps", child.getProps().getProperty("child"));
+		CollectionHolder notMerging = (CollectionHolder) stax.getBean("notMerging");
+		assertEquals(Arrays.asList(new String[] {"childList"}), notMerging.getList());
+	}
+
+
+	public static class CollectionHolder {
+
+		private List list;
+
+		private Set set;
+
+		private Map map;
+
+		private Properties props;
+
+		public List getList() {
+			return this.list;
+		}
+
+		public void setList(List list) {
+			this.list = list;
+		}
+
+		public Set getSet() {
+			return this.set;
+		}
+
+		public void setSet(Set set) {
+			this.set = set;
+		}
+
+		public Map getMap() {
+			return this.map;
+		}
+
+		public void setMap(Map map) {
+			this.map = map;
+		}
+
+		public Properties getProps() {
+			return this.props;
+		}
+
+		public void setProps(Properties props) {
+			this.props = props;
+		}
+	}
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.xml;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+/**
+ * @author agent
+ * @since 2.5.6
+ */
+public class XmlBeanDefinitionReaderSnapshotTests {
+
+	private static final String CONTEXT_NAMESPACE = "http://www.springframework.org/schema/context";
+
+	private final Resource resource = new ClassPathResource("snapshotTests.xml", getClass());
+
+	private File snapshotDirectory;
+
+
+	@Before
+	public void setUp() throws Exception {
+		this.snapshotDirectory = File.createTempFile("snapshots", "");
+		this.snapshotDirectory.delete();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = this.snapshotDirectory.listFiles();
+		for (int i = 0; files != null && i < files.length; i++) {
+			files[i].delete();
+		}
+		this.snapshotDirectory.delete();
+	}
+
+	@Test
+	public void snapshotIsWrittenCompletelyAndReplayed() {
+		DefaultListableBeanFactory parsed = load();
+		String[] files = this.snapshotDirectory.list();
+		assertEquals(1, files.length);
+		assertTrue(files[0].endsWith(".snapshot"));
+
+		DefaultListableBeanFactory replayed = load();
+		assertEquals(Arrays.asList(parsed.getBeanDefinitionNames()), Arrays.asList(replayed.getBeanDefinitionNames()));
+		assertEquals(parsed.getBeanDefinition("first"), replayed.getBeanDefinition("first"));
+		assertEquals(parsed.getBeanDefinition("second"), replayed.getBeanDefinition("second"));
+		assertEquals("first", replayed.getBean("firstAlias").toString());
+		assertEquals(1, this.snapshotDirectory.list().length);
+	}
+
+	@Test
+	public void existingSnapshotIsReplacedCompletely() {
+		load();
+		File snapshotFile = this.snapshotDirectory.listFiles()[0];
+		assertTrue(snapshotFile.setLastModified(0));
+		// Touching the resource makes the snapshot outdated and triggers a rewrite.
+		File resourceFile = getResourceFile();
+		long lastModified = resourceFile.lastModified();
+		assertTrue(resourceFile.setLastModified(lastModified + 2000));
+		try {
+			load();
+		}
+		finally {
+			resourceFile.setLastModified(lastModified);
+		}
+		String[] files = this.snapshotDirectory.list();
+		assertEquals(1, files.length);
+		assertEquals(snapshotFile.getName(), files[0]);
+		assertTrue(snapshotFile.lastModified() > 0);
+	}
+
+	@Test
+	public void patternImportIsNotRecorded() {
+		Resource resource = new ClassPathResource("snapshotPatternImportTests.xml", getClass());
+		assertEquals(2, load(resource).getBeanDefinitionCount());
+		assertFalse(this.snapshotDirectory.exists());
+		assertEquals(2, load(resource).getBeanDefinitionCount());
+	}
+
+	@Test
+	public void componentScanIsNotRecorded() {
+		Resource resource = new ClassPathResource("snapshotComponentScanTests.xml", getClass());
+		final List<String> scannedElements = new ArrayList<String>();
+		// Stands in for the context namespace handler, recording the elements passed in.
+		final NamespaceHandler contextHandler = new NamespaceHandler() {
+			public void init() {
+			}
+			public BeanDefinition parse(Element element, ParserContext parserContext) {
+				scannedElements.add(element.getLocalName());
+				return null;
+			}
+			public BeanDefinitionHolder decorate(Node source, BeanDefinitionHolder definition, ParserContext parserContext) {
+				return definition;
+			}
+		};
+		NamespaceHandlerResolver resolver = new NamespaceHandlerResolver() {
+			public NamespaceHandler resolve(String namespaceUri) {
+				return (CONTEXT_NAMESPACE.equals(namespaceUri) ? contextHandler : null);
+			}
+		};
+		assertTrue(load(resource, resolver).containsBeanDefinition("first"));
+		assertEquals(Collections.singletonList("component-scan"), scannedElements);
+		assertFalse(this.snapshotDirectory.exists());
+	}
+
+
+	private DefaultListableBeanFactory load() {
+		DefaultListableBeanFactory bf = load(this.resource);
+		assertEquals(2, bf.getBeanDefinitionCount());
+		return bf;
+	}
+
+	private DefaultListableBeanFactory load(Resource resource) {
+		return load(resource, null);
+	}
+
+	private DefaultListableBeanFactory load(Resource resource, NamespaceHandlerResolver namespaceHandlerResolver) {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(bf);
+		reader.setSnapshotDirectory(this.snapshotDirectory);
+		if (namespaceHandlerResolver != null) {
+			reader.setNamespaceHandlerResolver(namespaceHandlerResolver);
+		}
+		reader.loadBeanDefinitions(resource);
+		return bf;
+	}
+
+	private File getResourceFile() {
+		try {
+			return this.resource.getFile();
+		}
+		catch (Exception ex) {
+			throw new IllegalStateException(ex.toString());
+		}
+	}
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Round-trip tests for {@link CandidateComponentIndexer} and the index
+ * support in {@link ClassPathScanningCandidateComponentProvider}.
+ *
+ * @author agent
+ * @since 2.5.6
+ */
+public class CandidateComponentIndexerTests {
+
+	private static final String BASE_PACKAGE = CandidateComponentIndexerTests.class.getPackage().getName();
+
+	private static final String PACKAGE_PATH = ClassUtils.convertClassNameToResourcePath(BASE_PACKAGE) + "/";
+
+	private File classesDirectory;
+
+
+	@Before
+	public void setUp() throws IOException {
+		this.classesDirectory = File.createTempFile("classes", "");
+		assertTrue(this.classesDirectory.delete());
+		assertTrue(this.classesDirectory.mkdir());
+		copyClassFile(IndexedService.class);
+		copyClassFile(IndexedComponent.class);
+		copyClassFile(PlainClass.class);
+	}
+
+	@After
+	public void tearDown() {
+		deleteRecursively(this.classesDirectory);
+	}
+
+
+	@Test
+	public void indexListsStereotypedClasses() throws IOException {
+		Map<String, String> index = new CandidateComponentIndexer(this.classesDirectory).buildIndex();
+		assertEquals(2, index.size());
+		assertEquals(Service.class.getName(), index.get(IndexedService.class.getName()));
+		assertEquals(Component.class.getName(), index.get(IndexedComponent.class.getName()));
+	}
+
+	@Test
+	public void scanUsesWrittenIndex() throws IOException {
+		new CandidateComponentIndexer(this.classesDirectory).writeIndex();
+		// Not in the index: only to be found when actually scanning.
+		copyClassFile(UnindexedComponent.class);
+
+		assertEquals(setOf(IndexedService.class, IndexedComponent.class), findCandidateComponents(true));
+		assertEquals(setOf(IndexedService.class, IndexedComponent.class, UnindexedComponent.class),
+				findCandidateComponents(false));
+	}
+
+	@Test
+	public void scanSkipsIndexedClassesWithoutClassFile() throws IOException {
+		File indexFile = new CandidateComponentIndexer(this.classesDirectory).writeIndex();
+		Writer writer = new FileWriter(indexFile, true);
+		try {
+			writer.write(BASE_PACKAGE + ".RemovedComponent=" + Component.class.getName() + "\n");
+		}
+		finally {
+			writer.close();
+		}
+		assertTrue(new File(this.classesDirectory,
+				PACKAGE_PATH + ClassUtils.getClassFileName(IndexedComponent.class)).delete());
+
+		assertEquals(setOf(IndexedService.class), findCandidateComponents(true));
+	}
+
+
+	private Set<String> findCandidateComponents(boolean useComponentIndex) throws IOException {
+		ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(true);
+		provider.setResourceLoader(new DefaultResourceLoader(new URLClassLoader(
+				new URL[] {this.classesDirectory.toURI().toURL()}, new PackageHidingClassLoader())));
+		provider.setUseComponentIndex(useComponentIndex);
+		Set<String> classNames = new TreeSet<String>();
+		for (BeanDefinition bd : provider.findCandidateComponents(BASE_PACKAGE)) {
+			classNames.add(bd.getBeanClassName());
+		}
+		return classNames;
+	}
+
+	private Set<String> setOf(Class... classes) {
+		Set<String> classNames = new TreeSet<String>();
+		for (Class clazz : classes) {
+			classNames.add(clazz.getName());
+		}
+		return classNames;
+	}
+
+	private void copyClassFile(Class clazz) throws IOException {
+		String classFileName = ClassUtils.getClassFileName(clazz);
+		File target = new File(this.classesDirectory, PACKAGE_PATH + classFileName);
+		target.getParentFile().mkdirs();
+		InputStream in = clazz.getResourceAsStream(classFileName);
+		assertNotNull("Class file not found for " + clazz, in);
+		OutputStream out = new FileOutputStream(target);
+		FileCopyUtils.copy(in, out);
+	}
+
+	private void deleteRecursively(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (int i = 0; i < files.length; i++) {
+				deleteRecursively(files[i]);
+			}
+		}
+		file.delete();
+	}
+
+
+	/**
+	 * Hides the test package on the regular class path, so that only
+	 * the copied class files in the temporary directory get found.
+	 */
+	private static class PackageHidingClassLoader extends ClassLoader {
+
+		public PackageHidingClassLoader() {
+			super(CandidateComponentIndexerTests.class.getClassLoader());
+		}
+
+		@Override
+		public URL getResource(String name) {
+			return (name.startsWith(PACKAGE_PATH) ? null : super.getResource(name));
+		}
+
+		@Override
+		public Enumeration<URL> getResources(String name) throws IOException {
+			if (name.startsWith(PACKAGE_PATH)) {
+				return Collections.enumeration(Collections.<URL>emptyList());
+			}
+			return super.getResources(name);
+		}
+	}
+
+
+	@Service
+	public static class IndexedService {
+	}
+
+
+	@Component
+	public static class IndexedComponent {
+	}
+
+
+	public static class PlainClass {
+	}
+
+
+	@Component
+	public static class UnindexedComponent {
+	}
+
+}
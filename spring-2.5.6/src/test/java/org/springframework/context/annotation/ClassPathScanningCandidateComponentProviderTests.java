@@ -0,0 +1,99 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.filter.TypeFilter;
+
+/**
+ * @author agent
+ * @since 2.5.6
+ */
+public class ClassPathScanningCandidateComponentProviderTests {
+
+	private static final String BASE_PACKAGE = "org.springframework.beans.factory";
+
+
+	@Test
+	public void parallelScanPreservesSequentialOrder() {
+		ClassPathScanningCandidateComponentProvider provider = createProvider(new AcceptAllFilter());
+		List sequential = getBeanClassNames(provider.findCandidateComponents(BASE_PACKAGE));
+		assertTrue("Need more than one batch of candidates", sequential.size() > 64);
+
+		provider = createProvider(new AcceptAllFilter());
+		provider.setTaskExecutor(new SimpleAsyncTaskExecutor());
+		assertEquals(sequential, getBeanClassNames(provider.findCandidateComponents(BASE_PACKAGE)));
+	}
+
+	@Test
+	public void parallelScanPropagatesFilterFailure() {
+		ClassPathScanningCandidateComponentProvider provider = createProvider(new TypeFilter() {
+			public boolean match(MetadataReader metadataReader, MetadataReaderFactory metadataReaderFactory) {
+				if (metadataReader.getClassMetadata().getClassName().endsWith(".DefaultListableBeanFactory")) {
+					throw new IllegalStateException("filter failed");
+				}
+				return true;
+			}
+		});
+		provider.setTaskExecutor(new SimpleAsyncTaskExecutor());
+		try {
+			provider.findCandidateComponents(BASE_PACKAGE);
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			assertEquals("filter failed", ex.getMessage());
+		}
+	}
+
+
+	private ClassPathScanningCandidateComponentProvider createProvider(TypeFilter includeFilter) {
+		ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(false);
+		provider.setUseComponentIndex(false);
+		provider.addIncludeFilter(includeFilter);
+		return provider;
+	}
+
+	private List getBeanClassNames(Iterable candidates) {
+		List classNames = new ArrayList();
+		for (Iterator it = candidates.iterator(); it.hasNext();) {
+			classNames.add(((BeanDefinition) it.next()).getBeanClassName());
+		}
+		return classNames;
+	}
+
+
+	private static class AcceptAllFilter implements TypeFilter {
+
+		public boolean match(MetadataReader metadataReader, MetadataReaderFactory metadataReaderFactory)
+				throws IOException {
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.support;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+/**
+ * @author agent
+ * @since 2.5.6
+ */
+public class AbstractApplicationContextTests {
+
+	@Test
+	public void jarEntryCachingOnlyDuringRefresh() {
+		PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+		GenericApplicationContext context = createContext(resolver);
+		assertFalse(resolver.isCacheJarEntries());
+		CachingStateRecorder recorder = new CachingStateRecorder(resolver, false);
+		context.addBeanFactoryPostProcessor(recorder);
+		context.refresh();
+		assertTrue(recorder.cachingDuringRefresh);
+		assertFalse(resolver.isCacheJarEntries());
+		context.close();
+	}
+
+	@Test
+	public void jarEntryCachingSwitchedOffAfterFailedRefresh() {
+		PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+		GenericApplicationContext context = createContext(resolver);
+		CachingStateRecorder recorder = new CachingStateRecorder(resolver, true);
+		context.addBeanFactoryPostProcessor(recorder);
+		try {
+			context.refresh();
+			fail("Should have thrown BeanInitializationException");
+		}
+		catch (BeanInitializationException ex) {
+			// expected
+		}
+		assertTrue(recorder.cachingDuringRefresh);
+		assertFalse(resolver.isCacheJarEntries());
+	}
+
+	@Test
+	public void jarEntryCachingSwitchedOnByUserRemainsOn() {
+		PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+		resolver.setCacheJarEntries(true);
+		GenericApplicationContext context = createContext(resolver);
+		context.refresh();
+		assertTrue(resolver.isCacheJarEntries());
+		context.close();
+	}
+
+
+	private static GenericApplicationContext createContext(final ResourcePatternResolver resolver) {
+		return new GenericApplicationContext() {
+			protected ResourcePatternResolver getResourcePatternResolver() {
+				return resolver;
+			}
+		};
+	}
+
+
+	private static class CachingStateRecorder implements BeanFactoryPostProcessor {
+
+		private final PathMatchingResourcePatternResolver resolver;
+
+		private final boolean fail;
+
+		public boolean cachingDuringRefresh;
+
+		public CachingStateRecorder(PathMatchingResourcePatternResolver resolver, boolean fail) {
+			this.resolver = resolver;
+			this.fail = fail;
+		}
+
+		public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+			this.cachingDuringRefresh = this.resolver.isCacheJarEntries();
+			if (this.fail) {
+				throw new BeanInitializationException("Failing on purpose");
+			}
+		}
+	}
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.springframework.util.StringValueResolver;
+
+/**
+ * @author agent
+ * @since 2.5.6
+ */
+public class SimpleAliasRegistryTests {
+
+	private final SimpleAliasRegistry registry = new SimpleAliasRegistry();
+
+
+	@Test
+	public void aliasChainResolvesToCanonicalName() {
+		this.registry.registerAlias("test", "alias1");
+		this.registry.registerAlias("alias1", "alias2");
+		this.registry.registerAlias("alias2", "alias3");
+		assertEquals("test", this.registry.canonicalName("alias1"));
+		assertEquals("test", this.registry.canonicalName("alias2"));
+		assertEquals("test", this.registry.canonicalName("alias3"));
+		assertEquals("test", this.registry.canonicalName("test"));
+		assertEquals("other", this.registry.canonicalName("other"));
+	}
+
+	@Test
+	public void aliasRegisteredBeforeItsTargetIsUpdated() {
+		this.registry.registerAlias("alias1", "alias2");
+		assertEquals("alias1", this.registry.canonicalName("alias2"));
+		this.registry.registerAlias("test", "alias1");
+		assertEquals("test", this.registry.canonicalName("alias2"));
+	}
+
+	@Test
+	public void removingAliasInChainUpdatesChainedAliases() {
+		this.registry.registerAlias("test", "alias1");
+		this.registry.registerAlias("alias1", "alias2");
+		this.registry.registerAlias("alias2", "alias3");
+		this.registry.removeAlias("alias1");
+		assertEquals("alias1", this.registry.canonicalName("alias1"));
+		assertEquals("alias1", this.registry.canonicalName("alias2"));
+		assertEquals("alias1", this.registry.canonicalName("alias3"));
+		assertFalse(this.registry.isAlias("alias1"));
+	}
+
+	@Test
+	public void overridingAliasUpdatesChainedAliases() {
+		this.registry.registerAlias("test", "alias1");
+		this.registry.registerAlias("alias1", "alias2");
+		this.registry.registerAlias("other", "alias1");
+		assertEquals("other", this.registry.canonicalName("alias1"));
+		assertEquals("other", this.registry.canonicalName("alias2"));
+		assertEquals(0, this.registry.getAliases("test").length);
+	}
+
+	@Test
+	public void aliasEqualToNameRemovesAlias() {
+		this.registry.registerAlias("test", "alias1");
+		this.registry.registerAlias("alias1", "alias2");
+		this.registry.registerAlias("alias1", "alias1");
+		assertFalse(this.registry.isAlias("alias1"));
+		assertEquals("alias1", this.registry.canonicalName("alias2"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void circularAliasIsRejected() {
+		this.registry.registerAlias("test", "alias1");
+		this.registry.registerAlias("alias1", "alias2");
+		this.registry.registerAlias("alias2", "test");
+	}
+
+	@Test
+	public void circularAliasThroughIntermediateAliasIsRejected() {
+		this.registry.registerAlias("test", "alias1");
+		this.registry.registerAlias("alias1", "alias2");
+		try {
+			this.registry.registerAlias("alias2", "alias1");
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+		assertEquals("test", this.registry.canonicalName("alias1"));
+		assertEquals("test", this.registry.canonicalName("alias2"));
+	}
+
+	@Test
+	public void resolvedAliasesAreUpdated() {
+		this.registry.registerAlias("${name}", "alias1");
+		this.registry.registerAlias("alias1", "${alias}");
+		this.registry.resolveAliases(new StringValueResolver() {
+			public String resolveStringValue(String strVal) {
+				return strVal.replaceAll("\\$\\{name\\}", "test").replaceAll("\\$\\{alias\\}", "alias2");
+			}
+		});
+		assertEquals("test", this.registry.canonicalName("alias1"));
+		assertEquals("test", this.registry.canonicalName("alias2"));
+		assertFalse(this.registry.isAlias("${alias}"));
+		assertEquals("${alias}", this.registry.canonicalName("${alias}"));
+	}
+
+	@Test
+	public void randomChangesMatchFullResolution() {
+		Random random = new Random(42);
+		Map aliases = new HashMap();
+		for (int i = 0; i < 5000; i++) {
+			String name = "bean" + random.nextInt(30);
+			String alias = "bean" + random.nextInt(30);
+			if (random.nextInt(4) == 0) {
+				if (aliases.containsKey(alias)) {
+					this.registry.removeAlias(alias);
+					aliases.remove(alias);
+				}
+			}
+			else if (alias.equals(name)) {
+				this.registry.registerAlias(name, alias);
+				aliases.remove(alias);
+			}
+			else if (isChained(aliases, name, alias)) {
+				try {
+					this.registry.registerAlias(name, alias);
+					fail("Should have thrown IllegalStateException");
+				}
+				catch (IllegalStateException ex) {
+					// expected
+				}
+			}
+			else {
+				this.registry.registerAlias(name, alias);
+				aliases.put(alias, name);
+			}
+			for (int j = 0; j < 30; j++) {
+				String candidate = "bean" + j;
+				assertEquals(resolve(aliases, candidate), this.registry.canonicalName(candidate));
+				assertEquals(aliases.containsKey(candidate), this.registry.isAlias(candidate));
+			}
+		}
+	}
+
+	private static boolean isChained(Map aliases, String name, String alias) {
+		String registeredName = name;
+		while ((registeredName = (String) aliases.get(registeredName)) != null) {
+			if (registeredName.equals(alias)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String resolve(Map aliases, String name) {
+		String canonicalName = name;
+		String resolvedName;
+		while ((resolvedName = (String) aliases.get(canonicalName)) != null) {
+			canonicalName = resolvedName;
+		}
+		return canonicalName;
+	}
+
+}
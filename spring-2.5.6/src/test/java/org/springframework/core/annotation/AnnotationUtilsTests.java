@@ -0,0 +1,227 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.util.ClassUtils;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Tests for the lookup cache of {@link AnnotationUtils}.
+ *
+ * @author agent
+ * @since 2.5.6
+ */
+public class AnnotationUtilsTests {
+
+	@After
+	public void clearCache() {
+		AnnotationUtils.clearCache();
+	}
+
+
+	@Test
+	public void findAnnotationOnClassHierarchy() {
+		for (int i = 0; i < 2; i++) {
+			assertEquals("interface", AnnotationUtils.findAnnotation(Annotated.class, Marker.class).value());
+			assertEquals("interface", AnnotationUtils.findAnnotation(SubAnnotated.class, Marker.class).value());
+			assertEquals("local", AnnotationUtils.findAnnotation(LocallyAnnotated.class, Marker.class).value());
+			assertSame(AnnotationUtils.findAnnotation(Annotated.class, Marker.class),
+					AnnotationUtils.findAnnotation(SubAnnotated.class, Marker.class));
+		}
+	}
+
+	@Test
+	public void findAnnotationOnMethodHierarchy() throws Exception {
+		Method method = SubAnnotated.class.getMethod("handle");
+		for (int i = 0; i < 2; i++) {
+			assertEquals("method", AnnotationUtils.findAnnotation(method, Marker.class).value());
+			assertNull(AnnotationUtils.findAnnotation(method, Unused.class));
+		}
+	}
+
+	@Test
+	public void findAnnotationCachesNegativeResults() {
+		for (int i = 0; i < 2; i++) {
+			assertNull(AnnotationUtils.findAnnotation(Unannotated.class, Marker.class));
+			assertNull(AnnotationUtils.findAnnotation(SubAnnotated.class, Unused.class));
+		}
+		// A negative result for one annotation type must not affect others.
+		assertNotNull(AnnotationUtils.findAnnotation(SubAnnotated.class, Marker.class));
+	}
+
+	@Test
+	public void clearCacheKeepsResultsIntact() {
+		Marker marker = AnnotationUtils.findAnnotation(SubAnnotated.class, Marker.class);
+		AnnotationUtils.clearCache();
+		assertEquals(marker, AnnotationUtils.findAnnotation(SubAnnotated.class, Marker.class));
+		assertNull(AnnotationUtils.findAnnotation(Unannotated.class, Marker.class));
+	}
+
+	@Test
+	public void lookupsForNonCacheSafeClassSurviveGarbageCollection() throws Exception {
+		ClassLoader classLoader = new ChildFirstClassLoader(getClass().getClassLoader(), SubAnnotated.class.getName());
+		Class<?> clazz = classLoader.loadClass(SubAnnotated.class.getName());
+		assertEquals("interface", AnnotationUtils.findAnnotation(clazz, Marker.class).value());
+		WeakReference<Map<?, ?>> lookupsRef = new WeakReference<Map<?, ?>>(getLookupCache(clazz));
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		assertNotNull("Lookup results discarded on garbage collection", lookupsRef.get());
+		assertSame(lookupsRef.get(), getLookupCache(clazz));
+	}
+
+	@Test
+	public void classLoaderIsCollectedAfterLookups() throws Exception {
+		WeakReference<ClassLoader> classLoaderRef = lookUpInChildClassLoader();
+		exhaustMemory();
+		for (int i = 0; i < 50 && classLoaderRef.get() != null; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		assertNull("ClassLoader still reachable from annotation lookup cache", classLoaderRef.get());
+	}
+
+	private WeakReference<ClassLoader> lookUpInChildClassLoader() throws Exception {
+		ClassLoader classLoader = new ChildFirstClassLoader(getClass().getClassLoader(), SubAnnotated.class.getName());
+		Class<?> clazz = classLoader.loadClass(SubAnnotated.class.getName());
+		assertNotSame(SubAnnotated.class, clazz);
+		assertEquals("interface", AnnotationUtils.findAnnotation(clazz, Marker.class).value());
+		assertNull(AnnotationUtils.findAnnotation(clazz, Unused.class));
+		assertEquals("method", AnnotationUtils.findAnnotation(clazz.getMethod("handle"), Marker.class).value());
+		return new WeakReference<ClassLoader>(classLoader);
+	}
+
+	private Map<?, ?> getLookupCache(Class<?> clazz) {
+		Method method = ReflectionUtils.findMethod(AnnotationUtils.class, "getLookupCache",
+				new Class[] {Class.class, Class.class});
+		ReflectionUtils.makeAccessible(method);
+		return (Map<?, ?>) ReflectionUtils.invokeMethod(method, null, new Object[] {clazz, null});
+	}
+
+	/**
+	 * Allocate memory until the JVM has to clear all soft references.
+	 */
+	private void exhaustMemory() {
+		List<byte[]> chunks = new LinkedList<byte[]>();
+		try {
+			while (true) {
+				chunks.add(new byte[4 * 1024 * 1024]);
+			}
+		}
+		catch (OutOfMemoryError ex) {
+			// Soft references are guaranteed to have been cleared at this point.
+			chunks.clear();
+		}
+	}
+
+
+	/**
+	 * Defines the given class itself instead of delegating to its parent.
+	 */
+	private static class ChildFirstClassLoader extends ClassLoader {
+
+		private final String className;
+
+		public ChildFirstClassLoader(ClassLoader parent, String className) {
+			super(parent);
+			this.className = className;
+		}
+
+		@Override
+		protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (!name.equals(this.className)) {
+				return super.loadClass(name, resolve);
+			}
+			Class<?> clazz = findLoadedClass(name);
+			if (clazz == null) {
+				try {
+					byte[] bytes = FileCopyUtils.copyToByteArray(getParent().getResourceAsStream(
+							ClassUtils.convertClassNameToResourcePath(name) + ClassUtils.CLASS_FILE_SUFFIX));
+					clazz = defineClass(name, bytes, 0, bytes.length);
+				}
+				catch (IOException ex) {
+					throw new ClassNotFoundException(name, ex);
+				}
+			}
+			if (resolve) {
+				resolveClass(clazz);
+			}
+			return clazz;
+		}
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	public @interface Marker {
+
+		String value();
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	public @interface Unused {
+	}
+
+
+	@Marker("interface")
+	public interface AnnotatedInterface {
+
+		void handle();
+	}
+
+
+	public static class Annotated implements AnnotatedInterface {
+
+		@Marker("method")
+		public void handle() {
+		}
+	}
+
+
+	public static class SubAnnotated extends Annotated {
+
+		@Override
+		public void handle() {
+		}
+	}
+
+
+	@Marker("local")
+	public static class LocallyAnnotated extends Annotated {
+	}
+
+
+	public static class Unannotated {
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.support;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 2.5.6
+ */
+public class JarEntryIndexTests {
+
+	private static final String[] ENTRY_NAMES = new String[] {"META-INF/MANIFEST.MF", "org/example/Foo.class"};
+
+	private File directory;
+
+	private File jarFile;
+
+	private String jarFileUrl;
+
+
+	@Before
+	public void setUp() throws IOException {
+		this.directory = File.createTempFile("jarEntryIndex", "");
+		assertTrue(this.directory.delete());
+		assertTrue(this.directory.mkdir());
+		this.jarFile = new File(this.directory, "test.jar");
+		assertTrue(this.jarFile.createNewFile());
+		this.jarFileUrl = this.jarFile.toURI().toString();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = this.directory.listFiles();
+		for (int i = 0; files != null && i < files.length; i++) {
+			files[i].delete();
+		}
+		this.directory.delete();
+	}
+
+
+	@Test
+	public void storedIndexIsReadBack() {
+		File indexFile = new File(this.directory, "jars.idx");
+		JarEntryIndex index = new JarEntryIndex(indexFile);
+		index.putEntryNames(this.jarFileUrl, ENTRY_NAMES);
+		index.clear();
+		assertTrue(indexFile.isFile());
+		assertEquals(Arrays.asList(new String[] {"jars.idx", "test.jar"}), Arrays.asList(sortedNames()));
+
+		assertEquals(Arrays.asList(ENTRY_NAMES), Arrays.asList(new JarEntryIndex(indexFile).getEntryNames(this.jarFileUrl)));
+	}
+
+	@Test
+	public void existingIndexIsReplaced() {
+		File indexFile = new File(this.directory, "jars.idx");
+		JarEntryIndex index = new JarEntryIndex(indexFile);
+		index.putEntryNames(this.jarFileUrl, new String[] {"old.txt"});
+		index.store();
+		index.putEntryNames(this.jarFileUrl, ENTRY_NAMES);
+		index.store();
+		assertEquals(Arrays.asList(new String[] {"jars.idx", "test.jar"}), Arrays.asList(sortedNames()));
+		assertEquals(Arrays.asList(ENTRY_NAMES), Arrays.asList(new JarEntryIndex(indexFile).getEntryNames(this.jarFileUrl)));
+	}
+
+	@Test
+	public void backupIsReadIfReplacementWasInterrupted() {
+		File indexFile = new File(this.directory, "jars.idx");
+		JarEntryIndex index = new JarEntryIndex(indexFile);
+		index.putEntryNames(this.jarFileUrl, ENTRY_NAMES);
+		index.store();
+		assertTrue(indexFile.renameTo(new File(this.directory, "jars.idx.bak")));
+		assertEquals(Arrays.asList(ENTRY_NAMES), Arrays.asList(new JarEntryIndex(indexFile).getEntryNames(this.jarFileUrl)));
+	}
+
+	@Test
+	public void failedStoreDoesNotBreakSubsequentClear() {
+		File indexDir = new File(this.directory, "indexDir");
+		File indexFile = new File(indexDir, "jars.idx");
+		JarEntryIndex index = new JarEntryIndex(indexFile);
+		index.putEntryNames(this.jarFileUrl, ENTRY_NAMES);
+		index.clear();
+		// Writable now, but nothing left to store.
+		assertTrue(indexDir.mkdir());
+		try {
+			index.clear();
+			index.store();
+		}
+		finally {
+			indexDir.delete();
+		}
+		assertFalse(indexFile.exists());
+		assertNull(index.getEntryNames(this.jarFileUrl));
+	}
+
+
+	private String[] sortedNames() {
+		String[] names = this.directory.list();
+		Arrays.sort(names);
+		return names;
+	}
+
+}
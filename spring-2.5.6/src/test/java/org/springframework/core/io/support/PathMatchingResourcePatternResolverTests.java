@@ -0,0 +1,100 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.support;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+/**
+ * Tests for searching several root directories in parallel
+ * through {@link PathMatchingResourcePatternResolver}.
+ *
+ * @author agent
+ * @since 2.5.6
+ */
+public class PathMatchingResourcePatternResolverTests {
+
+	private static final int ROOT_COUNT = 4;
+
+	private File directory;
+
+	private ClassLoader classLoader;
+
+
+	@Before
+	public void setUp() throws IOException {
+		this.directory = File.createTempFile("patternResolver", "");
+		assertTrue(this.directory.delete());
+		URL[] urls = new URL[ROOT_COUNT];
+		for (int i = 0; i < ROOT_COUNT; i++) {
+			File packageDir = new File(this.directory, "root" + i + "/org/example");
+			assertTrue(packageDir.mkdirs());
+			assertTrue(new File(packageDir, "file" + i + ".txt").createNewFile());
+			assertTrue(new File(packageDir, "other" + i + ".xml").createNewFile());
+			urls[i] = new File(this.directory, "root" + i).toURI().toURL();
+		}
+		this.classLoader = new URLClassLoader(urls, null);
+	}
+
+	@After
+	public void tearDown() {
+		delete(this.directory);
+	}
+
+
+	@Test
+	public void parallelSearchPreservesSequentialOrder() throws IOException {
+		PathMatchingResourcePatternResolver sequential = new PathMatchingResourcePatternResolver(this.classLoader);
+		PathMatchingResourcePatternResolver parallel = new PathMatchingResourcePatternResolver(this.classLoader);
+		parallel.setTaskExecutor(new SimpleAsyncTaskExecutor());
+
+		List expected = filenames(sequential.getResources("classpath*:org/example/*.txt"));
+		assertEquals(ROOT_COUNT, expected.size());
+		assertEquals(expected, filenames(parallel.getResources("classpath*:org/example/*.txt")));
+	}
+
+
+	private List filenames(Resource[] resources) {
+		List filenames = new ArrayList();
+		for (int i = 0; i < resources.length; i++) {
+			filenames.add(resources[i].getFilename());
+		}
+		return filenames;
+	}
+
+	private void delete(File file) {
+		File[] files = file.listFiles();
+		for (int i = 0; files != null && i < files.length; i++) {
+			delete(files[i]);
+		}
+		file.delete();
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.task.support;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+/**
+ * @author agent
+ * @since 2.5.6
+ */
+public class ParallelTaskRunnerTests {
+
+	@Test
+	public void resultsInIndexOrder() throws Exception {
+		ParallelTaskRunner runner = new ParallelTaskRunner(new SimpleAsyncTaskExecutor());
+		Object[] results = runner.run(5, new ParallelTaskRunner.IndexedTask() {
+			public Object run(int index) throws InterruptedException {
+				// Let later tasks complete first.
+				Thread.sleep((5 - index) * 10);
+				return new Integer(index);
+			}
+		});
+		assertEquals(Arrays.asList(new Object[] {0, 1, 2, 3, 4}), Arrays.asList(results));
+	}
+
+	@Test
+	public void rejectedTasksRunOnCallingThread() throws Exception {
+		final Thread callingThread = Thread.currentThread();
+		ParallelTaskRunner runner = new ParallelTaskRunner(new TaskExecutor() {
+			public void execute(Runnable task) {
+				throw new TaskRejectedException("rejected");
+			}
+		});
+		Object[] results = runner.run(3, new ParallelTaskRunner.IndexedTask() {
+			public Object run(int index) {
+				return Boolean.valueOf(Thread.currentThread() == callingThread);
+			}
+		});
+		assertEquals(Arrays.asList(new Object[] {Boolean.TRUE, Boolean.TRUE, Boolean.TRUE}), Arrays.asList(results));
+	}
+
+	@Test
+	public void failureOfLowestIndexRethrownAfterAllTasksCompleted() throws Exception {
+		final AtomicInteger completed = new AtomicInteger();
+		ParallelTaskRunner runner = new ParallelTaskRunner(new SimpleAsyncTaskExecutor());
+		try {
+			runner.run(4, new ParallelTaskRunner.IndexedTask() {
+				public Object run(int index) throws Exception {
+					try {
+						if (index == 1) {
+							Thread.sleep(50);
+							throw new IOException("task 1");
+						}
+						if (index == 3) {
+							throw new IllegalStateException("task 3");
+						}
+						Thread.sleep(100);
+						return null;
+					}
+					finally {
+						completed.incrementAndGet();
+					}
+				}
+			});
+			fail("Should have thrown IOException");
+		}
+		catch (IOException ex) {
+			assertEquals("task 1", ex.getMessage());
+		}
+		assertEquals(4, completed.get());
+	}
+
+}
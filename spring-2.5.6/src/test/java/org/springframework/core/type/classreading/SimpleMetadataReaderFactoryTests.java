@@ -0,0 +1,151 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import static org.junit.Assert.*;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.stereotype.Component;
+
+/**
+ * @author agent
+ * @since 2.5.6
+ */
+public class SimpleMetadataReaderFactoryTests {
+
+	@Test
+	public void annotationAttributesIncludeDefaultValues() throws Exception {
+		SimpleMetadataReaderFactory factory = new SimpleMetadataReaderFactory();
+		Map<String, Object> attributes = getAttributes(factory, ExplicitBean.class);
+		assertEquals("explicit", attributes.get("name"));
+		assertArrayEquals(new String[] {"a", "b"}, (String[]) attributes.get("tags"));
+		assertEquals(Integer.valueOf(5), attributes.get("order"));
+
+		attributes = getAttributes(factory, DefaultBean.class);
+		assertEquals("", attributes.get("name"));
+		assertArrayEquals(new String[] {"a", "b"}, (String[]) attributes.get("tags"));
+		assertEquals(Integer.valueOf(1), attributes.get("order"));
+	}
+
+	@Test
+	public void defaultValuesAreCachedPerAnnotationType() throws Exception {
+		SimpleMetadataReaderFactory factory = new SimpleMetadataReaderFactory();
+		Object tags = getAttributes(factory, DefaultBean.class).get("tags");
+		assertSame(tags, getAttributes(factory, DefaultBean.class).get("tags"));
+		assertSame(tags, getAttributes(factory, ExplicitBean.class).get("tags"));
+	}
+
+	@Test
+	public void clearCacheReleasesAnnotationTypeMetadata() throws Exception {
+		SimpleMetadataReaderFactory factory = new SimpleMetadataReaderFactory();
+		Object tags = getAttributes(factory, DefaultBean.class).get("tags");
+		factory.clearCache();
+		Object reloadedTags = getAttributes(factory, DefaultBean.class).get("tags");
+		assertNotSame(tags, reloadedTags);
+		assertArrayEquals((String[]) tags, (String[]) reloadedTags);
+	}
+
+	@Test
+	public void cachingFactoryClearsAnnotationTypeMetadata() throws Exception {
+		CachingMetadataReaderFactory factory = new CachingMetadataReaderFactory();
+		Object tags = getAttributes(factory, DefaultBean.class).get("tags");
+		factory.clearCache();
+		assertNotSame(tags, getAttributes(factory, DefaultBean.class).get("tags"));
+	}
+
+	@Test
+	public void metaAnnotationTypesAreDetected() throws Exception {
+		SimpleMetadataReaderFactory factory = new SimpleMetadataReaderFactory();
+		for (int i = 0; i < 2; i++) {
+			AnnotationMetadata metadata =
+					factory.getMetadataReader(StereotypeBean.class.getName()).getAnnotationMetadata();
+			assertTrue(metadata.hasMetaAnnotation(Component.class.getName()));
+		}
+	}
+
+	@Test
+	public void annotationTypeCacheEvictsLeastRecentlyUsedTypes() {
+		AnnotationTypeCache cache = new AnnotationTypeCache(2);
+		Set<String> metaAnnotationTypes = Collections.singleton("meta");
+		Map<String, Object> defaultAttributes = Collections.<String, Object>singletonMap("name", "");
+		cache.putMetaAnnotationTypes("a", metaAnnotationTypes);
+		cache.putMetaAnnotationTypes("b", metaAnnotationTypes);
+		cache.putDefaultAttributes("a", defaultAttributes);
+		cache.putDefaultAttributes("b", defaultAttributes);
+		assertSame(metaAnnotationTypes, cache.getMetaAnnotationTypes("a"));
+		assertSame(defaultAttributes, cache.getDefaultAttributes("a"));
+		cache.putMetaAnnotationTypes("c", metaAnnotationTypes);
+		cache.putDefaultAttributes("c", defaultAttributes);
+		assertNotNull(cache.getMetaAnnotationTypes("a"));
+		assertNull(cache.getMetaAnnotationTypes("b"));
+		assertNotNull(cache.getMetaAnnotationTypes("c"));
+		assertNotNull(cache.getDefaultAttributes("a"));
+		assertNull(cache.getDefaultAttributes("b"));
+		assertNotNull(cache.getDefaultAttributes("c"));
+
+		cache.clear();
+		assertNull(cache.getMetaAnnotationTypes("a"));
+		assertNull(cache.getDefaultAttributes("a"));
+	}
+
+
+	private static Map<String, Object> getAttributes(MetadataReaderFactory factory, Class beanClass) throws Exception {
+		AnnotationMetadata metadata = factory.getMetadataReader(beanClass.getName()).getAnnotationMetadata();
+		return metadata.getAnnotationAttributes(Marker.class.getName());
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	public @interface Marker {
+
+		String name() default "";
+
+		String[] tags() default {"a", "b"};
+
+		int order() default 1;
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Component
+	public @interface Stereotype {
+	}
+
+
+	@Marker
+	public static class DefaultBean {
+	}
+
+
+	@Marker(name = "explicit", order = 5)
+	public static class ExplicitBean {
+	}
+
+
+	@Stereotype
+	public static class StereotypeBean {
+	}
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2002-2008 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 2.5.6
+ */
+public class AntPathPatternSetTests {
+
+	private static final String[] PATTERN_SEGMENTS =
+			{"a", "b", "ab", "a*", "*b", "?", "??", "*", "**", "a?b", "*a*", "**", "b*a"};
+
+	private static final String[] PATH_SEGMENTS = {"a", "b", "ab", "aab", "ba", "abb", "bba", "x"};
+
+
+	@Test
+	public void matchingPatternsAreSortedBySpecificity() {
+		AntPathPatternSet patternSet = new AntPathPatternSet(new String[] {
+				"/**", "/docs/**", "/docs/*.html", "/docs/commit.html", "/docs/c?mmit.html", "/docs/*"});
+		assertEquals(Arrays.asList(new String[] {
+				"/docs/commit.html", "/docs/c?mmit.html", "/docs/*.html", "/docs/*", "/docs/**", "/**"}),
+				Arrays.asList(patternSet.getMatchingPatterns("/docs/commit.html")));
+		assertEquals("/docs/commit.html", patternSet.getBestMatchingPattern("/docs/commit.html"));
+		assertNull(patternSet.getBestMatchingPattern("docs/commit.html"));
+		assertFalse(patternSet.matches("docs"));
+	}
+
+	@Test
+	public void duplicatePatternsAreRemoved() {
+		AntPathPatternSet patternSet = new AntPathPatternSet(new String[] {"/a/*", "/a/**", "/a/*"});
+		assertEquals(Arrays.asList(new String[] {"/a/*", "/a/**"}), Arrays.asList(patternSet.getPatterns()));
+		assertEquals(2, patternSet.getMatchingPatterns("/a/b").length);
+	}
+
+	@Test
+	public void customPathSeparator() {
+		AntPathPatternSet patternSet = new AntPathPatternSet(new String[] {"a.*", "a.**.c", "b.c"}, ".");
+		assertEquals(Arrays.asList(new String[] {"a.*", "a.**.c"}),
+				Arrays.asList(patternSet.getMatchingPatterns("a.c")));
+		assertEquals(Arrays.asList(new String[] {"a.**.c"}),
+				Arrays.asList(patternSet.getMatchingPatterns("a.b.b.c")));
+	}
+
+	@Test
+	public void randomPatternsMatchLikeAntPathMatcher() {
+		Random random = new Random(2008);
+		AntPathMatcher matcher = new AntPathMatcher();
+		for (int round = 0; round < 200; round++) {
+			String[] patterns = new String[1 + random.nextInt(20)];
+			for (int i = 0; i < patterns.length; i++) {
+				patterns[i] = randomPath(random, PATTERN_SEGMENTS, 5);
+			}
+			AntPathPatternSet patternSet = new AntPathPatternSet(patterns);
+			for (int i = 0; i < 200; i++) {
+				String path = randomPath(random, PATH_SEGMENTS, 6);
+				Set expected = new HashSet();
+				for (int j = 0; j < patterns.length; j++) {
+					if (matcher.match(patterns[j], path)) {
+						expected.add(patterns[j]);
+					}
+				}
+				String[] matchingPatterns = patternSet.getMatchingPatterns(path);
+				assertEquals("Patterns " + Arrays.asList(patterns) + " for path '" + path + "'",
+						expected, new HashSet(Arrays.asList(matchingPatterns)));
+				assertEquals(expected.size(), matchingPatterns.length);
+				assertEquals(!expected.isEmpty(), patternSet.matches(path));
+				assertEquals((matchingPatterns.length > 0 ? matchingPatterns[0] : null),
+						patternSet.getBestMatchingPattern(path));
+			}
+		}
+	}
+
+	@Test
+	public void patternsBeyondCacheLimitStillMatch() {
+		AntPathMatcher matcher = new AntPathMatcher();
+		matcher.setPatternCacheLimit(2);
+		assertTrue(matcher.match("/a/*", "/a/b"));
+		assertTrue(matcher.match("/b/**", "/b/c/d"));
+		assertTrue(matcher.match("/c/?", "/c/d"));
+		assertFalse(matcher.match("/c/?", "/c/dd"));
+		assertTrue(matcher.match("/a/*", "/a/c"));
+
+		// The first two patterns are cached, the third one gets compiled on every use.
+		assertSame(matcher.getCompiledPattern("/a/*"), matcher.getCompiledPattern("/a/*"));
+		assertSame(matcher.getCompiledPattern("/b/**"), matcher.getCompiledPattern("/b/**"));
+		assertNotSame(matcher.getCompiledPattern("/c/?"), matcher.getCompiledPattern("/c/?"));
+	}
+
+	@Test
+	public void patternCacheCanBeSwitchedOff() {
+		AntPathMatcher matcher = new AntPathMatcher();
+		matcher.setPatternCacheLimit(0);
+		assertTrue(matcher.match("/a/*", "/a/b"));
+		assertNotSame(matcher.getCompiledPattern("/a/*"), matcher.getCompiledPattern("/a/*"));
+	}
+
+	@Test
+	public void changingPathSeparatorResetsPatternCache() {
+		AntPathMatcher matcher = new AntPathMatcher();
+		assertTrue(matcher.match("a/*", "a/b.c"));
+		matcher.setPathSeparator(".");
+		assertFalse(matcher.match("a/*", "a/b.c"));
+		assertTrue(matcher.match("a.*", "a.b"));
+	}
+
+	@Test
+	public void patternsCompiledConcurrentlyAreCached() throws Exception {
+		final AntPathMatcher matcher = new AntPathMatcher();
+		final int patternCount = 512;
+		final Throwable[] failure = new Throwable[1];
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						for (int j = 0; j < patternCount; j++) {
+							assertTrue(matcher.match("/p" + j + "/*", "/p" + j + "/x"));
+						}
+					}
+					catch (Throwable ex) {
+						failure[0] = ex;
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+		}
+		if (failure[0] != null) {
+			throw new AssertionError(failure[0]);
+		}
+		for (int j = 0; j < patternCount; j++) {
+			String pattern = "/p" + j + "/*";
+			assertSame(matcher.getCompiledPattern(pattern), matcher.getCompiledPattern(pattern));
+		}
+	}
+
+	@Test
+	public void randomPatternsMatchAlikeWithAndWithoutCache() {
+		Random random = new Random(1024);
+		AntPathMatcher cachingMatcher = new AntPathMatcher();
+		cachingMatcher.setPatternCacheLimit(16);
+		AntPathMatcher nonCachingMatcher = new AntPathMatcher();
+		nonCachingMatcher.setPatternCacheLimit(0);
+		for (int i = 0; i < 20000; i++) {
+			String pattern = randomPath(random, PATTERN_SEGMENTS, 5);
+			String path = randomPath(random, PATH_SEGMENTS, 6);
+			assertEquals(nonCachingMatcher.match(pattern, path), cachingMatcher.match(pattern, path));
+			assertEquals(nonCachingMatcher.matchStart(pattern, path), cachingMatcher.matchStart(pattern, path));
+		}
+	}
+
+
+	private static String randomPath(Random random, String[] segments, int maxSegments) {
+		StringBuffer sb = new StringBuffer();
+		if (random.nextBoolean()) {
+			sb.append('/');
+		}
+		int count = random.nextInt(maxSegments + 1);
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				sb.append('/');
+			}
+			sb.append(segments[random.nextInt(segments.length)]);
+		}
+		if (count > 0 && random.nextInt(4) == 0) {
+			sb.append('/');
+		}
+		return sb.toString();
+	}
+
+}